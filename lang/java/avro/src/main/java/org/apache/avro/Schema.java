@@ -41,6 +41,7 @@ import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.JsonParseException;
 import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.node.DoubleNode;
@@ -130,6 +131,12 @@ public abstract class Schema extends JsonProperties {
 
   int hashCode = NO_HASHCODE;
 
+  // memoized by SchemaNormalization; properties do not affect these
+  volatile String parsingForm;
+  volatile Long parsingFingerprint64;
+  volatile Map<String,byte[]> parsingFingerprints =
+    Collections.emptyMap();
+
   @Override public void addProp(String name, JsonNode value) {
     super.addProp(name, value);
     hashCode = NO_HASHCODE;
@@ -1020,12 +1027,37 @@ public abstract class Schema extends JsonProperties {
      * If named, the schema is added to the names known to this parser. */
     public Schema parse(String s) {
       try {
+        Schema result = parseStreaming(s);
+        if (result != null)
+          return result;
         return parse(FACTORY.createJsonParser(new StringReader(s)));
       } catch (IOException e) {
         throw new SchemaParseException(e);
       }
     }
 
+    /** Parses without building a tree of the JSON text, or returns null if
+     * the text must be parsed as a tree. */
+    private Schema parseStreaming(String s) throws IOException {
+      boolean saved = validateNames.get();
+      boolean savedValidateDefaults = VALIDATE_DEFAULTS.get();
+      String savedSpace = names.space();
+      StreamingParser parser =
+        new StreamingParser(FACTORY.createJsonParser(s), names);
+      try {
+        validateNames.set(validate);
+        VALIDATE_DEFAULTS.set(validateDefaults);
+        return parser.parse();
+      } catch (StreamingParser.GiveUp e) {
+        parser.undo(savedSpace);
+        return null;
+      } finally {
+        parser.in.close();
+        validateNames.set(saved);
+        VALIDATE_DEFAULTS.set(savedValidateDefaults);
+      }
+    }
+
     private Schema parse(JsonParser parser) throws IOException {
       boolean saved = validateNames.get();
       boolean savedValidateDefaults = VALIDATE_DEFAULTS.get();
@@ -1043,6 +1075,231 @@ public abstract class Schema extends JsonProperties {
     }
   }
 
+  /**
+   * Builds schemas token by token as {@link #parse(JsonNode, Names)} builds
+   * them from a tree, for the common case of valid schemas whose objects
+   * start with their type and give a record's name before its fields, as
+   * {@link #toString()} writes them.  Anything else makes it give up, after
+   * which the text is parsed as a tree, so that results are the same either
+   * way.  Errors in the text, such as malformed JSON or invalid names, are
+   * thrown as the tree parser throws them.  What each key means is left to
+   * helpers that both parsers call, such as {@link #parseField} and {@link
+   * #completeSchema}, so that only the reading of the text differs.
+   */
+  static class StreamingParser {
+    /** Thrown when text must be parsed as a tree.  Only this causes the
+     * tree parser to be used, so that other failures are not hidden. */
+    static final class GiveUp extends RuntimeException {
+      @Override public synchronized Throwable fillInStackTrace() {
+        return this;
+      }
+    }
+
+    private static final GiveUp GIVE_UP = new GiveUp();
+
+    final JsonParser in;
+    private final Names names;
+    private final List<Name> added = new ArrayList<Name>();
+
+    StreamingParser(JsonParser in, Names names) {
+      this.in = in;
+      this.names = names;
+    }
+
+    Schema parse() throws IOException {
+      in.nextToken();
+      return schema();
+    }
+
+    /** Forgets the names added by a parse that gave up. */
+    void undo(String space) {
+      for (Name name : added)
+        names.remove(name);
+      names.space(space);
+    }
+
+    private void add(Schema schema) {
+      names.add(schema);
+      added.add(((NamedSchema)schema).name);
+    }
+
+    private Schema schema() throws IOException {
+      JsonToken token = in.getCurrentToken();
+      if (token == JsonToken.VALUE_STRING) {        // name
+        Schema result = names.get(in.getText());
+        if (result == null)
+          throw GIVE_UP;
+        return result;
+      } else if (token == JsonToken.START_OBJECT) {
+        return object();
+      } else if (token == JsonToken.START_ARRAY) {  // union
+        LockableArrayList<Schema> types = new LockableArrayList<Schema>();
+        while (in.nextToken() != JsonToken.END_ARRAY)
+          types.add(schema());
+        return new UnionSchema(types);
+      }
+      throw GIVE_UP;
+    }
+
+    private String text() throws IOException {
+      if (in.nextToken() != JsonToken.VALUE_STRING)
+        throw GIVE_UP;
+      return in.getText();
+    }
+
+    private Schema object() throws IOException {
+      if (in.nextToken() != JsonToken.FIELD_NAME
+          || !"type".equals(in.getCurrentName()))
+        throw GIVE_UP;
+      String type = text();
+      boolean record = type.equals("record") || type.equals("error");
+      boolean named = record || type.equals("enum") || type.equals("fixed");
+      String savedSpace = names.space();
+      Set<String> keys = new HashSet<String>();
+      String nameText = null, space = null, doc = null;
+      Name name = null;
+      Schema result = null;
+      Schema items = null;
+      Schema values = null;
+      LockableArrayList<String> symbols = null;
+      int size = -1;
+      Set<String> aliases = null;
+      Map<String,JsonNode> props = new LinkedHashMap<String,JsonNode>();
+      while (in.nextToken() != JsonToken.END_OBJECT) {
+        String key = in.getCurrentName();
+        if (key.equals("type") || !keys.add(key))
+          throw GIVE_UP;                            // duplicate key
+        if (named && (key.equals("name") || key.equals("namespace")
+                      || key.equals("doc"))) {
+          if (name != null)
+            throw GIVE_UP;                          // too late
+          String value = text();
+          if (key.equals("name")) nameText = value;
+          else if (key.equals("namespace")) space = value;
+          else doc = value;
+        } else if (record && key.equals("fields")) {
+          name = name(nameText, space);
+          result = new RecordSchema(name, doc, type.equals("error"));
+          add(result);
+          result.setFields(fields());
+        } else if (type.equals("enum") && key.equals("symbols")) {
+          if (in.nextToken() != JsonToken.START_ARRAY)
+            throw GIVE_UP;
+          symbols = new LockableArrayList<String>();
+          while (in.nextToken() == JsonToken.VALUE_STRING)
+            symbols.add(in.getText());
+          if (in.getCurrentToken() != JsonToken.END_ARRAY)
+            throw GIVE_UP;
+        } else if (type.equals("fixed") && key.equals("size")) {
+          if (in.nextToken() != JsonToken.VALUE_NUMBER_INT
+              || in.getNumberType() != JsonParser.NumberType.INT)
+            throw GIVE_UP;
+          size = in.getIntValue();
+        } else if (type.equals("array") && key.equals("items")) {
+          in.nextToken();
+          items = schema();
+        } else if (type.equals("map") && key.equals("values")) {
+          in.nextToken();
+          values = schema();
+        } else if (named && key.equals("aliases")) {
+          in.nextToken();
+          aliases = aliases();
+        } else if (SCHEMA_RESERVED.contains(key)) { // ignore reserved
+          in.nextToken();
+          in.skipChildren();
+        } else {
+          in.nextToken();
+          props.put(key, MAPPER.readTree(in));
+        }
+      }
+      if (PRIMITIVES.containsKey(type)) {
+        result = create(PRIMITIVES.get(type));
+      } else if (record) {
+        if (result == null)
+          throw GIVE_UP;                            // no fields
+      } else if (type.equals("enum") && symbols != null) {
+        result = new EnumSchema(name(nameText, space), doc, symbols);
+        add(result);
+      } else if (type.equals("array") && items != null) {
+        result = new ArraySchema(items);
+      } else if (type.equals("map") && values != null) {
+        result = new MapSchema(values);
+      } else if (type.equals("fixed") && size >= 0) {
+        result = new FixedSchema(name(nameText, space), doc, size);
+        add(result);
+      } else {
+        throw GIVE_UP;
+      }
+      return completeSchema(result, props.entrySet().iterator(),
+                            result instanceof NamedSchema ? aliases : null,
+                            names, savedSpace);
+    }
+
+    private Name name(String nameText, String space) {
+      if (nameText == null)
+        throw GIVE_UP;
+      return parseName(nameText, space, names);
+    }
+
+    private List<Field> fields() throws IOException {
+      if (in.nextToken() != JsonToken.START_ARRAY)
+        throw GIVE_UP;
+      List<Field> fields = new ArrayList<Field>();
+      while (in.nextToken() == JsonToken.START_OBJECT)
+        fields.add(field());
+      if (in.getCurrentToken() != JsonToken.END_ARRAY)
+        throw GIVE_UP;
+      return fields;
+    }
+
+    private Field field() throws IOException {
+      Set<String> keys = new HashSet<String>();
+      String name = null, doc = null;
+      Schema schema = null;
+      JsonNode defaultValue = null;
+      JsonNode order = null;
+      Set<String> aliases = null;
+      Map<String,JsonNode> props = new LinkedHashMap<String,JsonNode>();
+      while (in.nextToken() != JsonToken.END_OBJECT) {
+        String key = in.getCurrentName();
+        if (!keys.add(key))
+          throw GIVE_UP;                            // duplicate key
+        in.nextToken();
+        if (key.equals("name")) {
+          if (in.getCurrentToken() != JsonToken.VALUE_STRING)
+            throw GIVE_UP;
+          name = in.getText();
+        } else if (key.equals("type")) {
+          schema = schema();
+        } else if (key.equals("doc")) {
+          if (in.getCurrentToken() != JsonToken.VALUE_STRING)
+            throw GIVE_UP;
+          doc = in.getText();
+        } else if (key.equals("default")) {
+          defaultValue = MAPPER.readTree(in);
+        } else if (key.equals("order")) {
+          order = MAPPER.readTree(in);
+        } else if (key.equals("aliases")) {
+          aliases = aliases();
+        } else {
+          props.put(key, MAPPER.readTree(in));
+        }
+      }
+      if (name == null || schema == null)
+        throw GIVE_UP;
+      return parseField(name, schema, doc, defaultValue, order, aliases,
+                        props.entrySet().iterator());
+    }
+
+    private Set<String> aliases() throws IOException {
+      try {
+        return parseAliases(MAPPER.readTree(in), null);
+      } catch (SchemaParseException e) {
+        throw GIVE_UP;                 // the tree parser reports it in context
+      }
+    }
+  }
+
   /**
    * Constructs a Schema object from JSON schema file <tt>file</tt>.
    * The contents of <tt>file</tt> is expected to be in UTF-8 format.
@@ -1240,13 +1497,8 @@ public abstract class Schema extends JsonProperties {
           || type.equals("enum") || type.equals("fixed")) {
         String space = getOptionalText(schema, "namespace");
         doc = getOptionalText(schema, "doc");
-        if (space == null)
-          space = names.space();
-        name = new Name(getRequiredText(schema, "name", "No name in schema"),
-                        space);
-        if (name.space != null) {                 // set default namespace
-          names.space(name.space);
-        }
+        name = parseName(getRequiredText(schema, "name", "No name in schema"),
+                         space, names);
       }
       if (PRIMITIVES.containsKey(type)) {         // primitive
         result = create(PRIMITIVES.get(type));
@@ -1270,27 +1522,9 @@ public abstract class Schema extends JsonProperties {
                +" The type of the \""+fieldName+"\" field must be"
                +" a defined name or a {\"type\": ...} expression.");
           Schema fieldSchema = parse(fieldTypeNode, names);
-          Field.Order order = Field.Order.ASCENDING;
-          JsonNode orderNode = field.get("order");
-          if (orderNode != null)
-            order = Field.Order.valueOf(orderNode.getTextValue().toUpperCase(Locale.ENGLISH));
-          JsonNode defaultValue = field.get("default");
-          if (defaultValue != null
-              && (Type.FLOAT.equals(fieldSchema.getType())
-                  || Type.DOUBLE.equals(fieldSchema.getType()))
-              && defaultValue.isTextual())
-            defaultValue =
-              new DoubleNode(Double.valueOf(defaultValue.getTextValue()));
-          Field f = new Field(fieldName, fieldSchema,
-                              fieldDoc, defaultValue, order);
-          Iterator<String> i = field.getFieldNames();
-          while (i.hasNext()) {                       // add field props
-            String prop = i.next();
-            if (!FIELD_RESERVED.contains(prop))
-              f.addProp(prop, field.get(prop));
-          }
-          f.aliases = parseAliases(field);
-          fields.add(f);
+          fields.add(parseField(fieldName, fieldSchema, fieldDoc,
+                                field.get("default"), field.get("order"),
+                                parseAliases(field), field.getFields()));
         }
         result.setFields(fields);
       } else if (type.equals("enum")) {           // enum
@@ -1320,22 +1554,10 @@ public abstract class Schema extends JsonProperties {
         if (name != null) names.add(result);
       } else
         throw new SchemaParseException("Type not supported: "+type);
-      Iterator<String> i = schema.getFieldNames();
-      while (i.hasNext()) {                       // add properties
-        String prop = i.next();
-        if (!SCHEMA_RESERVED.contains(prop))      // ignore reserved
-          result.addProp(prop, schema.get(prop));
-      }
-      // parse logical type if present
-      result.logicalType = LogicalTypes.fromSchemaIgnoreInvalid(result);
-      names.space(savedSpace);                  // restore space
-      if (result instanceof NamedSchema) {
-        Set<String> aliases = parseAliases(schema);
-        if (aliases != null)                      // add aliases
-          for (String alias : aliases)
-            result.addAlias(alias);
-      }
-      return result;
+      return completeSchema(result, schema.getFields(),
+                            result instanceof NamedSchema
+                            ? parseAliases(schema) : null,
+                            names, savedSpace);
     } else if (schema.isArray()) {                // union
       LockableArrayList<Schema> types =
         new LockableArrayList<Schema>(schema.size());
@@ -1347,8 +1569,69 @@ public abstract class Schema extends JsonProperties {
     }
   }
 
+  /** Returns a name parsed in the default namespace, unless it has its own,
+   * and makes its namespace the default for the names nested in it. */
+  private static Name parseName(String text, String space, Names names) {
+    Name name = new Name(text, space == null ? names.space() : space);
+    if (name.space != null)                       // set default namespace
+      names.space(name.space);
+    return name;
+  }
+
+  /** Returns a parsed field, given the values of its keys, any of which but
+   * its name and schema may be null.  Keys not reserved are added as
+   * properties. */
+  private static Field parseField(String name, Schema schema, String doc,
+                                  JsonNode defaultValue, JsonNode orderNode,
+                                  Set<String> aliases,
+                                  Iterator<Map.Entry<String,JsonNode>> keys) {
+    Field.Order order = Field.Order.ASCENDING;
+    if (orderNode != null)
+      order = Field.Order.valueOf(orderNode.getTextValue().toUpperCase(Locale.ENGLISH));
+    if (defaultValue != null
+        && (Type.FLOAT.equals(schema.getType())
+            || Type.DOUBLE.equals(schema.getType()))
+        && defaultValue.isTextual())
+      defaultValue =
+        new DoubleNode(Double.valueOf(defaultValue.getTextValue()));
+    Field f = new Field(name, schema, doc, defaultValue, order);
+    while (keys.hasNext()) {                      // add field props
+      Map.Entry<String,JsonNode> key = keys.next();
+      if (!FIELD_RESERVED.contains(key.getKey()))
+        f.addProp(key.getKey(), key.getValue());
+    }
+    f.aliases = aliases;
+    return f;
+  }
+
+  /** Adds the keys of a parsed schema that are not reserved as properties,
+   * sets its logical type and adds its aliases, if any.  Restores the default
+   * namespace to that of the names enclosing it. */
+  private static Schema completeSchema(Schema result,
+                                       Iterator<Map.Entry<String,JsonNode>> keys,
+                                       Set<String> aliases,
+                                       Names names, String savedSpace) {
+    while (keys.hasNext()) {                      // add properties
+      Map.Entry<String,JsonNode> key = keys.next();
+      if (!SCHEMA_RESERVED.contains(key.getKey())) // ignore reserved
+        result.addProp(key.getKey(), key.getValue());
+    }
+    // parse logical type if present
+    result.logicalType = LogicalTypes.fromSchemaIgnoreInvalid(result);
+    names.space(savedSpace);                      // restore space
+    if (aliases != null)                          // add aliases
+      for (String alias : aliases)
+        result.addAlias(alias);
+    return result;
+  }
+
   static Set<String> parseAliases(JsonNode node) {
-    JsonNode aliasesNode = node.get("aliases");
+    return parseAliases(node.get("aliases"), node);
+  }
+
+  /** Returns the aliases in the value of an "aliases" key, if any, of a
+   * schema or field. */
+  private static Set<String> parseAliases(JsonNode aliasesNode, JsonNode node) {
     if (aliasesNode == null)
       return null;
     if (!aliasesNode.isArray())
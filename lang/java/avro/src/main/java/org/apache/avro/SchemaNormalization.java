@@ -27,6 +27,11 @@ import java.security.NoSuchAlgorithmException;
 /** Collection of static methods for generating the cannonical form of
  * schemas (see {@link #toParsingForm}) -- and fingerprints of cannonical
  * forms ({@link #fingerprint}).
+ *
+ * <p>The canonical form and fingerprints of a schema are computed once per
+ * {@link Schema} instance and remembered by it.  The 64-bit fingerprint is
+ * computed from the canonical form as it is generated, without building the
+ * string.
  */
 public class SchemaNormalization {
 
@@ -35,11 +40,20 @@ public class SchemaNormalization {
   /** Returns "Parsing Canonical Form" of a schema as defined by Avro
     * spec. */
   public static String toParsingForm(Schema s) {
+    String form = s.parsingForm;
+    if (form == null) {
+      form = build(s, new StringBuilder()).toString();
+      s.parsingForm = form;
+    }
+    return form;
+  }
+
+  private static Appendable build(Schema s, Appendable o) {
     try {
       Map<String,String> env = new HashMap<String,String>();
-      return build(env, s, new StringBuilder()).toString();
+      return build(env, s, o);
     } catch (IOException e) {
-      // Shouldn't happen, b/c StringBuilder can't throw IOException
+      // Shouldn't happen, b/c neither appendable can throw IOException
       throw new RuntimeException(e);
     }
   }
@@ -61,15 +75,8 @@ public class SchemaNormalization {
   public static byte[] fingerprint(String fpName, byte[] data)
     throws NoSuchAlgorithmException
   {
-    if (fpName.equals("CRC-64-AVRO")) {
-      long fp = fingerprint64(data);
-      byte[] result = new byte[8];
-      for (int i = 0; i < 8; i++) {
-        result[i] = (byte)fp;
-        fp >>= 8;
-      }
-      return result;
-    }
+    if (fpName.equals("CRC-64-AVRO"))
+      return littleEndian(fingerprint64(data));
 
     MessageDigest md = MessageDigest.getInstance(fpName);
     return md.digest(data);
@@ -89,18 +96,49 @@ public class SchemaNormalization {
   public static byte[] parsingFingerprint(String fpName, Schema s)
     throws NoSuchAlgorithmException
   {
-    try {
-      return fingerprint(fpName, toParsingForm(s).getBytes("UTF-8"));
-    } catch (UnsupportedEncodingException e) { throw new RuntimeException(e); }
+    if (fpName.equals("CRC-64-AVRO"))
+      return littleEndian(parsingFingerprint64(s));
+    byte[] fp = s.parsingFingerprints.get(fpName);
+    if (fp == null) {
+      try {
+        fp = fingerprint(fpName, toParsingForm(s).getBytes("UTF-8"));
+      } catch (UnsupportedEncodingException e) {
+        throw new RuntimeException(e);
+      }
+      synchronized (s) {                          // copy on write
+        Map<String,byte[]> fps =
+          new HashMap<String,byte[]>(s.parsingFingerprints);
+        fps.put(fpName, fp);
+        s.parsingFingerprints = fps;
+      }
+    }
+    return fp.clone();
   }
 
   /** Returns {@link #fingerprint64} applied to the parsing canonical form
     * of the supplied schema. */
   public static long parsingFingerprint64(Schema s) {
-    try {
-      return fingerprint64(toParsingForm(s).getBytes("UTF-8"));
-    } catch (java.io.UnsupportedEncodingException e)
-      { throw new RuntimeException(e); }
+    Long fp = s.parsingFingerprint64;
+    if (fp == null) {
+      FP64Appendable o = new FP64Appendable();
+      String form = s.parsingForm;
+      if (form != null)
+        o.append(form);
+      else
+        build(s, o);
+      fp = o.fingerprint();
+      s.parsingFingerprint64 = fp;
+    }
+    return fp;
+  }
+
+  private static byte[] littleEndian(long fp) {
+    byte[] result = new byte[8];
+    for (int i = 0; i < 8; i++) {
+      result[i] = (byte)fp;
+      fp >>= 8;
+    }
+    return result;
   }
 
   private static Appendable build(Map<String,String> env, Schema s,
@@ -157,6 +195,66 @@ public class SchemaNormalization {
 
   final static long EMPTY64 = 0xc15d213aa4d7a795L;
 
+  /** Computes {@link #fingerprint64} of the UTF-8 encoding of the chars
+   * appended to it. */
+  private static class FP64Appendable implements Appendable {
+    private long fp = EMPTY64;
+    private char high;                            // pending high surrogate
+
+    long fingerprint() {
+      if (high != 0) {
+        update('?');                              // unpaired, as by String
+        high = 0;
+      }
+      return fp;
+    }
+
+    private void update(int b) {
+      fp = (fp >>> 8) ^ FP64.FP_TABLE[(int)(fp ^ b) & 0xff];
+    }
+
+    public Appendable append(char c) {
+      if (high != 0) {
+        if (Character.isLowSurrogate(c)) {
+          int cp = Character.toCodePoint(high, c);
+          high = 0;
+          update(0xf0 | (cp >> 18));
+          update(0x80 | ((cp >> 12) & 0x3f));
+          update(0x80 | ((cp >> 6) & 0x3f));
+          update(0x80 | (cp & 0x3f));
+          return this;
+        }
+        update('?');
+        high = 0;
+      }
+      if (c < 0x80) {
+        update(c);
+      } else if (c < 0x800) {
+        update(0xc0 | (c >> 6));
+        update(0x80 | (c & 0x3f));
+      } else if (Character.isHighSurrogate(c)) {
+        high = c;
+      } else if (Character.isLowSurrogate(c)) {
+        update('?');
+      } else {
+        update(0xe0 | (c >> 12));
+        update(0x80 | ((c >> 6) & 0x3f));
+        update(0x80 | (c & 0x3f));
+      }
+      return this;
+    }
+
+    public Appendable append(CharSequence csq) {
+      return append(csq, 0, csq.length());
+    }
+
+    public Appendable append(CharSequence csq, int start, int end) {
+      for (int i = start; i < end; i++)
+        append(csq.charAt(i));
+      return this;
+    }
+  }
+
   /* An inner class ensures that FP_TABLE initialized only when needed. */
   private static class FP64 {
     private static final long[] FP_TABLE = new long[256];
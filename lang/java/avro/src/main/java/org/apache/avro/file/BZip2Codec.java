@@ -18,7 +18,6 @@
 package org.apache.avro.file;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
@@ -29,7 +28,6 @@ import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream
 public class BZip2Codec extends Codec {
 
   public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
-  private ByteArrayOutputStream outputBuffer;
 
   static class Option extends CodecFactory {
     @Override
@@ -43,42 +41,42 @@ public class BZip2Codec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer uncompressedData) throws IOException {
+    return exact(compress(uncompressedData, null));
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
+    return exact(decompress(compressedData, null));
+  }
 
-    ByteArrayOutputStream baos = getOutputBuffer(uncompressedData.remaining());
+  @Override
+  public ByteBuffer compress(ByteBuffer uncompressedData, ByteBuffer out)
+    throws IOException {
+    BufferOutputStream baos =
+      new BufferOutputStream(out, uncompressedData.remaining() / 2 + 64);
     BZip2CompressorOutputStream outputStream = new BZip2CompressorOutputStream(baos);
 
     try {
       outputStream.write(uncompressedData.array(),
-                         uncompressedData.position(),
+                         uncompressedData.arrayOffset()
+                         + uncompressedData.position(),
                          uncompressedData.remaining());
     } finally {
       outputStream.close();
     }
 
-    ByteBuffer result = ByteBuffer.wrap(baos.toByteArray());
-    return result;
+    return baos.getBuffer();
   }
 
   @Override
-  public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
-    ByteArrayInputStream bais = new ByteArrayInputStream(compressedData.array());
-    BZip2CompressorInputStream inputStream = new BZip2CompressorInputStream(bais);
-    try {
-      ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-      byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-
-      int readCount = -1;
-
-      while ( (readCount = inputStream.read(buffer, compressedData.position(), buffer.length))> 0) {
-        baos.write(buffer, 0, readCount);
-      }
-
-      ByteBuffer result = ByteBuffer.wrap(baos.toByteArray());
-      return result;
-    } finally {
-      inputStream.close();
-    }
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer out)
+    throws IOException {
+    ByteArrayInputStream bais = new ByteArrayInputStream(
+        compressedData.array(),
+        compressedData.arrayOffset() + compressedData.position(),
+        compressedData.remaining());
+    return readFully(new BZip2CompressorInputStream(bais), out,
+                     DEFAULT_BUFFER_SIZE);
   }
 
   @Override public int hashCode() { return getName().hashCode(); }
@@ -91,15 +89,4 @@ public class BZip2Codec extends Codec {
       return false;
     return true;
   }
-
-  //get and initialize the output buffer for use.
-  private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
-    if (null == outputBuffer) {
-      outputBuffer = new ByteArrayOutputStream(suggestedLength);
-    }
-    outputBuffer.reset();
-    return outputBuffer;
-  }
-
-
 }
@@ -18,6 +18,8 @@
 package org.apache.avro.file;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 
 /**
@@ -30,6 +32,33 @@ public abstract class Codec {
   public abstract ByteBuffer compress(ByteBuffer uncompressedData) throws IOException;
   /** Decompress the data  */
   public abstract ByteBuffer decompress(ByteBuffer compressedData) throws IOException;
+
+  /**
+   * Compresses the input data, reusing a buffer for the result where
+   * possible.  The result is written to <tt>out</tt>, from its start, when
+   * it is an array-backed buffer with room for it.  Otherwise a new buffer is
+   * returned, which callers should pass in place of <tt>out</tt> next time.
+   * The result may also be the input itself.  The data in the input is left
+   * unchanged.  The default implementation calls {@link #compress(ByteBuffer)}
+   * and ignores <tt>out</tt>.
+   * @param out a buffer to reuse, or null
+   */
+  public ByteBuffer compress(ByteBuffer uncompressedData, ByteBuffer out)
+    throws IOException {
+    return compress(uncompressedData);
+  }
+
+  /**
+   * Decompresses the data, reusing a buffer for the result where possible,
+   * as {@link #compress(ByteBuffer,ByteBuffer)} does.  The default
+   * implementation calls {@link #decompress(ByteBuffer)} and ignores
+   * <tt>out</tt>.
+   * @param out a buffer to reuse, or null
+   */
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer out)
+    throws IOException {
+    return decompress(compressedData);
+  }
   /**
    * Codecs must implement an equals() method.  Two codecs, A and B are equal
    * if: the result of A and B decompressing content compressed by A is the same
@@ -45,4 +74,104 @@ public abstract class Codec {
   public String toString() {
     return getName();
   }
+
+  /** The largest buffer allocated, as some VMs cannot allocate arrays of
+   * nearly {@link Integer#MAX_VALUE} elements. */
+  static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+  /** The largest initial guess at the size of decompressed data.  Larger
+   * data grows the buffer as needed. */
+  static final int MAX_INITIAL_SIZE = 1 << 26;
+
+  /** Returns a guess at the size of data decompressed from <tt>size</tt>
+   * bytes, <tt>ratio</tt> times as many, at most {@link
+   * #MAX_INITIAL_SIZE}. */
+  static int expanded(int size, int ratio) {
+    return (int) Math.min((long) size * ratio, MAX_INITIAL_SIZE);
+  }
+
+  /** Returns <tt>out</tt>, cleared, if it is array-backed and has room for
+   * <tt>size</tt> bytes, or else a new buffer of that size. */
+  static ByteBuffer reuse(ByteBuffer out, int size) {
+    if (out == null || !out.hasArray() || out.isReadOnly()
+        || out.capacity() < size)
+      return ByteBuffer.allocate(size);
+    out.clear();
+    return out;
+  }
+
+  /** Returns the content of a buffer in an array of just its size, as
+   * {@link #compress(ByteBuffer)} and {@link #decompress(ByteBuffer)} have
+   * long done for the stream-based codecs. */
+  static ByteBuffer exact(ByteBuffer result) {
+    if (result.arrayOffset() == 0 && result.position() == 0
+        && result.remaining() == result.array().length)
+      return result;
+    byte[] bytes = new byte[result.remaining()];
+    result.duplicate().get(bytes);
+    return ByteBuffer.wrap(bytes);
+  }
+
+  /** Returns a buffer with twice the capacity of <tt>out</tt> and the same
+   * content before its position. */
+  static ByteBuffer grow(ByteBuffer out) {
+    if (out.capacity() >= MAX_BUFFER_SIZE)
+      throw new OutOfMemoryError("Buffer too large: " + out.capacity());
+    int capacity = (int) Math.min(out.capacity() * 2L, MAX_BUFFER_SIZE);
+    ByteBuffer bigger = ByteBuffer.allocate(Math.max(64, capacity));
+    out.flip();
+    bigger.put(out);
+    return bigger;
+  }
+
+  /** Reads a stream to its end into a reused buffer, then closes it. */
+  static ByteBuffer readFully(InputStream in, ByteBuffer out, int size)
+    throws IOException {
+    out = reuse(out, size);
+    try {
+      while (true) {
+        if (!out.hasRemaining())
+          out = grow(out);
+        int n = in.read(out.array(), out.arrayOffset() + out.position(),
+                        out.remaining());
+        if (n < 0)
+          break;
+        out.position(out.position() + n);
+      }
+    } finally {
+      in.close();
+    }
+    out.flip();
+    return out;
+  }
+
+  /** An output stream that writes into a reused buffer, growing it as
+   * needed. */
+  static class BufferOutputStream extends OutputStream {
+    private ByteBuffer buffer;
+
+    BufferOutputStream(ByteBuffer out, int size) {
+      this.buffer = reuse(out, size);
+    }
+
+    @Override
+    public void write(int b) {
+      if (!buffer.hasRemaining())
+        buffer = grow(buffer);
+      buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      while (buffer.remaining() < len)
+        buffer = grow(buffer);
+      buffer.put(b, off, len);
+    }
+
+    /** Returns the bytes written. */
+    ByteBuffer getBuffer() {
+      buffer.flip();
+      return buffer;
+    }
+  }
 }
@@ -26,12 +26,15 @@ import org.tukaani.xz.LZMA2Options;
 
 /**  Encapsulates the ability to specify and configure a compression codec.
  *
- * Currently there are three codecs registered by default:
+ * Currently there are seven codecs registered by default:
  * <ul>
  *   <li>{@code null}</li>
  *   <li>{@code deflate}</li>
  *   <li>{@code snappy}</li>
  *   <li>{@code bzip2}</li>
+ *   <li>{@code xz}</li>
+ *   <li>{@code zstandard}</li>
+ *   <li>{@code lz4}</li>
  * </ul>
  *
  * New and custom codecs can be registered using {@link #addCodec(String,
@@ -65,6 +68,32 @@ public abstract class CodecFactory {
     return new BZip2Codec.Option();
   }
 
+  /** Zstandard codec, with specific compression.
+   * compressionLevel should be between -5 and 22, inclusive. */
+  public static CodecFactory zstandardCodec(int compressionLevel) {
+    return new ZstandardCodec.Option(compressionLevel, null);
+  }
+
+  /** Zstandard codec, with specific compression and a dictionary trained on
+   * representative data.  Files written with a dictionary may only be read
+   * once a codec with the same dictionary has been registered under the name
+   * {@code zstandard}, with {@link #addCodec(String, CodecFactory)}. */
+  public static CodecFactory zstandardCodec(int compressionLevel,
+                                            byte[] dictionary) {
+    return new ZstandardCodec.Option(compressionLevel, dictionary.clone());
+  }
+
+  /** LZ4 codec, with the fast compressor. */
+  public static CodecFactory lz4Codec() {
+    return lz4Codec(0);
+  }
+
+  /** LZ4 codec, with specific compression.  compressionLevel should be
+   * between 0, for the fast compressor, and 17, inclusive. */
+  public static CodecFactory lz4Codec(int compressionLevel) {
+    return new LZ4Codec.Option(compressionLevel);
+  }
+
   /** Creates internal Codec. */
   protected abstract Codec createInstance();
 
@@ -76,6 +105,7 @@ public abstract class CodecFactory {
 
   public static final int DEFAULT_DEFLATE_LEVEL = Deflater.DEFAULT_COMPRESSION;
   public static final int DEFAULT_XZ_LEVEL = LZMA2Options.PRESET_DEFAULT;
+  public static final int DEFAULT_ZSTANDARD_LEVEL = 3;
 
   static {
     addCodec("null", nullCodec());
@@ -83,17 +113,21 @@ public abstract class CodecFactory {
     addCodec("snappy", snappyCodec());
     addCodec("bzip2", bzip2Codec());
     addCodec("xz", xzCodec(DEFAULT_XZ_LEVEL));
+    addCodec("zstandard", zstandardCodec(DEFAULT_ZSTANDARD_LEVEL));
+    addCodec("lz4", lz4Codec());
   }
 
   /** Maps a codec name into a CodecFactory.
    *
-   * Currently there are five codecs registered by default:
+   * Currently there are seven codecs registered by default:
    * <ul>
    *   <li>{@code null}</li>
    *   <li>{@code deflate}</li>
    *   <li>{@code snappy}</li>
    *   <li>{@code bzip2}</li>
    *   <li>{@code xz}</li>
+   *   <li>{@code zstandard}</li>
+   *   <li>{@code lz4}</li>
    * </ul>
    */
   public static CodecFactory fromString(String s) {
@@ -21,8 +21,19 @@ import java.io.IOException;
 import java.io.EOFException;
 import java.io.InputStream;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.DatumReader;
 import static org.apache.avro.file.DataFileConstants.SYNC_SIZE;
@@ -36,6 +47,16 @@ public class DataFileReader<D>
   private SeekableInputStream sin;
   private long blockStart;
 
+  private Executor executor;
+  private int blocksAhead;
+  private final Queue<FutureTask<DecodedBlock>> pending =
+    new ArrayDeque<FutureTask<DecodedBlock>>();
+  private final Queue<Codec> codecs = new ConcurrentLinkedQueue<Codec>();
+  private DecodedBlock decoded;
+  private int decodedIndex;
+  private long aheadEnd = -1;                     // end of last block read
+  private BinaryDecoder mapped;                   // decodes mapped blocks
+
   /** Open a reader for a file. */
   public static <D> FileReader<D> openReader(File file, DatumReader<D> reader)
     throws IOException {
@@ -107,14 +128,157 @@ public class DataFileReader<D>
     initialize(this.sin, header);
   }
 
+  /**
+   * Decode blocks in parallel, ahead of the caller.  Raw blocks are read
+   * ahead on the calling thread, then decompressed and decoded by tasks run
+   * on <tt>executor</tt>, while entries are still returned in file order.
+   * At most <tt>blocksAhead</tt> blocks are in flight at once, which bounds
+   * the memory held.  Pass a null executor to decode sequentially again.
+   *
+   * <p>The datum reader is then called from several threads at once, so must
+   * be thread-safe, as {@link org.apache.avro.generic.GenericDatumReader} and
+   * its subclasses are.  Instances passed to {@link #next(Object)} are not
+   * reused, and {@link #nextBlock()} is not supported.
+   *
+   * @throws IllegalStateException if part of a block has been read.
+   */
+  public void setParallel(Executor executor, int blocksAhead)
+    throws IOException {
+    if ((blockRemaining != 0 && blockRemaining != getBlockCount())
+        || (decoded != null && decodedIndex != 0
+            && decodedIndex < decoded.entries.length))
+      throw new IllegalStateException("Not at block boundary.");
+    if (executor != null && blocksAhead < 1)
+      throw new IllegalArgumentException("Invalid blocksAhead: " + blocksAhead);
+    if (this.executor != null || blockRemaining != 0)
+      seek(blockStart);                           // drop blocks read ahead
+    this.executor = executor;
+    this.blocksAhead = blocksAhead;
+  }
+
+  /** A block decoded by a task, with the positions around it. */
+  private static class DecodedBlock {
+    Object[] entries;
+    long start;                                   // sync before this block
+    long end;                                     // sync after this block
+  }
+
+  /** Reads raw blocks until <tt>blocksAhead</tt> are in flight. */
+  private void fill() throws IOException {
+    while (pending.size() < blocksAhead && hasNextBlock()) {
+      final DataBlock block = nextRawBlock(null);
+      blockRemaining = 0;
+      final DecodedBlock result = new DecodedBlock();
+      result.start = aheadEnd < 0 ? blockStart : aheadEnd;
+      result.end = aheadEnd = position();
+      FutureTask<DecodedBlock> task =
+        new FutureTask<DecodedBlock>(new Callable<DecodedBlock>() {
+          public DecodedBlock call() throws IOException {
+            result.entries = decode(block);
+            return result;
+          }
+        });
+      pending.add(task);
+      executor.execute(task);
+    }
+  }
+
+  private Object[] decode(DataBlock block) throws IOException {
+    Codec codec = codecs.poll();
+    if (codec == null)
+      codec = resolveCodec();
+    try {
+      block.decompressUsing(codec);
+    } finally {
+      codecs.add(codec);
+    }
+    ByteBuffer buffer = block.getAsByteBuffer();
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(buffer.array(),
+        buffer.arrayOffset() + buffer.position(), buffer.remaining(), null);
+    DatumReader<D> reader = getDatumReader();
+    Object[] entries = new Object[(int) block.getNumEntries()];
+    for (int i = 0; i < entries.length; i++)
+      entries[i] = reader.read(null, in);
+    if (!in.isEnd())
+      throw new IOException("Block read partially, the data may be corrupt");
+    return entries;
+  }
+
+  /** Makes the next decoded block current, waiting for it if needed.
+   * Returns false at the end of the file. */
+  private boolean nextDecoded() throws IOException {
+    fill();
+    FutureTask<DecodedBlock> task = pending.poll();
+    if (task == null)
+      return false;
+    try {
+      decoded = task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException)
+        throw (IOException) e.getCause();
+      throw new AvroRuntimeException(e.getCause());
+    }
+    decodedIndex = 0;
+    blockStart = decoded.start;
+    return true;
+  }
+
+  private void cancelPending() {
+    for (FutureTask<DecodedBlock> task : pending)
+      task.cancel(false);
+    pending.clear();
+    decoded = null;
+    aheadEnd = -1;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (executor == null)
+      return super.hasNext();
+    try {
+      while (decoded == null || decodedIndex == decoded.entries.length)
+        if (!nextDecoded())
+          return false;
+      return true;
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public D next(D reuse) throws IOException {
+    if (executor == null)
+      return super.next(reuse);
+    if (!hasNext())
+      throw new NoSuchElementException();
+    D result = (D) decoded.entries[decodedIndex];
+    decoded.entries[decodedIndex++] = null;
+    if (decodedIndex == decoded.entries.length)
+      blockStart = decoded.end;
+    return result;
+  }
+
+  @Override
+  public ByteBuffer nextBlock() throws IOException {
+    if (executor != null)
+      throw new IllegalStateException("Not supported when parallel.");
+    return super.nextBlock();
+  }
+
   /** Move to a specific, known synchronization point, one returned from {@link
    * DataFileWriter#sync()} while writing.  If synchronization points were not
    * saved while writing a file, use {@link #sync(long)} instead. */
   public void seek(long position) throws IOException {
+    cancelPending();
     sin.seek(position);
     vin = DecoderFactory.get().binaryDecoder(this.sin, vin);
     datumIn = null;
     blockRemaining = 0;
+    inPlaceEnd = -1;
     blockStart = position;
   }
 
@@ -158,7 +322,47 @@ public class DataFileReader<D>
 
   @Override
   protected void blockFinished() throws IOException {
-    blockStart = sin.tell() - vin.inputStream().available();
+    blockStart = position();
+  }
+
+  @Override
+  InPlaceInput getInPlaceInput() {
+    return sin.in instanceof MappedFileInput ? mappedInput : null;
+  }
+
+  /** Decodes blocks in place from a {@link MappedFileInput}. */
+  private final InPlaceInput mappedInput = new InPlaceInput() {
+      @Override
+      public long position() throws IOException {
+        return DataFileReader.this.position();
+      }
+
+      @Override
+      public boolean syncAt(long position) throws IOException {
+        MappedFileInput in = (MappedFileInput)sin.in;
+        return in.read(position, syncBuffer, 0, SYNC_SIZE) == SYNC_SIZE
+          && Arrays.equals(syncBuffer, getHeader().sync);
+      }
+
+      @Override
+      public BinaryDecoder decoderAt(long position, int length)
+        throws IOException {
+        ByteBuffer region = ((MappedFileInput)sin.in).slice(position, length);
+        if (region == null)
+          return null;
+        return mapped = DecoderFactory.get().binaryDecoder(region, mapped);
+      }
+    };
+
+  /** Return the position of {@link #vin} in the input. */
+  private long position() throws IOException {
+    return sin.tell() - vin.inputStream().available();
+  }
+
+  @Override
+  public void close() throws IOException {
+    cancelPending();
+    super.close();
   }
 
   /** Return the last synchronization point before our current position. */
@@ -226,10 +430,10 @@ public class DataFileReader<D>
       long length = in.length();
       long remaining = length - position;
       if (remaining > skip) {
-        in.seek(skip);
+        in.seek(position + skip);
         return in.tell() - position;
       } else {
-        in.seek(remaining);
+        in.seek(length);
         return in.tell() - position;
     }
   }
@@ -73,6 +73,8 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   long blockRemaining;                          // # entries remaining in block
   byte[] syncBuffer = new byte[DataFileConstants.SYNC_SIZE];
   private Codec codec;
+  long inPlaceEnd = -1;                         // end of block read in place
+  private InPlaceInput inPlace;                 // input of that block
 
   /** Construct a reader for an input stream.  For file-based input, use
    * {@link DataFileReader}.  This will buffer, wrapping with a
@@ -91,6 +93,9 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     this.reader = reader;
   }
 
+  /** Return the datum reader used to read entries. */
+  DatumReader<D> getDatumReader() { return reader; }
+
   /** Initialize the stream by reading from its head. */
   void initialize(InputStream in) throws IOException {
     this.header = new Header();
@@ -195,6 +200,19 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
           }
         }
         if (hasNextBlock()) {
+          inPlace = codec instanceof NullCodec && blockCount > 0
+            ? getInPlaceInput()
+            : null;
+          if (inPlace != null) {
+            // uncompressed: decode straight from the input, without copying
+            // the block first
+            availableBlock = false;
+            inPlaceEnd = inPlace.position() + blockSize;
+            if (!inPlace.syncAt(inPlaceEnd))
+              throw new IOException("Invalid sync!");
+            datumIn = inPlace.decoderAt(inPlaceEnd - blockSize, (int)blockSize);
+            return true;
+          }
           block = nextRawBlock(block);
           block.decompressUsing(codec);
           blockBuffer = block.getAsByteBuffer();
@@ -230,6 +248,8 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   public D next(D reuse) throws IOException {
     if (!hasNext())
       throw new NoSuchElementException();
+    if (inPlaceEnd >= 0)
+      return nextInPlace(reuse);
     D result = reader.read(reuse, datumIn);
     if (0 == --blockRemaining) {
       blockFinished();
@@ -237,12 +257,44 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     return result;
   }
 
-  /** Expert: Return the next block in the file, as binary-encoded data. */
+  private D nextInPlace(D reuse) throws IOException {
+    D result = reader.read(reuse, datumIn != null ? datumIn : vin);
+    if (0 == --blockRemaining) {
+      if (datumIn != null) {                      // skip what was decoded
+        if (!datumIn.isEnd())
+          throw new IOException("Block read partially, the data may be corrupt");
+        datumIn = null;
+        vin.skipFixed((int)blockSize);
+      } else if (inPlace.position() != inPlaceEnd) {
+        throw new IOException("Block read partially, the data may be corrupt");
+      }
+      inPlaceEnd = -1;
+      vin.skipFixed(DataFileConstants.SYNC_SIZE); // checked by hasNext()
+      blockFinished();
+    }
+    return result;
+  }
+
+  /** Return the input from which blocks which are not compressed may be
+   * decoded in place, rather than copied first, or null if they may not. */
+  InPlaceInput getInPlaceInput() {
+    return null;
+  }
+
+  /** Expert: Return the next block in the file, as binary-encoded data.
+   * The buffer returned may be reused to hold later blocks. */
   public ByteBuffer nextBlock() throws IOException {
     if (!hasNext())
       throw new NoSuchElementException();
     if (blockRemaining != blockCount)
       throw new IllegalStateException("Not at block start.");
+    if (inPlaceEnd >= 0) {                        // read the block after all
+      inPlaceEnd = -1;
+      availableBlock = true;
+      block = nextRawBlock(block);
+      block.decompressUsing(codec);
+      blockBuffer = block.getAsByteBuffer();
+    }
     blockRemaining = 0;
     datumIn = null;
     return blockBuffer;
@@ -283,9 +335,13 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     if (!hasNextBlock()) {
       throw new NoSuchElementException();
     }
-    if (reuse == null || reuse.data.length < (int) blockSize) {
+    if (reuse == null) {
       reuse = new DataBlock(blockRemaining, (int) blockSize);
     } else {
+      if (reuse.raw == null || reuse.raw.length < (int) blockSize)
+        reuse.raw = new byte[(int) blockSize];
+      reuse.data = reuse.raw;
+      reuse.offset = 0;
       reuse.numEntries = blockRemaining;
       reuse.blockSize = (int)blockSize;
     }
@@ -314,13 +370,21 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     private int blockSize;
     private int offset = 0;
     private boolean flushOnWrite = true;
+    private byte[] raw;                           // reused to read blocks
+    private ByteBuffer decompressed;              // reused by codecs
+    private ByteBuffer compressed;
     private DataBlock(long numEntries, int blockSize) {
-      this.data = new byte[blockSize];
+      this.data = this.raw = new byte[blockSize];
       this.numEntries = numEntries;
       this.blockSize = blockSize;
     }
 
     DataBlock(ByteBuffer block, long numEntries) {
+      setBlock(block, numEntries);
+    }
+
+    /** Holds new uncompressed data, keeping the buffers to reuse. */
+    void setBlock(ByteBuffer block, long numEntries) {
       this.data = block.array();
       this.blockSize = block.remaining();
       this.offset = block.arrayOffset() + block.position();
@@ -352,14 +416,22 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     }
 
     void decompressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.decompress(getAsByteBuffer());
-      data = result.array();
-      blockSize = result.remaining();
+      ByteBuffer result = c.decompress(getAsByteBuffer(), decompressed);
+      if (result.array() != data)                 // not the input itself
+        decompressed = result;
+      setResult(result);
     }
 
     void compressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.compress(getAsByteBuffer());
+      ByteBuffer result = c.compress(getAsByteBuffer(), compressed);
+      if (result.array() != data)
+        compressed = result;
+      setResult(result);
+    }
+
+    private void setResult(ByteBuffer result) {
       data = result.array();
+      offset = result.arrayOffset() + result.position();
       blockSize = result.remaining();
     }
 
@@ -29,9 +29,16 @@ import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
@@ -70,9 +77,17 @@ public class DataFileWriter<D> implements Closeable, Flushable {
 
   private boolean isOpen;
   private Codec codec;
+  private CodecFactory codecFactory;
 
   private boolean flushOnEveryBlock = true;
 
+  private Executor executor;
+  private int maxPending;
+  private final Queue<PendingBlock> pending = new ArrayDeque<PendingBlock>();
+  private final Queue<Codec> codecs = new ConcurrentLinkedQueue<Codec>();
+  private final Queue<PendingBlock> spare = new ArrayDeque<PendingBlock>();
+  private DataBlock block;                       // reused when sequential
+
   /** Construct a writer, not yet open. */
   public DataFileWriter(DatumWriter<D> dout) {
     this.dout = dout;
@@ -91,6 +106,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    */
   public DataFileWriter<D> setCodec(CodecFactory c) {
     assertNotOpen();
+    this.codecFactory = c;
     this.codec = c.createInstance();
     setMetaInternal(DataFileConstants.CODEC, codec.getName());
     return this;
@@ -188,6 +204,27 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     return this.flushOnEveryBlock;
   }
 
+  /**
+   * Compress blocks in parallel, behind the caller.  Each full block is
+   * compressed by a task run on <tt>executor</tt>, while {@link
+   * #append(Object)} goes on filling the next.  Compressed blocks are still
+   * written in order, by the thread that appends.  When more than
+   * <tt>maxPending</tt> blocks await compression, appending waits for the
+   * oldest, which bounds the memory held.  {@link #sync()}, {@link #flush()},
+   * {@link #fSync()} and {@link #close()} first write all pending blocks.
+   * Pass a null executor to compress sequentially again.
+   */
+  public DataFileWriter<D> setParallel(Executor executor, int maxPending)
+    throws IOException {
+    if (executor != null && maxPending < 1)
+      throw new IllegalArgumentException("Invalid maxPending: " + maxPending);
+    if (isOpen)
+      writePending(0);
+    this.executor = executor;
+    this.maxPending = maxPending;
+    return this;
+  }
+
   /** Open a writer appending to an existing file. */
   public DataFileWriter<D> appendTo(File file) throws IOException {
     return appendTo(new SeekableFileInput(file),
@@ -209,10 +246,11 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     byte[] codecBytes = this.meta.get(DataFileConstants.CODEC);
     if (codecBytes != null) {
       String strCodec = new String(codecBytes, "UTF-8");
-      this.codec = CodecFactory.fromString(strCodec).createInstance();
+      this.codecFactory = CodecFactory.fromString(strCodec);
     } else {
-      this.codec = CodecFactory.nullCodec().createInstance();
+      this.codecFactory = CodecFactory.nullCodec();
     }
+    this.codec = codecFactory.createInstance();
     reader.close();
 
     init(out);
@@ -230,7 +268,8 @@ public class DataFileWriter<D> implements Closeable, Flushable {
         Math.min((int)(syncInterval * 1.25), Integer.MAX_VALUE/2 -1));
     this.bufOut = efactory.binaryEncoder(buffer, null);
     if (this.codec == null) {
-      this.codec = CodecFactory.nullCodec().createInstance();
+      this.codecFactory = CodecFactory.nullCodec();
+      this.codec = codecFactory.createInstance();
     }
     this.isOpen = true;
   }
@@ -367,6 +406,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
     // flush anything written so far
     writeBlock();
+    writePending(0);
     Codec otherCodec = otherFile.resolveCodec();
     DataBlock nextBlockRaw = null;
     if (codec.equals(otherCodec) && !recompress) {
@@ -389,15 +429,91 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     if (blockCount > 0) {
       bufOut.flush();
       ByteBuffer uncompressed = buffer.getByteArrayAsByteBuffer();
-      DataBlock block = new DataBlock(uncompressed, blockCount);
-      block.setFlushOnWrite(flushOnEveryBlock);
-      block.compressUsing(codec);
-      block.writeBlockTo(vout, sync);
-      buffer.reset();
+      if (executor != null) {
+        compressLater(uncompressed);
+      } else {
+        if (block == null)
+          block = new DataBlock(uncompressed, blockCount);
+        else
+          block.setBlock(uncompressed, blockCount);
+        block.setFlushOnWrite(flushOnEveryBlock);
+        block.compressUsing(codec);
+        block.writeBlockTo(vout, sync);
+        buffer.reset();
+      }
       blockCount = 0;
     }
   }
 
+  /** A block handed to a task, with the buffer holding its entries.  Both
+   * are reused once the block is written. */
+  private static class PendingBlock {
+    FutureTask<DataBlock> task;
+    NonCopyingByteArrayOutputStream buffer;
+    DataBlock block;
+  }
+
+  /** Submits a block for compression, then appends to a spare buffer. */
+  private void compressLater(ByteBuffer uncompressed) throws IOException {
+    PendingBlock p = spare.poll();
+    if (p == null)
+      p = new PendingBlock();
+    NonCopyingByteArrayOutputStream next = p.buffer;
+    p.buffer = buffer;
+    if (p.block == null)
+      p.block = new DataBlock(uncompressed, blockCount);
+    else
+      p.block.setBlock(uncompressed, blockCount);
+    p.block.setFlushOnWrite(flushOnEveryBlock);
+    final DataBlock full = p.block;
+    p.task = new FutureTask<DataBlock>(new Callable<DataBlock>() {
+        public DataBlock call() throws IOException {
+          Codec c = codecs.poll();
+          if (c == null)
+            c = codecFactory.createInstance();
+          try {
+            full.compressUsing(c);
+          } finally {
+            codecs.add(c);
+          }
+          return full;
+        }
+      });
+    pending.add(p);
+    executor.execute(p.task);
+
+    buffer = next != null
+      ? next
+      : new NonCopyingByteArrayOutputStream(p.buffer.capacity());
+    bufOut = EncoderFactory.get().binaryEncoder(buffer, bufOut);
+
+    writePending(maxPending);
+  }
+
+  /** Writes compressed blocks in order, those already compressed and, while
+   * more than <tt>limit</tt> remain, waiting for the oldest. */
+  private void writePending(int limit) throws IOException {
+    while (!pending.isEmpty()
+           && (pending.size() > limit || pending.peek().task.isDone())) {
+      PendingBlock p = pending.remove();
+      DataBlock compressed;
+      try {
+        compressed = p.task.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException)
+          throw (IOException) e.getCause();
+        throw new AvroRuntimeException(e.getCause());
+      }
+      compressed.writeBlockTo(vout, sync);
+      p.buffer.reset();
+      p.task = null;
+      spare.add(p);
+    }
+  }
+
   /** Return the current position as a value that may be passed to {@link
    * DataFileReader#seek(long)}.  Forces the end of the current block,
    * emitting a synchronization marker. By default, this will also flush the
@@ -411,6 +527,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   public long sync() throws IOException {
     assertOpen();
     writeBlock();
+    writePending(0);
     return out.tell();
   }
 
@@ -475,6 +592,9 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     ByteBuffer getByteArrayAsByteBuffer() {
       return ByteBuffer.wrap(buf, 0, count);
     }
+    int capacity() {
+      return buf.length;
+    }
   }
 
 }
@@ -17,14 +17,11 @@
  */
 package org.apache.avro.file;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterOutputStream;
 
 /**
  * Implements DEFLATE (RFC1951) compression and decompression.
@@ -51,7 +48,6 @@ class DeflateCodec extends Codec {
     }
   }
 
-  private ByteArrayOutputStream outputBuffer;
   private Deflater deflater;
   private Inflater inflater;
   //currently only do 'nowrap' -- RFC 1951, not zlib
@@ -69,31 +65,56 @@ class DeflateCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    DeflaterOutputStream ios = new DeflaterOutputStream(baos, getDeflater());
-    writeAndClose(data, ios);
-    ByteBuffer result = ByteBuffer.wrap(baos.toByteArray());
-    return result;
+    return exact(compress(data, null));
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    InflaterOutputStream ios = new InflaterOutputStream(baos, getInflater());
-    writeAndClose(data, ios);
-    ByteBuffer result = ByteBuffer.wrap(baos.toByteArray());
-    return result;
+    return exact(decompress(data, null));
   }
 
-  private void writeAndClose(ByteBuffer data, OutputStream to) throws IOException {
-    byte[] input = data.array();
-    int offset = data.arrayOffset() + data.position();
-    int length = data.remaining();
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer out)
+    throws IOException {
+    Deflater deflater = getDeflater();
+    deflater.setInput(data.array(), data.arrayOffset() + data.position(),
+                      data.remaining());
+    deflater.finish();
+    out = reuse(out, data.remaining() / 2 + 64);
+    while (!deflater.finished()) {
+      if (!out.hasRemaining())
+        out = grow(out);
+      int n = deflater.deflate(out.array(), out.arrayOffset() + out.position(),
+                               out.remaining());
+      out.position(out.position() + n);
+    }
+    out.flip();
+    return out;
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBuffer out)
+    throws IOException {
+    Inflater inflater = getInflater();
+    inflater.setInput(data.array(), data.arrayOffset() + data.position(),
+                      data.remaining());
+    out = reuse(out, expanded(data.remaining(), 4));
     try {
-      to.write(input, offset, length);
-    } finally {
-      to.close();
+      while (!inflater.finished()) {
+        if (!out.hasRemaining())
+          out = grow(out);
+        int n = inflater.inflate(out.array(),
+                                 out.arrayOffset() + out.position(),
+                                 out.remaining());
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+          break;                                  // truncated input
+        out.position(out.position() + n);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e);
     }
+    out.flip();
+    return out;
   }
 
   // get and initialize the inflater for use.
@@ -114,15 +135,6 @@ class DeflateCodec extends Codec {
     return deflater;
   }
 
-  // get and initialize the output buffer for use.
-  private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
-    if (null == outputBuffer) {
-      outputBuffer = new ByteArrayOutputStream(suggestedLength);
-    }
-    outputBuffer.reset();
-    return outputBuffer;
-  }
-
   @Override
   public int hashCode() {
     return nowrap ? 0 : 1;
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+
+import org.apache.avro.io.BinaryDecoder;
+
+/** Input from which a {@link DataFileStream} may decode blocks that are not
+ * compressed in place, rather than copy them first.  Worthwhile only where
+ * {@link #syncAt(long)} is cheap, as over a {@link MappedFileInput}. */
+interface InPlaceInput {
+
+  /** Return the position of the stream's raw decoder in the input. */
+  long position() throws IOException;
+
+  /** True if the sync marker is found at a position in the input, which is
+   * checked without moving the stream's raw decoder. */
+  boolean syncAt(long position) throws IOException;
+
+  /** Return a decoder over bytes of the input without moving the stream's
+   * raw decoder, or null if the block must be decoded from the latter. */
+  BinaryDecoder decoderAt(long position, int length) throws IOException;
+}
@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * Implements <a href="http://lz4.github.io/lz4/">LZ4</a> compression and
+ * decompression.
+ *
+ * Each block is an LZ4 block preceded by its uncompressed length, as a
+ * four-byte big-endian integer.  A compression level of zero selects the
+ * fast compressor, while levels from 1 to 17 select the high compression
+ * one.  All levels are read alike.
+ */
+class LZ4Codec extends Codec {
+
+  static class Option extends CodecFactory {
+    private final int compressionLevel;
+
+    Option(int compressionLevel) {
+      this.compressionLevel = compressionLevel;
+    }
+
+    @Override
+    protected Codec createInstance() {
+      return new LZ4Codec(compressionLevel);
+    }
+  }
+
+  private final int compressionLevel;
+  private LZ4Compressor compressor;
+  private LZ4SafeDecompressor decompressor;
+
+  private LZ4Codec(int compressionLevel) {
+    this.compressionLevel = compressionLevel;
+  }
+
+  @Override
+  public String getName() {
+    return DataFileConstants.LZ4_CODEC;
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer in) throws IOException {
+    return compress(in, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in) throws IOException {
+    return decompress(in, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer in, ByteBuffer out)
+    throws IOException {
+    LZ4Compressor c = getCompressor();
+    out = reuse(out, c.maxCompressedLength(in.remaining()) + 4);
+    out.putInt(0, in.remaining());
+    int size = c.compress(in.array(), in.arrayOffset() + in.position(),
+                          in.remaining(), out.array(), out.arrayOffset() + 4,
+                          out.capacity() - 4);
+    out.limit(size + 4);
+    return out;
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in, ByteBuffer out)
+    throws IOException {
+    if (in.remaining() < 4)
+      throw new IOException("Missing uncompressed length");
+    int length = in.getInt(in.position());
+    if (length < 0)
+      throw new IOException("Invalid uncompressed length: " + length);
+    out = reuse(out, length);
+    int size;
+    try {
+      size = getDecompressor().decompress(in.array(),
+          in.arrayOffset() + in.position() + 4, in.remaining() - 4,
+          out.array(), out.arrayOffset(), length);
+    } catch (LZ4Exception e) {                     // malformed input
+      throw new IOException(e);
+    }
+    if (size != length)
+      throw new IOException("Uncompressed length mismatch: " + size);
+    out.limit(length);
+    return out;
+  }
+
+  private LZ4Compressor getCompressor() {
+    if (compressor == null)
+      compressor = compressionLevel == 0
+        ? LZ4Factory.fastestInstance().fastCompressor()
+        : LZ4Factory.fastestInstance().highCompressor(compressionLevel);
+    return compressor;
+  }
+
+  private LZ4SafeDecompressor getDecompressor() {
+    if (decompressor == null)
+      decompressor = LZ4Factory.fastestInstance().safeDecompressor();
+    return decompressor;
+  }
+
+  @Override
+  public int hashCode() {
+    return compressionLevel;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null || obj.getClass() != getClass())
+      return false;
+    return compressionLevel == ((LZ4Codec)obj).compressionLevel;
+  }
+
+  @Override
+  public String toString() {
+    return getName() + "-" + compressionLevel;
+  }
+}
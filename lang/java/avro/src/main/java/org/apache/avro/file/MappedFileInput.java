@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** A {@link SeekableInput} that reads a local file through memory-mapped
+ * regions, avoiding a system call and a copy from the kernel per read.
+ * Files larger than a region, which may hold at most 2GB, are mapped as
+ * several regions.  When read by a {@link DataFileReader}, blocks that are
+ * not compressed are decoded directly from the mapped memory.
+ *
+ * <p>The mappings are released when garbage collected, not when this is
+ * closed. */
+public class MappedFileInput implements SeekableInput {
+  /** The size of the regions mapped by default. */
+  public static final long DEFAULT_REGION_SIZE = 1L << 30;
+
+  private final RandomAccessFile file;
+  private final long length;
+  private final long regionSize;
+  private final MappedByteBuffer[] regions;
+  private long position;
+
+  public MappedFileInput(File file) throws IOException {
+    this(file, DEFAULT_REGION_SIZE);
+  }
+
+  /** Map a file as regions of at most <tt>regionSize</tt> bytes. */
+  public MappedFileInput(File file, long regionSize) throws IOException {
+    if (regionSize < 1 || regionSize > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Invalid region size: "+regionSize);
+    this.file = new RandomAccessFile(file, "r");
+    this.regionSize = regionSize;
+    try {
+      FileChannel channel = this.file.getChannel();
+      this.length = channel.size();
+      int count = (int)((length + regionSize - 1) / regionSize);
+      this.regions = new MappedByteBuffer[count];
+      for (int i = 0; i < count; i++) {
+        long start = i * regionSize;
+        regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                 Math.min(regionSize, length - start));
+      }
+    } catch (IOException e) {
+      this.file.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public void seek(long p) throws IOException {
+    if (p < 0 || p > length)
+      throw new IOException("Illegal seek: " + p);
+    position = p;
+  }
+
+  @Override
+  public long tell() throws IOException { return position; }
+
+  @Override
+  public long length() throws IOException { return length; }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int n = read(position, b, off, len);
+    if (n > 0)
+      position += n;
+    return n;
+  }
+
+  /** Reads from a position without changing the current position, reading
+   * fewer bytes than requested only at the end of the file. */
+  int read(long p, byte[] b, int off, int len) throws IOException {
+    if (p >= length)
+      return -1;
+    int total = 0;
+    while (total < len && p < length) {
+      MappedByteBuffer region = regions[(int)(p / regionSize)];
+      int start = (int)(p % regionSize);
+      int n = Math.min(len - total, region.capacity() - start);
+      ByteBuffer view = region.duplicate();      // leave region unchanged
+      view.position(start);
+      view.get(b, off + total, n);
+      total += n;
+      p += n;
+    }
+    return total;
+  }
+
+  /** Returns a view of mapped bytes, or null if they span regions. */
+  ByteBuffer slice(long p, int len) {
+    int start = (int)(p % regionSize);
+    if (p < 0 || p + len > length || start + len > regionSize)
+      return null;
+    ByteBuffer view = regions[(int)(p / regionSize)].duplicate();
+    view.position(start);
+    view.limit(start + len);
+    return view.slice();
+  }
+
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+}
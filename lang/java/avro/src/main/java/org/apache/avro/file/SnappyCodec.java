@@ -40,12 +40,23 @@ class SnappyCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer in) throws IOException {
-    ByteBuffer out =
-      ByteBuffer.allocate(Snappy.maxCompressedLength(in.remaining())+4);
-    int size = Snappy.compress(in.array(), in.position(), in.remaining(),
-                               out.array(), 0);
+    return compress(in, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in) throws IOException {
+    return decompress(in, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer in, ByteBuffer out)
+    throws IOException {
+    int offset = in.arrayOffset() + in.position();
+    out = reuse(out, Snappy.maxCompressedLength(in.remaining()) + 4);
+    int size = Snappy.compress(in.array(), offset, in.remaining(),
+                               out.array(), out.arrayOffset());
     crc32.reset();
-    crc32.update(in.array(), in.position(), in.remaining());
+    crc32.update(in.array(), offset, in.remaining());
     out.putInt(size, (int)crc32.getValue());
 
     out.limit(size+4);
@@ -54,15 +65,17 @@ class SnappyCodec extends Codec {
   }
 
   @Override
-  public ByteBuffer decompress(ByteBuffer in) throws IOException {
-    ByteBuffer out = ByteBuffer.allocate
-      (Snappy.uncompressedLength(in.array(),in.position(),in.remaining()-4));
-    int size = Snappy.uncompress(in.array(),in.position(),in.remaining()-4,
-                                 out.array(), 0);
+  public ByteBuffer decompress(ByteBuffer in, ByteBuffer out)
+    throws IOException {
+    int offset = in.arrayOffset() + in.position();
+    out = reuse(out, Snappy.uncompressedLength(in.array(), offset,
+                                               in.remaining()-4));
+    int size = Snappy.uncompress(in.array(), offset, in.remaining()-4,
+                                 out.array(), out.arrayOffset());
     out.limit(size);
 
     crc32.reset();
-    crc32.update(out.array(), 0, size);
+    crc32.update(out.array(), out.arrayOffset(), size);
     if (in.getInt(in.limit()-4) != (int)crc32.getValue())
       throw new IOException("Checksum failure");
 
@@ -18,7 +18,6 @@
 package org.apache.avro.file;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -26,7 +25,6 @@ import java.nio.ByteBuffer;
 
 import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
 import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
-import org.apache.commons.compress.utils.IOUtils;
 
 /** * Implements xz compression and decompression. */
 public class XZCodec extends Codec {
@@ -44,7 +42,6 @@ public class XZCodec extends Codec {
       }
     }
 
-  private ByteArrayOutputStream outputBuffer;
   private int compressionLevel;
 
   public XZCodec(int compressionLevel) {
@@ -58,46 +55,38 @@ public class XZCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    OutputStream ios = new XZCompressorOutputStream(baos, compressionLevel);
-    writeAndClose(data, ios);
-    return ByteBuffer.wrap(baos.toByteArray());
+    return exact(compress(data, null));
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    InputStream bytesIn = new ByteArrayInputStream(
-      data.array(),
-      data.arrayOffset() + data.position(),
-      data.remaining());
-    InputStream ios = new XZCompressorInputStream(bytesIn);
-    try {
-      IOUtils.copy(ios, baos);
-    } finally {
-      ios.close();
-    }
-    return ByteBuffer.wrap(baos.toByteArray());
+    return exact(decompress(data, null));
   }
 
-  private void writeAndClose(ByteBuffer data, OutputStream to) throws IOException {
-    byte[] input = data.array();
-    int offset = data.arrayOffset() + data.position();
-    int length = data.remaining();
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer out)
+    throws IOException {
+    BufferOutputStream bytesOut =
+      new BufferOutputStream(out, data.remaining() / 2 + 64);
+    OutputStream ios = new XZCompressorOutputStream(bytesOut, compressionLevel);
     try {
-      to.write(input, offset, length);
+      ios.write(data.array(), data.arrayOffset() + data.position(),
+                data.remaining());
     } finally {
-      to.close();
+      ios.close();
     }
+    return bytesOut.getBuffer();
   }
 
-  // get and initialize the output buffer for use.
-  private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
-    if (null == outputBuffer) {
-      outputBuffer = new ByteArrayOutputStream(suggestedLength);
-    }
-    outputBuffer.reset();
-    return outputBuffer;
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBuffer out)
+    throws IOException {
+    InputStream bytesIn = new ByteArrayInputStream(
+      data.array(),
+      data.arrayOffset() + data.position(),
+      data.remaining());
+    return readFully(new XZCompressorInputStream(bytesIn), out,
+                     expanded(data.remaining(), 4));
   }
 
   @Override
@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdException;
+import com.github.luben.zstd.ZstdInputStream;
+
+/**
+ * Implements <a href="http://facebook.github.io/zstd/">Zstandard</a>
+ * compression and decompression.
+ *
+ * Blocks are written as single Zstandard frames that record their
+ * uncompressed size.  Blocks whose frames do not, as written by streaming
+ * encoders, are read as a stream.  When a dictionary is used, readers must be given the same dictionary, by
+ * registering a codec built with it under {@value
+ * DataFileConstants#ZSTANDARD_CODEC} with {@link
+ * CodecFactory#addCodec(String, CodecFactory)}.
+ */
+class ZstandardCodec extends Codec {
+
+  static class Option extends CodecFactory {
+    private final int compressionLevel;
+    private final byte[] dictionary;
+    private ZstdDictCompress compressDictionary;
+    private ZstdDictDecompress decompressDictionary;
+
+    Option(int compressionLevel, byte[] dictionary) {
+      this.compressionLevel = compressionLevel;
+      this.dictionary = dictionary;
+    }
+
+    @Override
+    protected Codec createInstance() {
+      return new ZstandardCodec(this);
+    }
+
+    // dictionaries are digested once, then shared by all instances
+    synchronized ZstdDictCompress getCompressDictionary() {
+      if (compressDictionary == null)
+        compressDictionary = new ZstdDictCompress(dictionary, compressionLevel);
+      return compressDictionary;
+    }
+
+    synchronized ZstdDictDecompress getDecompressDictionary() {
+      if (decompressDictionary == null)
+        decompressDictionary = new ZstdDictDecompress(dictionary);
+      return decompressDictionary;
+    }
+  }
+
+  private final Option option;
+
+  private ZstandardCodec(Option option) {
+    this.option = option;
+  }
+
+  @Override
+  public String getName() {
+    return DataFileConstants.ZSTANDARD_CODEC;
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer in) throws IOException {
+    return compress(in, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in) throws IOException {
+    return decompress(in, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer in, ByteBuffer out)
+    throws IOException {
+    out = reuse(out, (int) Zstd.compressBound(in.remaining()));
+    long size;
+    try {
+      if (option.dictionary == null)
+        size = Zstd.compressByteArray(out.array(), out.arrayOffset(),
+                                      out.capacity(), in.array(),
+                                      in.arrayOffset() + in.position(),
+                                      in.remaining(), option.compressionLevel);
+      else
+        size = Zstd.compressFastDict(out.array(), out.arrayOffset(), in.array(),
+                                     in.arrayOffset() + in.position(),
+                                     in.remaining(),
+                                     option.getCompressDictionary());
+    } catch (ZstdException e) {
+      throw new IOException(e);
+    }
+    out.limit(check(size));
+    return out;
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in, ByteBuffer out)
+    throws IOException {
+    int offset = in.arrayOffset() + in.position();
+    long length = Zstd.decompressedSize(in.array(), offset, in.remaining());
+    if (length <= 0 || length > MAX_BUFFER_SIZE)  // not recorded
+      return decompressStream(in, out);
+    out = reuse(out, (int) length);
+    long size;
+    try {
+      if (option.dictionary == null)
+        size = Zstd.decompressByteArray(out.array(), out.arrayOffset(),
+                                        (int) length,
+                                        in.array(), offset, in.remaining());
+      else
+        size = Zstd.decompressFastDict(out.array(), out.arrayOffset(),
+                                       in.array(), offset, in.remaining(),
+                                       option.getDecompressDictionary());
+    } catch (ZstdException e) {                   // malformed input
+      throw new IOException(e);
+    }
+    if (check(size) != length)
+      throw new IOException("Uncompressed size mismatch: " + size);
+    out.limit((int) length);
+    return out;
+  }
+
+  /** Decompresses frames that don't record their uncompressed size. */
+  private ByteBuffer decompressStream(ByteBuffer in, ByteBuffer out)
+    throws IOException {
+    ZstdInputStream stream = new ZstdInputStream(new ByteArrayInputStream(
+        in.array(), in.arrayOffset() + in.position(), in.remaining()));
+    if (option.dictionary != null)
+      stream.setDict(option.getDecompressDictionary());
+    return readFully(stream, out, expanded(in.remaining(), 4));
+  }
+
+  private static int check(long result) throws IOException {
+    if (Zstd.isError(result))
+      throw new IOException(Zstd.getErrorName(result));
+    return (int) result;
+  }
+
+  @Override
+  public int hashCode() {
+    return option.compressionLevel;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null || obj.getClass() != getClass())
+      return false;
+    ZstandardCodec other = (ZstandardCodec)obj;
+    return option.compressionLevel == other.option.compressionLevel
+      && Arrays.equals(option.dictionary, other.option.dictionary);
+  }
+
+  @Override
+  public String toString() {
+    return getName() + "-" + option.compressionLevel;
+  }
+}
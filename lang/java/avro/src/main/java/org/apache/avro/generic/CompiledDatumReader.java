@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+
+/**
+ * {@link DatumReader} that compiles each writer's and reader's schema pair
+ * into a specialized reader before decoding.
+ *
+ * <p>Where {@link GenericDatumReader} walks the reader's schema and resolves
+ * it against the writer's for every datum, this reader does so once per
+ * (writer schema, reader schema, data model) and caches the result, so that
+ * each datum is decoded by straight-line code with field reordering, skipping,
+ * promotion and defaults already worked out.  Compiled readers are shared by
+ * all instances and threads.
+ *
+ * <p>Fields the reader's schema drops are skipped in bulk where the binary
+ * encoding allows, so reading a narrow projection of wide records, e.g.,
+ * with {@link org.apache.avro.file.DataFileReader}, costs little more than
+ * decoding the projected fields.
+ *
+ * <p>Works with {@link GenericData} and {@link
+ * org.apache.avro.specific.SpecificData}.  Schema pairs or data models that
+ * cannot be compiled (see {@link GenericData#supportsCompiledDatumIO(Schema)})
+ * are read with the model's own interpretive datum reader instead.
+ */
+public class CompiledDatumReader<D> implements DatumReader<D> {
+  private final GenericData data;
+  private Schema actual;
+  private Schema expected;
+
+  private volatile DatumReaderCompiler.ValueReader compiled;
+  private DatumReader<D> interpreter;
+
+  public CompiledDatumReader() {
+    this(null, null, GenericData.get());
+  }
+
+  /** Construct where the writer's and reader's schemas are the same. */
+  public CompiledDatumReader(Schema schema) {
+    this(schema, schema, GenericData.get());
+  }
+
+  /** Construct given writer's and reader's schema. */
+  public CompiledDatumReader(Schema writer, Schema reader) {
+    this(writer, reader, GenericData.get());
+  }
+
+  /** Construct given writer's and reader's schema and a data model. */
+  public CompiledDatumReader(Schema writer, Schema reader, GenericData data) {
+    this(data);
+    this.actual = writer;
+    this.expected = reader;
+  }
+
+  /** Construct given a data model. */
+  public CompiledDatumReader(GenericData data) {
+    this.data = data;
+  }
+
+  /** Return the {@link GenericData} implementation. */
+  public GenericData getData() { return data; }
+
+  /** Return the writer's schema. */
+  public Schema getSchema() { return actual; }
+
+  @Override
+  public void setSchema(Schema writer) {
+    this.actual = writer;
+    if (expected == null) {
+      expected = actual;
+    }
+    reset();
+  }
+
+  /** Get the reader's schema. */
+  public Schema getExpected() { return expected; }
+
+  /** Set the reader's schema. */
+  public void setExpected(Schema reader) {
+    this.expected = reader;
+    reset();
+  }
+
+  /** Returns true if datums are read by a compiled reader, false if the
+   * schemas or the data model required falling back to interpretation. */
+  public boolean isCompiled() {
+    prepare();
+    return compiled != null;
+  }
+
+  private synchronized void reset() {
+    compiled = null;
+    interpreter = null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private synchronized void prepare() {
+    if (compiled != null || interpreter != null)
+      return;
+    compiled = DatumReaderCompiler.get(actual, expected, data);
+    if (compiled == null)
+      interpreter = data.createDatumReader(actual, expected);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public D read(D reuse, Decoder in) throws IOException {
+    DatumReaderCompiler.ValueReader reader = compiled;
+    if (reader == null) {
+      prepare();
+      reader = compiled;
+      if (reader == null)
+        return interpreter.read(reuse, in);
+    }
+    return (D) reader.read(reuse, in);
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Encoder;
+
+/**
+ * {@link DatumWriter} that compiles its schema into a specialized writer
+ * before encoding.
+ *
+ * <p>The compiled writer is built once per (schema, data model) and cached,
+ * so that records, arrays, maps and unions are written without switching on
+ * the schema for every datum.  Schemas or data models that cannot be compiled
+ * (see {@link GenericData#supportsCompiledDatumIO(Schema)}) are written with
+ * the model's own interpretive datum writer instead.
+ */
+public class CompiledDatumWriter<D> implements DatumWriter<D> {
+  private final GenericData data;
+  private Schema root;
+
+  private volatile DatumWriterCompiler.ValueWriter compiled;
+  private DatumWriter<D> interpreter;
+
+  public CompiledDatumWriter() { this(GenericData.get()); }
+
+  public CompiledDatumWriter(GenericData data) { this.data = data; }
+
+  public CompiledDatumWriter(Schema root) {
+    this();
+    setSchema(root);
+  }
+
+  public CompiledDatumWriter(Schema root, GenericData data) {
+    this(data);
+    setSchema(root);
+  }
+
+  /** Return the {@link GenericData} implementation. */
+  public GenericData getData() { return data; }
+
+  @Override
+  public synchronized void setSchema(Schema root) {
+    this.root = root;
+    this.compiled = null;
+    this.interpreter = null;
+  }
+
+  /** Returns true if datums are written by a compiled writer, false if the
+   * schema or the data model required falling back to interpretation. */
+  public boolean isCompiled() {
+    prepare();
+    return compiled != null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private synchronized void prepare() {
+    if (compiled != null || interpreter != null)
+      return;
+    compiled = DatumWriterCompiler.get(root, data);
+    if (compiled == null)
+      interpreter = data.createDatumWriter(root);
+  }
+
+  @Override
+  public void write(D datum, Encoder out) throws IOException {
+    DatumWriterCompiler.ValueWriter writer = compiled;
+    if (writer == null) {
+      prepare();
+      writer = compiled;
+      if (writer == null) {
+        interpreter.write(datum, out);
+        return;
+      }
+    }
+    writer.write(datum, out);
+  }
+}
@@ -0,0 +1,652 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.PrimitivesArrays.PrimitiveArray;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.util.StringDictionary;
+import org.apache.avro.util.Utf8;
+import org.apache.avro.util.WeakIdentityHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiles a writer's and reader's schema pair into a tree of
+ * {@link ValueReader}s for {@link CompiledDatumReader}.
+ *
+ * <p>The pair is first resolved into a {@link ResolutionPlan}, whose actions
+ * are then turned into readers, so that switching on the kind of action,
+ * mapping enum symbols and materializing defaults are also done once here.
+ * The resulting readers decode straight from the underlying {@link Decoder},
+ * hold no per-datum state and may be shared between threads.
+ */
+final class DatumReaderCompiler {
+  private static final Logger LOG =
+    LoggerFactory.getLogger(DatumReaderCompiler.class);
+
+  private static final Map<GenericData,Map<Schema,Map<Schema,ValueReader>>>
+    CACHE = new WeakIdentityHashMap<GenericData,
+                                    Map<Schema,Map<Schema,ValueReader>>>();
+
+  /** Stands for a pair that cannot be compiled, since the cache's maps
+   * don't distinguish a null value from a missing one. */
+  private static final ValueReader INTERPRETED = new ValueReader() {
+      @Override
+      Object read(Object old, Decoder in) {
+        throw new UnsupportedOperationException();
+      }
+    };
+
+  /** Thrown when a pair of schemas cannot be compiled, but may still be
+   * read interpretively, which reports any error as it reads. */
+  private static class CannotCompile extends RuntimeException {
+    CannotCompile(Throwable cause) { super(cause); }
+  }
+
+  /** Returns the compiled reader for the given schemas and data model, or
+   * null if the pair cannot be compiled and must be read interpretively.
+   * Compiles outside the cache's lock, so that threads compiling different
+   * pairs, or finding compiled ones, don't wait for each other. */
+  static ValueReader get(Schema writer, Schema reader, GenericData data) {
+    ValueReader result = lookUp(writer, reader, data, null);
+    if (result == null)
+      result = lookUp(writer, reader, data, compile(writer, reader, data));
+    return result == INTERPRETED ? null : result;
+  }
+
+  /** Returns the cached reader for a pair, first adding <tt>compiled</tt> if
+   * none is cached and it is not null. */
+  private static ValueReader lookUp(Schema writer, Schema reader,
+                                    GenericData data, ValueReader compiled) {
+    synchronized (CACHE) {
+      Map<Schema,Map<Schema,ValueReader>> byWriter = CACHE.get(data);
+      if (byWriter == null) {
+        byWriter = new WeakIdentityHashMap<Schema,Map<Schema,ValueReader>>();
+        CACHE.put(data, byWriter);
+      }
+      Map<Schema,ValueReader> byReader = byWriter.get(writer);
+      if (byReader == null) {
+        byReader = new WeakIdentityHashMap<Schema,ValueReader>();
+        byWriter.put(writer, byReader);
+      }
+      ValueReader result = byReader.get(reader);
+      if (result == null && compiled != null) {   // another may have won
+        byReader.put(reader, compiled);
+        result = compiled;
+      }
+      return result;
+    }
+  }
+
+  private static ValueReader compile(Schema writer, Schema reader,
+                                     GenericData data) {
+    if (!data.supportsCompiledDatumIO(reader))
+      return INTERPRETED;
+    DatumReader interpreter = data.createDatumReader(writer, reader);
+    if (!(interpreter instanceof GenericDatumReader))
+      return INTERPRETED;
+    try {
+      ResolutionPlan.Action plan;
+      try {
+        plan = ResolverCache.get().getPlan(writer, reader);
+      } catch (IOException e) {                   // schemas don't resolve
+        throw new CannotCompile(e);
+      } catch (AvroTypeException e) {
+        throw new CannotCompile(e);
+      }
+      return new DatumReaderCompiler(data, (GenericDatumReader) interpreter)
+        .compile(plan);
+    } catch (CannotCompile e) {
+      LOG.warn("Reading " + writer.getFullName() + " as "
+               + reader.getFullName() + " interpretively", e.getCause());
+      return INTERPRETED;
+    }
+  }
+
+  private final GenericData data;
+  private final GenericDatumReader<?> interpreter;
+  private final Map<ResolutionPlan.Action,RecordReader> seen =
+    new IdentityHashMap<ResolutionPlan.Action,RecordReader>();
+
+  private DatumReaderCompiler(GenericData data,
+                              GenericDatumReader<?> interpreter) {
+    this.data = data;
+    this.interpreter = interpreter;
+  }
+
+  /** Compiles a reader for a resolution plan, including any logical type
+   * conversion of the reader's schema. */
+  private ValueReader compile(ResolutionPlan.Action action) {
+    ValueReader result = compileWithoutConversion(action);
+    LogicalType logicalType = action.logicalType;
+    if (logicalType != null) {
+      Conversion<?> conversion = data.getConversionFor(logicalType);
+      if (conversion != null)
+        result = new ConversionReader(result, action.reader, logicalType,
+                                      conversion);
+    }
+    return result;
+  }
+
+  private ValueReader compileWithoutConversion(ResolutionPlan.Action action) {
+    Schema reader = action.reader;
+    switch (action.kind) {
+    case NULL:            return NULL_READER;
+    case BOOLEAN:         return BOOLEAN_READER;
+    case INT:             return INT_READER;
+    case LONG:            return LONG_READER;
+    case FLOAT:           return FLOAT_READER;
+    case DOUBLE:          return DOUBLE_READER;
+    case STRING:          return stringReader(reader);
+    case BYTES:           return BYTES_READER;
+    case FIXED:           return new FixedReader(data, reader);
+    case ENUM:            return enumReader(action);
+    case ARRAY:
+      return new ArrayReader(interpreter, reader, action.actions[0],
+                             compile(action.actions[0]));
+    case MAP:
+      return new MapReader(interpreter, stringReader(reader),
+                           compile(action.actions[0]));
+    case RECORD:          return compileRecord(action);
+    case INT_AS_LONG:     return INT_AS_LONG_READER;
+    case INT_AS_FLOAT:    return INT_AS_FLOAT_READER;
+    case INT_AS_DOUBLE:   return INT_AS_DOUBLE_READER;
+    case LONG_AS_FLOAT:   return LONG_AS_FLOAT_READER;
+    case LONG_AS_DOUBLE:  return LONG_AS_DOUBLE_READER;
+    case FLOAT_AS_DOUBLE: return FLOAT_AS_DOUBLE_READER;
+    case STRING_AS_BYTES: return STRING_AS_BYTES_READER;
+    case BYTES_AS_STRING:
+      return new BytesAsStringReader(plainStringReader(reader));
+    case WRITER_UNION:
+      ValueReader[] branches = new ValueReader[action.actions.length];
+      for (int i = 0; i < branches.length; i++)
+        branches[i] = compileWithoutConversion(action.actions[i]);
+      return new WriterUnionReader(branches);
+    case READER_UNION:    return compile(action.actions[0]);
+    case SKIP:
+      return new SkipReader(Skipper.compile(Arrays.asList(action.writer)));
+    case ERROR:           return new ErrorReader(action.message);
+    default:
+      throw new AvroRuntimeException("Unknown action: " + action.kind);
+    }
+  }
+
+  private ValueReader compileRecord(ResolutionPlan.Action action) {
+    RecordReader record = seen.get(action);
+    if (record != null)
+      return record;
+    // register before compiling fields, so that recursive references resolve
+    record = new RecordReader(data, action.reader);
+    seen.put(action, record);
+
+    Field[] fields = action.fields;
+    int count = 0;
+    while (count < fields.length && action.defaults[count] == null)
+      count++;
+    // each run of fields the reader drops is skipped by one reader
+    List<Field> kept = new ArrayList<Field>();
+    List<ValueReader> readers = new ArrayList<ValueReader>();
+    int f = 0;
+    while (f < count) {
+      if (fields[f] != null) {
+        kept.add(fields[f]);
+        readers.add(compile(action.actions[f++]));
+        continue;
+      }
+      List<Schema> dropped = new ArrayList<Schema>();
+      while (f < count && fields[f] == null)
+        dropped.add(action.actions[f++].writer);
+      kept.add(null);
+      readers.add(new SkipReader(Skipper.compile(dropped)));
+    }
+
+    Field[] defaultFields = new Field[fields.length - count];
+    Object[] defaults = new Object[defaultFields.length];
+    for (int i = 0; i < defaultFields.length; i++) {
+      defaultFields[i] = fields[count + i];
+      defaults[i] = data.getDefaultValue(defaultFields[i]);
+    }
+    record.init(kept.toArray(new Field[kept.size()]),
+                readers.toArray(new ValueReader[readers.size()]),
+                defaultFields, defaults);
+    return record;
+  }
+
+  private ValueReader enumReader(ResolutionPlan.Action action) {
+    List<String> rsymbols = action.reader.getEnumSymbols();
+    List<String> wsymbols = action.writer.getEnumSymbols();
+    int[] enumMap = action.enumMap;
+    Object[] symbols = new Object[wsymbols.size()];
+    String[] errors = new String[wsymbols.size()];
+    for (int i = 0; i < symbols.length; i++) {
+      int j = enumMap == null ? i : enumMap[i];
+      if (j < 0)
+        errors[i] = "No match for " + wsymbols.get(i);
+      else
+        symbols[i] = data.createEnum(rsymbols.get(j), action.reader);
+    }
+    return new EnumReader(symbols, errors);
+  }
+
+  private ValueReader stringReader(Schema schema) {
+    ValueReader plain = plainStringReader(schema);
+    StringDictionary dictionary = data.getStringDictionary(schema);
+    if (dictionary == null)
+      return plain;
+    if (plain == STRING_READER)
+      return new DictionaryStringReader(dictionary);
+    if (plain == UTF8_READER)
+      return new DictionaryUtf8Reader(dictionary);
+    return plain;
+  }
+
+  private ValueReader plainStringReader(Schema schema) {
+    Class<?> c = interpreter.findStringClass(schema);
+    if (c == String.class)
+      return STRING_READER;
+    if (c == CharSequence.class)
+      return UTF8_READER;
+    try {
+      Constructor<?> ctor = c.getDeclaredConstructor(String.class);
+      ctor.setAccessible(true);
+      return new StringableReader(ctor);
+    } catch (NoSuchMethodException e) {         // fails only if read
+      throw new CannotCompile(e);
+    }
+  }
+
+  /** Reads one value of a resolved schema pair from a {@link Decoder}. */
+  abstract static class ValueReader {
+    abstract Object read(Object old, Decoder in) throws IOException;
+  }
+
+  private static final ValueReader NULL_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      in.readNull();
+      return null;
+    }
+  };
+
+  private static final ValueReader BOOLEAN_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      return in.readBoolean();
+    }
+  };
+
+  private static final ValueReader INT_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      return in.readInt();
+    }
+  };
+
+  private static final ValueReader LONG_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      return in.readLong();
+    }
+  };
+
+  private static final ValueReader FLOAT_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      return in.readFloat();
+    }
+  };
+
+  private static final ValueReader DOUBLE_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      return in.readDouble();
+    }
+  };
+
+  private static final ValueReader INT_AS_LONG_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      return (long) in.readInt();
+    }
+  };
+
+  private static final ValueReader INT_AS_FLOAT_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      return (float) in.readInt();
+    }
+  };
+
+  private static final ValueReader LONG_AS_FLOAT_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      return (float) in.readLong();
+    }
+  };
+
+  private static final ValueReader INT_AS_DOUBLE_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      return (double) in.readInt();
+    }
+  };
+
+  private static final ValueReader LONG_AS_DOUBLE_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      return (double) in.readLong();
+    }
+  };
+
+  private static final ValueReader FLOAT_AS_DOUBLE_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      return (double) in.readFloat();
+    }
+  };
+
+  private static final ValueReader BYTES_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      return in.readBytes(old instanceof ByteBuffer ? (ByteBuffer) old : null);
+    }
+  };
+
+  private static final ValueReader STRING_AS_BYTES_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      Utf8 s = in.readString(null);
+      return ByteBuffer.wrap(s.getBytes(), 0, s.getByteLength());
+    }
+  };
+
+  private static final ValueReader STRING_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      return in.readString();
+    }
+  };
+
+  private static final ValueReader UTF8_READER = new ValueReader() {
+    Object read(Object old, Decoder in) throws IOException {
+      return in.readString(GenericDatumReader.reusableUtf8(old));
+    }
+  };
+
+  /** Reads strings shared through a dictionary. */
+  private static class DictionaryStringReader extends ValueReader {
+    private final StringDictionary dictionary;
+    DictionaryStringReader(StringDictionary dictionary) {
+      this.dictionary = dictionary;
+    }
+    @Override
+    Object read(Object old, Decoder in) throws IOException {
+      return dictionary.readString(in);
+    }
+  }
+
+  /** Reads {@link Utf8}s shared through a dictionary. */
+  private static class DictionaryUtf8Reader extends ValueReader {
+    private final StringDictionary dictionary;
+    DictionaryUtf8Reader(StringDictionary dictionary) {
+      this.dictionary = dictionary;
+    }
+    @Override
+    Object read(Object old, Decoder in) throws IOException {
+      return dictionary.readUtf8(in);
+    }
+  }
+
+  /** Reads strings into a class with a single-string constructor. */
+  private static class StringableReader extends ValueReader {
+    private final Constructor<?> ctor;
+    StringableReader(Constructor<?> ctor) { this.ctor = ctor; }
+    @Override
+    Object read(Object old, Decoder in) throws IOException {
+      return newInstance(in.readString());
+    }
+    Object newInstance(String s) {
+      try {
+        return ctor.newInstance(s);
+      } catch (InstantiationException e) {
+        throw new AvroRuntimeException(e);
+      } catch (IllegalAccessException e) {
+        throw new AvroRuntimeException(e);
+      } catch (InvocationTargetException e) {
+        throw new AvroRuntimeException(e);
+      }
+    }
+  }
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  /** Reads bytes written by the writer as a reader's string. */
+  private static class BytesAsStringReader extends ValueReader {
+    private final ValueReader string;
+    BytesAsStringReader(ValueReader string) { this.string = string; }
+    @Override
+    Object read(Object old, Decoder in) throws IOException {
+      byte[] bytes = in.readBytes(null).array();
+      if (string == UTF8_READER)
+        return new Utf8(bytes);
+      String s = new String(bytes, UTF8);
+      if (string == STRING_READER)
+        return s;
+      return ((StringableReader) string).newInstance(s);
+    }
+  }
+
+  private static class FixedReader extends ValueReader {
+    private final GenericData data;
+    private final Schema schema;
+    private final int size;
+    FixedReader(GenericData data, Schema schema) {
+      this.data = data;
+      this.schema = schema;
+      this.size = schema.getFixedSize();
+    }
+    @Override
+    Object read(Object old, Decoder in) throws IOException {
+      GenericFixed fixed = (GenericFixed) data.createFixed(old, schema);
+      in.readFixed(fixed.bytes(), 0, size);
+      return fixed;
+    }
+  }
+
+  /** Maps the writer's enum ordinals directly to the reader's symbols. */
+  private static class EnumReader extends ValueReader {
+    private final Object[] symbols;
+    private final String[] errors;
+    EnumReader(Object[] symbols, String[] errors) {
+      this.symbols = symbols;
+      this.errors = errors;
+    }
+    @Override
+    Object read(Object old, Decoder in) throws IOException {
+      int n = in.readEnum();
+      Object symbol = symbols[n];
+      if (symbol == null)
+        throw new AvroTypeException(errors[n]);
+      return symbol;
+    }
+  }
+
+  private static class ArrayReader extends ValueReader {
+    private final GenericDatumReader<?> interpreter;
+    private final Schema schema;
+    private final Schema items;                   // if read without boxing
+    private final ValueReader element;
+    ArrayReader(GenericDatumReader<?> interpreter, Schema schema,
+                ResolutionPlan.Action items, ValueReader element) {
+      this.interpreter = interpreter;
+      this.schema = schema;
+      this.items = items.writer.getType() == items.reader.getType()
+        ? items.reader : null;                    // not promoted
+      this.element = element;
+    }
+    @Override
+    Object read(Object old, Decoder in) throws IOException {
+      long l = in.readArrayStart();
+      if (l <= 0)
+        return interpreter.newArray(old, 0, schema);
+      Object array = interpreter.newArray(old, (int) l, schema);
+      if (items != null && array instanceof PrimitiveArray
+          && ((PrimitiveArray<?>) array).holds(items)) {
+        do {
+          ((PrimitiveArray<?>) array).readItems(in, l);
+        } while ((l = in.arrayNext()) > 0);
+        return array;
+      }
+      long base = 0;
+      do {
+        for (long i = 0; i < l; i++)
+          interpreter.addToArray(array, base + i,
+              element.read(interpreter.peekArray(array), in));
+        base += l;
+      } while ((l = in.arrayNext()) > 0);
+      return array;
+    }
+  }
+
+  private static class MapReader extends ValueReader {
+    private final GenericDatumReader<?> interpreter;
+    private final ValueReader key;
+    private final ValueReader value;
+    MapReader(GenericDatumReader<?> interpreter, ValueReader key,
+              ValueReader value) {
+      this.interpreter = interpreter;
+      this.key = key;
+      this.value = value;
+    }
+    @Override
+    Object read(Object old, Decoder in) throws IOException {
+      long l = in.readMapStart();
+      Object map = interpreter.newMap(old, (int) l);
+      if (l > 0) {
+        do {
+          for (int i = 0; i < l; i++)
+            interpreter.addToMap(map, key.read(null, in), value.read(null, in));
+        } while ((l = in.mapNext()) > 0);
+      }
+      return map;
+    }
+  }
+
+  /** Reads the writer's union index and dispatches to the branch's reader. */
+  private static class WriterUnionReader extends ValueReader {
+    private final ValueReader[] branches;
+    WriterUnionReader(ValueReader[] branches) { this.branches = branches; }
+    @Override
+    Object read(Object old, Decoder in) throws IOException {
+      return branches[in.readIndex()].read(old, in);
+    }
+  }
+
+  private static class ConversionReader extends ValueReader {
+    private final ValueReader raw;
+    private final Schema schema;
+    private final LogicalType logicalType;
+    private final Conversion<?> conversion;
+    ConversionReader(ValueReader raw, Schema schema, LogicalType logicalType,
+                     Conversion<?> conversion) {
+      this.raw = raw;
+      this.schema = schema;
+      this.logicalType = logicalType;
+      this.conversion = conversion;
+    }
+    @Override
+    Object read(Object old, Decoder in) throws IOException {
+      return Conversions.convertToLogicalType(raw.read(old, in), schema,
+                                              logicalType, conversion);
+    }
+  }
+
+  /** Skips values the writer wrote but the reader does not expect. */
+  private static class SkipReader extends ValueReader {
+    private final Skipper skipper;
+    SkipReader(Skipper skipper) { this.skipper = skipper; }
+    @Override
+    Object read(Object old, Decoder in) throws IOException {
+      skipper.skip(in);
+      return null;
+    }
+  }
+
+  /** Defers a resolution error until a datum actually needs it, as the
+   * resolving grammar does. */
+  private static class ErrorReader extends ValueReader {
+    private final String message;
+    ErrorReader(String message) { this.message = message; }
+    @Override
+    Object read(Object old, Decoder in) throws IOException {
+      throw new AvroTypeException(message);
+    }
+  }
+
+  /** Reads the writer's fields in the writer's order, storing each into its
+   * reader position, then fills in defaults for the reader's extra fields. */
+  private static class RecordReader extends ValueReader {
+    private final GenericData data;
+    private final Schema schema;
+    private Field[] fields;                       // null entries are skipped
+    private ValueReader[] readers;
+    private Field[] defaultFields;
+    private Object[] defaults;
+
+    RecordReader(GenericData data, Schema schema) {
+      this.data = data;
+      this.schema = schema;
+    }
+
+    void init(Field[] fields, ValueReader[] readers,
+              Field[] defaultFields, Object[] defaults) {
+      this.fields = fields;
+      this.readers = readers;
+      this.defaultFields = defaultFields;
+      this.defaults = defaults;
+    }
+
+    @Override
+    Object read(Object old, Decoder in) throws IOException {
+      Object r = data.newRecord(old, schema);
+      Object state = data.getRecordState(r, schema);
+      for (int i = 0; i < fields.length; i++) {
+        Field f = fields[i];
+        if (f == null) {
+          readers[i].read(null, in);
+          continue;
+        }
+        Object oldDatum = null;
+        if (old != null)
+          oldDatum = data.getField(r, f.name(), f.pos(), state);
+        data.setField(r, f.name(), f.pos(), readers[i].read(oldDatum, in),
+                      state);
+      }
+      for (int i = 0; i < defaultFields.length; i++) {
+        Field f = defaultFields[i];
+        data.setField(r, f.name(), f.pos(),
+                      data.deepCopy(f.schema(), defaults[i]), state);
+      }
+      return r;
+    }
+  }
+}
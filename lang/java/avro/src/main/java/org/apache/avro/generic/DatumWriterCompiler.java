@@ -0,0 +1,398 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.Conversion;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.PrimitivesArrays.PrimitiveArray;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.util.WeakIdentityHashMap;
+
+/**
+ * Compiles a schema into a tree of {@link ValueWriter}s for {@link
+ * CompiledDatumWriter}.
+ *
+ * <p>Records, arrays, maps and unions are compiled so that writing a datum
+ * never switches on its schema.  Leaves whose representation depends on the
+ * data model (enums, strings, bytes and fixed) delegate to the model's own
+ * {@link GenericDatumWriter}, which keeps them exactly compatible with it.
+ */
+final class DatumWriterCompiler {
+
+  private static final Map<GenericData,Map<Schema,ValueWriter>> CACHE =
+    new WeakIdentityHashMap<GenericData,Map<Schema,ValueWriter>>();
+
+  /** Stands for a schema that cannot be compiled, since the cache's maps
+   * don't distinguish a null value from a missing one. */
+  private static final ValueWriter INTERPRETED = new ValueWriter() {
+      @Override
+      void write(Object datum, Encoder out) {
+        throw new UnsupportedOperationException();
+      }
+    };
+
+  /** Returns the compiled writer for the given schema and data model, or
+   * null if the schema cannot be compiled and must be written
+   * interpretively.  Compiles outside the cache's lock, so that threads
+   * compiling different schemas, or finding compiled ones, don't wait for
+   * each other. */
+  static ValueWriter get(Schema schema, GenericData data) {
+    ValueWriter result = lookUp(schema, data, null);
+    if (result == null)
+      result = lookUp(schema, data, compile(schema, data));
+    return result == INTERPRETED ? null : result;
+  }
+
+  /** Returns the cached writer for a schema, first adding <tt>compiled</tt>
+   * if none is cached and it is not null. */
+  private static ValueWriter lookUp(Schema schema, GenericData data,
+                                    ValueWriter compiled) {
+    synchronized (CACHE) {
+      Map<Schema,ValueWriter> bySchema = CACHE.get(data);
+      if (bySchema == null) {
+        bySchema = new WeakIdentityHashMap<Schema,ValueWriter>();
+        CACHE.put(data, bySchema);
+      }
+      ValueWriter result = bySchema.get(schema);
+      if (result == null && compiled != null) {   // another may have won
+        bySchema.put(schema, compiled);
+        result = compiled;
+      }
+      return result;
+    }
+  }
+
+  private static ValueWriter compile(Schema schema, GenericData data) {
+    if (!data.supportsCompiledDatumIO(schema))
+      return INTERPRETED;
+    DatumWriter interpreter = data.createDatumWriter(schema);
+    if (!(interpreter instanceof GenericDatumWriter))
+      return INTERPRETED;
+    return new DatumWriterCompiler(data, (GenericDatumWriter) interpreter)
+      .compile(schema);
+  }
+
+  private final GenericData data;
+  private final GenericDatumWriter<?> interpreter;
+  private final Map<Schema,RecordWriter> seen =
+    new IdentityHashMap<Schema,RecordWriter>();
+
+  private DatumWriterCompiler(GenericData data,
+                              GenericDatumWriter<?> interpreter) {
+    this.data = data;
+    this.interpreter = interpreter;
+  }
+
+  private ValueWriter compile(Schema schema) {
+    ValueWriter result = compileWithoutConversion(schema);
+    LogicalType logicalType = schema.getLogicalType();
+    if (logicalType != null)
+      result = new ConversionWriter(data, interpreter, schema, logicalType,
+                                    result);
+    return result;
+  }
+
+  private ValueWriter compileWithoutConversion(Schema schema) {
+    switch (schema.getType()) {
+    case RECORD:  return compileRecord(schema);
+    case ENUM:    return new EnumWriter(interpreter, schema);
+    case STRING:  return new StringWriter(interpreter, schema);
+    case BYTES:   return new BytesWriter(interpreter, schema);
+    case FIXED:   return new FixedWriter(interpreter, schema);
+    case ARRAY:
+      return new ArrayWriter(interpreter, schema.getElementType(),
+                             compile(schema.getElementType()));
+    case MAP:
+      return new MapWriter(interpreter, compile(schema.getValueType()));
+    case UNION:
+      List<Schema> types = schema.getTypes();
+      ValueWriter[] branches = new ValueWriter[types.size()];
+      for (int i = 0; i < branches.length; i++)
+        branches[i] = compile(types.get(i));
+      return new UnionWriter(data, schema, branches);
+    case INT:     return INT_WRITER;
+    case LONG:    return LONG_WRITER;
+    case FLOAT:   return FLOAT_WRITER;
+    case DOUBLE:  return DOUBLE_WRITER;
+    case BOOLEAN: return BOOLEAN_WRITER;
+    case NULL:    return NULL_WRITER;
+    default:      return new ModelWriter(interpreter, schema);
+    }
+  }
+
+  private ValueWriter compileRecord(Schema schema) {
+    RecordWriter result = seen.get(schema);
+    if (result != null)
+      return result;
+    // register before compiling fields, so that recursive references resolve
+    result = new RecordWriter(data, interpreter, schema);
+    seen.put(schema, result);
+    List<Field> fields = schema.getFields();
+    ValueWriter[] writers = new ValueWriter[fields.size()];
+    for (int i = 0; i < writers.length; i++)
+      writers[i] = compile(fields.get(i).schema());
+    result.init(fields.toArray(new Field[fields.size()]), writers);
+    return result;
+  }
+
+  /** Writes one value of a schema to an {@link Encoder}. */
+  abstract static class ValueWriter {
+    abstract void write(Object datum, Encoder out) throws IOException;
+  }
+
+  private static final ValueWriter INT_WRITER = new ValueWriter() {
+    void write(Object datum, Encoder out) throws IOException {
+      out.writeInt(((Number) datum).intValue());
+    }
+  };
+
+  private static final ValueWriter LONG_WRITER = new ValueWriter() {
+    void write(Object datum, Encoder out) throws IOException {
+      out.writeLong((Long) datum);
+    }
+  };
+
+  private static final ValueWriter FLOAT_WRITER = new ValueWriter() {
+    void write(Object datum, Encoder out) throws IOException {
+      out.writeFloat((Float) datum);
+    }
+  };
+
+  private static final ValueWriter DOUBLE_WRITER = new ValueWriter() {
+    void write(Object datum, Encoder out) throws IOException {
+      out.writeDouble((Double) datum);
+    }
+  };
+
+  private static final ValueWriter BOOLEAN_WRITER = new ValueWriter() {
+    void write(Object datum, Encoder out) throws IOException {
+      out.writeBoolean((Boolean) datum);
+    }
+  };
+
+  private static final ValueWriter NULL_WRITER = new ValueWriter() {
+    void write(Object datum, Encoder out) throws IOException {
+      out.writeNull();
+    }
+  };
+
+  /** Writes a value whose representation is defined by the data model. */
+  private static class ModelWriter extends ValueWriter {
+    protected final GenericDatumWriter<?> interpreter;
+    protected final Schema schema;
+    ModelWriter(GenericDatumWriter<?> interpreter, Schema schema) {
+      this.interpreter = interpreter;
+      this.schema = schema;
+    }
+    @Override
+    void write(Object datum, Encoder out) throws IOException {
+      interpreter.writeWithoutConversion(schema, datum, out);
+    }
+  }
+
+  private static class EnumWriter extends ModelWriter {
+    EnumWriter(GenericDatumWriter<?> interpreter, Schema schema) {
+      super(interpreter, schema);
+    }
+    @Override
+    void write(Object datum, Encoder out) throws IOException {
+      interpreter.writeEnum(schema, datum, out);
+    }
+  }
+
+  private static class StringWriter extends ModelWriter {
+    StringWriter(GenericDatumWriter<?> interpreter, Schema schema) {
+      super(interpreter, schema);
+    }
+    @Override
+    void write(Object datum, Encoder out) throws IOException {
+      interpreter.writeString(schema, datum, out);
+    }
+  }
+
+  private static class BytesWriter extends ModelWriter {
+    BytesWriter(GenericDatumWriter<?> interpreter, Schema schema) {
+      super(interpreter, schema);
+    }
+    @Override
+    void write(Object datum, Encoder out) throws IOException {
+      interpreter.writeBytes(datum, out);
+    }
+  }
+
+  private static class FixedWriter extends ModelWriter {
+    FixedWriter(GenericDatumWriter<?> interpreter, Schema schema) {
+      super(interpreter, schema);
+    }
+    @Override
+    void write(Object datum, Encoder out) throws IOException {
+      interpreter.writeFixed(schema, datum, out);
+    }
+  }
+
+  private static class ConversionWriter extends ValueWriter {
+    private final GenericData data;
+    private final GenericDatumWriter<?> interpreter;
+    private final Schema schema;
+    private final LogicalType logicalType;
+    private final ValueWriter raw;
+    ConversionWriter(GenericData data, GenericDatumWriter<?> interpreter,
+                     Schema schema, LogicalType logicalType, ValueWriter raw) {
+      this.data = data;
+      this.interpreter = interpreter;
+      this.schema = schema;
+      this.logicalType = logicalType;
+      this.raw = raw;
+    }
+    @Override
+    void write(Object datum, Encoder out) throws IOException {
+      if (datum != null) {
+        Conversion<?> conversion =
+          data.getConversionByClass(datum.getClass(), logicalType);
+        datum = interpreter.convert(schema, logicalType, conversion, datum);
+      }
+      raw.write(datum, out);
+    }
+  }
+
+  private static class ArrayWriter extends ValueWriter {
+    private final GenericDatumWriter<?> interpreter;
+    private final Schema items;
+    private final ValueWriter element;
+    ArrayWriter(GenericDatumWriter<?> interpreter, Schema items,
+                ValueWriter element) {
+      this.interpreter = interpreter;
+      this.items = items;
+      this.element = element;
+    }
+    @Override
+    void write(Object datum, Encoder out) throws IOException {
+      long size = interpreter.getArraySize(datum);
+      long actualSize = 0;
+      out.writeArrayStart();
+      out.setItemCount(size);
+      if (datum instanceof PrimitiveArray
+          && ((PrimitiveArray<?>) datum).holds(items)) {
+        ((PrimitiveArray<?>) datum).writeItems(out);
+        out.writeArrayEnd();
+        return;
+      }
+      for (Iterator<? extends Object> it = interpreter.getArrayElements(datum);
+           it.hasNext();) {
+        out.startItem();
+        element.write(it.next(), out);
+        actualSize++;
+      }
+      out.writeArrayEnd();
+      if (actualSize != size) {
+        throw new ConcurrentModificationException("Size of array written was "
+            + size + ", but number of elements written was " + actualSize
+            + ". ");
+      }
+    }
+  }
+
+  private static class MapWriter extends ValueWriter {
+    private final GenericDatumWriter<?> interpreter;
+    private final ValueWriter value;
+    MapWriter(GenericDatumWriter<?> interpreter, ValueWriter value) {
+      this.interpreter = interpreter;
+      this.value = value;
+    }
+    @Override
+    void write(Object datum, Encoder out) throws IOException {
+      int size = interpreter.getMapSize(datum);
+      int actualSize = 0;
+      out.writeMapStart();
+      out.setItemCount(size);
+      for (Map.Entry<Object,Object> entry : interpreter.getMapEntries(datum)) {
+        out.startItem();
+        interpreter.writeString(entry.getKey().toString(), out);
+        value.write(entry.getValue(), out);
+        actualSize++;
+      }
+      out.writeMapEnd();
+      if (actualSize != size) {
+        throw new ConcurrentModificationException("Size of map written was "
+            + size + ", but number of entries written was " + actualSize
+            + ". ");
+      }
+    }
+  }
+
+  private static class UnionWriter extends ValueWriter {
+    private final GenericData data;
+    private final Schema union;
+    private final ValueWriter[] branches;
+    UnionWriter(GenericData data, Schema union, ValueWriter[] branches) {
+      this.data = data;
+      this.union = union;
+      this.branches = branches;
+    }
+    @Override
+    void write(Object datum, Encoder out) throws IOException {
+      int index = data.resolveUnion(union, datum);
+      out.writeIndex(index);
+      branches[index].write(datum, out);
+    }
+  }
+
+  private static class RecordWriter extends ValueWriter {
+    private final GenericData data;
+    private final GenericDatumWriter<?> interpreter;
+    private final Schema schema;
+    private Field[] fields;
+    private ValueWriter[] writers;
+
+    RecordWriter(GenericData data, GenericDatumWriter<?> interpreter,
+                 Schema schema) {
+      this.data = data;
+      this.interpreter = interpreter;
+      this.schema = schema;
+    }
+
+    void init(Field[] fields, ValueWriter[] writers) {
+      this.fields = fields;
+      this.writers = writers;
+    }
+
+    @Override
+    void write(Object datum, Encoder out) throws IOException {
+      Object state = data.getRecordState(datum, schema);
+      for (int i = 0; i < fields.length; i++) {
+        Field f = fields[i];
+        Object value = data.getField(datum, f.name(), f.pos(), state);
+        try {
+          writers[i].write(value, out);
+        } catch (NullPointerException e) {
+          throw interpreter.npe(e, " in field " + f.name());
+        }
+      }
+    }
+  }
+}
@@ -30,6 +30,7 @@ import java.util.LinkedHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.AvroTypeException;
@@ -49,6 +50,7 @@ import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.parsing.ResolvingGrammarGenerator;
+import org.apache.avro.util.StringDictionary;
 import org.apache.avro.util.Utf8;
 
 import org.codehaus.jackson.JsonNode;
@@ -69,6 +71,11 @@ public class GenericData {
   public static final String STRING_PROP = "avro.java.string";
   protected static final String STRING_TYPE_STRING = "String";
 
+  /** Names the number of distinct values to share when reading a string
+   * schema, or a map schema (for its keys).  See {@link
+   * #getStringDictionary(Schema)}. */
+  public static final String DICTIONARY_PROP = "avro.java.dictionary";
+
   private final ClassLoader classLoader;
 
   /** Set the Java type to be used when reading this schema.  Meaningful only
@@ -98,6 +105,58 @@ public class GenericData {
   /** Return the class loader that's used (by subclasses). */
   public ClassLoader getClassLoader() { return classLoader; }
 
+  private volatile boolean primitiveArrays;
+
+  /** Read arrays of int, long, float, double and boolean items, whose item
+   * schema has neither a logical type nor properties, into {@link
+   * PrimitivesArrays}, which hold their items without boxing.  These are not
+   * {@link Array}s, so this is off by default. */
+  public void setPrimitiveArrays(boolean primitiveArrays) {
+    this.primitiveArrays = primitiveArrays;
+  }
+
+  /** True if arrays of primitives are read into {@link PrimitivesArrays}.
+   * See {@link #setPrimitiveArrays(boolean)}. */
+  public boolean getPrimitiveArrays() { return primitiveArrays; }
+
+  private volatile StringDictionary stringDictionary;
+  private final ConcurrentMap<Schema, StringDictionary> dictionaries =
+    new MapMaker().weakKeys().makeMap();
+
+  /** Share equal strings read with this data model through a dictionary,
+   * for all strings and map keys whose schema does not name its own with
+   * {@link #DICTIONARY_PROP}.  Pass null, the default, to allocate each
+   * string read.  Like conversions, this should be set before reading, as
+   * readers remember the dictionary each schema uses. */
+  public void setStringDictionary(StringDictionary dictionary) {
+    this.stringDictionary = dictionary;
+  }
+
+  /** Returns the dictionary used to share equal values read with a string or
+   * map schema, or null if each is allocated anew.  A schema with a {@link
+   * #DICTIONARY_PROP} property, giving the number of values to hold, has a
+   * dictionary of its own.  Otherwise that set by {@link
+   * #setStringDictionary(StringDictionary)} is used.  Subclasses may override
+   * to choose dictionaries differently. */
+  public StringDictionary getStringDictionary(Schema schema) {
+    String size = schema.getProp(DICTIONARY_PROP);
+    if (size == null)
+      return stringDictionary;
+    StringDictionary result = dictionaries.get(schema);
+    if (result == null) {
+      try {
+        result = new StringDictionary(Integer.parseInt(size));
+      } catch (IllegalArgumentException e) {
+        throw new AvroRuntimeException("Invalid " + DICTIONARY_PROP + ": "
+                                       + size);
+      }
+      StringDictionary old = dictionaries.putIfAbsent(schema, result);
+      if (old != null)
+        result = old;
+    }
+    return result;
+  }
+
   private Map<String, Conversion<?>> conversions =
       new HashMap<String, Conversion<?>>();
 
@@ -213,9 +272,10 @@ public class GenericData {
     @Override public Object get(int i) { return values[i]; }
     @Override public boolean equals(Object o) {
       if (o == this) return true;                 // identical object
-      if (!(o instanceof Record)) return false;   // not a record
-      Record that = (Record)o;
-      if (!this.schema.equals(that.schema))
+      if (!(o instanceof Record) && !(o instanceof LazyRecord))
+        return false;                             // not a record
+      IndexedRecord that = (IndexedRecord)o;
+      if (!this.schema.equals(that.getSchema()))
         return false;                             // not the same schema
       return GenericData.get().compare(this, that, schema, true) == 0;
     }
@@ -450,6 +510,15 @@ public class GenericData {
     return new GenericDatumWriter(schema, this);
   }
 
+  /** Returns true if datums of a schema may be read and written by {@link
+   * CompiledDatumReader} and {@link CompiledDatumWriter} with this data model.
+   * Models whose readers or writers customize more than the representation of
+   * strings, enums, fixed and bytes should return false, so that their own
+   * datum readers and writers are used instead. */
+  protected boolean supportsCompiledDatumIO(Schema schema) {
+    return true;
+  }
+
   /** Returns true if a Java datum matches a schema. */
   public boolean validate(Schema schema, Object datum) {
     switch (schema.getType()) {
@@ -19,26 +19,32 @@ package org.apache.avro.generic;
 
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
 import java.nio.ByteBuffer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 
 import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.AvroTypeException;
 import org.apache.avro.Conversion;
 import org.apache.avro.Conversions;
 import org.apache.avro.LogicalType;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.PrimitivesArrays.PrimitiveArray;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.ResolvingDecoder;
+import org.apache.avro.util.StringDictionary;
 import org.apache.avro.util.Utf8;
 import org.apache.avro.util.WeakIdentityHashMap;
 
+import com.google.common.collect.MapMaker;
+
 /** {@link DatumReader} for generic Java objects. */
 public class GenericDatumReader<D> implements DatumReader<D> {
   private final GenericData data;
@@ -48,6 +54,10 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   private ResolvingDecoder creatorResolver = null;
   private final Thread creator;
 
+  private final boolean planned;
+  private final boolean itemsHooked;
+  private volatile ResolutionPlan.Action plan;
+
   public GenericDatumReader() {
     this(null, null, GenericData.get());
   }
@@ -71,6 +81,8 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   protected GenericDatumReader(GenericData data) {
     this.data = data;
     this.creator = Thread.currentThread();
+    this.planned = isPlanned(getClass());
+    this.itemsHooked = isItemsHooked(getClass());
   }
 
   /** Return the {@link GenericData} implementation. */
@@ -86,6 +98,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
       expected = actual;
     }
     creatorResolver = null;
+    plan = null;
   }
 
   /** Get the reader's schema. */
@@ -95,6 +108,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   public void setExpected(Schema reader) {
     this.expected = reader;
     creatorResolver = null;
+    plan = null;
   }
 
   private static final ThreadLocal<Map<Schema,Map<Schema,ResolvingDecoder>>>
@@ -107,8 +121,9 @@ public class GenericDatumReader<D> implements DatumReader<D> {
 
   /** Gets a resolving decoder for use by this GenericDatumReader.
    *  Unstable API.
-   *  Currently uses a thread local cache to prevent constructing the
-   *  resolvers too often, because that is very expensive.
+   *  Currently uses a thread local cache of resolving decoders, whose
+   *  expensive, immutable grammars are shared between threads by the
+   *  {@link ResolverCache}.
    */
   protected final ResolvingDecoder getResolver(Schema actual, Schema expected)
     throws IOException {
@@ -126,7 +141,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     resolver = cache.get(expected);
     if (resolver == null) {
       resolver = DecoderFactory.get().resolvingDecoder(
-          Schema.applyAliases(actual, expected), expected, null);
+          ResolverCache.get().getResolver(actual, expected), null);
       cache.put(expected, resolver);
     }
 
@@ -137,9 +152,99 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     return resolver;
   }
 
+  /** The hooks that take a {@link ResolvingDecoder}.  A subclass overriding
+   * any of these relies on the resolving decoder, so its datums are not read
+   * from a {@link ResolutionPlan}. */
+  private static final Class<?>[][] RESOLVING_HOOKS = {
+    { Object.class, Schema.class, ResolvingDecoder.class },
+    { Object.class, Schema.class, LogicalType.class, Conversion.class,
+      ResolvingDecoder.class },
+    { Object.class, Field.class, Object.class, ResolvingDecoder.class,
+      Object.class }
+  };
+  private static final String[][] RESOLVING_HOOK_NAMES = {
+    { "read", "readWithoutConversion", "readRecord", "readArray", "readMap" },
+    { "readWithConversion" },
+    { "readField" }
+  };
+
+  private static final Map<Class<?>,Boolean> PLANNED =
+    new WeakIdentityHashMap<Class<?>,Boolean>();
+
+  /** True if datums of a class are read from a {@link ResolutionPlan}.  A
+   * plan maps enum symbols itself, calling {@link #readEnum(Schema,Decoder)}
+   * only when no mapping is needed, so a subclass overriding that hook must
+   * also use the resolving decoder. */
+  private static boolean isPlanned(Class<?> c) {
+    synchronized (PLANNED) {
+      Boolean result = PLANNED.get(c);
+      if (result == null) {
+        result = !overridesResolvingHooks(c)
+          && !overrides(c, "readEnum", Schema.class, Decoder.class);
+        PLANNED.put(c, result);
+      }
+      return result;
+    }
+  }
+
+  private static boolean overridesResolvingHooks(Class<?> c) {
+    for (; c != GenericDatumReader.class; c = c.getSuperclass())
+      for (int i = 0; i < RESOLVING_HOOKS.length; i++)
+        for (String name : RESOLVING_HOOK_NAMES[i])
+          try {
+            c.getDeclaredMethod(name, RESOLVING_HOOKS[i]);
+            return true;
+          } catch (NoSuchMethodException e) {
+            // not overridden here
+          }
+    return false;
+  }
+
+  private static final Map<Class<?>,Boolean> ITEMS_HOOKED =
+    new WeakIdentityHashMap<Class<?>,Boolean>();
+
+  /** True if a subclass overrides a hook called for each item of an array,
+   * so its arrays of primitives are not read into {@link PrimitivesArrays},
+   * which bypass these. */
+  private static boolean isItemsHooked(Class<?> c) {
+    synchronized (ITEMS_HOOKED) {
+      Boolean result = ITEMS_HOOKED.get(c);
+      if (result == null) {
+        result = overrides(c, "read", RESOLVING_HOOKS[0])
+          || overrides(c, "readWithoutConversion", RESOLVING_HOOKS[0])
+          || overrides(c, "readInt", Object.class, Schema.class, Decoder.class)
+          || overrides(c, "peekArray", Object.class)
+          || overrides(c, "addToArray", Object.class, long.class, Object.class);
+        ITEMS_HOOKED.put(c, result);
+      }
+      return result;
+    }
+  }
+
+  private static boolean overrides(Class<?> c, String name,
+                                   Class<?>... parameterTypes) {
+    for (; c != GenericDatumReader.class; c = c.getSuperclass())
+      try {
+        c.getDeclaredMethod(name, parameterTypes);
+        return true;
+      } catch (NoSuchMethodException e) {
+        // not overridden here
+      }
+    return false;
+  }
+
+  private ResolutionPlan.Action getPlan() throws IOException {
+    ResolutionPlan.Action result = plan;
+    if (result == null)
+      plan = result = ResolverCache.get().getPlan(actual, expected);
+    return result;
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public D read(D reuse, Decoder in) throws IOException {
+    if (planned && in instanceof BinaryDecoder)
+      return (D) read(reuse, getPlan(), in);
     ResolvingDecoder resolver = getResolver(actual, expected);
     resolver.configure(in);
     D result = (D) read(reuse, expected, resolver);
@@ -229,7 +334,173 @@ public class GenericDatumReader<D> implements DatumReader<D> {
    * efficient or alternate implementations.*/
   protected void readField(Object r, Field f, Object oldDatum,
     ResolvingDecoder in, Object state) throws IOException {
-    data.setField(r, f.name(), f.pos(), read(oldDatum, f.schema(), in), state);
+    Conversion<?> conversion = getFieldConversion(r, f);
+    Object datum;
+    if (conversion != null) {
+      datum = readWithConversion(
+          oldDatum, f.schema(), f.schema().getLogicalType(), conversion, in);
+    } else {
+      datum = readWithoutConversion(oldDatum, f.schema(), in);
+    }
+    data.setField(r, f.name(), f.pos(), datum, state);
+  }
+
+  /** Called to find the conversion, if any, for a field of a record being
+   * read.  By default uses the data model's conversion for the field's
+   * logical type.  May be overridden by record representations that carry
+   * their own conversions. */
+  protected Conversion<?> getFieldConversion(Object r, Field f) {
+    return data.getConversionFor(f.schema().getLogicalType());
+  }
+
+  /** Reads a datum by following a resolution plan, straight from the
+   * writer's binary encoding. */
+  private Object read(Object old, ResolutionPlan.Action action, Decoder in)
+    throws IOException {
+    Object datum = readWithoutConversion(old, action, in);
+    LogicalType logicalType = action.logicalType;
+    if (logicalType != null) {
+      Conversion<?> conversion = data.getConversionFor(logicalType);
+      if (conversion != null)
+        return convert(datum, action.reader, logicalType, conversion);
+    }
+    return datum;
+  }
+
+  private Object readWithoutConversion(Object old,
+                                       ResolutionPlan.Action action,
+                                       Decoder in) throws IOException {
+    Schema expected = action.reader;
+    switch (action.kind) {
+    case RECORD:  return readRecord(old, action, in);
+    case ENUM:    return readEnum(action, in);
+    case ARRAY:   return readArray(old, action, in);
+    case MAP:     return readMap(old, action, in);
+    case FIXED:   return readFixed(old, expected, in);
+    case STRING:  return readString(old, expected, in);
+    case BYTES:   return readBytes(old, expected, in);
+    case INT:     return readInt(old, expected, in);
+    case LONG:    return in.readLong();
+    case FLOAT:   return in.readFloat();
+    case DOUBLE:  return in.readDouble();
+    case BOOLEAN: return in.readBoolean();
+    case NULL:    in.readNull(); return null;
+    case INT_AS_LONG:     return (long) in.readInt();
+    case INT_AS_FLOAT:    return (float) in.readInt();
+    case INT_AS_DOUBLE:   return (double) in.readInt();
+    case LONG_AS_FLOAT:   return (float) in.readLong();
+    case LONG_AS_DOUBLE:  return (double) in.readLong();
+    case FLOAT_AS_DOUBLE: return (double) in.readFloat();
+    // strings and bytes share their binary encoding
+    case STRING_AS_BYTES: return readBytes(old, expected, in);
+    case BYTES_AS_STRING: return readString(old, expected, in);
+    case WRITER_UNION:
+      return readWithoutConversion(old, action.actions[in.readIndex()], in);
+    case READER_UNION:
+      return read(old, action.actions[0], in);
+    case SKIP:    skip(action.writer, in); return null;
+    case ERROR:   throw new AvroTypeException(action.message);
+    default: throw new AvroRuntimeException("Unknown action: " + action.kind);
+    }
+  }
+
+  /** Decodes the binary encoded defaults of a plan's records. */
+  private static final ThreadLocal<BinaryDecoder> DEFAULT_DECODER =
+    new ThreadLocal<BinaryDecoder>();
+
+  private Object readRecord(Object old, ResolutionPlan.Action action,
+                            Decoder in) throws IOException {
+    Schema expected = action.reader;
+    Object r = data.newRecord(old, expected);
+    Object state = data.getRecordState(r, expected);
+
+    Field[] fields = action.fields;
+    ResolutionPlan.Action[] actions = action.actions;
+    byte[][] defaults = action.defaults;
+    for (int i = 0; i < fields.length; i++) {
+      Field f = fields[i];
+      if (f == null) {
+        skip(actions[i].writer, in);
+        continue;
+      }
+      Object oldDatum = null;
+      if (old!=null) {
+        oldDatum = data.getField(r, f.name(), f.pos(), state);
+      }
+      Decoder fin = in;
+      if (defaults[i] != null) {
+        BinaryDecoder decoder = DecoderFactory.get()
+          .binaryDecoder(defaults[i], DEFAULT_DECODER.get());
+        DEFAULT_DECODER.set(decoder);
+        fin = decoder;
+      }
+      Object datum = readWithoutConversion(oldDatum, actions[i], fin);
+      Conversion<?> conversion = getFieldConversion(r, f);
+      if (conversion != null)
+        datum = convert(datum, f.schema(), f.schema().getLogicalType(),
+                        conversion);
+      data.setField(r, f.name(), f.pos(), datum, state);
+    }
+    return r;
+  }
+
+  private Object readEnum(ResolutionPlan.Action action, Decoder in)
+    throws IOException {
+    int[] enumMap = action.enumMap;
+    if (enumMap == null)
+      return readEnum(action.reader, in);
+    int n = in.readEnum();
+    if (enumMap[n] < 0)
+      throw new AvroTypeException("No match for "
+                                  + action.writer.getEnumSymbols().get(n));
+    return createEnum(action.reader.getEnumSymbols().get(enumMap[n]),
+                      action.reader);
+  }
+
+  private Object readArray(Object old, ResolutionPlan.Action action,
+                           Decoder in) throws IOException {
+    Schema expected = action.reader;
+    ResolutionPlan.Action element = action.actions[0];
+    long l = in.readArrayStart();
+    long base = 0;
+    if (l > 0) {
+      Object array = newArray(old, (int) l, expected);
+      if (array instanceof PrimitiveArray
+          && ((PrimitiveArray<?>) array).holds(element.reader)
+          && element.writer.getType() == element.reader.getType()) {
+        PrimitiveArray<?> primitives = (PrimitiveArray<?>) array;
+        do {
+          primitives.readItems(in, l);            // without boxing
+        } while ((l = in.arrayNext()) > 0);
+        return array;
+      }
+      do {
+        for (long i = 0; i < l; i++) {
+          addToArray(array, base + i, read(peekArray(array), element, in));
+        }
+        base += l;
+      } while ((l = in.arrayNext()) > 0);
+      return array;
+    } else {
+      return newArray(old, 0, expected);
+    }
+  }
+
+  private Object readMap(Object old, ResolutionPlan.Action action,
+                         Decoder in) throws IOException {
+    Schema expected = action.reader;
+    ResolutionPlan.Action value = action.actions[0];
+    long l = in.readMapStart();
+    Object map = newMap(old, (int) l);
+    if (l > 0) {
+      do {
+        for (int i = 0; i < l; i++) {
+          addToMap(map, readMapKey(null, expected, in),
+              read(null, value, in));
+        }
+      } while ((l = in.mapNext()) > 0);
+    }
+    return map;
   }
 
   /** Called to read an enum value. May be overridden for alternate enum
@@ -255,6 +526,14 @@ public class GenericDatumReader<D> implements DatumReader<D> {
       LogicalType logicalType = expectedType.getLogicalType();
       Conversion<?> conversion = getData().getConversionFor(logicalType);
       Object array = newArray(old, (int) l, expected);
+      if (array instanceof PrimitiveArray
+          && ((PrimitiveArray<?>) array).holds(expectedType)) {
+        PrimitiveArray<?> primitives = (PrimitiveArray<?>) array;
+        do {
+          primitives.readItems(in, l);            // without boxing
+        } while ((l = in.arrayNext()) > 0);
+        return array;
+      }
       do {
         if (logicalType != null && conversion != null) {
           for (long i = 0; i < l; i++) {
@@ -382,13 +661,21 @@ public class GenericDatumReader<D> implements DatumReader<D> {
 
   /** Called to create new array instances.  Subclasses may override to use a
    * different array implementation.  By default, this returns a {@link
-   * GenericData.Array}.*/
+   * GenericData.Array}, or, if enabled by {@link
+   * GenericData#setPrimitiveArrays(boolean)} and no item hook is overridden,
+   * one of {@link PrimitivesArrays} for arrays of primitives.*/
   @SuppressWarnings("unchecked")
   protected Object newArray(Object old, int size, Schema schema) {
     if (old instanceof Collection) {
       ((Collection) old).clear();
       return old;
-    } else return new GenericData.Array(size, schema);
+    }
+    if (data.getPrimitiveArrays() && !itemsHooked) {
+      Object primitives = PrimitivesArrays.newArray(size, schema);
+      if (primitives != null)
+        return primitives;
+    }
+    return new GenericData.Array(size, schema);
   }
 
   /** Called to create new array instances.  Subclasses may override to use a
@@ -408,18 +695,37 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   protected Object readString(Object old, Schema expected,
                               Decoder in) throws IOException {
     Class stringClass = getStringClass(expected);
+    StringDictionary dictionary = getStringDictionary(expected);
     if (stringClass == String.class)
-      return in.readString();
+      return dictionary != null ? dictionary.readString(in) : in.readString();
     if (stringClass == CharSequence.class)
-      return readString(old, in);
+      return dictionary != null
+        ? readSharedString(dictionary, in)
+        : readString(old, in);
     return newInstanceFromString(stringClass, in.readString());
   }
 
+  /** Called to read strings shared through a dictionary, as configured by
+   * {@link GenericData#getStringDictionary(Schema)}.  Subclasses may override
+   * to use a different string representation.  By default, this calls {@link
+   * StringDictionary#readUtf8(Decoder)}.*/
+  protected Object readSharedString(StringDictionary dictionary, Decoder in)
+    throws IOException {
+    return dictionary.readUtf8(in);
+  }
+
   /** Called to read strings.  Subclasses may override to use a different
    * string representation.  By default, this calls {@link
    * Decoder#readString(Utf8)}.*/
   protected Object readString(Object old, Decoder in) throws IOException {
-    return in.readString(old instanceof Utf8 ? (Utf8)old : null);
+    return in.readString(reusableUtf8(old));
+  }
+
+  /** Returns <tt>old</tt> if it is a {@link Utf8} that may be read into, or
+   * null.  Strings shared through a dictionary are never read into. */
+  static Utf8 reusableUtf8(Object old) {
+    return old instanceof Utf8 && !StringDictionary.isShared(old)
+      ? (Utf8)old : null;
   }
 
   /** Called to create a string from a default value.  Subclasses may override
@@ -444,8 +750,9 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     }
   }
 
-  private Map<Schema,Class> stringClassCache =
-    new IdentityHashMap<Schema,Class>();
+  // concurrent, as datums may be read by several threads at once
+  private final Map<Schema,Class> stringClassCache =
+    new MapMaker().weakKeys().makeMap();
 
   private Class getStringClass(Schema s) {
     Class c = stringClassCache.get(s);
@@ -456,8 +763,21 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     return c;
   }
 
+  private static final Object NO_DICTIONARY = new Object();
+  private final Map<Schema,Object> dictionaryCache =
+    new MapMaker().weakKeys().makeMap();
+
+  private StringDictionary getStringDictionary(Schema s) {
+    Object d = dictionaryCache.get(s);
+    if (d == null) {
+      d = data.getStringDictionary(s);
+      dictionaryCache.put(s, d == null ? NO_DICTIONARY : d);
+    }
+    return d == NO_DICTIONARY ? null : (StringDictionary) d;
+  }
+
   private final Map<Class,Constructor> stringCtorCache =
-    new HashMap<Class,Constructor>();
+    new ConcurrentHashMap<Class,Constructor>();
 
   @SuppressWarnings("unchecked")
   protected Object newInstanceFromString(Class c, String s) {
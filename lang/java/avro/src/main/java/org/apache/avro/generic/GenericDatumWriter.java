@@ -31,6 +31,7 @@ import org.apache.avro.Conversions;
 import org.apache.avro.LogicalType;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.PrimitivesArrays.PrimitiveArray;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.Encoder;
 
@@ -187,6 +188,12 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
     long actualSize = 0;
     out.writeArrayStart();
     out.setItemCount(size);
+    if (datum instanceof PrimitiveArray
+        && ((PrimitiveArray<?>) datum).holds(element)) {
+      ((PrimitiveArray<?>) datum).writeItems(out);  // without boxing
+      out.writeArrayEnd();
+      return;
+    }
     for (Iterator<? extends Object> it = getArrayElements(datum); it.hasNext();) {
       out.startItem();
       write(element, it.next(), out);
@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.JsonDecoder;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+/**
+ * {@link DatumReader} that reads Avro's JSON encoding straight from a JSON
+ * parser, without the grammar a {@link JsonDecoder} follows.
+ *
+ * <p>The fields of a record are found by name as they appear, so they may be
+ * in any order and are read directly into the record, where a {@link
+ * JsonDecoder} saves fields that come before the one it expects until they
+ * are needed.  Fields that are missing are set to their default values.
+ *
+ * <p>Datums are read from a {@link JsonDecoder}'s parser, or from any {@link
+ * JsonParser} with {@link #read(Object, JsonParser)}; with other decoders
+ * they are decoded as by {@link GenericDatumReader}.  Datums that are the
+ * elements of a large JSON array may be read one at a time with {@link
+ * #readArray(InputStream)}.  The writer's schema is taken to be the same as
+ * the reader's.
+ */
+public class JsonDatumReader<D> implements DatumReader<D> {
+  private static final JsonFactory FACTORY = new JsonFactory();
+
+  private final GenericData data;
+  private Schema schema;
+
+  private JsonValueReader reader;
+  private DatumReader<D> fallback;
+
+  public JsonDatumReader() {
+    this(null, GenericData.get());
+  }
+
+  /** Construct given a schema. */
+  public JsonDatumReader(Schema schema) {
+    this(schema, GenericData.get());
+  }
+
+  /** Construct given a schema and a data model. */
+  public JsonDatumReader(Schema schema, GenericData data) {
+    this.schema = schema;
+    this.data = data;
+  }
+
+  /** Return the {@link GenericData} implementation. */
+  public GenericData getData() { return data; }
+
+  /** Return the schema. */
+  public Schema getSchema() { return schema; }
+
+  @Override
+  public synchronized void setSchema(Schema schema) {
+    this.schema = schema;
+    reader = null;
+    fallback = null;
+  }
+
+  private synchronized JsonValueReader prepare() {
+    if (reader == null)
+      reader = JsonValueReader.get(schema, data);
+    return reader;
+  }
+
+  private synchronized DatumReader<D> fallback() {
+    if (fallback == null)
+      fallback = new GenericDatumReader<D>(schema, schema, data);
+    return fallback;
+  }
+
+  @Override
+  public D read(D reuse, Decoder in) throws IOException {
+    if (in instanceof JsonDecoder)
+      return read(reuse, ((JsonDecoder)in).getParser());
+    return fallback().read(reuse, in);
+  }
+
+  /** Read a datum from a parser at its first token, leaving the parser at the
+   * token after it. */
+  @SuppressWarnings("unchecked")
+  public D read(D reuse, JsonParser in) throws IOException {
+    if (in.getCurrentToken() == null)
+      throw new EOFException();
+    return (D)prepare().read(reuse, in);
+  }
+
+  /** Return the datums in a JSON array, each parsed from the stream as it is
+   * returned, so that arrays too large to hold in memory may be read. */
+  public ArrayIterator<D> readArray(InputStream in) throws IOException {
+    return new ArrayIterator<D>(this, FACTORY.createJsonParser(in));
+  }
+
+  /** The datums in a JSON array, read one at a time. */
+  public static class ArrayIterator<D>
+    implements Iterator<D>, Iterable<D>, Closeable {
+    private final JsonDatumReader<D> reader;
+    private final JsonParser in;
+
+    ArrayIterator(JsonDatumReader<D> reader, JsonParser in)
+      throws IOException {
+      this.reader = reader;
+      this.in = in;
+      if (in.nextToken() != JsonToken.START_ARRAY)
+        throw JsonValueReader.error("array-start", in);
+      in.nextToken();
+    }
+
+    @Override
+    public Iterator<D> iterator() { return this; }
+
+    /** True if more datums remain in the array. */
+    @Override
+    public boolean hasNext() {
+      JsonToken token = in.getCurrentToken();
+      if (token == null)
+        throw new AvroRuntimeException(new EOFException());
+      return token != JsonToken.END_ARRAY;
+    }
+
+    /** Read the next datum in the array. */
+    @Override
+    public D next() {
+      try {
+        return next(null);
+      } catch (IOException e) {
+        throw new AvroRuntimeException(e);
+      }
+    }
+
+    /** Read the next datum in the array.
+     * @param reuse an instance to reuse.
+     * @throws NoSuchElementException if no more remain in the array.
+     */
+    public D next(D reuse) throws IOException {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      return reader.read(reuse, in);
+    }
+
+    @Override
+    public void remove() { throw new UnsupportedOperationException(); }
+
+    /** Close the stream the array is read from. */
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,452 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.util.Utf8;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+/** Reads values of a schema from Avro's JSON encoding, as used by {@link
+ * JsonDatumReader}.  Readers are built once per schema and hold what is
+ * needed to read its values straight from a {@link JsonParser}, like the
+ * position of each record field by name.  Once built they are immutable and
+ * shared by threads.
+ *
+ * <p>Each reader is called with the parser at the first token of a value and
+ * leaves it at the token after that value. */
+abstract class JsonValueReader {
+  private static final String CHARSET = "ISO-8859-1";
+
+  final Schema schema;
+
+  JsonValueReader(Schema schema) {
+    this.schema = schema;
+  }
+
+  /** Read the value at the current token, reusing old if possible. */
+  abstract Object read(Object old, JsonParser in) throws IOException;
+
+  /** Return the reader for values of a schema. */
+  static JsonValueReader get(Schema schema, GenericData data) {
+    return get(schema, data, new IdentityHashMap<Schema, JsonValueReader>());
+  }
+
+  private static JsonValueReader get(Schema schema, GenericData data,
+                                     Map<Schema, JsonValueReader> seen) {
+    JsonValueReader reader = seen.get(schema);
+    if (reader != null)
+      return reader;                              // recursive
+    switch (schema.getType()) {
+    case RECORD:
+      RecordReader record = new RecordReader(schema, data);
+      seen.put(schema, record);
+      record.init(seen);
+      reader = record;
+      break;
+    case ARRAY:
+      reader = new ArrayReader(schema, data,
+                               get(schema.getElementType(), data, seen));
+      break;
+    case MAP:
+      reader = new MapReader(schema, get(schema.getValueType(), data, seen));
+      break;
+    case UNION:
+      List<Schema> branches = schema.getTypes();
+      JsonValueReader[] readers = new JsonValueReader[branches.size()];
+      for (int i = 0; i < readers.length; i++)
+        readers[i] = get(branches.get(i), data, seen);
+      reader = new UnionReader(schema, readers);
+      break;
+    case ENUM:    reader = new EnumReader(schema, data);    break;
+    case FIXED:   reader = new FixedReader(schema, data);   break;
+    case STRING:  reader = new StringReader(schema);        break;
+    case BYTES:   reader = new BytesReader(schema);         break;
+    case NULL:    reader = new NullReader(schema);          break;
+    case BOOLEAN: reader = new BooleanReader(schema);       break;
+    case INT:
+    case LONG:
+    case FLOAT:
+    case DOUBLE:  reader = new NumberReader(schema);        break;
+    default:
+      throw new AvroTypeException("Unknown type: " + schema);
+    }
+    LogicalType logicalType = schema.getLogicalType();
+    if (logicalType != null) {
+      Conversion<?> conversion = data.getConversionFor(logicalType);
+      if (conversion != null)
+        reader = new ConversionReader(reader, logicalType, conversion);
+    }
+    return reader;
+  }
+
+  static AvroTypeException error(String type, JsonParser in) {
+    return new AvroTypeException("Expected " + type + ". Got "
+                                 + in.getCurrentToken());
+  }
+
+  /** Records, whose fields may appear in any order. */
+  static class RecordReader extends JsonValueReader {
+    private final GenericData data;
+    private final Field[] fields;
+    private final Map<String, Integer> positions =
+      new HashMap<String, Integer>();
+    private final JsonValueReader[] readers;
+
+    RecordReader(Schema schema, GenericData data) {
+      super(schema);
+      this.data = data;
+      this.fields = schema.getFields().toArray(new Field[0]);
+      this.readers = new JsonValueReader[fields.length];
+      for (Field f : fields)
+        positions.put(f.name(), f.pos());
+    }
+
+    private void init(Map<Schema, JsonValueReader> seen) {
+      for (int i = 0; i < fields.length; i++)
+        readers[i] = JsonValueReader.get(fields[i].schema(), data, seen);
+    }
+
+    @Override
+    Object read(Object old, JsonParser in) throws IOException {
+      if (in.getCurrentToken() != JsonToken.START_OBJECT)
+        throw error("record-start", in);
+      Object record = data.newRecord(old, schema);
+      boolean reused = record == old;
+      boolean[] found = new boolean[fields.length];
+      in.nextToken();
+      while (in.getCurrentToken() == JsonToken.FIELD_NAME) {
+        String name = in.getCurrentName();
+        Integer position = positions.get(name);
+        if (position == null)
+          throw new AvroTypeException("Unknown field: " + name);
+        int i = position;
+        in.nextToken();
+        Object value = readers[i].read(reused
+                                       ? data.getField(record, name, i)
+                                       : null, in);
+        data.setField(record, name, i, value);
+        found[i] = true;
+      }
+      if (in.getCurrentToken() != JsonToken.END_OBJECT)
+        throw error("record-end", in);
+      in.nextToken();
+      for (int i = 0; i < fields.length; i++) {
+        if (!found[i]) {
+          Field f = fields[i];
+          if (f.defaultValue() == null)
+            throw new AvroTypeException("Expected field name not found: "
+                                        + f.name());
+          data.setField(record, f.name(), i,
+                        data.deepCopy(f.schema(), data.getDefaultValue(f)));
+        }
+      }
+      return record;
+    }
+  }
+
+  static class ArrayReader extends JsonValueReader {
+    private final GenericData data;
+    private final JsonValueReader element;
+
+    ArrayReader(Schema schema, GenericData data, JsonValueReader element) {
+      super(schema);
+      this.data = data;
+      this.element = element;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object read(Object old, JsonParser in) throws IOException {
+      if (in.getCurrentToken() != JsonToken.START_ARRAY)
+        throw error("array-start", in);
+      Collection<Object> array;
+      if (old instanceof Collection) {
+        array = (Collection<Object>)old;
+        array.clear();
+      } else {
+        Object primitives = data.getPrimitiveArrays()
+          ? PrimitivesArrays.newArray(0, schema)
+          : null;
+        array = (Collection<Object>)(primitives != null
+                                     ? primitives
+                                     : new GenericData.Array<Object>(0,
+                                                                     schema));
+      }
+      GenericArray<Object> reusable = array instanceof GenericArray
+        ? (GenericArray<Object>)array
+        : null;
+      in.nextToken();
+      while (in.getCurrentToken() != JsonToken.END_ARRAY) {
+        if (in.getCurrentToken() == null)
+          throw error("array-end", in);
+        array.add(element.read(reusable != null ? reusable.peek() : null, in));
+      }
+      in.nextToken();
+      return array;
+    }
+  }
+
+  static class MapReader extends JsonValueReader {
+    private final JsonValueReader value;
+    private final boolean strings;
+
+    MapReader(Schema schema, JsonValueReader value) {
+      super(schema);
+      this.value = value;
+      this.strings = isString(schema);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object read(Object old, JsonParser in) throws IOException {
+      if (in.getCurrentToken() != JsonToken.START_OBJECT)
+        throw error("map-start", in);
+      Map<Object, Object> map;
+      if (old instanceof Map) {
+        map = (Map<Object, Object>)old;
+        map.clear();
+      } else {
+        map = new HashMap<Object, Object>();
+      }
+      in.nextToken();
+      while (in.getCurrentToken() == JsonToken.FIELD_NAME) {
+        String key = in.getCurrentName();
+        in.nextToken();
+        map.put(strings ? key : new Utf8(key), value.read(null, in));
+      }
+      if (in.getCurrentToken() != JsonToken.END_OBJECT)
+        throw error("map-end", in);
+      in.nextToken();
+      return map;
+    }
+  }
+
+  /** Unions, written as null or as an object naming the branch. */
+  static class UnionReader extends JsonValueReader {
+    private final JsonValueReader[] branches;
+    private final Map<String, Integer> labels = new HashMap<String, Integer>();
+    private final int nullBranch;
+
+    UnionReader(Schema schema, JsonValueReader[] branches) {
+      super(schema);
+      this.branches = branches;
+      List<Schema> types = schema.getTypes();
+      for (int i = 0; i < types.size(); i++)
+        labels.put(types.get(i).getFullName(), i);
+      Integer n = labels.get("null");
+      this.nullBranch = n == null ? -1 : n;
+    }
+
+    @Override
+    Object read(Object old, JsonParser in) throws IOException {
+      JsonToken token = in.getCurrentToken();
+      if (token == JsonToken.VALUE_NULL) {
+        if (nullBranch < 0)
+          throw new AvroTypeException("Unknown union branch null");
+        in.nextToken();
+        return null;
+      }
+      if (token != JsonToken.START_OBJECT
+          || in.nextToken() != JsonToken.FIELD_NAME)
+        throw error("start-union", in);
+      String label = in.getCurrentName();
+      Integer branch = labels.get(label);
+      if (branch == null)
+        throw new AvroTypeException("Unknown union branch " + label);
+      in.nextToken();
+      Object value = branches[branch].read(old, in);
+      if (in.getCurrentToken() != JsonToken.END_OBJECT)
+        throw error("union-end", in);
+      in.nextToken();
+      return value;
+    }
+  }
+
+  static class EnumReader extends JsonValueReader {
+    private final GenericData data;
+
+    EnumReader(Schema schema, GenericData data) {
+      super(schema);
+      this.data = data;
+    }
+
+    @Override
+    Object read(Object old, JsonParser in) throws IOException {
+      if (in.getCurrentToken() != JsonToken.VALUE_STRING)
+        throw error("enum", in);
+      String symbol = in.getText();
+      if (!schema.hasEnumSymbol(symbol))
+        throw new AvroTypeException("Unknown symbol in enum " + symbol);
+      in.nextToken();
+      return data.createEnum(symbol, schema);
+    }
+  }
+
+  static class FixedReader extends JsonValueReader {
+    private final GenericData data;
+
+    FixedReader(Schema schema, GenericData data) {
+      super(schema);
+      this.data = data;
+    }
+
+    @Override
+    Object read(Object old, JsonParser in) throws IOException {
+      if (in.getCurrentToken() != JsonToken.VALUE_STRING)
+        throw error("fixed", in);
+      byte[] bytes = in.getText().getBytes(CHARSET);
+      if (bytes.length != schema.getFixedSize())
+        throw new AvroTypeException("Expected fixed length "
+                                    + schema.getFixedSize()
+                                    + ", but got " + bytes.length);
+      in.nextToken();
+      return data.createFixed(old, bytes, schema);
+    }
+  }
+
+  static class StringReader extends JsonValueReader {
+    private final boolean strings;
+
+    StringReader(Schema schema) {
+      super(schema);
+      this.strings = isString(schema);
+    }
+
+    @Override
+    Object read(Object old, JsonParser in) throws IOException {
+      if (in.getCurrentToken() != JsonToken.VALUE_STRING)
+        throw error("string", in);
+      String text = in.getText();
+      in.nextToken();
+      if (strings)
+        return text;
+      Utf8 utf8 = GenericDatumReader.reusableUtf8(old);
+      return utf8 != null ? utf8.set(text) : new Utf8(text);
+    }
+  }
+
+  static class BytesReader extends JsonValueReader {
+    BytesReader(Schema schema) {
+      super(schema);
+    }
+
+    @Override
+    Object read(Object old, JsonParser in) throws IOException {
+      if (in.getCurrentToken() != JsonToken.VALUE_STRING)
+        throw error("bytes", in);
+      byte[] bytes = in.getText().getBytes(CHARSET);
+      in.nextToken();
+      return ByteBuffer.wrap(bytes);
+    }
+  }
+
+  static class NullReader extends JsonValueReader {
+    NullReader(Schema schema) {
+      super(schema);
+    }
+
+    @Override
+    Object read(Object old, JsonParser in) throws IOException {
+      if (in.getCurrentToken() != JsonToken.VALUE_NULL)
+        throw error("null", in);
+      in.nextToken();
+      return null;
+    }
+  }
+
+  static class BooleanReader extends JsonValueReader {
+    BooleanReader(Schema schema) {
+      super(schema);
+    }
+
+    @Override
+    Object read(Object old, JsonParser in) throws IOException {
+      JsonToken token = in.getCurrentToken();
+      if (token != JsonToken.VALUE_TRUE && token != JsonToken.VALUE_FALSE)
+        throw error("boolean", in);
+      in.nextToken();
+      return token == JsonToken.VALUE_TRUE;
+    }
+  }
+
+  /** Numbers of any of the numeric types. */
+  static class NumberReader extends JsonValueReader {
+    private final Schema.Type type;
+
+    NumberReader(Schema schema) {
+      super(schema);
+      this.type = schema.getType();
+    }
+
+    @Override
+    Object read(Object old, JsonParser in) throws IOException {
+      JsonToken token = in.getCurrentToken();
+      if (token == null || !token.isNumeric())
+        throw error(schema.getName(), in);
+      Object result;
+      switch (type) {
+      case INT:   result = in.getIntValue();    break;
+      case LONG:  result = in.getLongValue();   break;
+      case FLOAT: result = in.getFloatValue();  break;
+      default:    result = in.getDoubleValue(); break;
+      }
+      in.nextToken();
+      return result;
+    }
+  }
+
+  /** Values converted to a logical type by the data model. */
+  static class ConversionReader extends JsonValueReader {
+    private final JsonValueReader reader;
+    private final LogicalType logicalType;
+    private final Conversion<?> conversion;
+
+    ConversionReader(JsonValueReader reader, LogicalType logicalType,
+                     Conversion<?> conversion) {
+      super(reader.schema);
+      this.reader = reader;
+      this.logicalType = logicalType;
+      this.conversion = conversion;
+    }
+
+    @Override
+    Object read(Object old, JsonParser in) throws IOException {
+      return Conversions.convertToLogicalType(reader.read(null, in), schema,
+                                              logicalType, conversion);
+    }
+  }
+
+  private static boolean isString(Schema schema) {
+    return GenericData.StringType.String.name()
+      .equals(schema.getProp(GenericData.STRING_PROP));
+  }
+}
@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryData;
+
+/** An array viewed over its binary encoding, as read by {@link
+ * LazyDatumReader}.  The offsets of elements are found when the array is
+ * first accessed, and each element is decoded when first read.  Elements may
+ * be replaced but not added or removed. */
+class LazyArray<T> extends AbstractList<T> implements GenericArray<T> {
+  private static final Object UNREAD = new Object();
+
+  private final LazyLayout.ArrayLayout layout;
+  private final byte[] bytes;
+  private final int start;
+  private int[] offsets;                          // of elements
+  private Object[] values;
+
+  LazyArray(LazyLayout.ArrayLayout layout, byte[] bytes, int start) {
+    this.layout = layout;
+    this.bytes = bytes;
+    this.start = start;
+  }
+
+  private void index() {
+    if (offsets != null)
+      return;
+    try {
+      int[] result = new int[8];
+      int size = 0;
+      int pos = start;
+      for (long count = BinaryData.decodeLong(bytes, pos); count != 0;
+           count = BinaryData.decodeLong(bytes, pos)) {
+        pos = BinaryData.skipLong(bytes, pos);
+        if (count < 0) {                          // block with a byte size
+          count = -count;
+          pos = BinaryData.skipLong(bytes, pos);
+        }
+        if (size + count > Integer.MAX_VALUE - 8)
+          throw new AvroRuntimeException("Malformed data. Array too long.");
+        if (size + count > result.length)
+          result = Arrays.copyOf(result,
+                                 (int)Math.max(size + count, size * 2));
+        for (long i = 0; i < count; i++) {
+          result[size++] = pos;
+          pos = layout.skip(bytes, pos);
+        }
+      }
+      offsets = Arrays.copyOf(result, size);
+      values = new Object[size];
+      Arrays.fill(values, UNREAD);
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  @Override public Schema getSchema() { return layout.reader; }
+
+  @Override public int size() {
+    index();
+    return offsets.length;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T get(int i) {
+    index();
+    Object value = values[i];
+    if (value == UNREAD) {
+      try {
+        value = layout.element.read(bytes, offsets[i]);
+      } catch (IOException e) {
+        throw new AvroRuntimeException(e);
+      }
+      values[i] = value;
+    }
+    return (T)value;
+  }
+
+  @Override public T set(int i, T o) {
+    T result = get(i);
+    values[i] = o;
+    return result;
+  }
+
+  @Override public T peek() { return null; }
+
+  @Override public void reverse() {
+    int size = size();
+    for (int i = 0; i < size; i++)
+      get(i);                                     // decode all first
+    for (int left = 0, right = size - 1; left < right; left++, right--) {
+      Object tmp = values[left];
+      values[left] = values[right];
+      values[right] = tmp;
+    }
+  }
+}
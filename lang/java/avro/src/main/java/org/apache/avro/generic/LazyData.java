@@ -0,0 +1,41 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.DatumReader;
+
+/** A {@link GenericData} whose datum readers are {@link LazyDatumReader}s,
+ * for use where a data model creates the datum readers, e.g., by {@link
+ * org.apache.avro.message.BinaryMessageDecoder}. */
+public class LazyData extends GenericData {
+  private static final LazyData INSTANCE = new LazyData();
+
+  /** Return the singleton instance. */
+  public static LazyData get() { return INSTANCE; }
+
+  @Override
+  public DatumReader createDatumReader(Schema schema) {
+    return new LazyDatumReader(schema, schema, this);
+  }
+
+  @Override
+  public DatumReader createDatumReader(Schema writer, Schema reader) {
+    return new LazyDatumReader(writer, reader, this);
+  }
+}
@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+
+/**
+ * {@link DatumReader} that returns records as views over their binary
+ * encoding, decoding each field only when it is first read.
+ *
+ * <p>Each record read copies its encoded bytes once.  Records and arrays
+ * nested in it, including those in unions whose writer's and reader's
+ * schemas are equal, are views over the same bytes; other values are decoded
+ * by a {@link GenericDatumReader} when read.  This suits reading many records
+ * of which few fields are used, e.g., to filter them.
+ *
+ * <p>Records are read from a {@link BinaryDecoder}; with other decoders, or
+ * schemas that are not records or arrays, datums are decoded as by {@link
+ * GenericDatumReader}.  Use {@link LazyData} with data models that create
+ * datum readers, like {@link org.apache.avro.message.BinaryMessageDecoder}.
+ */
+public class LazyDatumReader<D> implements DatumReader<D> {
+  private final GenericData data;
+  private Schema actual;
+  private Schema expected;
+
+  private LazyLayout layout;
+  private DatumReader<D> eager;
+
+  public LazyDatumReader() {
+    this(null, null, GenericData.get());
+  }
+
+  /** Construct where the writer's and reader's schemas are the same. */
+  public LazyDatumReader(Schema schema) {
+    this(schema, schema, GenericData.get());
+  }
+
+  /** Construct given writer's and reader's schema. */
+  public LazyDatumReader(Schema writer, Schema reader) {
+    this(writer, reader, GenericData.get());
+  }
+
+  /** Construct given writer's and reader's schema and a data model. */
+  public LazyDatumReader(Schema writer, Schema reader, GenericData data) {
+    this.data = data;
+    this.actual = writer;
+    this.expected = reader;
+  }
+
+  /** Return the {@link GenericData} implementation. */
+  public GenericData getData() { return data; }
+
+  /** Return the writer's schema. */
+  public Schema getSchema() { return actual; }
+
+  @Override
+  public void setSchema(Schema writer) {
+    this.actual = writer;
+    if (expected == null) {
+      expected = actual;
+    }
+    reset();
+  }
+
+  /** Get the reader's schema. */
+  public Schema getExpected() { return expected; }
+
+  /** Set the reader's schema. */
+  public void setExpected(Schema reader) {
+    this.expected = reader;
+    reset();
+  }
+
+  private synchronized void reset() {
+    layout = null;
+    eager = null;
+  }
+
+  private synchronized LazyLayout prepare() {
+    if (layout == null) {
+      layout = LazyLayout.get(actual, expected, data);
+      eager = new GenericDatumReader<D>(actual, expected, data);
+    }
+    return layout;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public D read(D reuse, Decoder in) throws IOException {
+    LazyLayout layout = prepare();
+    if (layout instanceof LazyLayout.EagerLayout
+        || !(in instanceof BinaryDecoder))
+      return eager.read(reuse, in);
+    byte[] bytes = ((BinaryDecoder)in).readEncoded(layout.writer);
+    if (reuse instanceof LazyRecord
+        && ((LazyRecord)reuse).layout == layout) {
+      ((LazyRecord)reuse).reset(bytes, 0);
+      return reuse;
+    }
+    return (D)layout.read(bytes, 0);
+  }
+}
@@ -0,0 +1,258 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.io.BinaryData;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+
+/** How values of a writer's schema are read as a reader's schema from their
+ * binary encoding by {@link LazyDatumReader}: records and arrays as lazy
+ * views, anything else decoded eagerly.  Layouts are immutable once built
+ * and shared by threads. */
+abstract class LazyLayout {
+  private static final ThreadLocal<BinaryDecoder> DECODER =
+    new ThreadLocal<BinaryDecoder>();
+
+  final Schema writer;
+  final Schema reader;
+
+  LazyLayout(Schema writer, Schema reader) {
+    this.writer = writer;
+    this.reader = reader;
+  }
+
+  /** Read the value encoded at a position. */
+  abstract Object read(byte[] bytes, int pos) throws IOException;
+
+  /** Return the layout for a pair of schemas. */
+  static LazyLayout get(Schema writer, Schema reader, GenericData data) {
+    return get(Schema.applyAliases(writer, reader), reader, data,
+               new HashMap<SchemaPair, LazyLayout>());
+  }
+
+  private static LazyLayout get(Schema writer, Schema reader,
+                                GenericData data,
+                                Map<SchemaPair, LazyLayout> seen) {
+    SchemaPair pair = new SchemaPair(writer, reader);
+    LazyLayout layout = seen.get(pair);
+    if (layout != null)
+      return layout;                              // recursive
+    switch (writer.getType()) {
+    case RECORD:
+      if (reader.getType() == Schema.Type.RECORD
+          && writer.getFullName().equals(reader.getFullName())) {
+        RecordLayout record = new RecordLayout(writer, reader, data);
+        seen.put(pair, record);
+        record.init(seen);
+        return record;
+      }
+      break;
+    case ARRAY:
+      if (reader.getType() == Schema.Type.ARRAY) {
+        ArrayLayout array = new ArrayLayout(writer, reader);
+        seen.put(pair, array);
+        array.element = get(writer.getElementType(), reader.getElementType(),
+                            data, seen);
+        return array;
+      }
+      break;
+    case UNION:
+      if (writer.equals(reader)) {
+        UnionLayout union = new UnionLayout(writer);
+        seen.put(pair, union);
+        List<Schema> branches = writer.getTypes();
+        union.branches = new LazyLayout[branches.size()];
+        for (int i = 0; i < union.branches.length; i++)
+          union.branches[i] = get(branches.get(i), branches.get(i), data, seen);
+        return union;
+      }
+      break;
+    }
+    layout = new EagerLayout(writer, reader, data);
+    seen.put(pair, layout);
+    return layout;
+  }
+
+  /** Return a decoder positioned at an encoded value. */
+  static BinaryDecoder decoder(byte[] bytes, int pos) {
+    BinaryDecoder decoder = DecoderFactory.get()
+      .binaryDecoder(bytes, pos, bytes.length - pos, DECODER.get());
+    DECODER.set(decoder);
+    return decoder;
+  }
+
+  /** Return the encoded size of values of a schema, or -1 if it varies. */
+  static int fixedSize(Schema schema) {
+    switch (schema.getType()) {
+    case NULL:    return 0;
+    case BOOLEAN: return 1;
+    case FLOAT:   return 4;
+    case DOUBLE:  return 8;
+    case FIXED:   return schema.getFixedSize();
+    default:      return -1;
+    }
+  }
+
+  /** Values read as a {@link LazyRecord}. */
+  static class RecordLayout extends LazyLayout {
+    final GenericData data;
+    final Field[] writerFields;
+    final int[] sizes;                            // fixed sizes, or -1
+    final Field[] readerFields;
+    final int[] positions;                        // writer field, or -1
+    final LazyLayout[] fields;
+
+    RecordLayout(Schema writer, Schema reader, GenericData data) {
+      super(writer, reader);
+      this.data = data;
+      this.writerFields = writer.getFields().toArray(new Field[0]);
+      this.sizes = new int[writerFields.length];
+      for (int i = 0; i < sizes.length; i++)
+        sizes[i] = fixedSize(writerFields[i].schema());
+      this.readerFields = reader.getFields().toArray(new Field[0]);
+      this.positions = new int[readerFields.length];
+      this.fields = new LazyLayout[readerFields.length];
+    }
+
+    private void init(Map<SchemaPair, LazyLayout> seen) {
+      for (int i = 0; i < readerFields.length; i++) {
+        Field rf = readerFields[i];
+        Field wf = writer.getField(rf.name());
+        if (wf == null) {
+          if (rf.defaultValue() == null)
+            throw new AvroTypeException("Found " + writer.getFullName()
+                                        + ", expecting " + reader.getFullName()
+                                        + ", missing required field "
+                                        + rf.name());
+          positions[i] = -1;
+        } else {
+          positions[i] = wf.pos();
+          fields[i] = LazyLayout.get(wf.schema(), rf.schema(), data, seen);
+        }
+      }
+    }
+
+    @Override
+    Object read(byte[] bytes, int pos) {
+      return new LazyRecord(this, bytes, pos);
+    }
+
+    /** Return the position after a writer's field that starts at pos. */
+    int skip(int field, byte[] bytes, int pos) throws IOException {
+      int size = sizes[field];
+      if (size >= 0)
+        return pos + size;
+      return BinaryData.skip(writerFields[field].schema(), bytes, pos,
+                             bytes.length);
+    }
+
+    /** Return the value of a reader's field missing from the writer's. */
+    Object defaultValue(int field) {
+      Field f = readerFields[field];
+      return data.deepCopy(f.schema(), data.getDefaultValue(f));
+    }
+  }
+
+  /** Values read as a {@link LazyArray}. */
+  static class ArrayLayout extends LazyLayout {
+    LazyLayout element;
+    final int elementSize;
+
+    ArrayLayout(Schema writer, Schema reader) {
+      super(writer, reader);
+      this.elementSize = fixedSize(writer.getElementType());
+    }
+
+    @Override
+    Object read(byte[] bytes, int pos) {
+      return new LazyArray<Object>(this, bytes, pos);
+    }
+
+    /** Return the position after an element that starts at pos. */
+    int skip(byte[] bytes, int pos) throws IOException {
+      if (elementSize >= 0)
+        return pos + elementSize;
+      return BinaryData.skip(writer.getElementType(), bytes, pos,
+                             bytes.length);
+    }
+  }
+
+  /** Unions read as the layout of their branch. */
+  static class UnionLayout extends LazyLayout {
+    LazyLayout[] branches;
+
+    UnionLayout(Schema union) {
+      super(union, union);
+    }
+
+    @Override
+    Object read(byte[] bytes, int pos) throws IOException {
+      int index = (int)BinaryData.decodeLong(bytes, pos);
+      return branches[index].read(bytes, BinaryData.skipLong(bytes, pos));
+    }
+  }
+
+  /** Values decoded when read. */
+  static class EagerLayout extends LazyLayout {
+    final DatumReader<Object> datumReader;
+
+    EagerLayout(Schema writer, Schema reader, GenericData data) {
+      super(writer, reader);
+      this.datumReader = new GenericDatumReader<Object>(writer, reader, data);
+    }
+
+    @Override
+    Object read(byte[] bytes, int pos) throws IOException {
+      return datumReader.read(null, decoder(bytes, pos));
+    }
+  }
+
+  /** Identifies a layout while building, to handle recursive schemas. */
+  private static class SchemaPair {
+    private final Schema writer;
+    private final Schema reader;
+
+    SchemaPair(Schema writer, Schema reader) {
+      this.writer = writer;
+      this.reader = reader;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof SchemaPair)) return false;
+      SchemaPair that = (SchemaPair)o;
+      return writer == that.writer && reader == that.reader;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(writer) * 31
+        + System.identityHashCode(reader);
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+
+/** A record viewed over its binary encoding, as read by {@link
+ * LazyDatumReader}.  A field is decoded when first read, and records and
+ * arrays nested in it are themselves views over the same bytes.  Offsets of
+ * the writer's fields are found as they are needed by skipping the fields
+ * before them.
+ *
+ * <p>Fields may be set, in which case the value set replaces the encoded
+ * one.  Equal to a {@link GenericData.Record} with the same schema and
+ * field values. */
+class LazyRecord implements GenericRecord, Comparable<LazyRecord> {
+  private static final Object UNREAD = new Object();
+
+  final LazyLayout.RecordLayout layout;
+  private byte[] bytes;
+  private final int[] offsets;                    // of writer's fields
+  private int known;                              // count of known offsets
+  private final Object[] values;
+
+  LazyRecord(LazyLayout.RecordLayout layout, byte[] bytes, int start) {
+    this.layout = layout;
+    this.offsets = new int[layout.writerFields.length + 1];
+    this.values = new Object[layout.readerFields.length];
+    reset(bytes, start);
+  }
+
+  /** View another encoded record with the same layout. */
+  void reset(byte[] bytes, int start) {
+    this.bytes = bytes;
+    offsets[0] = start;
+    known = 1;
+    Arrays.fill(values, UNREAD);
+  }
+
+  /** True if a field has been decoded or set. */
+  boolean isRead(int i) { return values[i] != UNREAD; }
+
+  private int offset(int field) throws IOException {
+    while (known <= field) {
+      offsets[known] = layout.skip(known - 1, bytes, offsets[known - 1]);
+      known++;
+    }
+    return offsets[field];
+  }
+
+  @Override public Schema getSchema() { return layout.reader; }
+
+  @Override public Object get(int i) {
+    Object value = values[i];
+    if (value == UNREAD) {
+      int field = layout.positions[i];
+      try {
+        value = field < 0
+          ? layout.defaultValue(i)
+          : layout.fields[i].read(bytes, offset(field));
+      } catch (IOException e) {
+        throw new AvroRuntimeException(e);
+      }
+      values[i] = value;
+    }
+    return value;
+  }
+
+  @Override public void put(int i, Object v) { values[i] = v; }
+
+  @Override public Object get(String key) {
+    Field field = layout.reader.getField(key);
+    if (field == null) return null;
+    return get(field.pos());
+  }
+
+  @Override public void put(String key, Object value) {
+    Field field = layout.reader.getField(key);
+    if (field == null)
+      throw new AvroRuntimeException("Not a valid schema field: "+key);
+    values[field.pos()] = value;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (o == this) return true;                   // identical object
+    if (!(o instanceof LazyRecord) && !(o instanceof GenericData.Record))
+      return false;                               // not a record
+    IndexedRecord that = (IndexedRecord)o;
+    if (!getSchema().equals(that.getSchema()))
+      return false;                               // not the same schema
+    return layout.data.compare(this, that, getSchema(), true) == 0;
+  }
+  @Override public int hashCode() {
+    return layout.data.hashCode(this, getSchema());
+  }
+  @Override public int compareTo(LazyRecord that) {
+    return layout.data.compare(this, that, getSchema());
+  }
+  @Override public String toString() {
+    return layout.data.toString(this);
+  }
+}
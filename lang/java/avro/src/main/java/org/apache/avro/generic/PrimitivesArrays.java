@@ -0,0 +1,553 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Type;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+
+/** {@link GenericArray} implementations that hold int, long, float, double
+ * and boolean items in arrays of primitives rather than as boxed objects.
+ * When enabled with {@link GenericData#setPrimitiveArrays(boolean)}, {@link
+ * GenericDatumReader} creates these for arrays whose items are such a type
+ * without a logical type or properties, and it and {@link GenericDatumWriter}
+ * read and write their items without boxing.  Each also implements {@link
+ * java.util.List} over boxed values, which may not be null. */
+public class PrimitivesArrays {
+  private PrimitivesArrays() {}
+
+  /** Returns a new, empty array of primitives for an array schema, or null if
+   * its items are not a primitive type without a logical type or
+   * properties. */
+  public static GenericArray<?> newArray(int capacity, Schema schema) {
+    Schema items = schema.getElementType();
+    if (items.getLogicalType() != null || !items.getObjectProps().isEmpty())
+      return null;
+    switch (items.getType()) {
+    case INT:      return new IntArray(capacity, schema);
+    case LONG:     return new LongArray(capacity, schema);
+    case FLOAT:    return new FloatArray(capacity, schema);
+    case DOUBLE:   return new DoubleArray(capacity, schema);
+    case BOOLEAN:  return new BooleanArray(capacity, schema);
+    default:       return null;
+    }
+  }
+
+  /** The parts shared by arrays of each primitive type. */
+  abstract static class PrimitiveArray<T> extends AbstractList<T>
+    implements GenericArray<T>, Comparable<GenericArray<T>> {
+    private final Schema schema;
+    protected int size;
+
+    PrimitiveArray(Schema schema, Type itemType) {
+      if (schema == null || !Type.ARRAY.equals(schema.getType()))
+        throw new AvroRuntimeException("Not an array schema: "+schema);
+      if (schema.getElementType().getType() != itemType)
+        throw new AvroRuntimeException("Not an array of "+itemType+": "+schema);
+      this.schema = schema;
+    }
+
+    /** True if items of a schema may be read into and written from this
+     * array without boxing. */
+    boolean holds(Schema items) {
+      return items.getType() == schema.getElementType().getType()
+        && items.getLogicalType() == null
+        && items.getObjectProps().isEmpty();
+    }
+
+    /** Reads and appends <tt>count</tt> items. */
+    abstract void readItems(Decoder in, long count) throws IOException;
+
+    /** Writes each item, starting each with {@link Encoder#startItem()}. */
+    abstract void writeItems(Encoder out) throws IOException;
+
+    /** Ensures room for at least <tt>capacity</tt> items. */
+    abstract void ensureCapacity(int capacity);
+
+    abstract void swap(int i, int j);
+
+    void checkIndex(int i) {
+      if (i >= size || i < 0)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+    }
+
+    int grown(int capacity, int length) {
+      if (capacity > Integer.MAX_VALUE - 8)
+        throw new AvroRuntimeException("Array too long: " + capacity);
+      return Math.max(capacity, (length * 3)/2 + 1);
+    }
+
+    int checkCount(long count) {
+      if (size + count > Integer.MAX_VALUE - 8)
+        throw new AvroRuntimeException("Array too long: " + (size + count));
+      return (int) count;
+    }
+
+    @Override public Schema getSchema() { return schema; }
+    @Override public int size() { return size; }
+    @Override public void clear() { size = 0; }
+    @Override public T peek() { return null; }    // primitives aren't reused
+
+    @Override public void reverse() {
+      for (int left = 0, right = size - 1; left < right; left++, right--)
+        swap(left, right);
+    }
+
+    @Override public int compareTo(GenericArray<T> that) {
+      return GenericData.get().compare(this, that, this.getSchema());
+    }
+  }
+
+  /** An array of {@code int}s. */
+  public static class IntArray extends PrimitiveArray<Integer> {
+    private static final int[] EMPTY = new int[0];
+    private int[] elements = EMPTY;
+
+    public IntArray(int capacity, Schema schema) {
+      super(schema, Type.INT);
+      if (capacity != 0)
+        elements = new int[capacity];
+    }
+
+    @Override void ensureCapacity(int capacity) {
+      if (capacity > elements.length)
+        elements = Arrays.copyOf(elements, grown(capacity, elements.length));
+    }
+
+    /** Returns an item without boxing it. */
+    public int getInt(int i) {
+      checkIndex(i);
+      return elements[i];
+    }
+
+    /** Replaces an item without boxing it. */
+    public void setInt(int i, int value) {
+      checkIndex(i);
+      elements[i] = value;
+    }
+
+    /** Appends an item without boxing it. */
+    public void addInt(int value) {
+      if (size == elements.length)
+        ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    @Override public Integer get(int i) { return getInt(i); }
+
+    @Override public Integer set(int i, Integer value) {
+      int result = getInt(i);
+      elements[i] = value;
+      return result;
+    }
+
+    @Override public boolean add(Integer value) {
+      addInt(value);
+      return true;
+    }
+
+    @Override public void add(int location, Integer value) {
+      if (location > size || location < 0)
+        throw new IndexOutOfBoundsException("Index " + location
+                                            + " out of bounds.");
+      int v = value;
+      if (size == elements.length)
+        ensureCapacity(size + 1);
+      System.arraycopy(elements, location, elements, location + 1,
+                       size - location);
+      elements[location] = v;
+      size++;
+    }
+
+    @Override public Integer remove(int i) {
+      int result = getInt(i);
+      --size;
+      System.arraycopy(elements, i+1, elements, i, size-i);
+      return result;
+    }
+
+    @Override void swap(int i, int j) {
+      int tmp = elements[i];
+      elements[i] = elements[j];
+      elements[j] = tmp;
+    }
+
+    @Override void readItems(Decoder in, long count) throws IOException {
+      int n = checkCount(count);
+      ensureCapacity(size + n);
+      in.readInts(elements, size, n);
+      size += n;
+    }
+
+    @Override void writeItems(Encoder out) throws IOException {
+      out.writeInts(elements, 0, size);
+    }
+  }
+
+  /** An array of {@code long}s. */
+  public static class LongArray extends PrimitiveArray<Long> {
+    private static final long[] EMPTY = new long[0];
+    private long[] elements = EMPTY;
+
+    public LongArray(int capacity, Schema schema) {
+      super(schema, Type.LONG);
+      if (capacity != 0)
+        elements = new long[capacity];
+    }
+
+    @Override void ensureCapacity(int capacity) {
+      if (capacity > elements.length)
+        elements = Arrays.copyOf(elements, grown(capacity, elements.length));
+    }
+
+    /** Returns an item without boxing it. */
+    public long getLong(int i) {
+      checkIndex(i);
+      return elements[i];
+    }
+
+    /** Replaces an item without boxing it. */
+    public void setLong(int i, long value) {
+      checkIndex(i);
+      elements[i] = value;
+    }
+
+    /** Appends an item without boxing it. */
+    public void addLong(long value) {
+      if (size == elements.length)
+        ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    @Override public Long get(int i) { return getLong(i); }
+
+    @Override public Long set(int i, Long value) {
+      long result = getLong(i);
+      elements[i] = value;
+      return result;
+    }
+
+    @Override public boolean add(Long value) {
+      addLong(value);
+      return true;
+    }
+
+    @Override public void add(int location, Long value) {
+      if (location > size || location < 0)
+        throw new IndexOutOfBoundsException("Index " + location
+                                            + " out of bounds.");
+      long v = value;
+      if (size == elements.length)
+        ensureCapacity(size + 1);
+      System.arraycopy(elements, location, elements, location + 1,
+                       size - location);
+      elements[location] = v;
+      size++;
+    }
+
+    @Override public Long remove(int i) {
+      long result = getLong(i);
+      --size;
+      System.arraycopy(elements, i+1, elements, i, size-i);
+      return result;
+    }
+
+    @Override void swap(int i, int j) {
+      long tmp = elements[i];
+      elements[i] = elements[j];
+      elements[j] = tmp;
+    }
+
+    @Override void readItems(Decoder in, long count) throws IOException {
+      int n = checkCount(count);
+      ensureCapacity(size + n);
+      in.readLongs(elements, size, n);
+      size += n;
+    }
+
+    @Override void writeItems(Encoder out) throws IOException {
+      out.writeLongs(elements, 0, size);
+    }
+  }
+
+  /** An array of {@code float}s. */
+  public static class FloatArray extends PrimitiveArray<Float> {
+    private static final float[] EMPTY = new float[0];
+    private float[] elements = EMPTY;
+
+    public FloatArray(int capacity, Schema schema) {
+      super(schema, Type.FLOAT);
+      if (capacity != 0)
+        elements = new float[capacity];
+    }
+
+    @Override void ensureCapacity(int capacity) {
+      if (capacity > elements.length)
+        elements = Arrays.copyOf(elements, grown(capacity, elements.length));
+    }
+
+    /** Returns an item without boxing it. */
+    public float getFloat(int i) {
+      checkIndex(i);
+      return elements[i];
+    }
+
+    /** Replaces an item without boxing it. */
+    public void setFloat(int i, float value) {
+      checkIndex(i);
+      elements[i] = value;
+    }
+
+    /** Appends an item without boxing it. */
+    public void addFloat(float value) {
+      if (size == elements.length)
+        ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    @Override public Float get(int i) { return getFloat(i); }
+
+    @Override public Float set(int i, Float value) {
+      float result = getFloat(i);
+      elements[i] = value;
+      return result;
+    }
+
+    @Override public boolean add(Float value) {
+      addFloat(value);
+      return true;
+    }
+
+    @Override public void add(int location, Float value) {
+      if (location > size || location < 0)
+        throw new IndexOutOfBoundsException("Index " + location
+                                            + " out of bounds.");
+      float v = value;
+      if (size == elements.length)
+        ensureCapacity(size + 1);
+      System.arraycopy(elements, location, elements, location + 1,
+                       size - location);
+      elements[location] = v;
+      size++;
+    }
+
+    @Override public Float remove(int i) {
+      float result = getFloat(i);
+      --size;
+      System.arraycopy(elements, i+1, elements, i, size-i);
+      return result;
+    }
+
+    @Override void swap(int i, int j) {
+      float tmp = elements[i];
+      elements[i] = elements[j];
+      elements[j] = tmp;
+    }
+
+    @Override void readItems(Decoder in, long count) throws IOException {
+      int n = checkCount(count);
+      ensureCapacity(size + n);
+      in.readFloats(elements, size, n);
+      size += n;
+    }
+
+    @Override void writeItems(Encoder out) throws IOException {
+      out.writeFloats(elements, 0, size);
+    }
+  }
+
+  /** An array of {@code double}s. */
+  public static class DoubleArray extends PrimitiveArray<Double> {
+    private static final double[] EMPTY = new double[0];
+    private double[] elements = EMPTY;
+
+    public DoubleArray(int capacity, Schema schema) {
+      super(schema, Type.DOUBLE);
+      if (capacity != 0)
+        elements = new double[capacity];
+    }
+
+    @Override void ensureCapacity(int capacity) {
+      if (capacity > elements.length)
+        elements = Arrays.copyOf(elements, grown(capacity, elements.length));
+    }
+
+    /** Returns an item without boxing it. */
+    public double getDouble(int i) {
+      checkIndex(i);
+      return elements[i];
+    }
+
+    /** Replaces an item without boxing it. */
+    public void setDouble(int i, double value) {
+      checkIndex(i);
+      elements[i] = value;
+    }
+
+    /** Appends an item without boxing it. */
+    public void addDouble(double value) {
+      if (size == elements.length)
+        ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    @Override public Double get(int i) { return getDouble(i); }
+
+    @Override public Double set(int i, Double value) {
+      double result = getDouble(i);
+      elements[i] = value;
+      return result;
+    }
+
+    @Override public boolean add(Double value) {
+      addDouble(value);
+      return true;
+    }
+
+    @Override public void add(int location, Double value) {
+      if (location > size || location < 0)
+        throw new IndexOutOfBoundsException("Index " + location
+                                            + " out of bounds.");
+      double v = value;
+      if (size == elements.length)
+        ensureCapacity(size + 1);
+      System.arraycopy(elements, location, elements, location + 1,
+                       size - location);
+      elements[location] = v;
+      size++;
+    }
+
+    @Override public Double remove(int i) {
+      double result = getDouble(i);
+      --size;
+      System.arraycopy(elements, i+1, elements, i, size-i);
+      return result;
+    }
+
+    @Override void swap(int i, int j) {
+      double tmp = elements[i];
+      elements[i] = elements[j];
+      elements[j] = tmp;
+    }
+
+    @Override void readItems(Decoder in, long count) throws IOException {
+      int n = checkCount(count);
+      ensureCapacity(size + n);
+      in.readDoubles(elements, size, n);
+      size += n;
+    }
+
+    @Override void writeItems(Encoder out) throws IOException {
+      out.writeDoubles(elements, 0, size);
+    }
+  }
+
+  /** An array of {@code boolean}s. */
+  public static class BooleanArray extends PrimitiveArray<Boolean> {
+    private static final boolean[] EMPTY = new boolean[0];
+    private boolean[] elements = EMPTY;
+
+    public BooleanArray(int capacity, Schema schema) {
+      super(schema, Type.BOOLEAN);
+      if (capacity != 0)
+        elements = new boolean[capacity];
+    }
+
+    @Override void ensureCapacity(int capacity) {
+      if (capacity > elements.length)
+        elements = Arrays.copyOf(elements, grown(capacity, elements.length));
+    }
+
+    /** Returns an item without boxing it. */
+    public boolean getBoolean(int i) {
+      checkIndex(i);
+      return elements[i];
+    }
+
+    /** Replaces an item without boxing it. */
+    public void setBoolean(int i, boolean value) {
+      checkIndex(i);
+      elements[i] = value;
+    }
+
+    /** Appends an item without boxing it. */
+    public void addBoolean(boolean value) {
+      if (size == elements.length)
+        ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    @Override public Boolean get(int i) { return getBoolean(i); }
+
+    @Override public Boolean set(int i, Boolean value) {
+      boolean result = getBoolean(i);
+      elements[i] = value;
+      return result;
+    }
+
+    @Override public boolean add(Boolean value) {
+      addBoolean(value);
+      return true;
+    }
+
+    @Override public void add(int location, Boolean value) {
+      if (location > size || location < 0)
+        throw new IndexOutOfBoundsException("Index " + location
+                                            + " out of bounds.");
+      boolean v = value;
+      if (size == elements.length)
+        ensureCapacity(size + 1);
+      System.arraycopy(elements, location, elements, location + 1,
+                       size - location);
+      elements[location] = v;
+      size++;
+    }
+
+    @Override public Boolean remove(int i) {
+      boolean result = getBoolean(i);
+      --size;
+      System.arraycopy(elements, i+1, elements, i, size-i);
+      return result;
+    }
+
+    @Override void swap(int i, int j) {
+      boolean tmp = elements[i];
+      elements[i] = elements[j];
+      elements[j] = tmp;
+    }
+
+    @Override void readItems(Decoder in, long count) throws IOException {
+      ensureCapacity(size + checkCount(count));
+      for (long i = 0; i < count; i++)
+        elements[size++] = in.readBoolean();
+    }
+
+    @Override void writeItems(Encoder out) throws IOException {
+      for (int i = 0; i < size; i++) {
+        out.startItem();
+        out.writeBoolean(elements[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,386 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.parsing.ResolvingGrammarGenerator;
+
+/**
+ * Resolves a writer's schema against a reader's schema into a tree of
+ * {@link Action}s.
+ *
+ * <p>This makes the same decisions as {@link ResolvingGrammarGenerator}, but
+ * instead of a grammar to be interpreted token by token it produces, for each
+ * record, a flat array of per-field actions in the writer's order: read into
+ * a reader field, skip, promote or inject a default.  {@link
+ * GenericDatumReader} and {@link CompiledDatumReader} consume these directly
+ * from the underlying decoder.  Plans are immutable once built and are shared
+ * between threads through the {@link ResolverCache}.
+ */
+final class ResolutionPlan {
+
+  /** The kinds of {@link Action}. */
+  enum Kind {
+    NULL, BOOLEAN, INT, LONG, FLOAT, DOUBLE, STRING, BYTES,
+    FIXED, ENUM, ARRAY, MAP, RECORD,
+    INT_AS_LONG, INT_AS_FLOAT, INT_AS_DOUBLE, LONG_AS_FLOAT, LONG_AS_DOUBLE,
+    FLOAT_AS_DOUBLE, STRING_AS_BYTES, BYTES_AS_STRING,
+    /** Read the writer's union index and act on that branch. */
+    WRITER_UNION,
+    /** Read the reader union's branch chosen for the writer's schema. */
+    READER_UNION,
+    /** Skip a value the reader does not expect. */
+    SKIP,
+    /** Fail when reached, as the writer's and reader's schemas mismatch. */
+    ERROR
+  }
+
+  /** How to read one value written with {@link #writer} as {@link #reader}.
+   * Only the fields relevant to its {@link #kind} are set. */
+  static final class Action {
+    final Kind kind;
+    final Schema writer;
+    final Schema reader;
+    /** The reader's logical type, whose conversion applies to the result. */
+    final LogicalType logicalType;
+
+    /** For records, the action of each entry in read order; for unions,
+     * the action of each writer branch or of the chosen reader branch; for
+     * arrays and maps, the action of their elements or values. */
+    Action[] actions;
+    /** For records, the reader's field of each entry, or null to skip it. */
+    Field[] fields;
+    /** For records, the binary encoded default of each entry that the writer
+     * did not write, or null where the entry is read from the writer. */
+    byte[][] defaults;
+    /** For enums whose symbols differ, the reader's ordinal for each of the
+     * writer's, or -1 where it has none. */
+    int[] enumMap;
+    /** For errors, the message to fail with. */
+    String message;
+
+    private Action(Kind kind, Schema writer, Schema reader) {
+      this.kind = kind;
+      this.writer = writer;
+      this.reader = reader;
+      this.logicalType = reader == null ? null : reader.getLogicalType();
+    }
+
+    /** Returns true if this fails, or is a record with a field that fails,
+     * when read.  Used to choose between record branches of a union. */
+    boolean hasMatchError() {
+      if (kind == Kind.ERROR)
+        return true;
+      if (kind == Kind.RECORD && actions != null)
+        for (Action a : actions)
+          if (a != null && a.kind == Kind.ERROR)
+            return true;
+      return false;
+    }
+  }
+
+  /** Resolves data written with <tt>writer</tt> and read as <tt>reader</tt>
+   * into a new plan.  This is expensive: use {@link ResolverCache#getPlan}
+   * instead, which shares plans between readers. */
+  static Action create(Schema writer, Schema reader) throws IOException {
+    return new ResolutionPlan()
+      .resolve(Schema.applyAliases(writer, reader), reader);
+  }
+
+  private final Map<SchemaPair,Action> seen = new HashMap<SchemaPair,Action>();
+
+  private ResolutionPlan() {}
+
+  private Action resolve(Schema writer, Schema reader) throws IOException {
+    Schema.Type writerType = writer.getType();
+    Schema.Type readerType = reader.getType();
+
+    if (writerType == readerType) {
+      switch (writerType) {
+      case NULL:    return new Action(Kind.NULL, writer, reader);
+      case BOOLEAN: return new Action(Kind.BOOLEAN, writer, reader);
+      case INT:     return new Action(Kind.INT, writer, reader);
+      case LONG:    return new Action(Kind.LONG, writer, reader);
+      case FLOAT:   return new Action(Kind.FLOAT, writer, reader);
+      case DOUBLE:  return new Action(Kind.DOUBLE, writer, reader);
+      case STRING:  return new Action(Kind.STRING, writer, reader);
+      case BYTES:   return new Action(Kind.BYTES, writer, reader);
+      case FIXED:
+        if (writer.getFullName().equals(reader.getFullName())
+            && writer.getFixedSize() == reader.getFixedSize())
+          return new Action(Kind.FIXED, writer, reader);
+        break;
+      case ENUM:
+        if (writer.getFullName() == null
+            || writer.getFullName().equals(reader.getFullName()))
+          return resolveEnum(writer, reader);
+        break;
+      case ARRAY: {
+        Action result = new Action(Kind.ARRAY, writer, reader);
+        result.actions = new Action[] {
+          resolve(writer.getElementType(), reader.getElementType())
+        };
+        return result;
+      }
+      case MAP: {
+        Action result = new Action(Kind.MAP, writer, reader);
+        result.actions = new Action[] {
+          resolve(writer.getValueType(), reader.getValueType())
+        };
+        return result;
+      }
+      case RECORD:
+        return resolveRecord(writer, reader);
+      case UNION:
+        return resolveWriterUnion(writer, reader);
+      default:
+        throw new AvroRuntimeException("Unknown type: " + writer);
+      }
+    } else {
+      if (writerType == Schema.Type.UNION)
+        return resolveWriterUnion(writer, reader);
+
+      switch (readerType) {
+      case LONG:
+        if (writerType == Schema.Type.INT)
+          return new Action(Kind.INT_AS_LONG, writer, reader);
+        break;
+      case FLOAT:
+        if (writerType == Schema.Type.INT)
+          return new Action(Kind.INT_AS_FLOAT, writer, reader);
+        if (writerType == Schema.Type.LONG)
+          return new Action(Kind.LONG_AS_FLOAT, writer, reader);
+        break;
+      case DOUBLE:
+        if (writerType == Schema.Type.INT)
+          return new Action(Kind.INT_AS_DOUBLE, writer, reader);
+        if (writerType == Schema.Type.LONG)
+          return new Action(Kind.LONG_AS_DOUBLE, writer, reader);
+        if (writerType == Schema.Type.FLOAT)
+          return new Action(Kind.FLOAT_AS_DOUBLE, writer, reader);
+        break;
+      case BYTES:
+        if (writerType == Schema.Type.STRING)
+          return new Action(Kind.STRING_AS_BYTES, writer, reader);
+        break;
+      case STRING:
+        if (writerType == Schema.Type.BYTES)
+          return new Action(Kind.BYTES_AS_STRING, writer, reader);
+        break;
+      case UNION:
+        int j = bestBranch(reader, writer);
+        if (j >= 0) {
+          Action result = new Action(Kind.READER_UNION, writer, reader);
+          result.actions = new Action[] {
+            resolve(writer, reader.getTypes().get(j))
+          };
+          return result;
+        }
+        break;
+      }
+    }
+    return error(writer, reader, "Found " + writer.getFullName()
+                 + ", expecting " + reader.getFullName());
+  }
+
+  private Action resolveWriterUnion(Schema writer, Schema reader)
+    throws IOException {
+    List<Schema> branches = writer.getTypes();
+    Action result = new Action(Kind.WRITER_UNION, writer, reader);
+    result.actions = new Action[branches.size()];
+    for (int i = 0; i < result.actions.length; i++)
+      result.actions[i] = resolve(branches.get(i), reader);
+    return result;
+  }
+
+  private Action resolveEnum(Schema writer, Schema reader) {
+    Action result = new Action(Kind.ENUM, writer, reader);
+    List<String> wsymbols = writer.getEnumSymbols();
+    List<String> rsymbols = reader.getEnumSymbols();
+    if (wsymbols.equals(rsymbols))
+      return result;
+    result.enumMap = new int[wsymbols.size()];
+    for (int i = 0; i < result.enumMap.length; i++)
+      result.enumMap[i] = rsymbols.indexOf(wsymbols.get(i));
+    return result;
+  }
+
+  private Action resolveRecord(Schema writer, Schema reader)
+    throws IOException {
+    SchemaPair key = new SchemaPair(writer, reader);
+    Action result = seen.get(key);
+    if (result != null)
+      return result;
+
+    List<Field> wfields = writer.getFields();
+    List<Field> rfields = reader.getFields();
+    int count = wfields.size();
+    for (Field rf : rfields) {
+      if (writer.getField(rf.name()) == null) {
+        if (rf.defaultValue() == null) {
+          result = error(writer, reader, "Found " + writer.getFullName()
+                         + ", expecting " + reader.getFullName()
+                         + ", missing required field " + rf.name());
+          seen.put(key, result);
+          return result;
+        }
+        count++;
+      }
+    }
+
+    // register before resolving fields, so that recursive references resolve
+    result = new Action(Kind.RECORD, writer, reader);
+    seen.put(key, result);
+    Action[] actions = new Action[count];
+    Field[] fields = new Field[count];
+    byte[][] defaults = new byte[count][];
+    result.actions = actions;
+
+    int i = 0;
+    for (Field wf : wfields) {
+      Field rf = reader.getField(wf.name());
+      if (rf == null) {
+        actions[i] = new Action(Kind.SKIP, wf.schema(), null);
+      } else {
+        fields[i] = rf;
+        actions[i] = resolve(wf.schema(), rf.schema());
+      }
+      i++;
+    }
+    for (Field rf : rfields) {
+      if (writer.getField(rf.name()) == null) {
+        fields[i] = rf;
+        defaults[i] = encode(rf.schema(), rf);
+        actions[i] = resolve(rf.schema(), rf.schema());
+        i++;
+      }
+    }
+    result.fields = fields;
+    result.defaults = defaults;
+    return result;
+  }
+
+  private static final EncoderFactory FACTORY =
+    new EncoderFactory().configureBufferSize(32);
+
+  @SuppressWarnings("deprecation")
+  private static byte[] encode(Schema schema, Field field) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder e = FACTORY.binaryEncoder(out, null);
+    ResolvingGrammarGenerator.encode(e, schema, field.defaultValue());
+    e.flush();
+    return out.toByteArray();
+  }
+
+  private static Action error(Schema writer, Schema reader, String message) {
+    Action result = new Action(Kind.ERROR, writer, reader);
+    result.message = message;
+    return result;
+  }
+
+  /** Chooses the reader union branch for a non-union writer schema, with the
+   * same preferences as the resolving grammar: an exact match, then a record
+   * whose structure matches, then a numeric or string promotion. */
+  private int bestBranch(Schema r, Schema w) throws IOException {
+    Schema.Type vt = w.getType();
+    int j = 0;
+    int structureMatch = -1;
+    for (Schema b : r.getTypes()) {
+      if (vt == b.getType()) {
+        if (vt == Schema.Type.RECORD || vt == Schema.Type.ENUM ||
+            vt == Schema.Type.FIXED) {
+          String vname = w.getFullName();
+          String bname = b.getFullName();
+          if (vname != null && vname.equals(bname))
+            return j;
+          if (vt == Schema.Type.RECORD
+              && !resolveRecord(w, b).hasMatchError()) {
+            String vShortName = w.getName();
+            String bShortName = b.getName();
+            if ((structureMatch < 0) ||
+                (vShortName != null && vShortName.equals(bShortName))) {
+              structureMatch = j;
+            }
+          }
+        } else {
+          return j;
+        }
+      }
+      j++;
+    }
+    if (structureMatch >= 0)
+      return structureMatch;
+
+    j = 0;
+    for (Schema b : r.getTypes()) {
+      Schema.Type bt = b.getType();
+      switch (vt) {
+      case INT:
+        if (bt == Schema.Type.LONG || bt == Schema.Type.DOUBLE)
+          return j;
+        break;
+      case LONG:
+      case FLOAT:
+        if (bt == Schema.Type.DOUBLE)
+          return j;
+        break;
+      case STRING:
+        if (bt == Schema.Type.BYTES)
+          return j;
+        break;
+      case BYTES:
+        if (bt == Schema.Type.STRING)
+          return j;
+        break;
+      }
+      j++;
+    }
+    return -1;
+  }
+
+  /** Identity pair of a writer's and reader's schema. */
+  private static class SchemaPair {
+    private final Schema writer;
+    private final Schema reader;
+    SchemaPair(Schema writer, Schema reader) {
+      this.writer = writer;
+      this.reader = reader;
+    }
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof SchemaPair)) return false;
+      SchemaPair that = (SchemaPair) o;
+      return writer == that.writer && reader == that.reader;
+    }
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(writer) + System.identityHashCode(reader);
+    }
+  }
+}
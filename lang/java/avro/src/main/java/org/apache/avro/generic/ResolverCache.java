@@ -0,0 +1,227 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.io.ResolvingDecoder;
+
+/**
+ * Process-wide cache of the resolution of writer's schemas against reader's
+ * schemas.
+ *
+ * <p>Resolving a pair of schemas is expensive, while its results -- the
+ * resolving grammar behind a {@link ResolvingDecoder} and the {@link
+ * ResolutionPlan} followed by {@link GenericDatumReader} -- are immutable.
+ * They are therefore built once per pair and shared by all threads, which
+ * only keep their own cheap, mutable decoder state.
+ *
+ * <p>Entries are found by 64-bit fingerprints of the schemas' full JSON,
+ * then checked against the schemas themselves, so that equal schemas parsed
+ * separately share a resolving grammar.  A resolution plan creates datums
+ * with its reader's schema, so it is shared only by callers passing the same
+ * reader's schema instance.  The least recently used entries are evicted once the cache holds more than {@link
+ * #getMaximumSize()} of each kind.  The default size may be set with the
+ * {@value #SIZE_PROP} system property.
+ */
+public class ResolverCache {
+  /** System property that sets the size of the shared cache. */
+  public static final String SIZE_PROP = "avro.resolver.cache.size";
+
+  private static final int DEFAULT_SIZE = 1024;
+
+  private static final ResolverCache INSTANCE =
+    new ResolverCache(Integer.getInteger(SIZE_PROP, DEFAULT_SIZE));
+
+  /** Return the cache shared by all readers. */
+  public static ResolverCache get() { return INSTANCE; }
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final LoadingCache<Schema,Long> FINGERPRINTS =
+    CacheBuilder.newBuilder()
+      .weakKeys()
+      .build(new CacheLoader<Schema,Long>() {
+          public Long load(Schema schema) {
+            return SchemaNormalization.fingerprint64(
+                schema.toString().getBytes(UTF8));
+          }
+        });
+
+  private final int maximumSize;
+  private final LoadingCache<Key,Object> grammars;
+  private final LoadingCache<Key,ResolutionPlan.Action> plans;
+
+  /** Construct a cache holding at most <tt>maximumSize</tt> grammars and as
+   * many plans. */
+  public ResolverCache(int maximumSize) {
+    this.maximumSize = maximumSize;
+    this.grammars = CacheBuilder.newBuilder()
+      .maximumSize(maximumSize)
+      .build(new CacheLoader<Key,Object>() {
+          public Object load(Key key) throws IOException {
+            return ResolvingDecoder.resolve(
+                Schema.applyAliases(key.writer, key.reader), key.reader);
+          }
+        });
+    this.plans = CacheBuilder.newBuilder()
+      .maximumSize(maximumSize)
+      .build(new CacheLoader<Key,ResolutionPlan.Action>() {
+          public ResolutionPlan.Action load(Key key) throws IOException {
+            return ResolutionPlan.create(key.writer, key.reader);
+          }
+        });
+  }
+
+  /** Return the maximum number of entries of each kind. */
+  public int getMaximumSize() { return maximumSize; }
+
+  /** Returns the resolving grammar for data written with <tt>writer</tt>
+   * and read as <tt>reader</tt>, as accepted by {@link
+   * org.apache.avro.io.DecoderFactory#resolvingDecoder(Object,
+   * org.apache.avro.io.Decoder)}. */
+  public Object getResolver(Schema writer, Schema reader) throws IOException {
+    return get(grammars, new Key(writer, reader, false));
+  }
+
+  /** Returns the resolution plan for data written with <tt>writer</tt> and
+   * read as <tt>reader</tt>. */
+  ResolutionPlan.Action getPlan(Schema writer, Schema reader)
+    throws IOException {
+    return get(plans, new Key(writer, reader, true));
+  }
+
+  private static <V> V get(LoadingCache<Key,V> cache, Key key)
+    throws IOException {
+    try {
+      return cache.get(key);
+    } catch (ExecutionException e) {
+      throw rethrow(e.getCause());
+    } catch (UncheckedExecutionException e) {
+      throw rethrow(e.getCause());
+    }
+  }
+
+  private static IOException rethrow(Throwable cause) throws IOException {
+    if (cause instanceof IOException)
+      throw (IOException) cause;
+    if (cause instanceof RuntimeException)
+      throw (RuntimeException) cause;
+    if (cause instanceof Error)
+      throw (Error) cause;
+    throw new AvroRuntimeException(cause);
+  }
+
+  /** Removes all entries. */
+  public void clear() {
+    grammars.invalidateAll();
+    plans.invalidateAll();
+  }
+
+  /** Return statistics of this cache since it was created. */
+  public Stats getStats() {
+    return new Stats(grammars.stats().plus(plans.stats()),
+                     grammars.size() + plans.size());
+  }
+
+  /** Statistics of a {@link ResolverCache}. */
+  public static class Stats {
+    private final CacheStats stats;
+    private final long size;
+
+    private Stats(CacheStats stats, long size) {
+      this.stats = stats;
+      this.size = size;
+    }
+
+    /** Return the number of lookups that found an entry. */
+    public long getHitCount() { return stats.hitCount(); }
+
+    /** Return the number of lookups that had to resolve a pair of
+     * schemas. */
+    public long getMissCount() { return stats.missCount(); }
+
+    /** Return the number of resolutions that completed, successfully or
+     * not. */
+    public long getBuildCount() {
+      return stats.loadSuccessCount() + stats.loadExceptionCount();
+    }
+
+    /** Return the total time spent resolving, in nanoseconds. */
+    public long getTotalBuildTime() { return stats.totalLoadTime(); }
+
+    /** Return the number of entries evicted to bound the cache's size. */
+    public long getEvictionCount() { return stats.evictionCount(); }
+
+    /** Return the number of entries currently held. */
+    public long getSize() { return size; }
+
+    @Override
+    public String toString() {
+      return "hits=" + getHitCount() + ", misses=" + getMissCount()
+        + ", builds=" + getBuildCount()
+        + ", buildTimeNanos=" + getTotalBuildTime()
+        + ", evictions=" + getEvictionCount() + ", size=" + getSize();
+    }
+  }
+
+  /** A writer's and reader's schema, hashed by their fingerprints.  Once
+   * fingerprints match, the schemas are compared too, so that a collision
+   * cannot return another pair's entry. */
+  private static class Key {
+    private final long writerFingerprint;
+    private final long readerFingerprint;
+    private final Schema writer;
+    private final Schema reader;
+    private final boolean sameReader;             // reader must be identical
+
+    Key(Schema writer, Schema reader, boolean sameReader) {
+      this.writer = writer;
+      this.reader = reader;
+      this.sameReader = sameReader;
+      this.writerFingerprint = FINGERPRINTS.getUnchecked(writer);
+      this.readerFingerprint = FINGERPRINTS.getUnchecked(reader);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) return false;
+      Key that = (Key) o;
+      return writerFingerprint == that.writerFingerprint
+        && readerFingerprint == that.readerFingerprint
+        && (sameReader ? reader == that.reader : reader.equals(that.reader))
+        && writer.equals(that.writer);
+    }
+
+    @Override
+    public int hashCode() {
+      long h = writerFingerprint * 31 + readerFingerprint;
+      return (int) (h ^ (h >>> 32));
+    }
+  }
+}
@@ -0,0 +1,255 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.Decoder;
+
+/**
+ * Skips values the writer wrote but the reader does not use, compiled once
+ * per writer's schema so that projections that drop most of a record's
+ * fields cost little more than the fields they keep.
+ *
+ * <p>Runs of values whose binary encoding has a fixed size, including
+ * records of such values, are skipped together with a single {@link
+ * Decoder#skipFixed(int)}, as are whole blocks of arrays with elements of
+ * fixed size.  Array and map blocks written with their byte size, as by
+ * {@link org.apache.avro.io.BlockingBinaryEncoder}, are skipped without
+ * visiting their items by {@link Decoder#skipArray()} and {@link
+ * Decoder#skipMap()}.  With decoders other than a {@link BinaryDecoder},
+ * values are skipped one by one.
+ */
+abstract class Skipper {
+  /** The size of the binary encoding of values, or -1 if it varies. */
+  final int size;
+
+  Skipper(int size) {
+    this.size = size;
+  }
+
+  abstract void skip(Decoder in) throws IOException;
+
+  /** Returns a skipper for consecutive values of the given schemas. */
+  static Skipper compile(List<Schema> schemas) {
+    return sequence(schemas, new IdentityHashMap<Schema, Skipper>());
+  }
+
+  private static Skipper sequence(List<Schema> schemas,
+                                  Map<Schema, Skipper> seen) {
+    List<Skipper> parts = new ArrayList<Skipper>();
+    int fixed = 0;
+    List<Schema> run = new ArrayList<Schema>();
+    for (Schema schema : schemas) {
+      Skipper part = compile(schema, seen);
+      if (part.size >= 0) {                       // extend a fixed-size run
+        fixed += part.size;
+        run.add(schema);
+        continue;
+      }
+      if (!run.isEmpty())
+        parts.add(new FixedSkipper(fixed, run));
+      fixed = 0;
+      run = new ArrayList<Schema>();
+      parts.add(part);
+    }
+    if (!run.isEmpty() || parts.isEmpty())
+      parts.add(new FixedSkipper(fixed, run));
+    if (parts.size() == 1)
+      return parts.get(0);
+    return new SequenceSkipper(parts.toArray(new Skipper[parts.size()]));
+  }
+
+  private static Skipper compile(Schema schema, Map<Schema, Skipper> seen) {
+    switch (schema.getType()) {
+    case NULL:
+      return new FixedSkipper(0, schema);
+    case BOOLEAN:
+      return new FixedSkipper(1, schema);
+    case FLOAT:
+      return new FixedSkipper(4, schema);
+    case DOUBLE:
+      return new FixedSkipper(8, schema);
+    case FIXED:
+      return new FixedSkipper(schema.getFixedSize(), schema);
+    case INT: case LONG: case ENUM: case STRING: case BYTES:
+      return new ValueSkipper(schema);
+    case ARRAY:
+      return new ArraySkipper(compile(schema.getElementType(), seen));
+    case MAP:
+      return new MapSkipper(compile(schema.getValueType(), seen));
+    case UNION:
+      List<Schema> types = schema.getTypes();
+      Skipper[] branches = new Skipper[types.size()];
+      for (int i = 0; i < branches.length; i++)
+        branches[i] = compile(types.get(i), seen);
+      return new UnionSkipper(branches);
+    case RECORD:
+      Skipper record = seen.get(schema);
+      if (record instanceof RecordSkipper)
+        ((RecordSkipper)record).used = true;
+      if (record != null)
+        return record;
+      RecordSkipper recursive = new RecordSkipper();
+      seen.put(schema, recursive);                // for recursive references
+      List<Schema> fields = new ArrayList<Schema>();
+      for (Field field : schema.getFields())
+        fields.add(field.schema());
+      Skipper result = sequence(fields, seen);
+      if (recursive.used) {                       // referenced while building
+        recursive.fields = result;
+        result = recursive;
+      }
+      seen.put(schema, result);
+      return result;
+    default:
+      throw new AvroRuntimeException("Unknown type: " + schema);
+    }
+  }
+
+  /** Skips values with a fixed-size binary encoding. */
+  private static class FixedSkipper extends Skipper {
+    private final Schema[] schemas;
+    FixedSkipper(int size, Schema schema) {
+      super(size);
+      this.schemas = new Schema[] { schema };
+    }
+    FixedSkipper(int size, List<Schema> schemas) {
+      super(size);
+      this.schemas = schemas.toArray(new Schema[schemas.size()]);
+    }
+    @Override
+    void skip(Decoder in) throws IOException {
+      if (in instanceof BinaryDecoder) {
+        if (size > 0)
+          in.skipFixed(size);
+        return;
+      }
+      for (Schema schema : schemas)
+        GenericDatumReader.skip(schema, in);
+    }
+  }
+
+  /** Skips a value whose binary encoding has a variable size. */
+  private static class ValueSkipper extends Skipper {
+    private final Schema.Type type;
+    ValueSkipper(Schema schema) {
+      super(-1);
+      this.type = schema.getType();
+    }
+    @Override
+    void skip(Decoder in) throws IOException {
+      switch (type) {
+      case INT:    in.readInt();    break;
+      case LONG:   in.readLong();   break;
+      case ENUM:   in.readEnum();   break;
+      case STRING: in.skipString(); break;
+      default:     in.skipBytes();  break;
+      }
+    }
+  }
+
+  private static class SequenceSkipper extends Skipper {
+    private final Skipper[] parts;
+    SequenceSkipper(Skipper[] parts) {
+      super(-1);
+      this.parts = parts;
+    }
+    @Override
+    void skip(Decoder in) throws IOException {
+      for (Skipper part : parts)
+        part.skip(in);
+    }
+  }
+
+  /** A record that refers to itself, whose fields are set once compiled. */
+  private static class RecordSkipper extends Skipper {
+    private boolean used;
+    private Skipper fields;
+    RecordSkipper() { super(-1); }
+    @Override
+    void skip(Decoder in) throws IOException {
+      fields.skip(in);
+    }
+  }
+
+  private static class ArraySkipper extends Skipper {
+    private final Skipper element;
+    ArraySkipper(Skipper element) {
+      super(-1);
+      this.element = element;
+    }
+    @Override
+    void skip(Decoder in) throws IOException {
+      boolean binary = in instanceof BinaryDecoder && element.size >= 0;
+      for (long l = in.skipArray(); l > 0; l = in.skipArray()) {
+        if (binary) {
+          skipFixed(in, l * element.size);
+          continue;
+        }
+        for (long i = 0; i < l; i++)
+          element.skip(in);
+      }
+    }
+  }
+
+  private static class MapSkipper extends Skipper {
+    private final Skipper value;
+    MapSkipper(Skipper value) {
+      super(-1);
+      this.value = value;
+    }
+    @Override
+    void skip(Decoder in) throws IOException {
+      for (long l = in.skipMap(); l > 0; l = in.skipMap()) {
+        for (long i = 0; i < l; i++) {
+          in.skipString();
+          value.skip(in);
+        }
+      }
+    }
+  }
+
+  private static class UnionSkipper extends Skipper {
+    private final Skipper[] branches;
+    UnionSkipper(Skipper[] branches) {
+      super(-1);
+      this.branches = branches;
+    }
+    @Override
+    void skip(Decoder in) throws IOException {
+      branches[in.readIndex()].skip(in);
+    }
+  }
+
+  private static void skipFixed(Decoder in, long length) throws IOException {
+    while (length > Integer.MAX_VALUE) {
+      in.skipFixed(Integer.MAX_VALUE);
+      length -= Integer.MAX_VALUE;
+    }
+    in.skipFixed((int)length);
+  }
+}
@@ -17,6 +17,7 @@
  */
 package org.apache.avro.io;
 
+import java.io.EOFException;
 import java.io.IOException;
 
 import org.apache.avro.Schema;
@@ -300,6 +301,146 @@ public class BinaryData {
     return i;
   }
 
+  /** Decode a binary-encoded long from the byte array at the given position.
+   * Use {@link #skipLong(byte[], int)} to find the position after it. */
+  public static long decodeLong(byte[] bytes, int start) {
+    long n = 0;
+    int i = start;
+    int shift = 0;
+    int b;
+    do {
+      b = bytes[i++];
+      n |= (b & 0x7FL) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0 && shift < 64);
+    return (n >>> 1) ^ -(n & 1);                  // back to two's-complement
+  }
+
+  /** Skip a binary-encoded value of a schema without decoding it, returning
+   * the position after it.
+   * @throws EOFException if the value extends past <tt>end</tt>. */
+  public static int skip(Schema schema, byte[] bytes, int start, int end)
+    throws IOException {
+    int pos;
+    try {
+      pos = skip(schema, bytes, start);
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new EOFException();
+    }
+    if (pos > end)
+      throw new EOFException();
+    return pos;
+  }
+
+  private static int skip(Schema schema, byte[] bytes, int pos)
+    throws IOException {
+    switch (schema.getType()) {
+    case RECORD:
+      for (Field field : schema.getFields())
+        pos = skip(field.schema(), bytes, pos);
+      return pos;
+    case ARRAY: case MAP:
+      boolean map = schema.getType() == Schema.Type.MAP;
+      Schema element = map ? schema.getValueType() : schema.getElementType();
+      for (long count = decodeLong(bytes, pos); count != 0;
+           count = decodeLong(bytes, pos)) {
+        pos = skipLong(bytes, pos);
+        if (count < 0) {                          // skip block by its size
+          long size = decodeLong(bytes, pos);
+          pos = advance(bytes, skipLong(bytes, pos), size);
+          continue;
+        }
+        for (long i = 0; i < count; i++) {
+          if (map)
+            pos = skipBytes(bytes, pos);            // the key
+          pos = skip(element, bytes, pos);
+        }
+      }
+      return skipLong(bytes, pos);
+    case UNION:
+      int index = (int)decodeLong(bytes, pos);
+      return skip(schema.getTypes().get(index), bytes, skipLong(bytes, pos));
+    case STRING: case BYTES:
+                  return skipBytes(bytes, pos);
+    case FIXED:   return advance(bytes, pos, schema.getFixedSize());
+    case INT: case LONG: case ENUM:
+                  return skipLong(bytes, pos);
+    case FLOAT:   return advance(bytes, pos, 4);
+    case DOUBLE:  return advance(bytes, pos, 8);
+    case BOOLEAN: return advance(bytes, pos, 1);
+    case NULL:    return pos;
+    default: throw new AvroRuntimeException("Unknown type: "+schema);
+    }
+  }
+
+  private static int skipBytes(byte[] bytes, int pos) throws IOException {
+    long length = decodeLong(bytes, pos);
+    if (length < 0)
+      throw new AvroRuntimeException("Malformed data. Length is negative: "
+                                     + length);
+    return advance(bytes, skipLong(bytes, pos), length);
+  }
+
+  private static int advance(byte[] bytes, int pos, long length)
+    throws EOFException {
+    if (length > bytes.length - pos)
+      throw new EOFException();
+    return pos + (int)length;
+  }
+
+  /** Copy a value of a schema from a decoder to an encoder. */
+  static void copy(Schema schema, Decoder in, Encoder out) throws IOException {
+    switch (schema.getType()) {
+    case RECORD:
+      for (Field field : schema.getFields())
+        copy(field.schema(), in, out);
+      break;
+    case ARRAY:
+      out.writeArrayStart();
+      for (long l = in.readArrayStart(); l > 0; l = in.arrayNext()) {
+        out.setItemCount(l);
+        for (long i = 0; i < l; i++) {
+          out.startItem();
+          copy(schema.getElementType(), in, out);
+        }
+      }
+      out.writeArrayEnd();
+      break;
+    case MAP:
+      out.writeMapStart();
+      for (long l = in.readMapStart(); l > 0; l = in.mapNext()) {
+        out.setItemCount(l);
+        for (long i = 0; i < l; i++) {
+          out.startItem();
+          out.writeString(in.readString(null));
+          copy(schema.getValueType(), in, out);
+        }
+      }
+      out.writeMapEnd();
+      break;
+    case UNION:
+      int index = in.readIndex();
+      out.writeIndex(index);
+      copy(schema.getTypes().get(index), in, out);
+      break;
+    case FIXED:
+      byte[] fixed = new byte[schema.getFixedSize()];
+      in.readFixed(fixed);
+      out.writeFixed(fixed);
+      break;
+    case ENUM:    out.writeEnum(in.readEnum());          break;
+    case STRING:  out.writeString(in.readString(null));  break;
+    case BYTES:   out.writeBytes(in.readBytes(null));    break;
+    case INT:     out.writeInt(in.readInt());            break;
+    case LONG:    out.writeLong(in.readLong());          break;
+    case FLOAT:   out.writeFloat(in.readFloat());        break;
+    case DOUBLE:  out.writeDouble(in.readDouble());      break;
+    case BOOLEAN: out.writeBoolean(in.readBoolean());    break;
+    case NULL:    in.readNull(); out.writeNull();        break;
+    default: throw new AvroRuntimeException("Unknown type: "+schema);
+    }
+  }
+
   /** Encode a boolean to the byte array at the given position. Will throw
    * IndexOutOfBounds if the position is not valid.
    * @return The number of bytes written to the buffer, 1.
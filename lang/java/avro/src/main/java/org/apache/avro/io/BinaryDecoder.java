@@ -17,12 +17,15 @@
  */
 package org.apache.avro.io;
 
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
 import org.apache.avro.util.Utf8;
 
 /** An {@link Decoder} for binary-format data.
@@ -254,6 +257,131 @@ public class BinaryDecoder extends Decoder {
         | (((long) n2) << 32));
   }
 
+  @Override
+  public void readInts(int[] data, int start, int length)
+    throws IOException {
+    for (int end = start + length; start < end;) {
+      // decode as readInt() does, without its bounds checks, while a whole
+      // varint is certainly buffered, else read one to refill the buffer
+      if (limit - pos < 5) {
+        data[start++] = readInt();
+        continue;
+      }
+      byte[] b = buf;
+      int p = pos;
+      int last = limit - 5;
+      while (start < end && p <= last) {
+        int v = b[p++] & 0xff;
+        int n = v & 0x7f;
+        if (v > 0x7f) {
+          v = b[p++] & 0xff;
+          n ^= (v & 0x7f) << 7;
+          if (v > 0x7f) {
+            v = b[p++] & 0xff;
+            n ^= (v & 0x7f) << 14;
+            if (v > 0x7f) {
+              v = b[p++] & 0xff;
+              n ^= (v & 0x7f) << 21;
+              if (v > 0x7f) {
+                v = b[p++] & 0xff;
+                n ^= (v & 0x7f) << 28;
+                if (v > 0x7f) {
+                  throw new IOException("Invalid int encoding");
+                }
+              }
+            }
+          }
+        }
+        data[start++] = (n >>> 1) ^ -(n & 1); // back to two's-complement
+      }
+      pos = p;
+    }
+  }
+
+  @Override
+  public void readLongs(long[] data, int start, int length)
+    throws IOException {
+    for (int end = start + length; start < end;) {
+      if (limit - pos < 10) {
+        data[start++] = readLong();
+        continue;
+      }
+      byte[] b = buf;
+      int p = pos;
+      int last = limit - 10;
+      while (start < end && p <= last) {
+        int v = b[p++] & 0xff;
+        int n = v & 0x7f;
+        long l = n;
+        if (v > 0x7f) {
+          v = b[p++] & 0xff;
+          n ^= (v & 0x7f) << 7;
+          if (v > 0x7f) {
+            v = b[p++] & 0xff;
+            n ^= (v & 0x7f) << 14;
+            if (v > 0x7f) {
+              v = b[p++] & 0xff;
+              n ^= (v & 0x7f) << 21;
+              if (v > 0x7f) {
+                pos = p;
+                l = innerLongDecode((long)n);
+                p = pos;
+              } else {
+                l = n;
+              }
+            } else {
+              l = n;
+            }
+          } else {
+            l = n;
+          }
+        }
+        data[start++] = (l >>> 1) ^ -(l & 1); // back to two's-complement
+      }
+      pos = p;
+    }
+  }
+
+  @Override
+  public void readFloats(float[] data, int start, int length)
+    throws IOException {
+    for (int end = start + length; start < end;) {
+      // as many as are certainly buffered, else one to refill the buffer
+      int stop = Math.min(end, start + (limit - pos) / 4);
+      if (stop == start) {
+        data[start++] = readFloat();
+        continue;
+      }
+      while (start < stop) {
+        int n = (buf[pos] & 0xff) | ((buf[pos + 1] & 0xff) << 8)
+          | ((buf[pos + 2] & 0xff) << 16) | ((buf[pos + 3] & 0xff) << 24);
+        data[start++] = Float.intBitsToFloat(n);
+        pos += 4;
+      }
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] data, int start, int length)
+    throws IOException {
+    for (int end = start + length; start < end;) {
+      int stop = Math.min(end, start + (limit - pos) / 8);
+      if (stop == start) {
+        data[start++] = readDouble();
+        continue;
+      }
+      while (start < stop) {
+        int n1 = (buf[pos] & 0xff) | ((buf[pos + 1] & 0xff) << 8)
+          | ((buf[pos + 2] & 0xff) << 16) | ((buf[pos + 3] & 0xff) << 24);
+        int n2 = (buf[pos + 4] & 0xff) | ((buf[pos + 5] & 0xff) << 8)
+          | ((buf[pos + 6] & 0xff) << 16) | ((buf[pos + 7] & 0xff) << 24);
+        data[start++] = Double.longBitsToDouble((((long) n1) & 0xffffffffL)
+                                                | (((long) n2) << 32));
+        pos += 8;
+      }
+    }
+  }
+
   @Override
   public Utf8 readString(Utf8 old) throws IOException {
     int length = readInt();
@@ -350,6 +478,29 @@ public class BinaryDecoder extends Decoder {
     }
   }
 
+  /**
+   * Reads the binary encoding of a value of a schema without decoding it,
+   * returning a copy of its bytes.
+   *
+   * @throws IOException
+   */
+  public byte[] readEncoded(Schema schema) throws IOException {
+    if (buf != null) {
+      try {
+        int end = BinaryData.skip(schema, buf, pos, limit);
+        byte[] result = Arrays.copyOfRange(buf, pos, end);
+        pos = end;
+        return result;
+      } catch (EOFException e) {
+        // not all buffered: copy it value by value
+      }
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+    BinaryData.copy(schema, this, encoder);
+    return out.toByteArray();
+  }
+
   /**
    * Returns the number of items to follow in the current array or map. Returns
    * 0 if there are no more items in the current array and the array/map has
@@ -288,6 +288,42 @@ public class BlockingBinaryEncoder extends BufferedBinaryEncoder {
     doWriteBytes(bytes, start, len);
   }
 
+  @Override
+  public void writeInts(int[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();                                // each may end a block
+      writeInt(data[i]);
+    }
+  }
+
+  @Override
+  public void writeLongs(long[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeLong(data[i]);
+    }
+  }
+
+  @Override
+  public void writeFloats(float[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeFloat(data[i]);
+    }
+  }
+
+  @Override
+  public void writeDoubles(double[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeDouble(data[i]);
+    }
+  }
+
   @Override
   protected void writeZero() throws IOException {
     ensureBounds(1);
@@ -142,6 +142,51 @@ public class BufferedBinaryEncoder extends BinaryEncoder {
     pos += BinaryData.encodeDouble(d, buf, pos);
   }
 
+  @Override
+  public void writeInts(int[] data, int start, int length)
+    throws IOException {
+    for (int end = start + length; start < end;) {
+      ensureBounds(5);
+      // as many as certainly fit in the buffer
+      int stop = Math.min(end, start + (buf.length - pos) / 5);
+      while (start < stop)
+        pos += BinaryData.encodeInt(data[start++], buf, pos);
+    }
+  }
+
+  @Override
+  public void writeLongs(long[] data, int start, int length)
+    throws IOException {
+    for (int end = start + length; start < end;) {
+      ensureBounds(10);
+      int stop = Math.min(end, start + (buf.length - pos) / 10);
+      while (start < stop)
+        pos += BinaryData.encodeLong(data[start++], buf, pos);
+    }
+  }
+
+  @Override
+  public void writeFloats(float[] data, int start, int length)
+    throws IOException {
+    for (int end = start + length; start < end;) {
+      ensureBounds(4);
+      int stop = Math.min(end, start + (buf.length - pos) / 4);
+      while (start < stop)
+        pos += BinaryData.encodeFloat(data[start++], buf, pos);
+    }
+  }
+
+  @Override
+  public void writeDoubles(double[] data, int start, int length)
+    throws IOException {
+    for (int end = start + length; start < end;) {
+      ensureBounds(8);
+      int stop = Math.min(end, start + (buf.length - pos) / 8);
+      while (start < stop)
+        pos += BinaryData.encodeDouble(data[start++], buf, pos);
+    }
+  }
+
   @Override
   public void writeFixed(byte[] bytes, int start, int len) throws IOException {
     if (len > bulkLimit) {
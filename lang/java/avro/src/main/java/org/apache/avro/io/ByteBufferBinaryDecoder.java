@@ -0,0 +1,191 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+
+/**
+ * A {@link BinaryDecoder} that reads from a {@link ByteBuffer}, possibly a
+ * direct or memory-mapped buffer, without copying its content to an
+ * intermediate array.
+ * <p/>
+ * Heap buffers are instead decoded from their backing array by a {@link
+ * BinaryDecoder}, see {@link DecoderFactory#binaryDecoder(ByteBuffer,
+ * BinaryDecoder)}.
+ */
+class ByteBufferBinaryDecoder extends BinaryDecoder {
+  private ByteBuffer buf;
+
+  ByteBufferBinaryDecoder(ByteBuffer buf) {
+    super();
+    configure(buf);
+  }
+
+  /** Reads the remaining content of a buffer, whose position is not
+   * changed. */
+  ByteBufferBinaryDecoder configure(ByteBuffer buf) {
+    this.buf = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    return this;
+  }
+
+  @Override
+  public boolean readBoolean() throws IOException {
+    if (!buf.hasRemaining())
+      throw new EOFException();
+    return buf.get() == 1;
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    try {
+      int n = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        int b = buf.get();
+        n |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0)
+          return (n >>> 1) ^ -(n & 1);            // back to two's-complement
+      }
+    } catch (BufferUnderflowException e) {
+      throw new EOFException();
+    }
+    throw new IOException("Invalid int encoding");
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    try {
+      long n = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = buf.get();
+        n |= (b & 0x7FL) << shift;
+        if ((b & 0x80) == 0)
+          return (n >>> 1) ^ -(n & 1);            // back to two's-complement
+      }
+    } catch (BufferUnderflowException e) {
+      throw new EOFException();
+    }
+    throw new IOException("Invalid long encoding");
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    try {
+      return buf.getFloat();
+    } catch (BufferUnderflowException e) {
+      throw new EOFException();
+    }
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    try {
+      return buf.getDouble();
+    } catch (BufferUnderflowException e) {
+      throw new EOFException();
+    }
+  }
+
+  @Override
+  public void readFloats(float[] data, int start, int length)
+    throws IOException {
+    if (buf.remaining() < length * 4L)
+      throw new EOFException();
+    buf.asFloatBuffer().get(data, start, length);
+    buf.position(buf.position() + length * 4);
+  }
+
+  @Override
+  public void readDoubles(double[] data, int start, int length)
+    throws IOException {
+    if (buf.remaining() < length * 8L)
+      throw new EOFException();
+    buf.asDoubleBuffer().get(data, start, length);
+    buf.position(buf.position() + length * 8);
+  }
+
+  @Override
+  protected void doSkipBytes(long length) throws IOException {
+    if (length > buf.remaining())
+      throw new EOFException();
+    buf.position(buf.position() + (int)length);
+  }
+
+  @Override
+  protected void doReadBytes(byte[] bytes, int start, int length)
+    throws IOException {
+    if (length < 0)
+      throw new AvroRuntimeException("Malformed data. Length is negative: "
+                                     + length);
+    if (length > buf.remaining())
+      throw new EOFException();
+    buf.get(bytes, start, length);
+  }
+
+  @Override
+  public byte[] readEncoded(Schema schema) throws IOException {
+    int start = buf.position();
+    GenericDatumReader.skip(schema, this);
+    ByteBuffer encoded = buf.duplicate();
+    encoded.position(start);
+    byte[] result = new byte[buf.position() - start];
+    encoded.get(result);
+    return result;
+  }
+
+  @Override
+  public InputStream inputStream() {
+    return new InputStream() {
+      @Override
+      public int read() {
+        return buf.hasRemaining() ? buf.get() & 0xff : -1;
+      }
+      @Override
+      public int read(byte[] b, int off, int len) {
+        if (len == 0) return 0;
+        if (!buf.hasRemaining()) return -1;
+        len = Math.min(len, buf.remaining());
+        buf.get(b, off, len);
+        return len;
+      }
+      @Override
+      public long skip(long n) {
+        n = Math.max(0, Math.min(n, buf.remaining()));
+        buf.position(buf.position() + (int)n);
+        return n;
+      }
+      @Override
+      public int available() {
+        return buf.remaining();
+      }
+    };
+  }
+
+  @Override
+  public boolean isEnd() throws IOException {
+    return !buf.hasRemaining();
+  }
+}
@@ -0,0 +1,194 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.util.ByteBufferPool;
+
+/**
+ * An {@link Encoder} for Avro's binary encoding that writes to a sequence of
+ * {@link ByteBuffer}s taken from a {@link ByteBufferPool}.  With a pool of
+ * direct buffers, data is encoded straight into memory that may be handed to
+ * a channel without further copies.
+ * <p/>
+ * Written data is retrieved with {@link #getBufferList()}, which leaves the
+ * encoder empty and ready to encode another datum.  {@link #flush()} has no
+ * effect.
+ * <p/>
+ * To construct or reconfigure, use
+ * {@link EncoderFactory#byteBufferEncoder(ByteBufferPool, BinaryEncoder)}.
+ *
+ * @see Encoder
+ * @see EncoderFactory
+ */
+public class ByteBufferBinaryEncoder extends BinaryEncoder {
+  private ByteBufferPool pool;
+  private List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+  private ByteBuffer buf;                         // last of buffers, or null
+  private final byte[] scratch = new byte[10];
+
+  ByteBufferBinaryEncoder(ByteBufferPool pool) {
+    configure(pool);
+  }
+
+  ByteBufferBinaryEncoder configure(ByteBufferPool pool) {
+    if (null == pool)
+      throw new NullPointerException("ByteBufferPool cannot be null!");
+    if (this.pool != null)
+      this.pool.release(buffers);                 // discard unclaimed output
+    buffers.clear();
+    buf = null;
+    this.pool = pool;
+    return this;
+  }
+
+  /** Returns the pool that buffers are taken from. */
+  public ByteBufferPool getPool() { return pool; }
+
+  /** Returns the data written since this was created, configured or last
+   * called, in buffers ready to be read, and empties this encoder.  The
+   * caller owns the buffers returned and may return them to the pool with
+   * {@link ByteBufferPool#release(List)} once they are consumed. */
+  public List<ByteBuffer> getBufferList() {
+    List<ByteBuffer> result = buffers;
+    for (ByteBuffer buffer : result)
+      buffer.flip();
+    buffers = new ArrayList<ByteBuffer>();
+    buf = null;
+    return result;
+  }
+
+  @Override
+  public void flush() throws IOException {
+  }
+
+  /** Ensures that the current buffer has room for <tt>num</tt> bytes,
+   * which must not exceed the pool's buffer size. */
+  private void ensureBounds(int num) {
+    if (buf == null || buf.remaining() < num) {
+      buf = pool.acquire();
+      buf.order(ByteOrder.LITTLE_ENDIAN);
+      buffers.add(buf);
+    }
+  }
+
+  /** Writes from the scratch buffer into the current buffer, avoiding
+   * starting a new buffer for values that fit in what remains. */
+  private void writeScratch(int len) {
+    if (buf != null && buf.remaining() >= len) {
+      buf.put(scratch, 0, len);
+    } else {
+      writeFixed(scratch, 0, len);
+    }
+  }
+
+  @Override
+  public void writeBoolean(boolean b) throws IOException {
+    ensureBounds(1);
+    buf.put((byte)(b ? 1 : 0));
+  }
+
+  @Override
+  public void writeInt(int n) throws IOException {
+    if (buf != null && buf.hasArray() && buf.remaining() >= 5) {
+      int pos = buf.position();
+      buf.position(pos + BinaryData.encodeInt(n, buf.array(),
+                                              buf.arrayOffset() + pos));
+    } else {
+      writeScratch(BinaryData.encodeInt(n, scratch, 0));
+    }
+  }
+
+  @Override
+  public void writeLong(long n) throws IOException {
+    if (buf != null && buf.hasArray() && buf.remaining() >= 10) {
+      int pos = buf.position();
+      buf.position(pos + BinaryData.encodeLong(n, buf.array(),
+                                               buf.arrayOffset() + pos));
+    } else {
+      writeScratch(BinaryData.encodeLong(n, scratch, 0));
+    }
+  }
+
+  @Override
+  public void writeFloat(float f) throws IOException {
+    if (buf != null && buf.remaining() >= 4) {
+      buf.putFloat(f);
+    } else {
+      writeScratch(BinaryData.encodeFloat(f, scratch, 0));
+    }
+  }
+
+  @Override
+  public void writeDouble(double d) throws IOException {
+    if (buf != null && buf.remaining() >= 8) {
+      buf.putDouble(d);
+    } else {
+      writeScratch(BinaryData.encodeDouble(d, scratch, 0));
+    }
+  }
+
+  @Override
+  public void writeFixed(byte[] bytes, int start, int len) {
+    while (len > 0) {
+      ensureBounds(1);
+      int n = Math.min(len, buf.remaining());
+      buf.put(bytes, start, n);
+      start += n;
+      len -= n;
+    }
+  }
+
+  @Override
+  public void writeFixed(ByteBuffer bytes) throws IOException {
+    if (bytes.hasArray()) {
+      super.writeFixed(bytes);
+      return;
+    }
+    ByteBuffer src = bytes.duplicate();           // copy without a byte[]
+    while (src.hasRemaining()) {
+      ensureBounds(1);
+      int n = Math.min(src.remaining(), buf.remaining());
+      ByteBuffer chunk = src.duplicate();
+      chunk.limit(chunk.position() + n);
+      buf.put(chunk);
+      src.position(src.position() + n);
+    }
+  }
+
+  @Override
+  protected void writeZero() throws IOException {
+    ensureBounds(1);
+    buf.put((byte)0);
+  }
+
+  /** Returns the number of bytes written but not yet retrieved with {@link
+   * #getBufferList()}. */
+  @Override
+  public int bytesBuffered() {
+    int total = 0;
+    for (ByteBuffer buffer : buffers)
+      total += buffer.position();
+    return total;
+  }
+}
@@ -195,6 +195,50 @@ public abstract class Decoder {
    */
   public abstract long arrayNext() throws IOException;
 
+  /**
+   * Reads <tt>length</tt> {@code int}s, items of the current array, into
+   * <tt>data</tt> starting at <tt>start</tt>, as if by calling {@link
+   * #readInt()} for each.  Binary decoders read them in bulk.
+   */
+  public void readInts(int[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++)
+      data[i] = readInt();
+  }
+
+  /**
+   * Reads <tt>length</tt> {@code long}s, items of the current array, into
+   * <tt>data</tt> starting at <tt>start</tt>, as if by calling {@link
+   * #readLong()} for each.  Binary decoders read them in bulk.
+   */
+  public void readLongs(long[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++)
+      data[i] = readLong();
+  }
+
+  /**
+   * Reads <tt>length</tt> {@code float}s, items of the current array, into
+   * <tt>data</tt> starting at <tt>start</tt>, as if by calling {@link
+   * #readFloat()} for each.  Binary decoders read them in bulk.
+   */
+  public void readFloats(float[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++)
+      data[i] = readFloat();
+  }
+
+  /**
+   * Reads <tt>length</tt> {@code double}s, items of the current array, into
+   * <tt>data</tt> starting at <tt>start</tt>, as if by calling {@link
+   * #readDouble()} for each.  Binary decoders read them in bulk.
+   */
+  public void readDoubles(double[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++)
+      data[i] = readDouble();
+  }
+
   /**
    * Used for quickly skipping through an array.  Note you can
    * either skip the entire array, or read the entire array (with
@@ -19,6 +19,7 @@ package org.apache.avro.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.avro.Schema;
 
@@ -234,6 +235,37 @@ public class DecoderFactory {
     return binaryDecoder(bytes, 0, bytes.length, reuse);
   }
 
+  /**
+   * Creates or reinitializes a {@link BinaryDecoder} that reads the remaining
+   * content of a {@link ByteBuffer}, without copying it.  The position of
+   * <i>buffer</i> is not changed by decoding.
+   * <p/>
+   * Heap buffers are decoded from their backing array as with {@link
+   * #binaryDecoder(byte[], int, int, BinaryDecoder)}.  Direct buffers,
+   * including memory-mapped buffers, are decoded in place.
+   *
+   * @param buffer The buffer to read from
+   * @param reuse The BinaryDecoder to attempt to reinitialize. if null a new
+   *          BinaryDecoder is created.
+   * @return A BinaryDecoder that uses <i>buffer</i> as its source of data. If
+   *         <i>reuse</i> is null, this will be a new instance. <i>reuse</i> may
+   *         be reinitialized if appropriate, otherwise a new instance is
+   *         returned. Clients must not assume that <i>reuse</i> is
+   *         reinitialized and returned.
+   */
+  public BinaryDecoder binaryDecoder(ByteBuffer buffer, BinaryDecoder reuse) {
+    if (buffer.hasArray())
+      return binaryDecoder(buffer.array(),
+                           buffer.arrayOffset() + buffer.position(),
+                           buffer.remaining(), reuse);
+    if (null == reuse
+        || !reuse.getClass().equals(ByteBufferBinaryDecoder.class)) {
+      return new ByteBufferBinaryDecoder(buffer);
+    } else {
+      return ((ByteBufferBinaryDecoder)reuse).configure(buffer);
+    }
+  }
+
   /**
    * Creates a {@link JsonDecoder} using the InputStrim provided for reading
    * data that conforms to the Schema provided.
@@ -307,6 +339,25 @@ public class DecoderFactory {
     return new ResolvingDecoder(writer, reader, wrapped);
   }
 
+  /**
+   * Creates a {@link ResolvingDecoder} wrapping the Decoder provided, from a
+   * resolver previously returned by {@link ResolvingDecoder#resolve(Schema,
+   * Schema)}.  As the resolver is immutable and may be shared, this avoids
+   * resolving the same pair of schemas again.
+   *
+   * @param resolver
+   *          The resolver for the writer's and reader's schemas.
+   * @param wrapped
+   *          The Decoder to wrap.
+   * @return A ResolvingDecoder configured with <i>resolver</i> reading from
+   *         <i>wrapped</i>
+   * @throws IOException
+   */
+  public ResolvingDecoder resolvingDecoder(Object resolver, Decoder wrapped)
+    throws IOException {
+    return new ResolvingDecoder(resolver, wrapped);
+  }
+
   private static class DefaultDecoderFactory extends DecoderFactory {
     @Override
     public DecoderFactory configureDecoderBufferSize(int bufferSize) {
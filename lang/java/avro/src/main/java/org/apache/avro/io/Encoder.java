@@ -248,6 +248,62 @@ public abstract class Encoder implements Flushable {
    */
   public abstract void writeArrayEnd() throws IOException;
 
+  /**
+   * Writes <tt>length</tt> {@code int}s from <tt>data</tt>, starting at
+   * <tt>start</tt>, as items of the current array, as if by calling {@link
+   * #startItem()} and {@link #writeInt} for each.  Binary encoders write
+   * them in bulk.
+   */
+  public void writeInts(int[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeInt(data[i]);
+    }
+  }
+
+  /**
+   * Writes <tt>length</tt> {@code long}s from <tt>data</tt>, starting at
+   * <tt>start</tt>, as items of the current array, as if by calling {@link
+   * #startItem()} and {@link #writeLong} for each.  Binary encoders write
+   * them in bulk.
+   */
+  public void writeLongs(long[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeLong(data[i]);
+    }
+  }
+
+  /**
+   * Writes <tt>length</tt> {@code float}s from <tt>data</tt>, starting at
+   * <tt>start</tt>, as items of the current array, as if by calling {@link
+   * #startItem()} and {@link #writeFloat} for each.  Binary encoders write
+   * them in bulk.
+   */
+  public void writeFloats(float[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeFloat(data[i]);
+    }
+  }
+
+  /**
+   * Writes <tt>length</tt> {@code double}s from <tt>data</tt>, starting at
+   * <tt>start</tt>, as items of the current array, as if by calling {@link
+   * #startItem()} and {@link #writeDouble} for each.  Binary encoders write
+   * them in bulk.
+   */
+  public void writeDoubles(double[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeDouble(data[i]);
+    }
+  }
+
   /**
    * Call this to start a new map.  See
    * {@link #writeArrayStart} for details on usage.
@@ -22,6 +22,7 @@ import java.io.OutputStream;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
+import org.apache.avro.util.ByteBufferPool;
 import org.codehaus.jackson.JsonGenerator;
 
 /**
@@ -38,6 +39,7 @@ import org.codehaus.jackson.JsonGenerator;
  * @see BufferedBinaryEncoder
  * @see BlockingBinaryEncoder
  * @see DirectBinaryEncoder
+ * @see ByteBufferBinaryEncoder
  */
 
 public class EncoderFactory {
@@ -261,6 +263,41 @@ public class EncoderFactory {
     }
   }
 
+  /**
+   * Creates or reinitializes a {@link ByteBufferBinaryEncoder} that writes
+   * to buffers taken from <i>pool</i>. If <i>reuse</i> is provided, an attempt
+   * will be made to reconfigure <i>reuse</i> rather than construct a new
+   * instance, but this is not guaranteed, a new instance may be returned.
+   * Output not yet retrieved from a reconfigured instance is discarded.
+   * <p/>
+   * Written data is retrieved, without copying, with
+   * {@link ByteBufferBinaryEncoder#getBufferList()}.  With a pool of direct
+   * buffers this avoids copying encoded data from the heap before it is
+   * written to a channel.
+   * <p/>
+   * {@link ByteBufferBinaryEncoder} instances returned by this method are not
+   * thread-safe.
+   *
+   * @param pool
+   *          The pool to take buffers from.  Cannot be null.
+   * @param reuse
+   *          The BinaryEncoder to <i>attempt</i> to reuse. If null, a new
+   *          instance is returned.
+   * @return A ByteBufferBinaryEncoder that writes to buffers from
+   *         <i>pool</i>.
+   * @see ByteBufferBinaryEncoder
+   * @see Encoder
+   */
+  public ByteBufferBinaryEncoder byteBufferEncoder(ByteBufferPool pool,
+                                                   BinaryEncoder reuse) {
+    if (null == reuse
+        || !reuse.getClass().equals(ByteBufferBinaryEncoder.class)) {
+      return new ByteBufferBinaryEncoder(pool);
+    } else {
+      return ((ByteBufferBinaryEncoder) reuse).configure(pool);
+    }
+  }
+
   /**
    * Creates a {@link JsonEncoder} using the OutputStream provided for writing
    * data conforming to the Schema provided.
@@ -136,6 +136,14 @@ public class JsonDecoder extends ParsingDecoder
     return this;
   }
 
+  /** Returns the parser this reads from, at the first token of the next
+   * value.  Readers such as {@link org.apache.avro.generic.JsonDatumReader}
+   * may read whole datums from it directly, between datums read through this
+   * decoder. */
+  public JsonParser getParser() {
+    return in;
+  }
+
   private void advance(Symbol symbol) throws IOException {
     this.parser.processTrailingImplicitActions();
     if (in.getCurrentToken() == null && this.parser.depth() == 1)
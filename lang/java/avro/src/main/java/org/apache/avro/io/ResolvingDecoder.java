@@ -43,6 +43,7 @@ import org.apache.avro.util.Utf8;
 public class ResolvingDecoder extends ValidatingDecoder {
 
   private Decoder backup;
+  private int actions;                            // count of doAction calls
 
   ResolvingDecoder(Schema writer, Schema reader, Decoder in)
     throws IOException {
@@ -57,7 +58,7 @@ public class ResolvingDecoder extends ValidatingDecoder {
    * @param in  The underlying decoder.
    * @throws IOException
    */
-  private ResolvingDecoder(Object resolver, Decoder in)
+  ResolvingDecoder(Object resolver, Decoder in)
     throws IOException {
     super((Symbol) resolver, in);
   }
@@ -152,7 +153,10 @@ public class ResolvingDecoder extends ValidatingDecoder {
 
   @Override
   public long readLong() throws IOException {
-    Symbol actual = parser.advance(Symbol.LONG);
+    return readLong(parser.advance(Symbol.LONG));
+  }
+
+  private long readLong(Symbol actual) throws IOException {
     if (actual == Symbol.INT) {
       return in.readInt();
     } else if (actual == Symbol.DOUBLE) {
@@ -165,7 +169,10 @@ public class ResolvingDecoder extends ValidatingDecoder {
 
   @Override
   public float readFloat() throws IOException {
-    Symbol actual = parser.advance(Symbol.FLOAT);
+    return readFloat(parser.advance(Symbol.FLOAT));
+  }
+
+  private float readFloat(Symbol actual) throws IOException {
     if (actual == Symbol.INT) {
       return (float) in.readInt();
     } else if (actual == Symbol.LONG) {
@@ -178,7 +185,10 @@ public class ResolvingDecoder extends ValidatingDecoder {
 
   @Override
   public double readDouble() throws IOException {
-    Symbol actual = parser.advance(Symbol.DOUBLE);
+    return readDouble(parser.advance(Symbol.DOUBLE));
+  }
+
+  private double readDouble(Symbol actual) throws IOException {
     if (actual == Symbol.INT) {
       return (double) in.readInt();
     } else if (actual == Symbol.LONG) {
@@ -191,6 +201,73 @@ public class ResolvingDecoder extends ValidatingDecoder {
     }
   }
 
+  /** Reads items one at a time until one is found that needs no
+   * resolution, then reads the rest in bulk from the underlying decoder:
+   * items of an array all resolve alike. */
+  @Override
+  public void readInts(int[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      int before = actions;
+      Symbol actual = parser.advance(Symbol.INT);
+      if (actual == Symbol.INT && actions == before) {
+        for (int j = i + 1; j < end; j++)
+          parser.advance(Symbol.INT);
+        in.readInts(data, i, end - i);
+        return;
+      }
+      data[i] = in.readInt();
+    }
+  }
+
+  @Override
+  public void readLongs(long[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      int before = actions;
+      Symbol actual = parser.advance(Symbol.LONG);
+      if (actual == Symbol.LONG && actions == before) {
+        for (int j = i + 1; j < end; j++)
+          parser.advance(Symbol.LONG);
+        in.readLongs(data, i, end - i);
+        return;
+      }
+      data[i] = readLong(actual);
+    }
+  }
+
+  @Override
+  public void readFloats(float[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      int before = actions;
+      Symbol actual = parser.advance(Symbol.FLOAT);
+      if (actual == Symbol.FLOAT && actions == before) {
+        for (int j = i + 1; j < end; j++)
+          parser.advance(Symbol.FLOAT);
+        in.readFloats(data, i, end - i);
+        return;
+      }
+      data[i] = readFloat(actual);
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] data, int start, int length)
+    throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      int before = actions;
+      Symbol actual = parser.advance(Symbol.DOUBLE);
+      if (actual == Symbol.DOUBLE && actions == before) {
+        for (int j = i + 1; j < end; j++)
+          parser.advance(Symbol.DOUBLE);
+        in.readDoubles(data, i, end - i);
+        return;
+      }
+      data[i] = readDouble(actual);
+    }
+  }
+
   @Override
   public Utf8 readString(Utf8 old) throws IOException {
     Symbol actual = parser.advance(Symbol.STRING);
@@ -272,6 +349,7 @@ public class ResolvingDecoder extends ValidatingDecoder {
 
   @Override
   public Symbol doAction(Symbol input, Symbol top) throws IOException {
+    actions++;
     if (top instanceof Symbol.FieldOrderAction) {
       return input == Symbol.FIELD_ACTION ? top : null;
     } if (top instanceof Symbol.ResolvingAction) {
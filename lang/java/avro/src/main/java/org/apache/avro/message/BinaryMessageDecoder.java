@@ -19,7 +19,13 @@
 
 package org.apache.avro.message;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaNormalization;
 import org.apache.avro.generic.GenericData;
@@ -28,6 +34,8 @@ import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A {@link MessageDecoder} that reads a binary-encoded datum. This checks for
@@ -40,6 +48,12 @@ import java.util.Map;
  * to the constructor. Messages encoded using an unknown schema will cause
  * instances to throw a {@link MissingSchemaException}.
  * <p>
+ * Decoders for schemas resolved by the {@link SchemaStore} are kept in a
+ * bounded cache, from which the least recently used are evicted. Concurrent
+ * messages with the same unknown fingerprint wait for a single lookup, and
+ * fingerprints the store does not know may be remembered for a while, so
+ * that slow stores are not asked repeatedly.
+ * <p>
  * It is safe to continue using instances of this class after {@link #decode}
  * throws {@link BadHeaderException} or {@link MissingSchemaException}.
  * <p>
@@ -64,12 +78,20 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
         }
       };
 
+  /**
+   * The default number of decoders for schemas from a {@link SchemaStore}
+   * that are kept.
+   */
+  public static final int DEFAULT_MAX_RESOLVED = 1024;
+
   private final GenericData model;
   private final Schema readSchema;
   private final SchemaStore resolver;
 
   private final Map<Long, RawMessageDecoder<D>> codecByFingerprint =
       new MapMaker().makeMap();
+  private final LoadingCache<Long, RawMessageDecoder<D>> resolved;
+  private final Cache<Long, Boolean> missing;
 
   /**
    * Creates a new {@link BinaryMessageEncoder} that uses the given
@@ -111,9 +133,45 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
    */
   public BinaryMessageDecoder(GenericData model, Schema readSchema,
                               SchemaStore resolver) {
+    this(model, readSchema, resolver, DEFAULT_MAX_RESOLVED, 0);
+  }
+
+  /**
+   * Creates a new {@link BinaryMessageEncoder} that uses the given
+   * {@link GenericData data model} to construct datum instances described by
+   * the {@link Schema schema}, finding unknown schemas in a
+   * {@link SchemaStore}.
+   * <p>
+   * At most {@code maxResolved} decoders for schemas returned by the
+   * {@code resolver} are kept. Fingerprints the {@code resolver} does not
+   * know are not looked up again for {@code missingMillis} milliseconds, or
+   * until the schema is added using {@link #addSchema(Schema)}; when zero,
+   * every message with an unknown fingerprint is looked up.
+   *
+   * @param model the {@link GenericData data model} for datum instances
+   * @param readSchema the {@link Schema} used to construct datum instances
+   * @param resolver a {@link SchemaStore} used to find schemas by fingerprint
+   * @param maxResolved the maximum number of resolved decoders kept
+   * @param missingMillis how long an unknown fingerprint is remembered
+   */
+  public BinaryMessageDecoder(GenericData model, Schema readSchema,
+                              SchemaStore resolver, int maxResolved,
+                              long missingMillis) {
     this.model = model;
     this.readSchema = readSchema;
     this.resolver = resolver;
+    this.resolved = CacheBuilder.newBuilder()
+        .maximumSize(maxResolved)
+        .build(new CacheLoader<Long, RawMessageDecoder<D>>() {
+          @Override
+          public RawMessageDecoder<D> load(Long fp) {
+            return resolve(fp);
+          }
+        });
+    this.missing = CacheBuilder.newBuilder()
+        .maximumSize(maxResolved)
+        .expireAfterWrite(missingMillis, TimeUnit.MILLISECONDS)
+        .build();
     addSchema(readSchema);
   }
 
@@ -126,6 +184,8 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
     long fp = SchemaNormalization.parsingFingerprint64(writeSchema);
     codecByFingerprint.put(fp,
         new RawMessageDecoder<D>(model, writeSchema, readSchema));
+    resolved.invalidate(fp);
+    missing.invalidate(fp);
   }
 
   private RawMessageDecoder<D> getDecoder(long fp) {
@@ -134,18 +194,47 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
       return decoder;
     }
 
-    if (resolver != null) {
-      Schema writeSchema = resolver.findByFingerprint(fp);
-      if (writeSchema != null) {
-        addSchema(writeSchema);
-        return codecByFingerprint.get(fp);
+    if (resolver == null || missing.getIfPresent(fp) != null) {
+      throw missingSchema(fp);
+    }
+
+    try {
+      // concurrent misses for the same fingerprint wait for one lookup
+      return resolved.get(fp);
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof MissingSchemaException) {
+        missing.put(fp, Boolean.TRUE);
+        throw (MissingSchemaException) e.getCause();
       }
+      throw rethrow(e.getCause());
+    } catch (ExecutionException e) {
+      throw rethrow(e.getCause());
     }
+  }
 
-    throw new MissingSchemaException(
+  private RawMessageDecoder<D> resolve(long fp) {
+    Schema writeSchema = resolver.findByFingerprint(fp);
+    if (writeSchema == null) {
+      throw missingSchema(fp);
+    }
+    return new RawMessageDecoder<D>(model, writeSchema, readSchema);
+  }
+
+  private static MissingSchemaException missingSchema(long fp) {
+    return new MissingSchemaException(
         "Cannot resolve schema for fingerprint: " + fp);
   }
 
+  private static RuntimeException rethrow(Throwable cause) {
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new AvroRuntimeException(cause);
+  }
+
   @Override
   public D decode(InputStream stream, D reuse) throws IOException {
     byte[] header = HEADER_BUFFER.get();
@@ -20,8 +20,14 @@
 package org.apache.avro.message;
 
 import com.google.common.collect.MapMaker;
+import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaNormalization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -60,4 +66,82 @@ public interface SchemaStore {
       return schemas.get(fingerprint);
     }
   }
+
+  /**
+   * A store of schemas read from the {@code .avsc} files in a directory.
+   * <p>
+   * Each file holds one schema. Files are read when a fingerprint is not
+   * found among the schemas read so far, so that schemas may be added by
+   * adding files while the store is in use. Files that were already read are
+   * read again only if they have changed. A file that cannot be read or
+   * parsed is logged and skipped until it changes.
+   * <p>
+   * A lookup that finds nothing lists the directory, so lookups are best
+   * cached, as by {@link BinaryMessageDecoder}.
+   * <p>
+   * This class is thread-safe.
+   */
+  class Directory implements SchemaStore {
+    private static final Logger LOG = LoggerFactory.getLogger(Directory.class);
+
+    /** The suffix of the names of files that are read. */
+    public static final String SUFFIX = ".avsc";
+
+    private final File dir;
+    private final Map<Long, Schema> schemas = new MapMaker().makeMap();
+    private final Map<String, Long> modified = new HashMap<String, Long>();
+
+    /**
+     * Creates a store of the schemas in a directory.
+     *
+     * @param dir a directory of {@code .avsc} files
+     */
+    public Directory(File dir) {
+      this.dir = dir;
+    }
+
+    /**
+     * Returns the directory schemas are read from.
+     *
+     * @return the directory
+     */
+    public File getDirectory() {
+      return dir;
+    }
+
+    @Override
+    public Schema findByFingerprint(long fingerprint) {
+      Schema schema = schemas.get(fingerprint);
+      if (schema == null) {
+        scan();
+        schema = schemas.get(fingerprint);
+      }
+      return schema;
+    }
+
+    private synchronized void scan() {
+      File[] files = dir.listFiles();
+      if (files == null) {
+        return;
+      }
+      for (File file : files) {
+        String name = file.getName();
+        Long lastModified = file.lastModified();
+        if (!name.endsWith(SUFFIX) || !file.isFile() ||
+            lastModified.equals(modified.get(name))) {
+          continue;
+        }
+        modified.put(name, lastModified);   // even if bad, until changed
+        try {
+          Schema schema = new Schema.Parser().parse(file);
+          schemas.put(SchemaNormalization.parsingFingerprint64(schema),
+              schema);
+        } catch (IOException e) {
+          LOG.warn("Skipping unreadable schema file: " + file, e);
+        } catch (AvroRuntimeException e) {
+          LOG.warn("Skipping invalid schema file: " + file, e);
+        }
+      }
+    }
+  }
 }
@@ -61,37 +61,25 @@ class ArrayAccessor {
   static void writeArray(int[] data, Encoder out) throws IOException {
     int size = data.length;
     out.setItemCount(size);
-    for (int i = 0; i < size; i++) {
-      out.startItem();
-      out.writeInt(data[i]);
-    }
+    out.writeInts(data, 0, size);
   }
 
   static void writeArray(long[] data, Encoder out) throws IOException {
     int size = data.length;
     out.setItemCount(size);
-    for (int i = 0; i < size; i++) {
-      out.startItem();
-      out.writeLong(data[i]);
-    }
+    out.writeLongs(data, 0, size);
   }
 
   static void writeArray(float[] data, Encoder out) throws IOException {
     int size = data.length;
     out.setItemCount(size);
-    for (int i = 0; i < size; i++) {
-      out.startItem();
-      out.writeFloat(data[i]);
-    }
+    out.writeFloats(data, 0, size);
   }
 
   static void writeArray(double[] data, Encoder out) throws IOException {
     int size = data.length;
     out.setItemCount(size);
-    for (int i = 0; i < size; i++) {
-      out.startItem();
-      out.writeDouble(data[i]);
-    }
+    out.writeDoubles(data, 0, size);
   }
 
   static Object readArray(Object array, Class<?> elementType, long l,
@@ -137,10 +125,8 @@ class ArrayAccessor {
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readInt();
-        index++;
-      }
+      in.readInts(array, index, (int) l);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
@@ -185,10 +171,8 @@ class ArrayAccessor {
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readLong();
-        index++;
-      }
+      in.readLongs(array, index, (int) l);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
@@ -201,10 +185,8 @@ class ArrayAccessor {
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readFloat();
-        index++;
-      }
+      in.readFloats(array, index, (int) l);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
@@ -217,10 +199,8 @@ class ArrayAccessor {
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readDouble();
-        index++;
-      }
+      in.readDoubles(array, index, (int) l);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
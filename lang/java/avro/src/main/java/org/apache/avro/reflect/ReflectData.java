@@ -123,6 +123,13 @@ public class ReflectData extends SpecificData {
     return new ReflectDatumWriter(schema, this);
   }
 
+  /** Reflect datum readers and writers handle arrays, fields and custom
+   * encodings themselves, so they are never compiled. */
+  @Override
+  protected boolean supportsCompiledDatumIO(Schema schema) {
+    return false;
+  }
+
   @Override
   public void setField(Object record, String name, int position, Object o) {
     setField(record, name, position, o, null);
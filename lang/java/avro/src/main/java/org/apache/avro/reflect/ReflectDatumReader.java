@@ -34,6 +34,7 @@ import org.apache.avro.io.Decoder;
 import org.apache.avro.io.ResolvingDecoder;
 import org.apache.avro.specific.SpecificData;
 import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.util.StringDictionary;
 
 /**
  * {@link org.apache.avro.io.DatumReader DatumReader} for existing classes via
@@ -229,6 +230,12 @@ public class ReflectDatumReader<T> extends SpecificDatumReader<T> {
     return super.readString(null, in).toString();
   }
 
+  @Override
+  protected Object readSharedString(StringDictionary dictionary, Decoder in)
+    throws IOException {
+    return dictionary.readString(in);
+  }
+
   @Override
   protected Object createString(String value) { return value; }
 
@@ -18,7 +18,9 @@
 package org.apache.avro.specific;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Collection;
 import java.util.List;
@@ -119,6 +121,40 @@ public class SpecificData extends GenericData {
     return new SpecificDatumWriter(schema, this);
   }
 
+  /** Generated classes supply their own logical type conversions per field,
+   * which compiled readers and writers do not consult, so schemas that use
+   * logical types are not compiled. */
+  @Override
+  protected boolean supportsCompiledDatumIO(Schema schema) {
+    return !hasLogicalTypes(schema,
+        Collections.newSetFromMap(new IdentityHashMap<Schema,Boolean>()));
+  }
+
+  private static boolean hasLogicalTypes(Schema schema, Set<Schema> seen) {
+    if (schema.getLogicalType() != null)
+      return true;
+    switch (schema.getType()) {
+    case RECORD:
+      if (!seen.add(schema))
+        return false;
+      for (Schema.Field f : schema.getFields())
+        if (hasLogicalTypes(f.schema(), seen))
+          return true;
+      return false;
+    case ARRAY:
+      return hasLogicalTypes(schema.getElementType(), seen);
+    case MAP:
+      return hasLogicalTypes(schema.getValueType(), seen);
+    case UNION:
+      for (Schema s : schema.getTypes())
+        if (hasLogicalTypes(s, seen))
+          return true;
+      return false;
+    default:
+      return false;
+    }
+  }
+
   /** Return the singleton instance. */
   public static SpecificData get() { return INSTANCE; }
 
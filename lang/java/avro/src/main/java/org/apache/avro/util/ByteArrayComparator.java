@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util;
+
+/** Compares ranges of byte arrays, eight bytes at a time where {@link
+ * sun.misc.Unsafe} is available and one at a time elsewhere.  Unsafe is not
+ * used when the system property <tt>avro.disable.unsafe</tt> is set. */
+abstract class ByteArrayComparator {
+  private static final ByteArrayComparator INSTANCE = load();
+
+  static ByteArrayComparator get() { return INSTANCE; }
+
+  /** True if the first <tt>length</tt> bytes of two arrays are equal. */
+  abstract boolean equal(byte[] b1, byte[] b2, int length);
+
+  /** Compares the first bytes of two arrays as unsigned, with the same
+   * result as {@link org.apache.avro.io.BinaryData#compareBytes}. */
+  abstract int compare(byte[] b1, int l1, byte[] b2, int l2);
+
+  private static ByteArrayComparator load() {
+    if (System.getProperty("avro.disable.unsafe") == null) {
+      try {
+        ByteArrayComparator unsafe = (ByteArrayComparator)
+          Class.forName("org.apache.avro.util.ByteArrayComparatorUnsafe")
+          .newInstance();
+        if (validate(unsafe))
+          return unsafe;
+      } catch (Throwable ignored) {
+      }
+    }
+    return new Bytewise();
+  }
+
+  private static boolean validate(ByteArrayComparator c) {
+    byte[] b1 = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, -1 };
+    byte[] b2 = new byte[] { 1, 2, 3, 4, 5, 6, -7, 8, 9, 1 };
+    return c.equal(b1, b1.clone(), b1.length) && !c.equal(b1, b2, b1.length)
+      && c.compare(b1, b1.length, b2, b2.length) == 7 - 249
+      && c.compare(b2, 6, b1, 9) == -3;
+  }
+
+  static class Bytewise extends ByteArrayComparator {
+    @Override boolean equal(byte[] b1, byte[] b2, int length) {
+      for (int i = 0; i < length; i++)
+        if (b1[i] != b2[i])
+          return false;
+      return true;
+    }
+
+    @Override int compare(byte[] b1, int l1, byte[] b2, int l2) {
+      int end = Math.min(l1, l2);
+      for (int i = 0; i < end; i++) {
+        int a = b1[i] & 0xff;
+        int b = b2[i] & 0xff;
+        if (a != b)
+          return a - b;
+      }
+      return l1 - l2;
+    }
+  }
+}
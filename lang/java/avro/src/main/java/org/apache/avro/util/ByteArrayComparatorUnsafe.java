@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util;
+
+import java.lang.reflect.Field;
+import java.nio.ByteOrder;
+
+import sun.misc.Unsafe;
+
+/** Compares byte arrays a long at a time, as Guava's UnsignedBytes does.
+ * Loaded by name so that platforms without Unsafe fall back cleanly. */
+@SuppressWarnings("restriction")
+class ByteArrayComparatorUnsafe extends ByteArrayComparator {
+  private static final Unsafe UNSAFE;
+  private static final long BASE;
+  private static final boolean LITTLE_ENDIAN =
+    ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+  static {
+    try {
+      Field theUnsafe = Unsafe.class.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      UNSAFE = (Unsafe) theUnsafe.get(null);
+      BASE = UNSAFE.arrayBaseOffset(byte[].class);
+      if (UNSAFE.arrayIndexScale(byte[].class) != 1)
+        throw new AssertionError();
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override boolean equal(byte[] b1, byte[] b2, int length) {
+    int i = 0;
+    for (int words = length & ~7; i < words; i += 8)
+      if (UNSAFE.getLong(b1, BASE + i) != UNSAFE.getLong(b2, BASE + i))
+        return false;
+    for (; i < length; i++)
+      if (b1[i] != b2[i])
+        return false;
+    return true;
+  }
+
+  @Override int compare(byte[] b1, int l1, byte[] b2, int l2) {
+    int end = Math.min(l1, l2) & ~7;
+    for (int i = 0; i < end; i += 8) {
+      long x = UNSAFE.getLong(b1, BASE + i);
+      long y = UNSAFE.getLong(b2, BASE + i);
+      if (x != y) {                               // shift to first difference
+        int shift = LITTLE_ENDIAN
+          ? Long.numberOfTrailingZeros(x ^ y) & ~7
+          : 56 - (Long.numberOfLeadingZeros(x ^ y) & ~7);
+        return (int)((x >>> shift) & 0xff) - (int)((y >>> shift) & 0xff);
+      }
+    }
+    for (int i = end; i < l1 && i < l2; i++) {
+      int a = b1[i] & 0xff;
+      int b = b2[i] & 0xff;
+      if (a != b)
+        return a - b;
+    }
+    return l1 - l2;
+  }
+}
@@ -30,12 +30,27 @@ import java.util.List;
 public class ByteBufferOutputStream extends OutputStream {
   public static final int BUFFER_SIZE = 8192;
 
+  private final ByteBufferPool pool;
   private List<ByteBuffer> buffers;
 
   public ByteBufferOutputStream() {
+    this(null);
+  }
+
+  /** Constructs a stream whose buffers are taken from a pool.  Data written
+   * is copied into buffers that the stream takes, so that, once the buffers
+   * returned by {@link #getBufferList()} are consumed, they may be returned
+   * to the pool.  Buffers passed to {@link #prepend(List)}, {@link
+   * #append(List)} and {@link #write(ByteBuffer)} are returned along with
+   * them, and so should not be used after. */
+  public ByteBufferOutputStream(ByteBufferPool pool) {
+    this.pool = pool;
     reset();
   }
 
+  /** Returns the pool buffers are taken from, or null. */
+  public ByteBufferPool getPool() { return pool; }
+
   /** Returns all data written and resets the stream to be empty. */
   public List<ByteBuffer> getBufferList() {
     List<ByteBuffer> result = buffers;
@@ -62,7 +77,11 @@ public class ByteBufferOutputStream extends OutputStream {
 
   public void reset() {
     buffers = new LinkedList<ByteBuffer>();
-    buffers.add(ByteBuffer.allocate(BUFFER_SIZE));
+    buffers.add(newBuffer());
+  }
+
+  private ByteBuffer newBuffer() {
+    return pool == null ? ByteBuffer.allocate(BUFFER_SIZE) : pool.acquire();
   }
 
   public void write(ByteBuffer buffer) {
@@ -73,7 +92,7 @@ public class ByteBufferOutputStream extends OutputStream {
   public void write(int b) {
     ByteBuffer buffer = buffers.get(buffers.size()-1);
     if (buffer.remaining() < 1) {
-      buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      buffer = newBuffer();
       buffers.add(buffer);
     }
     buffer.put((byte)b);
@@ -87,16 +106,29 @@ public class ByteBufferOutputStream extends OutputStream {
       buffer.put(b, off, remaining);
       len -= remaining;
       off += remaining;
-      buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      buffer = newBuffer();
       buffers.add(buffer);
       remaining = buffer.remaining();
     }
     buffer.put(b, off, len);
   }
 
-  /** Add a buffer to the output without copying, if possible. */
+  /** Add a buffer to the output without copying, if possible.  Buffers
+   * are always copied by a stream with a pool. */
   public void writeBuffer(ByteBuffer buffer) throws IOException {
-    if (buffer.remaining() < BUFFER_SIZE) {
+    if (pool != null) {
+      ByteBuffer src = buffer.duplicate();
+      ByteBuffer dst = buffers.get(buffers.size()-1);
+      while (src.remaining() > dst.remaining()) {
+        int limit = src.limit();
+        src.limit(src.position() + dst.remaining());
+        dst.put(src);
+        src.limit(limit);
+        dst = newBuffer();
+        buffers.add(dst);
+      }
+      dst.put(src);
+    } else if (buffer.remaining() < BUFFER_SIZE) {
       write(buffer.array(), buffer.position(), buffer.remaining());
     } else {                                      // append w/o copying bytes
       ByteBuffer dup = buffer.duplicate();
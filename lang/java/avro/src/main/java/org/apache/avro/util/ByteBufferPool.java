@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A thread-safe pool of {@link ByteBuffer}s of a fixed size, allocated
+ * either on the heap or directly.  At most a bounded number of released
+ * buffers are retained for reuse. */
+public class ByteBufferPool {
+  /** The number of released buffers retained by default. */
+  public static final int DEFAULT_MAX_POOLED = 256;
+
+  private final int bufferSize;
+  private final boolean direct;
+  private final int maxPooled;
+  private final Queue<ByteBuffer> pool = new ConcurrentLinkedQueue<ByteBuffer>();
+  private final AtomicInteger pooled = new AtomicInteger();
+
+  public ByteBufferPool(int bufferSize, boolean direct) {
+    this(bufferSize, direct, DEFAULT_MAX_POOLED);
+  }
+
+  public ByteBufferPool(int bufferSize, boolean direct, int maxPooled) {
+    if (bufferSize < 16)
+      throw new IllegalArgumentException("Invalid buffer size: "+bufferSize);
+    this.bufferSize = bufferSize;
+    this.direct = direct;
+    this.maxPooled = maxPooled;
+  }
+
+  /** Returns the capacity of buffers in this pool. */
+  public int getBufferSize() { return bufferSize; }
+
+  /** Returns true if buffers in this pool are direct. */
+  public boolean isDirect() { return direct; }
+
+  /** Returns a cleared buffer, reused if one is available. */
+  public ByteBuffer acquire() {
+    ByteBuffer buffer = pool.poll();
+    if (buffer == null)
+      return direct
+        ? ByteBuffer.allocateDirect(bufferSize)
+        : ByteBuffer.allocate(bufferSize);
+    pooled.decrementAndGet();
+    buffer.clear();
+    return buffer;
+  }
+
+  /** Returns a buffer to this pool.  Buffers that were not allocated by a
+   * pool like this one are ignored, as are buffers beyond the pool's bound.
+   * The buffer must not be used after it is released. */
+  public void release(ByteBuffer buffer) {
+    if (buffer.capacity() != bufferSize || buffer.isDirect() != direct
+        || buffer.isReadOnly()
+        || (!direct && buffer.arrayOffset() != 0))
+      return;
+    if (pooled.incrementAndGet() > maxPooled) {
+      pooled.decrementAndGet();
+      return;
+    }
+    pool.offer(buffer);
+  }
+
+  /** Returns each of a list of buffers to this pool. */
+  public void release(List<ByteBuffer> buffers) {
+    for (ByteBuffer buffer : buffers)
+      release(buffer);
+  }
+}
@@ -0,0 +1,185 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.avro.io.Decoder;
+
+/** A bounded table of strings read repeatedly, so that equal values share
+ * a single {@link String} or {@link Utf8} instance rather than each being
+ * allocated anew.  Meant for low-cardinality values such as codes, event
+ * types and map keys.
+ *
+ * <p>Strings are found by the hash of their bytes in a table of fixed size.
+ * A string that is not found replaces any other with the same slot, so the
+ * table holds at most its size in strings and adapts as values change.
+ * Strings longer than the maximum length are never added.
+ *
+ * <p>Safe for concurrent use.  The {@link Utf8} instances returned are
+ * shared: they throw {@link UnsupportedOperationException} if set, and
+ * readers do not reuse them, see {@link #isShared(Object)}.  Hits and misses
+ * are counted per thread stripe, so that counting does not contend.
+ * @see org.apache.avro.generic.GenericData#getStringDictionary
+ */
+public class StringDictionary {
+  /** The default maximum length in bytes of strings held. */
+  public static final int DEFAULT_MAX_LENGTH = 256;
+
+  private static final ThreadLocal<Utf8> SCRATCH = new ThreadLocal<Utf8>() {
+    @Override protected Utf8 initialValue() { return new Utf8(); }
+  };
+
+  private static final int STRIPES = 16;         // a power of two
+  private static final int STRIDE = 16;          // longs, past a cache line
+
+  /** A held string, which may not be changed. */
+  private static final class Shared extends Utf8 {
+    Shared(byte[] bytes) { super(bytes); }
+
+    @Override
+    public Utf8 setByteLength(int newLength) {
+      throw new UnsupportedOperationException("Shared string: " + this);
+    }
+
+    @Override
+    public Utf8 set(String string) {
+      throw new UnsupportedOperationException("Shared string: " + this);
+    }
+  }
+
+  private static class Entry {
+    final Utf8 utf8;
+    String string;                                // created when needed
+
+    Entry(Utf8 s) {
+      this.utf8 = new Shared(Arrays.copyOf(s.getBytes(), s.getByteLength()));
+    }
+  }
+
+  private final AtomicReferenceArray<Entry> table;
+  private final int maxLength;
+  /** Hits then misses for each stripe, a stride apart. */
+  private final AtomicLongArray counts =
+    new AtomicLongArray(STRIPES * STRIDE);
+
+  /** Construct a dictionary holding at most <tt>size</tt> strings, rounded
+   * up to a power of two, of at most {@link #DEFAULT_MAX_LENGTH} bytes. */
+  public StringDictionary(int size) {
+    this(size, DEFAULT_MAX_LENGTH);
+  }
+
+  /** Construct a dictionary holding at most <tt>size</tt> strings, rounded
+   * up to a power of two, of at most <tt>maxLength</tt> bytes each. */
+  public StringDictionary(int size, int maxLength) {
+    if (size < 1 || size > 1 << 30)
+      throw new IllegalArgumentException("Invalid size: " + size);
+    this.table = new AtomicReferenceArray<Entry>
+      (size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1);
+    this.maxLength = maxLength;
+  }
+
+  /** Returns true if <tt>s</tt> is held by a dictionary, so that it must not
+   * be reused to read another string into. */
+  public static boolean isShared(Object s) {
+    return s instanceof Shared;
+  }
+
+  private static int stripe() {
+    return ((int)Thread.currentThread().getId() & (STRIPES - 1)) * STRIDE;
+  }
+
+  private Entry lookup(Utf8 s) {
+    int length = s.getByteLength();
+    if (length > maxLength) {
+      counts.incrementAndGet(stripe() + 1);
+      return null;
+    }
+    int hash = s.hashCode();
+    int slot = (hash ^ (hash >>> 16)) & (table.length() - 1);
+    Entry entry = table.get(slot);
+    if (entry != null && entry.utf8.equals(s)) {
+      counts.incrementAndGet(stripe());
+      return entry;
+    }
+    counts.incrementAndGet(stripe() + 1);
+    entry = new Entry(s);
+    table.set(slot, entry);
+    return entry;
+  }
+
+  /** Returns a shared instance equal to <tt>s</tt>, which the caller may then
+   * reuse.  Returns a copy of strings too long to be held. */
+  public Utf8 intern(Utf8 s) {
+    Entry entry = lookup(s);
+    return entry != null ? entry.utf8 : new Utf8(s);
+  }
+
+  /** Returns a shared {@link String} with the content of <tt>s</tt>. */
+  public String internString(Utf8 s) {
+    Entry entry = lookup(s);
+    if (entry == null)
+      return s.toString();
+    String result = entry.string;
+    if (result == null)                           // racy, but idempotent
+      entry.string = result = entry.utf8.toString();
+    return result;
+  }
+
+  /** Reads a string and returns a shared instance equal to it. */
+  public Utf8 readUtf8(Decoder in) throws IOException {
+    return intern(in.readString(SCRATCH.get()));
+  }
+
+  /** Reads a string and returns a shared {@link String} equal to it. */
+  public String readString(Decoder in) throws IOException {
+    return internString(in.readString(SCRATCH.get()));
+  }
+
+  /** Removes all strings, leaving the counts unchanged. */
+  public void clear() {
+    for (int i = 0; i < table.length(); i++)
+      table.set(i, null);
+  }
+
+  private long sum(int offset) {
+    long sum = 0;
+    for (int i = offset; i < counts.length(); i += STRIDE)
+      sum += counts.get(i);
+    return sum;
+  }
+
+  /** Returns the number of strings found in the dictionary. */
+  public long getHitCount() { return sum(0); }
+
+  /** Returns the number of strings not found in the dictionary. */
+  public long getMissCount() { return sum(1); }
+
+  /** Returns the fraction of strings found, or zero before any are read. */
+  public double getHitRate() {
+    long h = getHitCount();
+    long total = h + getMissCount();
+    return total == 0 ? 0 : (double) h / total;
+  }
+
+  /** Returns the most strings held at once. */
+  public int getSize() { return table.length(); }
+}
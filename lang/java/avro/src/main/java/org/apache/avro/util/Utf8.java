@@ -20,11 +20,14 @@ package org.apache.avro.util;
 import java.nio.charset.Charset;
 import java.io.UnsupportedEncodingException;
 
-import org.apache.avro.io.BinaryData;
-
 /** A Utf8 string.  Unlike {@link String}, instances are mutable.  This is more
  * efficient than {@link String} when reading or writing a sequence of values,
- * as a single instance may be reused. */
+ * as a single instance may be reused.
+ *
+ * <p>The hash code, and whether the content is ASCII, are computed when first
+ * needed and remembered until {@link #setByteLength(int)} or {@link
+ * #set(String)} is called.  {@link #length()} and {@link #charAt(int)} of
+ * ASCII content do not decode a String. */
 public class Utf8 implements Comparable<Utf8>, CharSequence {
   private static final byte[] EMPTY = new byte[0];
   private static final Charset UTF8 = Charset.forName("UTF-8");
@@ -32,6 +35,12 @@ public class Utf8 implements Comparable<Utf8>, CharSequence {
   private byte[] bytes = EMPTY;
   private int length;
   private String string;
+  private int hash;                               // zero if not computed
+  private byte ascii = UNKNOWN;
+
+  private static final byte UNKNOWN = 0;
+  private static final byte ASCII = 1;
+  private static final byte NOT_ASCII = 2;
 
   public Utf8() {}
 
@@ -46,6 +55,8 @@ public class Utf8 implements Comparable<Utf8>, CharSequence {
     this.bytes = new byte[other.length];
     System.arraycopy(other.bytes, 0, this.bytes, 0, this.length);
     this.string = other.string;
+    this.hash = other.hash;
+    this.ascii = other.ascii;
   }
 
   public Utf8(byte[] bytes) {
@@ -81,6 +92,8 @@ public class Utf8 implements Comparable<Utf8>, CharSequence {
     }
     this.length = newLength;
     this.string = null;
+    this.hash = 0;
+    this.ascii = UNKNOWN;
     return this;
   }
 
@@ -89,6 +102,8 @@ public class Utf8 implements Comparable<Utf8>, CharSequence {
     this.bytes = getBytesFor(string);
     this.length = bytes.length;
     this.string = string;
+    this.hash = 0;
+    this.ascii = UNKNOWN;
     return this;
   }
 
@@ -139,30 +154,58 @@ public class Utf8 implements Comparable<Utf8>, CharSequence {
     if (!(o instanceof Utf8)) return false;
     Utf8 that = (Utf8)o;
     if (!(this.length == that.length)) return false;
-    byte[] thatBytes = that.bytes;
-    for (int i = 0; i < this.length; i++)
-      if (bytes[i] != thatBytes[i])
-        return false;
-    return true;
+    if (this.hash != 0 && that.hash != 0 && this.hash != that.hash)
+      return false;
+    return ByteArrayComparator.get().equal(this.bytes, that.bytes, length);
   }
 
   @Override
   public int hashCode() {
-    int hash = 0;
-    for (int i = 0; i < this.length; i++)
-      hash = hash*31 + bytes[i];
-    return hash;
+    int h = this.hash;
+    if (h == 0) {
+      for (int i = 0; i < this.length; i++)
+        h = h*31 + bytes[i];
+      this.hash = h;
+    }
+    return h;
   }
 
+  /** Compares the bytes as unsigned, as {@link
+   * org.apache.avro.io.BinaryData#compareBytes} does for encoded strings. */
   @Override
   public int compareTo(Utf8 that) {
-    return BinaryData.compareBytes(this.bytes, 0, this.length,
-                                   that.bytes, 0, that.length);
+    return ByteArrayComparator.get().compare(this.bytes, this.length,
+                                             that.bytes, that.length);
+  }
+
+  private boolean isAscii() {
+    byte a = this.ascii;
+    if (a == UNKNOWN) {                           // scan, then publish once
+      a = ASCII;
+      for (int i = 0; i < length; i++)
+        if (bytes[i] < 0) {                       // high bit set
+          a = NOT_ASCII;
+          break;
+        }
+      this.ascii = a;
+    }
+    return a == ASCII;
   }
 
   // CharSequence implementation
-  @Override public char charAt(int index) { return toString().charAt(index); }
-  @Override public int length() { return toString().length(); }
+  @Override public char charAt(int index) {
+    if (string == null && isAscii()) {
+      if (index < 0 || index >= length)
+        throw new StringIndexOutOfBoundsException(index);
+      return (char)bytes[index];
+    }
+    return toString().charAt(index);
+  }
+  @Override public int length() {
+    if (string == null && isAscii())
+      return length;
+    return toString().length();
+  }
   @Override public CharSequence subSequence(int start, int end) {
     return toString().subSequence(start, end);
   }
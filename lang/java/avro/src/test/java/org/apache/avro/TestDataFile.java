@@ -17,20 +17,27 @@
  */
 package org.apache.avro;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.Assert;
 
 import org.apache.avro.file.CodecFactory;
 import org.apache.avro.file.FileReader;
+import org.apache.avro.file.MappedFileInput;
 import org.apache.avro.file.DataFileReader;
 import org.apache.avro.file.DataFileStream;
 import org.apache.avro.file.DataFileWriter;
@@ -70,6 +77,10 @@ public class TestDataFile {
     r.add(new Object[] { CodecFactory.xzCodec(0) });
     r.add(new Object[] { CodecFactory.xzCodec(1) });
     r.add(new Object[] { CodecFactory.xzCodec(6) });
+    r.add(new Object[] { CodecFactory.zstandardCodec(1) });
+    r.add(new Object[] { CodecFactory.zstandardCodec(19) });
+    r.add(new Object[] { CodecFactory.lz4Codec() });
+    r.add(new Object[] { CodecFactory.lz4Codec(9) });
     return r;
   }
 
@@ -95,6 +106,10 @@ public class TestDataFile {
     testGenericRead();
     testSplits();
     testSyncDiscovery();
+    testParallelRead();
+    testParallelSyncDiscovery();
+    testParallelWrite();
+    testMappedRead();
     testGenericAppend();
     testReadWithHeader();
     testFSync(false);
@@ -221,6 +236,130 @@ public class TestDataFile {
     }
   }
 
+  public void testParallelRead() throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    DataFileReader<Object> reader =
+      new DataFileReader<Object>(makeFile(), new GenericDatumReader<Object>());
+    try {
+      reader.setParallel(executor, 3);
+      int count = 0;
+      if (VALIDATE) {
+        for (Object expected : new RandomData(SCHEMA, COUNT, SEED)) {
+          assertEquals(expected, reader.next());
+          count++;
+        }
+      } else {
+        for (Object datum : reader)
+          count++;
+      }
+      assertEquals(COUNT, count);
+      assertFalse(reader.hasNext());
+    } finally {
+      reader.close();
+      executor.shutdown();
+    }
+  }
+
+  public void testParallelSyncDiscovery() throws IOException {
+    File file = makeFile();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    DataFileReader<Object> reader =
+      new DataFileReader<Object>(file, new GenericDatumReader<Object>());
+    DataFileReader<Object> parallel =
+      new DataFileReader<Object>(file, new GenericDatumReader<Object>());
+    try {
+      parallel.setParallel(executor, 2);
+      // sync points and split boundaries match sequential reads
+      while (reader.hasNext()) {
+        assertTrue(parallel.hasNext());
+        assertEquals(reader.previousSync(), parallel.previousSync());
+        assertEquals(reader.next(), parallel.next());
+        assertEquals(reader.previousSync(), parallel.previousSync());
+      }
+      assertFalse(parallel.hasNext());
+      long middle = file.length() / 2;
+      reader.sync(middle);
+      parallel.sync(middle);
+      while (!reader.pastSync(file.length())) {
+        assertFalse(parallel.pastSync(file.length()));
+        assertEquals(reader.next(), parallel.next());
+      }
+      assertTrue(parallel.pastSync(file.length()));
+    } finally {
+      reader.close();
+      parallel.close();
+      executor.shutdown();
+    }
+  }
+
+  public void testMappedRead() throws IOException {
+    File file = makeFile();
+    DataFileReader<Object> reader =
+      new DataFileReader<Object>(file, new GenericDatumReader<Object>());
+    // a small region size so that blocks span regions
+    DataFileReader<Object> mapped = new DataFileReader<Object>
+      (new MappedFileInput(file, 1000), new GenericDatumReader<Object>());
+    try {
+      while (reader.hasNext()) {
+        assertTrue(mapped.hasNext());
+        assertEquals(reader.next(), mapped.next());
+        assertEquals(reader.previousSync(), mapped.previousSync());
+      }
+      assertFalse(mapped.hasNext());
+      long middle = file.length() / 2;
+      reader.sync(middle);
+      mapped.sync(middle);
+      while (!reader.pastSync(file.length())) {
+        assertFalse(mapped.pastSync(file.length()));
+        assertEquals(reader.next(), mapped.next());
+      }
+      assertTrue(mapped.pastSync(file.length()));
+    } finally {
+      reader.close();
+      mapped.close();
+    }
+  }
+
+  public void testParallelWrite() throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      byte[] sync = new byte[16];
+      new Random(SEED).nextBytes(sync);
+      // pending blocks are written in order, so the files are identical
+      assertArrayEquals(write(null, sync), write(executor, sync));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private byte[] write(ExecutorService executor, byte[] sync)
+    throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    DataFileWriter<Object> writer =
+      new DataFileWriter<Object>(new GenericDatumWriter<Object>())
+      .setSyncInterval(100);
+    if (codec != null)
+      writer.setCodec(codec);
+    writer.create(SCHEMA, out, sync);
+    writer.setParallel(executor, 2);
+    List<Long> positions = new ArrayList<Long>();
+    int count = 0;
+    for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+      writer.append(datum);
+      if (++count%(COUNT/3) == 0)
+        positions.add(writer.sync());
+    }
+    writer.close();
+    // the positions returned by sync() follow every pending block
+    byte[] bytes = out.toByteArray();
+    for (long position : positions) {
+      assertTrue(position <= bytes.length);
+      assertArrayEquals(sync, Arrays.copyOfRange(bytes, (int) position - 16,
+                                                 (int) position));
+    }
+    return bytes;
+  }
+
   public void testGenericAppend() throws IOException {
     File file = makeFile();
     long start = file.length();
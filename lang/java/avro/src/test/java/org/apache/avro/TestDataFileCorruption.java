@@ -25,6 +25,7 @@ import org.apache.avro.Schema.Type;
 import org.apache.avro.file.DataFileConstants;
 import org.apache.avro.file.DataFileReader;
 import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.file.MappedFileInput;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.util.Utf8;
@@ -43,14 +44,26 @@ public class TestDataFileCorruption {
     return new File(DIR, "test-" + name + ".avro");
   }
 
+  private static final Schema SCHEMA = Schema.create(Type.STRING);
+
   @Test
   public void testCorruptedFile() throws IOException {
-    Schema schema = Schema.create(Type.STRING);
+    checkCorrupted(new DataFileReader<Utf8>(makeCorruptedFile(),
+        new GenericDatumReader<Utf8>(SCHEMA)));
+  }
+
+  @Test
+  public void testCorruptedMappedFile() throws IOException {
+    checkCorrupted(new DataFileReader<Utf8>
+                   (new MappedFileInput(makeCorruptedFile()),
+                    new GenericDatumReader<Utf8>(SCHEMA)));
+  }
 
+  private File makeCorruptedFile() throws IOException {
     // Write a data file
-    DataFileWriter<Utf8> w = new DataFileWriter<Utf8>(new GenericDatumWriter<Utf8>(schema));
+    DataFileWriter<Utf8> w = new DataFileWriter<Utf8>(new GenericDatumWriter<Utf8>(SCHEMA));
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    w.create(schema, baos);
+    w.create(SCHEMA, baos);
     w.append(new Utf8("apple"));
     w.append(new Utf8("banana"));
     w.sync();
@@ -76,10 +89,10 @@ public class TestDataFileCorruption {
     FileOutputStream out = new FileOutputStream(file);
     out.write(corrupted);
     out.close();
+    return file;
+  }
 
-    // Read the data file
-    DataFileReader r = new DataFileReader<Utf8>(file,
-        new GenericDatumReader<Utf8>(schema));
+  private void checkCorrupted(DataFileReader<Utf8> r) throws IOException {
     assertEquals("apple", r.next().toString());
     assertEquals("banana", r.next().toString());
     long prevSync = r.previousSync();
@@ -93,5 +106,6 @@ public class TestDataFileCorruption {
     assertEquals("endive", r.next().toString());
     assertEquals("fig", r.next().toString());
     assertFalse(r.hasNext());
+    r.close();
   }
 }
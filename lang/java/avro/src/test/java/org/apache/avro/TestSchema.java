@@ -22,7 +22,13 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.avro.Schema.Field;
@@ -100,4 +106,122 @@ public class TestSchema {
   }
 
 
+
+  private static final String SCHEMA_DIR =
+    System.getProperty("share.dir", "../../../share") + "/test/schemas";
+
+  /** Returns the text of a file. */
+  private static String read(File file) throws IOException {
+    byte[] bytes = new byte[(int)file.length()];
+    DataInputStream in = new DataInputStream(new FileInputStream(file));
+    try {
+      in.readFully(bytes);
+    } finally {
+      in.close();
+    }
+    return new String(bytes, "UTF-8");
+  }
+
+  @Test
+  public void testStreamingParse() throws IOException {
+    // the test suite's schemas as written, which the streaming parser may
+    // give up on, and as written by toString(), which it must parse itself
+    List<String> given = new ArrayList<String>();
+    List<String> corpus = new ArrayList<String>();
+    List<File> files = new ArrayList<File>();
+    files.addAll(Arrays.asList(new File(SCHEMA_DIR).listFiles()));
+    files.addAll(Arrays.asList(new File("src/test/resources").listFiles()));
+    for (File file : files)
+      if (file.getName().endsWith(".avsc")) {
+        given.add(read(file));
+        corpus.add(new Schema.Parser().parse(file).toString());
+      } else if (file.getName().endsWith(".avpr")) {
+        for (Schema type : Protocol.parse(file).getTypes())
+          corpus.add(type.toString());
+      }
+    int streamed = 0;
+    for (String json : given)
+      try {
+        checkStreamingParse(json);
+        streamed++;
+      } catch (Schema.StreamingParser.GiveUp e) {
+        // parsed as a tree
+      }
+    assertTrue(streamed > 0);
+    corpus.add("\"int\"");
+    corpus.add("[\"null\",{\"type\":\"map\",\"values\":\"long\"}]");
+    corpus.add("{\"type\":\"record\",\"name\":\"a.R\",\"doc\":\"d\","
+               + "\"fields\":[{\"name\":\"f\",\"type\":{\"type\":\"fixed\","
+               + "\"name\":\"F\",\"size\":2,\"aliases\":[\"G\"]},"
+               + "\"order\":\"descending\",\"p\":[1]},"
+               + "{\"name\":\"d\",\"type\":\"double\",\"default\":\"1.5\"},"
+               + "{\"name\":\"n\",\"type\":[\"null\",\"R\"],\"default\":null},"
+               + "{\"name\":\"t\",\"type\":{\"type\":\"int\","
+               + "\"logicalType\":\"date\"}}],\"q\":{\"x\":true}}");
+    for (String json : corpus)
+      checkStreamingParse(json);
+  }
+
+  /** Parses text both ways and checks that the results are the same. */
+  private static void checkStreamingParse(String json) throws IOException {
+    Schema streamed =
+      new Schema.StreamingParser(Schema.FACTORY.createJsonParser(json),
+                                 new Schema.Names()).parse();
+    Schema tree = new Schema.Parser()
+      .parse(new ByteArrayInputStream(json.getBytes("UTF-8")));
+    assertEquals(tree, streamed);
+    assertEquals(tree.toString(true), streamed.toString(true));
+    assertEquals(tree.getLogicalType(), streamed.getLogicalType());
+    assertEquals(tree.getObjectProps(), streamed.getObjectProps());
+    if (tree.getType() == Type.RECORD)
+      for (Field f : tree.getFields()) {
+        Field g = streamed.getField(f.name());
+        assertEquals(f.defaultValue(), g.defaultValue());
+        assertEquals(f.aliases(), g.aliases());
+        assertEquals(f.order(), g.order());
+        assertEquals(f.getObjectProps(), g.getObjectProps());
+        assertEquals(f.schema().getLogicalType(),
+                     g.schema().getLogicalType());
+      }
+  }
+
+  @Test
+  public void testParseOutOfOrder() {
+    String fields = "\"fields\":[{\"name\":\"e\",\"type\":"
+      + "{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\"]}}]";
+    for (String json : new String[] {
+        "{" + fields + ",\"type\":\"record\",\"name\":\"R\",\"namespace\":\"n\"}",
+        "{\"type\":\"record\",\"name\":\"R\"," + fields + ",\"namespace\":\"n\"}"
+      }) {
+      Schema schema = new Schema.Parser().parse(json);
+      assertEquals("n.R", schema.getFullName());
+      assertEquals("n.E", schema.getField("e").schema().getFullName());
+    }
+  }
+
+  @Test
+  public void testParseErrorFromTree() {
+    // the streaming parser gives up after adding R, which must be forgotten
+    try {
+      new Schema.Parser().parse(
+          "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+          + "{\"name\":\"f\",\"type\":\"Undefined\"}]}");
+      fail("Should not parse");
+    } catch (SchemaParseException e) {
+      assertTrue(e.getMessage().contains("Undefined"));
+    }
+  }
+
+  @Test
+  public void testStreamingParseError() throws IOException {
+    // errors in the text are thrown, rather than hidden by the tree parser
+    try {
+      new Schema.StreamingParser(
+          Schema.FACTORY.createJsonParser("[\"int\",\"int\"]"),
+          new Schema.Names()).parse();
+      fail("Should not parse");
+    } catch (AvroRuntimeException e) {
+      assertTrue(e.getMessage().contains("Duplicate in union"));
+    }
+  }
 }
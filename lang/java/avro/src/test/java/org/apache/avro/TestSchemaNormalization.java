@@ -20,6 +20,7 @@ package org.apache.avro;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Formatter;
@@ -30,7 +31,9 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 import org.junit.experimental.runners.Enclosed;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.apache.avro.util.CaseFinder;
@@ -66,6 +69,37 @@ public class TestSchemaNormalization {
       long carefulFP = altFingerprint(SchemaNormalization.toParsingForm(s));
       assertEquals(carefulFP, Long.parseLong(expectedOutput));
       assertEqHex(carefulFP, SchemaNormalization.parsingFingerprint64(s));
+      // computed without the canonical form
+      assertEqHex(carefulFP,
+                  SchemaNormalization.parsingFingerprint64(Schema.parse(input)));
+    }
+  }
+
+  public static class TestMemoized {
+    @Test public void testStreamingMatchesString() throws Exception {
+      Schema s = new Schema.Parser().setValidate(false).parse(
+          "{\"type\":\"record\",\"name\":\"R\u00e9\u20ac\\ud83d\\ude00\","
+          + "\"fields\":[{\"name\":\"f\u00ff\",\"type\":{\"type\":"
+          + "\"enum\",\"name\":\"E\",\"symbols\":[\"\u4e2d\"]}}]}");
+      long fp = SchemaNormalization.parsingFingerprint64(s);
+      String form = SchemaNormalization.toParsingForm(s);
+      assertEqHex(altFingerprint(form), fp);
+      assertEqHex(SchemaNormalization.fingerprint64(form.getBytes("UTF-8")),
+                  fp);
+    }
+
+    @Test public void testFingerprintsAreRemembered() throws Exception {
+      Schema s = Schema.parse("{\"type\":\"array\",\"items\":\"int\"}");
+      String form = SchemaNormalization.toParsingForm(s);
+      assertTrue(form == SchemaNormalization.toParsingForm(s));
+      for (String name : new String[] {"CRC-64-AVRO", "MD5", "SHA-256"}) {
+        byte[] fp = SchemaNormalization.parsingFingerprint(name, s);
+        assertArrayEquals(SchemaNormalization.fingerprint(name,
+                              form.getBytes("UTF-8")), fp);
+        fp[0]++;                                  // callers get copies
+        assertFalse(Arrays.equals(fp,
+                        SchemaNormalization.parsingFingerprint(name, s)));
+      }
     }
   }
 
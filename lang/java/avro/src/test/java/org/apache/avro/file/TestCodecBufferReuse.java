@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TestCodecBufferReuse {
+  private final CodecFactory codec;
+
+  public TestCodecBufferReuse(CodecFactory codec) {
+    this.codec = codec;
+  }
+
+  @Parameters
+  public static List<Object[]> codecs() {
+    List<Object[]> r = new ArrayList<Object[]>();
+    for (String name : new String[] {
+        "null", "deflate", "snappy", "bzip2", "xz", "zstandard", "lz4" })
+      r.add(new Object[] { CodecFactory.fromString(name) });
+    return r;
+  }
+
+  private static byte[] data(int size) {
+    byte[] bytes = new byte[size];
+    Random random = new Random(size);
+    for (int i = 0; i < size; i++)               // somewhat compressible
+      bytes[i] = (byte)('a' + random.nextInt(8));
+    return bytes;
+  }
+
+  /** Wraps data in the middle of a larger array. */
+  private static ByteBuffer offset(byte[] data) {
+    byte[] padded = new byte[data.length + 20];
+    System.arraycopy(data, 0, padded, 7, data.length);
+    return ByteBuffer.wrap(padded, 7, data.length).slice();
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+
+  @Test
+  public void testRoundTripWithReuse() throws IOException {
+    Codec c = codec.createInstance();
+    ByteBuffer compressBuffer = null;
+    ByteBuffer decompressBuffer = null;
+    for (int size : new int[] { 1000, 50000, 10, 0, 20000 }) {
+      byte[] data = data(size);
+      ByteBuffer input = offset(data);
+      ByteBuffer compressed = c.compress(input, compressBuffer);
+      assertArrayEquals(data, toArray(input));   // input unchanged
+      assertArrayEquals(toArray(c.compress(offset(data))), toArray(compressed));
+      if (compressed.array() != input.array())
+        compressBuffer = compressed;
+
+      byte[] copy = toArray(compressed);
+      ByteBuffer decompressed =
+        c.decompress(offset(copy), decompressBuffer);
+      assertArrayEquals(data, toArray(decompressed));
+      if (decompressed.array() != compressed.array())
+        decompressBuffer = decompressed;
+    }
+  }
+
+  @Test
+  public void testLargeEnoughBufferIsUsed() throws IOException {
+    Codec c = codec.createInstance();
+    byte[] data = data(5000);
+    ByteBuffer compressed = c.compress(ByteBuffer.wrap(data));
+    if (compressed.array() == data)
+      return;                                     // passes through
+    ByteBuffer out = ByteBuffer.allocate(1 << 20);
+    assertSame(out.array(), c.compress(ByteBuffer.wrap(data), out).array());
+    ByteBuffer result = c.decompress(compressed, out);
+    assertSame(out.array(), result.array());
+    assertArrayEquals(data, toArray(result));
+  }
+
+  @Test
+  public void testExpandedSizeDoesNotOverflow() {
+    assertEquals(4000, Codec.expanded(1000, 4));
+    assertEquals(Codec.MAX_INITIAL_SIZE, Codec.expanded(600 << 20, 4));
+  }
+}
@@ -0,0 +1,59 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class TestLZ4Codec {
+
+  private static void checkRoundTrip(Codec codec) throws IOException {
+    byte[] input = new byte[100000];
+    for (int i = 0; i < input.length; i++)        // compresses well
+      input[i] = (byte)(65 + i % 10);
+    ByteBuffer compressed = codec.compress(ByteBuffer.wrap(input));
+    assertTrue(compressed.remaining() < input.length);
+    ByteBuffer out = codec.decompress(compressed);
+    byte[] output = new byte[out.remaining()];
+    out.get(output);
+    assertArrayEquals(input, output);
+  }
+
+  @Test
+  public void testCompressionAndDecompression() throws IOException {
+    Codec codec = CodecFactory.fromString("lz4").createInstance();
+    assertTrue(codec instanceof LZ4Codec);
+    assertEquals("lz4", codec.getName());
+    checkRoundTrip(codec);
+    checkRoundTrip(CodecFactory.lz4Codec(9).createInstance());
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncated() throws IOException {
+    Codec codec = CodecFactory.lz4Codec().createInstance();
+    ByteBuffer compressed = codec.compress(ByteBuffer.wrap(new byte[1000]));
+    compressed.limit(compressed.limit() - 1);
+    codec.decompress(compressed);
+  }
+}
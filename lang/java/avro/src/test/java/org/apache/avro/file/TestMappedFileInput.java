@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.apache.avro.AvroTestUtil;
+import org.junit.Test;
+
+public class TestMappedFileInput {
+
+  private static File makeFile(String name, byte[] data) throws IOException {
+    File file = AvroTestUtil.tempFile(TestMappedFileInput.class, name);
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(data);
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  @Test
+  public void testReadAcrossRegions() throws IOException {
+    byte[] data = new byte[1050];
+    new Random(0).nextBytes(data);
+    MappedFileInput in = new MappedFileInput(makeFile("regions", data), 100);
+    try {
+      assertEquals(data.length, in.length());
+      byte[] read = new byte[data.length];
+      int total = 0;
+      while (total < read.length) {
+        int n = in.read(read, total, Math.min(77, read.length - total));
+        total += n;
+        assertEquals(total, in.tell());
+      }
+      assertArrayEquals(data, read);
+      assertEquals(-1, in.read(read, 0, 1));
+
+      in.seek(95);
+      byte[] b = new byte[10];
+      assertEquals(10, in.read(b, 0, 10));    // spans a region end
+      assertEquals(data[99], b[4]);
+      assertEquals(data[100], b[5]);
+      assertEquals(105, in.tell());
+      assertEquals(5, in.read(1045, b, 0, 10)); // positional, at file end
+      assertEquals(data[1049], b[4]);
+      assertEquals(105, in.tell());
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void testSlice() throws IOException {
+    byte[] data = new byte[250];
+    new Random(0).nextBytes(data);
+    MappedFileInput in = new MappedFileInput(makeFile("slice", data), 100);
+    try {
+      ByteBuffer slice = in.slice(120, 80);
+      assertEquals(80, slice.remaining());
+      assertEquals(data[120], slice.get(0));
+      assertEquals(data[199], slice.get(79));
+      assertNull(in.slice(150, 51));              // spans regions
+      assertNull(in.slice(220, 31));              // past the end
+      assertEquals(0, in.tell());
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void testStreamSkip() throws IOException {
+    MappedFileInput in = new MappedFileInput(makeFile("skip", new byte[50]));
+    try {
+      DataFileReader.SeekableInputStream stream =
+        new DataFileReader.SeekableInputStream(in);
+      stream.seek(10);
+      assertEquals(15, stream.skip(15));
+      assertEquals(25, stream.tell());
+      assertEquals(25, stream.skip(100));
+      assertEquals(50, stream.tell());
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    MappedFileInput in = new MappedFileInput(makeFile("empty", new byte[0]));
+    try {
+      assertEquals(0, in.length());
+      assertEquals(-1, in.read(new byte[1], 0, 1));
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testIllegalSeek() throws IOException {
+    MappedFileInput in = new MappedFileInput(makeFile("seek", new byte[10]));
+    try {
+      in.seek(11);
+    } finally {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import org.junit.Test;
+
+public class TestZstandardCodec {
+
+  private static byte[] input(int size) {
+    byte[] bytes = new byte[size];
+    for (int i = 0; i < size; i++)                // compresses well
+      bytes[i] = (byte)(65 + i % 10);
+    return bytes;
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+
+  @Test
+  public void testCompressionAndDecompression() throws IOException {
+    Codec codec = CodecFactory.fromString("zstandard").createInstance();
+    assertTrue(codec instanceof ZstandardCodec);
+    assertEquals("zstandard", codec.getName());
+
+    byte[] input = input(100000);
+    // compress from the middle of a buffer
+    ByteBuffer in = ByteBuffer.wrap(new byte[input.length + 10], 5,
+                                    input.length).slice();
+    in.duplicate().put(input);
+    ByteBuffer compressed = codec.compress(in);
+    assertTrue(compressed.remaining() < input.length);
+    assertArrayEquals(input, toArray(codec.decompress(compressed)));
+  }
+
+  @Test
+  public void testStreamedFrame() throws IOException {
+    byte[] input = input(100000);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ZstdOutputStream out = new ZstdOutputStream(bytes);  // no content size
+    out.write(input, 0, 50000);
+    out.flush();
+    out.write(input, 50000, 50000);
+    out.close();
+    Codec codec = CodecFactory.zstandardCodec(3).createInstance();
+    assertArrayEquals(input, toArray(
+        codec.decompress(ByteBuffer.wrap(bytes.toByteArray()))));
+  }
+
+  @Test
+  public void testDictionary() throws IOException {
+    byte[] dictionary = input(1000);
+    Codec codec = CodecFactory.zstandardCodec(5, dictionary).createInstance();
+    byte[] input = Arrays.copyOf(dictionary, 200);
+    ByteBuffer compressed = codec.compress(ByteBuffer.wrap(input));
+    assertArrayEquals(input, toArray(codec.decompress(compressed)));
+
+    assertEquals(codec,
+                 CodecFactory.zstandardCodec(5, dictionary).createInstance());
+    assertFalse(codec.equals(CodecFactory.zstandardCodec(5).createInstance()));
+  }
+
+  @Test(expected = IOException.class)
+  public void testCorrupt() throws IOException {
+    Codec codec = CodecFactory.zstandardCodec(1).createInstance();
+    ByteBuffer compressed = codec.compress(ByteBuffer.wrap(input(1000)));
+    compressed.put(compressed.limit() - 3, (byte) 0xff);
+    compressed.put(compressed.limit() - 2, (byte) 0xff);
+    codec.decompress(compressed);
+  }
+}
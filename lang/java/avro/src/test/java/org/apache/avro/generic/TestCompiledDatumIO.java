@@ -0,0 +1,255 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.FooBarSpecificRecord;
+import org.apache.avro.RandomData;
+import org.apache.avro.Schema;
+import org.apache.avro.TypeEnum;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.specific.SpecificData;
+import org.junit.Test;
+
+public class TestCompiledDatumIO {
+
+  private static final Schema ALL_TYPES = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"All\",\"fields\":["
+      + "{\"name\":\"n\",\"type\":\"null\"},"
+      + "{\"name\":\"b\",\"type\":\"boolean\"},"
+      + "{\"name\":\"i\",\"type\":\"int\"},"
+      + "{\"name\":\"l\",\"type\":\"long\"},"
+      + "{\"name\":\"f\",\"type\":\"float\"},"
+      + "{\"name\":\"d\",\"type\":\"double\"},"
+      + "{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"js\",\"type\":{\"type\":\"string\","
+      + "\"avro.java.string\":\"String\"}},"
+      + "{\"name\":\"by\",\"type\":\"bytes\"},"
+      + "{\"name\":\"fx\",\"type\":{\"type\":\"fixed\",\"name\":\"F\","
+      + "\"size\":4}},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\","
+      + "\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"long\"}},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"double\"}},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"string\",\"E\"]},"
+      + "{\"name\":\"next\",\"type\":[\"null\",\"All\"]}"
+      + "]}");
+
+  private static final Schema WRITER = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"a\",\"type\":\"int\"},"
+      + "{\"name\":\"dropped\",\"type\":{\"type\":\"array\","
+      + "\"items\":\"string\"}},"
+      + "{\"name\":\"b\",\"type\":\"string\"},"
+      + "{\"name\":\"c\",\"type\":\"long\"},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\","
+      + "\"symbols\":[\"X\",\"Y\"]}},"
+      + "{\"name\":\"u\",\"type\":[\"int\",\"string\"]}"
+      + "]}");
+
+  private static final Schema READER = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"c\",\"type\":\"double\"},"
+      + "{\"name\":\"b\",\"type\":\"bytes\"},"
+      + "{\"name\":\"added\",\"type\":\"string\",\"default\":\"x\"},"
+      + "{\"name\":\"a\",\"type\":[\"null\",\"long\"]},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\","
+      + "\"symbols\":[\"Y\",\"X\",\"Z\"]}},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"string\",\"long\"]}"
+      + "]}");
+
+  private static byte[] write(DatumWriter<Object> writer, Iterable<Object> data)
+    throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    for (Object datum : data)
+      writer.write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static void assertSameReads(DatumReader<Object> expected,
+                                      DatumReader<Object> actual,
+                                      byte[] bytes, int count)
+    throws IOException {
+    Decoder e = DecoderFactory.get().binaryDecoder(bytes, null);
+    BinaryDecoder a = DecoderFactory.get().binaryDecoder(bytes, null);
+    Decoder r = DecoderFactory.get().binaryDecoder(bytes, null);
+    Object reuse = null;
+    for (int i = 0; i < count; i++) {
+      Object datum = expected.read(null, e);
+      assertEquals(datum, actual.read(null, a));
+      reuse = actual.read(reuse, r);
+      assertEquals(datum, reuse);
+    }
+    assertTrue(a.isEnd());
+  }
+
+  @Test
+  public void testSameSchema() throws IOException {
+    RandomData data = new RandomData(ALL_TYPES, 100);
+    byte[] bytes = write(new GenericDatumWriter<Object>(ALL_TYPES), data);
+    CompiledDatumReader<Object> reader =
+      new CompiledDatumReader<Object>(ALL_TYPES);
+    assertTrue(reader.isCompiled());
+    assertSameReads(new GenericDatumReader<Object>(ALL_TYPES), reader,
+                    bytes, 100);
+  }
+
+  @Test
+  public void testWriterMatchesInterpreter() throws IOException {
+    RandomData data = new RandomData(ALL_TYPES, 100);
+    CompiledDatumWriter<Object> writer =
+      new CompiledDatumWriter<Object>(ALL_TYPES);
+    assertTrue(writer.isCompiled());
+    assertArrayEquals(write(new GenericDatumWriter<Object>(ALL_TYPES), data),
+                      write(writer, data));
+  }
+
+  @Test
+  public void testResolution() throws IOException {
+    RandomData data = new RandomData(WRITER, 100);
+    byte[] bytes = write(new GenericDatumWriter<Object>(WRITER), data);
+    CompiledDatumReader<Object> reader =
+      new CompiledDatumReader<Object>(WRITER, READER);
+    assertTrue(reader.isCompiled());
+    Decoder e = DecoderFactory.get().binaryDecoder(bytes, null);
+    BinaryDecoder a = DecoderFactory.get().binaryDecoder(bytes, null);
+    GenericDatumReader<Object> expected =
+      new GenericDatumReader<Object>(WRITER, READER);
+    for (int i = 0; i < 100; i++) {
+      GenericRecord datum = (GenericRecord) expected.read(null, e);
+      GenericRecord actual = (GenericRecord) reader.read(null, a);
+      assertEquals(datum, actual);
+      assertEquals("x", actual.get("added").toString());
+      assertTrue(actual.get("a") instanceof Long);
+      assertTrue(actual.get("c") instanceof Double);
+    }
+    assertTrue(a.isEnd());
+  }
+
+  @Test
+  public void testProjection() throws IOException {
+    Schema projection = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"All\",\"fields\":["
+        + "{\"name\":\"i\",\"type\":\"int\"},"
+        + "{\"name\":\"u\",\"type\":[\"null\",\"string\",{"
+        + "\"type\":\"enum\",\"name\":\"E\","
+        + "\"symbols\":[\"A\",\"B\",\"C\"]}]}"
+        + "]}");
+    RandomData data = new RandomData(ALL_TYPES, 100);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder blocking = new EncoderFactory().configureBlockSize(64)
+      .blockingBinaryEncoder(out, null);
+    DatumWriter<Object> writer = new GenericDatumWriter<Object>(ALL_TYPES);
+    for (Object datum : data)
+      writer.write(datum, blocking);
+    blocking.flush();
+
+    byte[] unblocked = write(writer, data);
+    for (byte[] bytes : Arrays.asList(unblocked, out.toByteArray())) {
+      CompiledDatumReader<Object> reader =
+        new CompiledDatumReader<Object>(ALL_TYPES, projection);
+      assertTrue(reader.isCompiled());
+      assertSameReads(new GenericDatumReader<Object>(ALL_TYPES, projection),
+                      reader, bytes, 100);
+    }
+  }
+
+  @Test(expected = AvroTypeException.class)
+  public void testMissingRequiredField() throws IOException {
+    Schema reader = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"missing\",\"type\":\"int\"}]}");
+    byte[] bytes = write(new GenericDatumWriter<Object>(WRITER),
+                         new RandomData(WRITER, 1));
+    new CompiledDatumReader<Object>(WRITER, reader)
+      .read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+  }
+
+  @Test
+  public void testSpecific() throws IOException {
+    Schema schema = FooBarSpecificRecord.SCHEMA$;
+    FooBarSpecificRecord record = FooBarSpecificRecord.newBuilder()
+      .setId(42).setName("foo").setNicknames(Arrays.asList("bar", "baz"))
+      .setRelatedids(Arrays.asList(1, 2, 3)).setTypeEnum(TypeEnum.b).build();
+
+    CompiledDatumWriter<Object> writer =
+      new CompiledDatumWriter<Object>(schema, SpecificData.get());
+    assertTrue(writer.isCompiled());
+    byte[] bytes = write(writer, Arrays.<Object>asList(record));
+
+    CompiledDatumReader<Object> reader =
+      new CompiledDatumReader<Object>(schema, schema, SpecificData.get());
+    assertTrue(reader.isCompiled());
+    Object read = reader.read(null,
+        DecoderFactory.get().binaryDecoder(bytes, null));
+    assertTrue(read instanceof FooBarSpecificRecord);
+    assertEquals(record, read);
+  }
+
+  @Test
+  public void testFallback() throws IOException {
+    Schema dated = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"D\",\"fields\":["
+        + "{\"name\":\"d\",\"type\":{\"type\":\"int\","
+        + "\"logicalType\":\"date\"}}]}");
+    CompiledDatumReader<Object> specific =
+      new CompiledDatumReader<Object>(dated, dated, SpecificData.get());
+    assertFalse(specific.isCompiled());
+    assertTrue(new CompiledDatumReader<Object>(dated).isCompiled());
+
+    CompiledDatumWriter<Object> reflect =
+      new CompiledDatumWriter<Object>(ALL_TYPES, ReflectData.get());
+    assertFalse(reflect.isCompiled());
+
+    GenericRecord record = new GenericData.Record(dated);
+    record.put("d", 17);
+    byte[] bytes = write(new CompiledDatumWriter<Object>(dated),
+                         Arrays.<Object>asList(record));
+    assertEquals(record, specific.read(null,
+        DecoderFactory.get().binaryDecoder(bytes, null)));
+  }
+
+  @Test
+  public void testUnresolvedFallsBack() throws IOException {
+    Schema writer = new Schema.Parser().parse(
+        "{"type":"record","name":"R","fields":["
+        + "{"name":"a","type":"int"}]}");
+    Schema reader = new Schema.Parser().parse(
+        "{"type":"record","name":"R","fields":["
+        + "{"name":"b","type":"int"}]}");
+    assertFalse(new CompiledDatumReader<Object>(writer, reader).isCompiled());
+  }
+}
@@ -0,0 +1,204 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.RandomData;
+import org.apache.avro.Schema;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.Utf8;
+import org.junit.Test;
+
+public class TestJsonDatumReader {
+
+  private static final Schema ALL_TYPES = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"All\",\"fields\":["
+      + "{\"name\":\"n\",\"type\":\"null\"},"
+      + "{\"name\":\"b\",\"type\":\"boolean\"},"
+      + "{\"name\":\"i\",\"type\":\"int\"},"
+      + "{\"name\":\"l\",\"type\":\"long\"},"
+      + "{\"name\":\"f\",\"type\":\"float\"},"
+      + "{\"name\":\"d\",\"type\":\"double\"},"
+      + "{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"by\",\"type\":\"bytes\"},"
+      + "{\"name\":\"fx\",\"type\":{\"type\":\"fixed\",\"name\":\"F\","
+      + "\"size\":4}},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\","
+      + "\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"long\"}},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"double\"}},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"string\",\"E\"]},"
+      + "{\"name\":\"rs\",\"type\":{\"type\":\"array\",\"items\":"
+      + "{\"type\":\"record\",\"name\":\"Inner\",\"fields\":["
+      + "{\"name\":\"x\",\"type\":\"string\"},"
+      + "{\"name\":\"y\",\"type\":{\"type\":\"array\",\"items\":\"int\"}}"
+      + "]}}},"
+      + "{\"name\":\"next\",\"type\":[\"null\",\"All\"]}"
+      + "]}");
+
+  private static final Schema RECORD = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"a\",\"type\":\"int\"},"
+      + "{\"name\":\"b\",\"type\":\"string\",\"default\":\"x\"},"
+      + "{\"name\":\"c\",\"type\":[\"null\",\"double\"]}"
+      + "]}");
+
+  private static String write(Schema schema, Iterable<Object> data)
+    throws IOException {
+    DatumWriter<Object> writer = new GenericDatumWriter<Object>(schema);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().jsonEncoder(schema, out);
+    for (Object datum : data)
+      writer.write(datum, encoder);
+    encoder.flush();
+    return out.toString("UTF-8");
+  }
+
+  private static Object read(String json) throws IOException {
+    return new JsonDatumReader<Object>(RECORD)
+      .read(null, DecoderFactory.get().jsonDecoder(RECORD, json));
+  }
+
+  @Test
+  public void testSameAsJsonDecoder() throws IOException {
+    RandomData data = new RandomData(ALL_TYPES, 100);
+    String json = write(ALL_TYPES, data);
+    GenericDatumReader<Object> expected =
+      new GenericDatumReader<Object>(ALL_TYPES);
+    JsonDatumReader<Object> reader = new JsonDatumReader<Object>(ALL_TYPES);
+    Decoder e = DecoderFactory.get().jsonDecoder(ALL_TYPES, json);
+    Decoder a = DecoderFactory.get().jsonDecoder(ALL_TYPES, json);
+    for (Object datum : data) {
+      Object read = reader.read(null, a);
+      assertEquals(datum, read);
+      assertEquals(expected.read(null, e), read);
+    }
+    try {
+      reader.read(null, a);
+      throw new AssertionError("read past the end");
+    } catch (EOFException e2) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testFieldsInAnyOrder() throws IOException {
+    GenericRecord record = (GenericRecord)
+      read("{\"c\": {\"double\": 1.5}, \"b\": \"y\", \"a\": 3}");
+    assertEquals(3, record.get("a"));
+    assertEquals(new Utf8("y"), record.get("b"));
+    assertEquals(1.5, record.get("c"));
+  }
+
+  @Test
+  public void testDefaults() throws IOException {
+    GenericRecord record = (GenericRecord)read("{\"c\": null, \"a\": 1}");
+    assertEquals(1, record.get("a"));
+    assertEquals(new Utf8("x"), record.get("b"));
+    assertEquals(null, record.get("c"));
+  }
+
+  @Test(expected=AvroTypeException.class)
+  public void testMissingField() throws IOException {
+    read("{\"b\": \"y\", \"c\": null}");
+  }
+
+  @Test(expected=AvroTypeException.class)
+  public void testUnknownField() throws IOException {
+    read("{\"a\": 1, \"b\": \"y\", \"c\": null, \"d\": 2}");
+  }
+
+  @Test(expected=AvroTypeException.class)
+  public void testWrongType() throws IOException {
+    read("{\"a\": \"1\", \"b\": \"y\", \"c\": null}");
+  }
+
+  @Test(expected=AvroTypeException.class)
+  public void testUnknownBranch() throws IOException {
+    read("{\"a\": 1, \"b\": \"y\", \"c\": {\"float\": 1.5}}");
+  }
+
+  @Test
+  public void testReuse() throws IOException {
+    String json = "{\"a\": 1, \"b\": \"y\", \"c\": null}"
+      + "{\"c\": null, \"a\": 2}";
+    JsonDatumReader<Object> reader = new JsonDatumReader<Object>(RECORD);
+    Decoder in = DecoderFactory.get().jsonDecoder(RECORD, json);
+    Object first = reader.read(null, in);
+    Object second = reader.read(first, in);
+    assertSame(first, second);
+    assertEquals(2, ((GenericRecord)second).get("a"));
+    assertEquals(new Utf8("x"), ((GenericRecord)second).get("b"));
+  }
+
+  @Test
+  public void testStringProperty() throws IOException {
+    Schema schema = new Schema.Parser().parse(
+        "{\"type\":\"map\",\"values\":{\"type\":\"string\","
+        + "\"avro.java.string\":\"String\"},\"avro.java.string\":\"String\"}");
+    Object map = new JsonDatumReader<Object>(schema)
+      .read(null, DecoderFactory.get().jsonDecoder(schema, "{\"k\": \"v\"}"));
+    assertEquals("v", ((java.util.Map<?, ?>)map).get("k"));
+  }
+
+  @Test
+  public void testReadArray() throws IOException {
+    RandomData data = new RandomData(ALL_TYPES, 50);
+    StringBuilder json = new StringBuilder("[");
+    for (Object datum : data) {
+      if (json.length() > 1)
+        json.append(",");
+      json.append(write(ALL_TYPES, Arrays.asList(datum)));
+    }
+    json.append("]");
+    JsonDatumReader.ArrayIterator<Object> records =
+      new JsonDatumReader<Object>(ALL_TYPES).readArray(
+          new ByteArrayInputStream(json.toString().getBytes("UTF-8")));
+    int count = 0;
+    Object reuse = null;
+    for (Object datum : data) {
+      assertTrue(records.hasNext());
+      reuse = records.next(reuse);
+      assertEquals(datum, reuse);
+      count++;
+    }
+    assertFalse(records.hasNext());
+    assertEquals(50, count);
+    records.close();
+
+    JsonDatumReader.ArrayIterator<Object> empty =
+      new JsonDatumReader<Object>(RECORD).readArray(
+          new ByteArrayInputStream("[ ]".getBytes("UTF-8")));
+    assertFalse(empty.hasNext());
+  }
+}
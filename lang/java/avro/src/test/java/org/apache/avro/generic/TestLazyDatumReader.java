@@ -0,0 +1,280 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.AvroTestUtil;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.RandomData;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.io.BinaryData;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.junit.Test;
+
+public class TestLazyDatumReader {
+
+  private static final Schema ALL_TYPES = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"All\",\"fields\":["
+      + "{\"name\":\"n\",\"type\":\"null\"},"
+      + "{\"name\":\"b\",\"type\":\"boolean\"},"
+      + "{\"name\":\"i\",\"type\":\"int\"},"
+      + "{\"name\":\"l\",\"type\":\"long\"},"
+      + "{\"name\":\"f\",\"type\":\"float\"},"
+      + "{\"name\":\"d\",\"type\":\"double\"},"
+      + "{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"by\",\"type\":\"bytes\"},"
+      + "{\"name\":\"fx\",\"type\":{\"type\":\"fixed\",\"name\":\"F\","
+      + "\"size\":4}},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\","
+      + "\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"long\"}},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"double\"}},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"string\",\"E\"]},"
+      + "{\"name\":\"rs\",\"type\":{\"type\":\"array\",\"items\":"
+      + "{\"type\":\"record\",\"name\":\"Inner\",\"fields\":["
+      + "{\"name\":\"x\",\"type\":\"string\"},"
+      + "{\"name\":\"y\",\"type\":{\"type\":\"array\",\"items\":\"int\"}}"
+      + "]}}},"
+      + "{\"name\":\"next\",\"type\":[\"null\",\"All\"]}"
+      + "]}");
+
+  private static final Schema WRITER = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"a\",\"type\":\"int\"},"
+      + "{\"name\":\"dropped\",\"type\":{\"type\":\"array\","
+      + "\"items\":\"string\"}},"
+      + "{\"name\":\"b\",\"type\":\"string\"},"
+      + "{\"name\":\"c\",\"type\":\"long\"}"
+      + "]}");
+
+  private static final Schema READER = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"c\",\"type\":\"double\"},"
+      + "{\"name\":\"added\",\"type\":\"string\",\"default\":\"x\"},"
+      + "{\"name\":\"a\",\"type\":[\"null\",\"long\"]}"
+      + "]}");
+
+  private static byte[] write(Schema schema, Iterable<Object> data)
+    throws IOException {
+    DatumWriter<Object> writer = new GenericDatumWriter<Object>(schema);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    for (Object datum : data)
+      writer.write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testSameSchema() throws IOException {
+    RandomData data = new RandomData(ALL_TYPES, 100);
+    byte[] bytes = write(ALL_TYPES, data);
+    GenericDatumReader<Object> expected =
+      new GenericDatumReader<Object>(ALL_TYPES);
+    LazyDatumReader<Object> reader = new LazyDatumReader<Object>(ALL_TYPES);
+    BinaryDecoder e = DecoderFactory.get().binaryDecoder(bytes, null);
+    BinaryDecoder a = DecoderFactory.get().binaryDecoder(bytes, null);
+    for (int i = 0; i < 100; i++) {
+      Object datum = expected.read(null, e);
+      Object lazy = reader.read(null, a);
+      assertTrue(lazy instanceof LazyRecord);
+      assertEquals(datum, lazy);
+      assertEquals(lazy, datum);
+      assertEquals(datum.hashCode(), lazy.hashCode());
+      assertEquals(datum.toString(), lazy.toString());
+    }
+    assertTrue(a.isEnd());
+  }
+
+  @Test
+  public void testFieldsReadWhenUsed() throws IOException {
+    RandomData data = new RandomData(ALL_TYPES, 1);
+    GenericRecord datum = (GenericRecord)data.iterator().next();
+    byte[] bytes = write(ALL_TYPES, data);
+    LazyRecord lazy = (LazyRecord)new LazyDatumReader<Object>(ALL_TYPES)
+      .read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+    int m = ALL_TYPES.getField("m").pos();
+    for (int i = 0; i < ALL_TYPES.getFields().size(); i++)
+      assertFalse(lazy.isRead(i));
+    assertEquals(datum.get("m"), lazy.get(m));
+    for (int i = 0; i < ALL_TYPES.getFields().size(); i++)
+      assertEquals(i == m, lazy.isRead(i));
+
+    GenericArray<?> records = (GenericArray<?>)lazy.get("rs");
+    assertTrue(records instanceof LazyArray);
+    assertEquals(datum.get("rs"), records);
+    if (records.size() > 0)
+      assertTrue(records.get(0) instanceof LazyRecord);
+
+    lazy.put("i", 42);
+    assertEquals(42, lazy.get("i"));
+  }
+
+  @Test
+  public void testReuse() throws IOException {
+    RandomData data = new RandomData(ALL_TYPES, 10);
+    byte[] bytes = write(ALL_TYPES, data);
+    LazyDatumReader<Object> reader = new LazyDatumReader<Object>(ALL_TYPES);
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(bytes, null);
+    Object reuse = null;
+    for (Object datum : data) {
+      Object read = reader.read(reuse, in);
+      if (reuse != null)
+        assertSame(reuse, read);
+      assertEquals(datum, read);
+      reuse = read;
+    }
+  }
+
+  @Test
+  public void testResolution() throws IOException {
+    RandomData data = new RandomData(WRITER, 100);
+    byte[] bytes = write(WRITER, data);
+    GenericDatumReader<Object> expected =
+      new GenericDatumReader<Object>(WRITER, READER);
+    LazyDatumReader<Object> reader =
+      new LazyDatumReader<Object>(WRITER, READER);
+    BinaryDecoder e = DecoderFactory.get().binaryDecoder(bytes, null);
+    BinaryDecoder a = DecoderFactory.get().binaryDecoder(bytes, null);
+    for (int i = 0; i < 100; i++) {
+      GenericRecord datum = (GenericRecord)expected.read(null, e);
+      GenericRecord lazy = (GenericRecord)reader.read(null, a);
+      assertEquals(READER, lazy.getSchema());
+      assertEquals(datum, lazy);
+      assertEquals("x", lazy.get("added").toString());
+      assertTrue(lazy.get("a") instanceof Long);
+      assertTrue(lazy.get("c") instanceof Double);
+    }
+    assertTrue(a.isEnd());
+  }
+
+  @Test(expected = AvroTypeException.class)
+  public void testMissingRequiredField() throws IOException {
+    Schema reader = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"missing\",\"type\":\"int\"}]}");
+    byte[] bytes = write(WRITER, new RandomData(WRITER, 1));
+    new LazyDatumReader<Object>(WRITER, reader)
+      .read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+  }
+
+  @Test
+  public void testTopLevelArray() throws IOException {
+    Schema schema = Schema.createArray(Schema.create(Schema.Type.STRING));
+    RandomData data = new RandomData(schema, 20);
+    byte[] bytes = write(schema, data);
+    LazyDatumReader<Object> reader = new LazyDatumReader<Object>(schema);
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(bytes, null);
+    for (Object datum : data) {
+      Object read = reader.read(null, in);
+      assertTrue(read instanceof LazyArray);
+      assertEquals(datum, read);
+    }
+    assertTrue(in.isEnd());
+  }
+
+  @Test
+  public void testNonBinaryDecoder() throws IOException {
+    RandomData data = new RandomData(ALL_TYPES, 10);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    DatumWriter<Object> writer = new GenericDatumWriter<Object>(ALL_TYPES);
+    Encoder json = EncoderFactory.get().jsonEncoder(ALL_TYPES, out);
+    for (Object datum : data)
+      writer.write(datum, json);
+    json.flush();
+    LazyDatumReader<Object> reader = new LazyDatumReader<Object>(ALL_TYPES);
+    org.apache.avro.io.Decoder in = DecoderFactory.get()
+      .jsonDecoder(ALL_TYPES, out.toString("UTF-8"));
+    for (Object datum : data)
+      assertEquals(datum, reader.read(null, in));
+  }
+
+  @Test
+  public void testDataFile() throws IOException {
+    RandomData data = new RandomData(ALL_TYPES, 500);
+    File file = AvroTestUtil.tempFile(getClass(), "lazy.avro");
+    DataFileWriter<Object> writer =
+      new DataFileWriter<Object>(new GenericDatumWriter<Object>(ALL_TYPES));
+    writer.setSyncInterval(2000);
+    writer.create(ALL_TYPES, file);
+    for (Object datum : data)
+      writer.append(datum);
+    writer.close();
+
+    DataFileReader<Object> reader =
+      new DataFileReader<Object>(file, new LazyDatumReader<Object>());
+    List<Object> read = new ArrayList<Object>();
+    for (Object datum : reader)
+      read.add(datum);                            // bytes outlive blocks
+    reader.close();
+    int i = 0;
+    for (Object datum : data)
+      assertEquals(datum, read.get(i++));
+    assertEquals(500, i);
+  }
+
+  @Test
+  public void testMessageDecoder() throws IOException {
+    GenericRecord record = new GenericData.Record(WRITER);
+    record.put("a", 1);
+    record.put("dropped", Arrays.asList("p", "q"));
+    record.put("b", "b");
+    record.put("c", 3L);
+    ByteBuffer message =
+      new BinaryMessageEncoder<GenericRecord>(GenericData.get(), WRITER)
+      .encode(record);
+
+    BinaryMessageDecoder<GenericRecord> decoder =
+      new BinaryMessageDecoder<GenericRecord>(LazyData.get(), READER);
+    decoder.addSchema(WRITER);
+    GenericRecord lazy = decoder.decode(message);
+    assertTrue(lazy instanceof LazyRecord);
+    assertEquals(3.0, lazy.get("c"));
+    assertEquals(1L, lazy.get("a"));
+  }
+
+  @Test
+  public void testSkip() throws IOException {
+    RandomData data = new RandomData(ALL_TYPES, 50);
+    byte[] bytes = write(ALL_TYPES, data);
+    int pos = 0;
+    for (int i = 0; i < 50; i++)
+      pos = BinaryData.skip(ALL_TYPES, bytes, pos, bytes.length);
+    assertEquals(bytes.length, pos);
+  }
+}
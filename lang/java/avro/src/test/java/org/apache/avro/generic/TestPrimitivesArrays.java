@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.ResolvingDecoder;
+import org.junit.Test;
+
+public class TestPrimitivesArrays {
+  private static final GenericData DATA = new GenericData();
+  static {
+    DATA.setPrimitiveArrays(true);
+  }
+
+  private static Schema array(Schema.Type type) {
+    return Schema.createArray(Schema.create(type));
+  }
+
+  @Test
+  public void testListContract() {
+    PrimitivesArrays.IntArray a =
+      new PrimitivesArrays.IntArray(0, array(Schema.Type.INT));
+    for (int i = 0; i < 5; i++)
+      a.add(i);
+    a.add(0, -1);
+    assertEquals(Arrays.asList(-1, 0, 1, 2, 3, 4), a);
+    assertEquals(Integer.valueOf(2), a.remove(3));
+    assertEquals(Integer.valueOf(-1), a.set(0, 7));
+    a.setInt(1, 8);
+    assertEquals(Arrays.asList(7, 8, 1, 3, 4), a);
+    assertEquals(Arrays.asList(7, 8, 1, 3, 4).hashCode(), a.hashCode());
+    a.reverse();
+    assertEquals(Arrays.asList(4, 3, 1, 8, 7), a);
+    assertEquals("[4, 3, 1, 8, 7]", a.toString());
+    assertNull(a.peek());
+
+    GenericData.Array<Integer> boxed =
+      new GenericData.Array<Integer>(a.getSchema(), a);
+    assertEquals(boxed, a);
+    assertEquals(a, boxed);
+    assertEquals(0, a.compareTo(boxed));
+    assertTrue(GenericData.get().validate(a.getSchema(), a));
+
+    try {
+      a.get(5);
+      fail("Should have thrown");
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+    a.clear();
+    assertEquals(0, a.size());
+  }
+
+  @Test(expected = AvroRuntimeException.class)
+  public void testWrongItems() {
+    new PrimitivesArrays.LongArray(0, array(Schema.Type.INT));
+  }
+
+  @Test
+  public void testNewArray() {
+    assertTrue(PrimitivesArrays.newArray(0, array(Schema.Type.BOOLEAN))
+               instanceof PrimitivesArrays.BooleanArray);
+    assertNull(PrimitivesArrays.newArray(0, array(Schema.Type.STRING)));
+    Schema date = LogicalTypes.date().addToSchema(Schema.create(Schema.Type.INT));
+    assertNull(PrimitivesArrays.newArray(0, Schema.createArray(date)));
+    Schema propped = Schema.create(Schema.Type.INT);
+    propped.addProp("thrift", "byte");
+    assertNull(PrimitivesArrays.newArray(0, Schema.createArray(propped)));
+  }
+
+  private static byte[] write(Schema schema, Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<Object>(schema).write(datum, encoder);
+    new CompiledDatumWriter<Object>(schema).write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static void readTwice(DatumReader<Object> reader, byte[] bytes,
+                                Object expected, Class<?> c)
+    throws IOException {
+    Decoder in = DecoderFactory.get().binaryDecoder(bytes, null);
+    for (int i = 0; i < 2; i++) {
+      Object result = reader.read(null, in);
+      assertEquals(expected, result);
+      assertEquals(c, result.getClass());
+    }
+  }
+
+  @Test
+  public void testReadAndWrite() throws IOException {
+    Schema doubles = array(Schema.Type.DOUBLE);
+    PrimitivesArrays.DoubleArray a = new PrimitivesArrays.DoubleArray(2, doubles);
+    for (int i = 0; i < 100; i++)
+      a.addDouble(i / 3.0);
+    byte[] bytes = write(doubles, a);
+    assertArrayEquals(write(doubles, new GenericData.Array<Double>(doubles, a)),
+                      bytes);
+
+    readTwice(new GenericDatumReader<Object>(doubles, doubles, DATA),
+              bytes, a, PrimitivesArrays.DoubleArray.class);
+    readTwice(new CompiledDatumReader<Object>(doubles, doubles, DATA),
+              bytes, a, PrimitivesArrays.DoubleArray.class);
+    readTwice(new GenericDatumReader<Object>(doubles, doubles, DATA) {
+        // not planned
+        @Override
+        protected Object readArray(Object old, Schema expected,
+                                   ResolvingDecoder in) throws IOException {
+          return super.readArray(old, expected, in);
+        }
+      }, bytes, a, PrimitivesArrays.DoubleArray.class);
+  }
+
+  @Test
+  public void testPromotion() throws IOException {
+    Schema ints = array(Schema.Type.INT);
+    Schema longs = array(Schema.Type.LONG);
+    PrimitivesArrays.IntArray a = new PrimitivesArrays.IntArray(0, ints);
+    PrimitivesArrays.LongArray expected = new PrimitivesArrays.LongArray(0, longs);
+    for (int i = -50; i < 50; i++) {
+      a.addInt(i * 1000);
+      expected.addLong(i * 1000L);
+    }
+    byte[] bytes = write(ints, a);
+    readTwice(new GenericDatumReader<Object>(ints, longs, DATA), bytes,
+              expected, PrimitivesArrays.LongArray.class);
+    readTwice(new CompiledDatumReader<Object>(ints, longs, DATA), bytes,
+              expected, PrimitivesArrays.LongArray.class);
+  }
+
+  @Test
+  public void testBoxedUnlessEnabled() throws IOException {
+    Schema longs = array(Schema.Type.LONG);
+    GenericData.Array<Long> a = new GenericData.Array<Long>(0, longs);
+    for (long i = 0; i < 100; i++)
+      a.add(i);
+    byte[] bytes = write(longs, a);
+    readTwice(new GenericDatumReader<Object>(longs), bytes, a,
+              GenericData.Array.class);
+    readTwice(new CompiledDatumReader<Object>(longs), bytes, a,
+              GenericData.Array.class);
+    readTwice(new GenericDatumReader<Object>(longs, longs, DATA) {
+        @Override                                 // an item hook
+        protected void addToArray(Object array, long pos, Object e) {
+          super.addToArray(array, pos, e);
+        }
+      }, bytes, a, GenericData.Array.class);
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.RandomData;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.ResolvingDecoder;
+import org.junit.Test;
+
+public class TestResolutionPlan {
+
+  private static final Schema WRITER = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"a\",\"type\":\"int\"},"
+      + "{\"name\":\"dropped\",\"type\":{\"type\":\"map\","
+      + "\"values\":\"string\"}},"
+      + "{\"name\":\"b\",\"type\":\"string\"},"
+      + "{\"name\":\"c\",\"type\":{\"type\":\"array\",\"items\":\"float\"}},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\","
+      + "\"symbols\":[\"X\",\"Y\"]}},"
+      + "{\"name\":\"u\",\"type\":[\"int\",\"string\"]}"
+      + "]}");
+
+  private static final Schema READER = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"c\",\"type\":{\"type\":\"array\",\"items\":\"double\"}},"
+      + "{\"name\":\"b\",\"type\":\"bytes\"},"
+      + "{\"name\":\"a\",\"type\":[\"null\",\"long\"]},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\","
+      + "\"symbols\":[\"Y\",\"X\",\"Z\"]}},"
+      + "{\"name\":\"added\",\"type\":{\"type\":\"array\",\"items\":\"E\"},"
+      + "\"default\":[\"Z\",\"X\"]},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"string\",\"long\"]}"
+      + "]}");
+
+  private static byte[] write(Schema schema, Iterable<Object> data)
+    throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<Object>(schema);
+    for (Object datum : data)
+      writer.write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  /** Reads through a decoder that is not binary, which takes the resolving
+   * decoder path. */
+  private static Decoder resolving(Schema schema, byte[] bytes)
+    throws IOException {
+    return DecoderFactory.get().validatingDecoder(schema,
+        DecoderFactory.get().binaryDecoder(bytes, null));
+  }
+
+  @Test
+  public void testMatchesResolvingDecoder() throws IOException {
+    byte[] bytes = write(WRITER, new RandomData(WRITER, 100));
+    GenericDatumReader<Object> reader =
+      new GenericDatumReader<Object>(WRITER, READER);
+    BinaryDecoder planned = DecoderFactory.get().binaryDecoder(bytes, null);
+    Decoder resolved = resolving(WRITER, bytes);
+    Object reuse = null;
+    for (int i = 0; i < 100; i++) {
+      GenericRecord expected = (GenericRecord) reader.read(null, resolved);
+      reuse = reader.read(reuse, planned);
+      assertEquals(expected, reuse);
+      assertEquals("[Z, X]", ((GenericRecord) reuse).get("added").toString());
+      assertTrue(((GenericRecord) reuse).get("a") instanceof Long);
+    }
+    assertTrue(planned.isEnd());
+  }
+
+  @Test
+  public void testPlanIsShared() throws IOException {
+    ResolutionPlan.Action plan = ResolverCache.get().getPlan(WRITER, READER);
+    assertSame(plan, ResolverCache.get().getPlan(WRITER, READER));
+    assertEquals(ResolutionPlan.Kind.RECORD, plan.kind);
+    // the writer's six fields, one of them skipped, then one default
+    assertEquals(7, plan.actions.length);
+    assertEquals(ResolutionPlan.Kind.SKIP, plan.actions[1].kind);
+    assertEquals(ResolutionPlan.Kind.READER_UNION, plan.actions[0].kind);
+  }
+
+  @Test(expected = AvroTypeException.class)
+  public void testEnumWithoutMatch() throws IOException {
+    Schema writer = Schema.createEnum("E", null, null,
+        Arrays.asList("A", "B"));
+    Schema reader = Schema.createEnum("E", null, null,
+        Arrays.asList("A"));
+    byte[] bytes = write(writer, Arrays.<Object>asList(
+        new GenericData.EnumSymbol(writer, "B")));
+    new GenericDatumReader<Object>(writer, reader)
+      .read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+  }
+
+  @Test
+  public void testResolvingHookOverrideFallsBack() throws IOException {
+    final int[] records = new int[1];
+    GenericDatumReader<Object> reader =
+      new GenericDatumReader<Object>(WRITER, READER) {
+      @Override
+      protected Object readRecord(Object old, Schema expected,
+                                  ResolvingDecoder in) throws IOException {
+        records[0]++;
+        return super.readRecord(old, expected, in);
+      }
+    };
+    byte[] bytes = write(WRITER, new RandomData(WRITER, 1));
+    reader.read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+    assertEquals(1, records[0]);
+  }
+
+  @Test
+  public void testEnumHookOverrideFallsBack() throws IOException {
+    final int[] enums = new int[1];
+    GenericDatumReader<Object> reader =
+      new GenericDatumReader<Object>(WRITER, READER) {
+      @Override
+      protected Object readEnum(Schema expected, Decoder in)
+        throws IOException {
+        enums[0]++;
+        return super.readEnum(expected, in);
+      }
+    };
+    // the writer's and reader's symbols differ, so a plan would map them
+    // without calling the hook
+    byte[] bytes = write(WRITER, new RandomData(WRITER, 1));
+    GenericRecord r = (GenericRecord) reader.read(null,
+        DecoderFactory.get().binaryDecoder(bytes, null));
+    // the written enum plus the two in the added field's default
+    assertEquals(1 + 2, enums[0]);
+    assertTrue(r.get("e") instanceof GenericData.EnumSymbol);
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Schema;
+import org.junit.Test;
+
+public class TestResolverCache {
+
+  private static Schema record(String field, String type) {
+    return new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"" + field + "\",\"type\":\"" + type + "\"}]}");
+  }
+
+  @Test
+  public void testEqualSchemasShareEntries() throws IOException {
+    ResolverCache cache = new ResolverCache(10);
+    Object resolver = cache.getResolver(record("a", "int"),
+                                        record("a", "long"));
+    assertSame(resolver, cache.getResolver(record("a", "int"),
+                                           record("a", "long")));
+    assertNotSame(resolver, cache.getResolver(record("a", "int"),
+                                              record("a", "double")));
+
+    ResolverCache.Stats stats = cache.getStats();
+    assertEquals(1, stats.getHitCount());
+    assertEquals(2, stats.getMissCount());
+    assertEquals(2, stats.getBuildCount());
+    assertEquals(2, stats.getSize());
+    assertTrue(stats.getTotalBuildTime() > 0);
+  }
+
+  @Test
+  public void testPlansBoundToReader() throws IOException {
+    ResolverCache cache = new ResolverCache(10);
+    Schema reader = record("a", "long");
+    Schema equalReader = record("a", "long");
+    ResolutionPlan.Action plan = cache.getPlan(record("a", "int"), reader);
+    assertSame(plan, cache.getPlan(record("a", "int"), reader));
+    ResolutionPlan.Action other =
+      cache.getPlan(record("a", "int"), equalReader);
+    assertNotSame(plan, other);
+    assertSame(reader, plan.reader);
+    assertSame(equalReader, other.reader);
+  }
+
+  @Test
+  public void testBounded() throws IOException {
+    ResolverCache cache = new ResolverCache(2);
+    Schema writer = record("a", "int");
+    for (String type : new String[] { "int", "long", "float", "double" })
+      cache.getPlan(writer, record("a", type));
+    ResolverCache.Stats stats = cache.getStats();
+    assertEquals(2, stats.getSize());
+    assertEquals(2, stats.getEvictionCount());
+  }
+
+  @Test(expected = AvroTypeException.class)
+  public void testBuildFailure() throws IOException {
+    Schema reader = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"b\",\"type\":\"int\",\"default\":\"x\"}]}");
+    new ResolverCache(10).getPlan(record("a", "int"), reader);
+  }
+}
@@ -48,16 +48,19 @@ public class TestBinaryDecoder {
   // at different points in the loop.
   DecoderFactory factory = new DecoderFactory().configureDecoderBufferSize(521);
   private boolean useDirect = false;
+  private boolean useByteBuffer = false;        // decode bytes from a buffer
   static EncoderFactory e_factory = EncoderFactory.get();
-  public TestBinaryDecoder(boolean useDirect) {
+  public TestBinaryDecoder(boolean useDirect, boolean useByteBuffer) {
     this.useDirect = useDirect;
+    this.useByteBuffer = useByteBuffer;
   }
 
   @Parameters
   public static Collection<Object[]> data() {
     return Arrays.asList(new Object[][] {
-        { true },
-        { false },
+        { true, false },
+        { false, false },
+        { false, true },
     });
   }
 
@@ -67,6 +70,11 @@ public class TestBinaryDecoder {
 
   private Decoder newDecoder(byte[] bytes, int start, int len)
     throws IOException {
+    if (useByteBuffer) {                          // from a direct buffer
+      ByteBuffer buffer = ByteBuffer.allocateDirect(len);
+      buffer.put(bytes, start, len).flip();
+      return factory.binaryDecoder(buffer, null);
+    }
     return factory.binaryDecoder(bytes, start, len, null);
 
   }
@@ -80,6 +88,8 @@ public class TestBinaryDecoder {
   }
 
   private Decoder newDecoder(byte[] bytes) throws IOException {
+    if (useByteBuffer)
+      return newDecoder(bytes, 0, bytes.length);
     return factory.binaryDecoder(bytes, null);
   }
 
@@ -233,6 +243,38 @@ public class TestBinaryDecoder {
     }
   }
 
+  @Test
+  public void testDecodeFromByteBuffers() throws IOException {
+    GenericDatumReader<Object> reader = new GenericDatumReader<Object>();
+    reader.setSchema(schema);
+
+    ByteBuffer heap = ByteBuffer.allocate(data.length + 30);
+    heap.position(15);
+    heap = heap.slice();                          // non-zero array offset
+    heap.put(data).flip();
+    ByteBuffer direct = ByteBuffer.allocateDirect(data.length + 30);
+    direct.position(15);
+    direct.put(data).flip().position(15);
+
+    BinaryDecoder fromHeap = factory.binaryDecoder(heap, null);
+    BinaryDecoder fromDirect = factory.binaryDecoder(direct, null);
+    BinaryDecoder reused = factory.binaryDecoder(direct, null);
+    reused.readLong();
+    reused = factory.binaryDecoder(direct, reused);
+
+    for (Object datum : records) {
+      Assert.assertEquals(datum, reader.read(null, fromHeap));
+      Assert.assertEquals(datum, reader.read(null, fromDirect));
+      Assert.assertEquals(datum, reader.read(null, reused));
+    }
+    Assert.assertTrue(fromHeap.isEnd());
+    Assert.assertTrue(fromDirect.isEnd());
+    Assert.assertTrue(reused.isEnd());
+    // the buffers themselves are unchanged
+    Assert.assertEquals(0, heap.position());
+    Assert.assertEquals(15, direct.position());
+  }
+
   @Test
   public void testInputStreamProxy() throws IOException {
     Decoder d = newDecoder(data);
@@ -20,8 +20,10 @@ package org.apache.avro.io;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Random;
 
+import org.apache.avro.util.ByteBufferPool;
 import org.apache.avro.util.Utf8;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -179,6 +181,35 @@ public class TestBinaryEncoderFidelity {
   }
 
 
+  @Test
+  public void testByteBufferBinaryEncoder() throws IOException {
+    // small buffers, so that values are split between them
+    checkByteBufferEncoder(new ByteBufferPool(16, false));
+    checkByteBufferEncoder(new ByteBufferPool(16, true));
+  }
+
+  private void checkByteBufferEncoder(ByteBufferPool pool) throws IOException {
+    ByteBufferBinaryEncoder e = factory.byteBufferEncoder(pool, null);
+    generateData(e, true);
+    Assert.assertEquals(legacydata.length, e.bytesBuffered());
+    List<ByteBuffer> buffers = e.getBufferList();
+    Assert.assertArrayEquals(legacydata, toArray(buffers));
+    Assert.assertEquals(0, e.bytesBuffered());
+    pool.release(buffers);
+    generateComplexData(e);
+    Assert.assertArrayEquals(complexdata, toArray(e.getBufferList()));
+  }
+
+  private static byte[] toArray(List<ByteBuffer> buffers) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (ByteBuffer buffer : buffers) {
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      out.write(bytes, 0, bytes.length);
+    }
+    return out.toByteArray();
+  }
+
   @Test
   public void testBlockingBinaryEncoder() throws IOException {
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
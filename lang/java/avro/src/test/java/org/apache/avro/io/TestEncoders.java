@@ -17,15 +17,21 @@
  */
 package org.apache.avro.io;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 
 import org.apache.avro.AvroTypeException;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Type;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.ByteBufferPool;
 import org.codehaus.jackson.JsonEncoding;
 import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonGenerator;
@@ -73,6 +79,25 @@ public class TestEncoders {
     factory.directBinaryEncoder(null, null);
   }
 
+  @Test
+  public void testByteBufferEncoderInit() throws IOException {
+    ByteBufferPool pool = new ByteBufferPool(64, true);
+    ByteBufferBinaryEncoder enc = factory.byteBufferEncoder(pool, null);
+    enc.writeLong(42);
+    Assert.assertTrue(enc == factory.byteBufferEncoder(pool, enc));
+    Assert.assertEquals(0, enc.bytesBuffered());  // discarded on reuse
+    enc.writeString("abc");
+    List<ByteBuffer> buffers = enc.getBufferList();
+    Assert.assertEquals(1, buffers.size());
+    Assert.assertTrue(buffers.get(0).isDirect());
+    Assert.assertEquals(4, buffers.get(0).remaining());
+  }
+
+  @Test(expected=NullPointerException.class)
+  public void testBadByteBufferEncoderInit() {
+    factory.byteBufferEncoder(null, null);
+  }
+
   @Test
   public void testJsonEncoderInit() throws IOException {
     Schema s = Schema.parse("\"int\"");
@@ -193,4 +218,243 @@ public class TestEncoders {
     Assert.assertEquals("{\"a\": {\"a1\": null, \"a2\": true}}", o.toString());
   }
 
+  private static final int COUNT = 100;
+
+  private static long[] longs() {
+    long[] data = new long[COUNT + 1];            // skip the first
+    for (int i = 1; i <= COUNT; i++)
+      data[i] = (i % 2 == 0 ? 1L : -1L) << (i % 64);
+    return data;
+  }
+
+  private static double[] doubles() {
+    double[] data = new double[COUNT + 1];
+    for (int i = 1; i <= COUNT; i++)
+      data[i] = i * Math.PI * (i % 2 == 0 ? 1 : -1);
+    return data;
+  }
+
+  /** Writes the values after the first as one array, in bulk. */
+  private static byte[] writeBulk(BinaryEncoder enc, ByteArrayOutputStream out)
+    throws IOException {
+    long[] longs = longs();
+    double[] doubles = doubles();
+    int[] ints = new int[COUNT + 1];
+    float[] floats = new float[COUNT + 1];
+    for (int i = 0; i <= COUNT; i++) {
+      ints[i] = (int)longs[i];
+      floats[i] = (float)doubles[i];
+    }
+    enc.writeArrayStart();
+    enc.setItemCount(COUNT);
+    enc.writeInts(ints, 1, COUNT);
+    enc.writeArrayEnd();
+    enc.writeArrayStart();
+    enc.setItemCount(COUNT);
+    enc.writeLongs(longs, 1, COUNT);
+    enc.writeArrayEnd();
+    enc.writeArrayStart();
+    enc.setItemCount(COUNT);
+    enc.writeFloats(floats, 1, COUNT);
+    enc.writeArrayEnd();
+    enc.writeArrayStart();
+    enc.setItemCount(COUNT);
+    enc.writeDoubles(doubles, 1, COUNT);
+    enc.writeArrayEnd();
+    enc.flush();
+    return out.toByteArray();
+  }
+
+  /** Checks the arrays written by {@link #writeBulk}, read item by item. */
+  private static void checkItems(Decoder in) throws IOException {
+    long[] longs = longs();
+    double[] doubles = doubles();
+    int i = 1;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext())
+      for (long j = 0; j < n; j++, i++)
+        Assert.assertEquals((int)longs[i], in.readInt());
+    Assert.assertEquals(COUNT + 1, i);
+    i = 1;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext())
+      for (long j = 0; j < n; j++, i++)
+        Assert.assertEquals(longs[i], in.readLong());
+    Assert.assertEquals(COUNT + 1, i);
+    i = 1;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext())
+      for (long j = 0; j < n; j++, i++)
+        Assert.assertEquals((float)doubles[i], in.readFloat(), 0);
+    Assert.assertEquals(COUNT + 1, i);
+    i = 1;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext())
+      for (long j = 0; j < n; j++, i++)
+        Assert.assertEquals(doubles[i], in.readDouble(), 0);
+    Assert.assertEquals(COUNT + 1, i);
+  }
+
+  /** Checks the arrays written by {@link #writeBulk}, read in bulk. */
+  private static void checkBulk(Decoder in) throws IOException {
+    long[] longs = longs();
+    double[] doubles = doubles();
+    int[] ints = new int[COUNT + 1];
+    long[] longsRead = new long[COUNT + 1];
+    float[] floats = new float[COUNT + 1];
+    double[] doublesRead = new double[COUNT + 1];
+    int i = 1;
+    for (long n = in.readArrayStart(); n != 0; i += n, n = in.arrayNext())
+      in.readInts(ints, i, (int)n);
+    i = 1;
+    for (long n = in.readArrayStart(); n != 0; i += n, n = in.arrayNext())
+      in.readLongs(longsRead, i, (int)n);
+    i = 1;
+    for (long n = in.readArrayStart(); n != 0; i += n, n = in.arrayNext())
+      in.readFloats(floats, i, (int)n);
+    i = 1;
+    for (long n = in.readArrayStart(); n != 0; i += n, n = in.arrayNext())
+      in.readDoubles(doublesRead, i, (int)n);
+    Assert.assertTrue(Arrays.equals(longs, longsRead));
+    Assert.assertTrue(Arrays.equals(doubles, doublesRead));
+    for (i = 1; i <= COUNT; i++) {
+      Assert.assertEquals((int)longs[i], ints[i]);
+      Assert.assertEquals((float)doubles[i], floats[i], 0);
+    }
+  }
+
+  @Test
+  public void testBulkWrite() throws IOException {
+    EncoderFactory small = new EncoderFactory().configureBufferSize(32)
+      .configureBlockSize(64);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] expected = writeBulk(factory.directBinaryEncoder(out, null), out);
+    checkItems(DecoderFactory.get().binaryDecoder(expected, null));
+
+    out = new ByteArrayOutputStream();
+    Assert.assertTrue(Arrays.equals(expected,
+        writeBulk(small.binaryEncoder(out, null), out)));
+
+    out = new ByteArrayOutputStream();             // splits into blocks
+    byte[] blocked = writeBulk(small.blockingBinaryEncoder(out, null), out);
+    Assert.assertFalse(Arrays.equals(expected, blocked));
+    checkItems(DecoderFactory.get().binaryDecoder(blocked, null));
+  }
+
+  @Test
+  public void testBulkRead() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] bytes = writeBulk(factory.directBinaryEncoder(out, null), out);
+    DecoderFactory small = new DecoderFactory().configureDecoderBufferSize(32);
+    checkBulk(DecoderFactory.get().binaryDecoder(bytes, null));
+    checkBulk(small.binaryDecoder(new ByteArrayInputStream(bytes), null));
+    checkBulk(small.directBinaryDecoder(new ByteArrayInputStream(bytes),null));
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).flip();
+    checkBulk(DecoderFactory.get().binaryDecoder(direct, null));
+
+    out = new ByteArrayOutputStream();
+    EncoderFactory blocking = new EncoderFactory().configureBlockSize(64);
+    byte[] blocked = writeBulk(blocking.blockingBinaryEncoder(out, null), out);
+    checkBulk(small.binaryDecoder(new ByteArrayInputStream(blocked), null));
+  }
+
+  @Test(expected=EOFException.class)
+  public void testBulkReadEOF() throws IOException {
+    ByteBuffer direct = ByteBuffer.allocateDirect(12);
+    direct.put(new byte[12]).flip();
+    DecoderFactory.get().binaryDecoder(direct, null)
+      .readDoubles(new double[2], 0, 2);
+  }
+
+  @Test
+  public void testBulkReadInvalid() throws IOException {
+    byte[] bytes = new byte[32];
+    Arrays.fill(bytes, 0, 11, (byte)0xff);      // too long for any varint
+    try {
+      DecoderFactory.get().binaryDecoder(bytes, null)
+        .readInts(new int[2], 0, 2);
+      Assert.fail("Expected an invalid int encoding");
+    } catch (IOException e) {
+      Assert.assertEquals("Invalid int encoding", e.getMessage());
+    }
+    try {
+      DecoderFactory.get().binaryDecoder(bytes, null)
+        .readLongs(new long[2], 0, 2);
+      Assert.fail("Expected an invalid long encoding");
+    } catch (IOException e) {
+      Assert.assertEquals("Invalid long encoding", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testBulkReadResolving() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] bytes = writeBulk(factory.directBinaryEncoder(out, null), out);
+    Schema writer = Schema.createRecord("R", null, null, false);
+    Schema reader = Schema.createRecord("R", null, null, false);
+    writer.setFields(Arrays.asList(
+        field("i", Type.INT), field("l", Type.LONG),
+        field("f", Type.FLOAT), field("d", Type.DOUBLE)));
+    reader.setFields(Arrays.asList(
+        field("i", Type.INT), field("l", Type.LONG),
+        field("f", Type.FLOAT), field("d", Type.DOUBLE)));
+    checkBulk(DecoderFactory.get().resolvingDecoder(writer, reader,
+        DecoderFactory.get().binaryDecoder(bytes, null)));
+
+    reader = Schema.createRecord("R", null, null, false);
+    reader.setFields(Arrays.asList(       // promote each to the next type
+        field("i", Type.LONG), field("l", Type.FLOAT),
+        field("f", Type.DOUBLE), field("d", Type.DOUBLE)));
+    Decoder in = DecoderFactory.get().resolvingDecoder(writer, reader,
+        DecoderFactory.get().binaryDecoder(bytes, null));
+    long[] longs = new long[COUNT];
+    float[] floats = new float[COUNT];
+    double[] doubles = new double[COUNT];
+    Assert.assertEquals(COUNT, in.readArrayStart());
+    in.readLongs(longs, 0, COUNT);
+    Assert.assertEquals(0, in.arrayNext());
+    Assert.assertEquals(COUNT, in.readArrayStart());
+    in.readFloats(floats, 0, COUNT);
+    Assert.assertEquals(0, in.arrayNext());
+    Assert.assertEquals(COUNT, in.readArrayStart());
+    in.readDoubles(doubles, 0, COUNT);
+    Assert.assertEquals(0, in.arrayNext());
+    for (int i = 0; i < COUNT; i++) {
+      Assert.assertEquals((int)longs()[i + 1], longs[i]);
+      Assert.assertEquals((float)longs()[i + 1], floats[i], 0);
+      Assert.assertEquals((float)doubles()[i + 1], doubles[i], 0);
+    }
+  }
+
+  @Test
+  public void testBulkReadWriterUnion() throws IOException {
+    Schema union = Schema.createUnion(Arrays.asList(
+        Schema.create(Type.INT), Schema.create(Type.DOUBLE)));
+    Schema writer = Schema.createArray(union);
+    Schema reader = Schema.createArray(Schema.create(Type.DOUBLE));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder enc = factory.directBinaryEncoder(out, null);
+    enc.writeArrayStart();
+    enc.setItemCount(3);
+    enc.startItem();
+    enc.writeIndex(0);
+    enc.writeInt(7);
+    enc.startItem();
+    enc.writeIndex(1);
+    enc.writeDouble(0.5);
+    enc.startItem();
+    enc.writeIndex(1);
+    enc.writeDouble(-2.5);
+    enc.writeArrayEnd();
+    Decoder in = DecoderFactory.get().resolvingDecoder(writer, reader,
+        DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+    double[] data = new double[3];
+    Assert.assertEquals(3, in.readArrayStart());
+    in.readDoubles(data, 0, 3);
+    Assert.assertEquals(0, in.arrayNext());
+    Assert.assertTrue(Arrays.equals(new double[] { 7, 0.5, -2.5 }, data));
+  }
+
+  private static Schema.Field field(String name, Type type) {
+    return new Schema.Field(name, Schema.createArray(Schema.create(type)),
+                            null, null);
+  }
+
 }
@@ -24,17 +24,28 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
 import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.AvroTestUtil;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaBuilder;
+import org.apache.avro.SchemaNormalization;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericData.Record;
 import org.apache.avro.generic.GenericRecordBuilder;
 import org.junit.Assert;
 import org.junit.Test;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TestBinaryMessageEncoding {
   public static final Schema SCHEMA_V1 = SchemaBuilder.record("TestRecord")
@@ -174,6 +185,179 @@ public class TestBinaryMessageEncoding {
         record);
   }
 
+  /** Counts lookups, optionally waiting until released. */
+  private static class CountingStore implements SchemaStore {
+    private final SchemaStore.Cache schemas = new SchemaStore.Cache();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final CountDownLatch released;
+
+    CountingStore(CountDownLatch released, Schema... schemas) {
+      this.released = released;
+      for (Schema schema : schemas) {
+        this.schemas.addSchema(schema);
+      }
+    }
+
+    @Override
+    public Schema findByFingerprint(long fingerprint) {
+      lookups.incrementAndGet();
+      try {
+        released.await();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      return schemas.findByFingerprint(fingerprint);
+    }
+  }
+
+  @Test
+  public void testSchemaFromLookupIsCached() throws Exception {
+    MessageEncoder<Record> v1Encoder = new BinaryMessageEncoder<Record>(
+        GenericData.get(), SCHEMA_V1);
+    CountingStore store = new CountingStore(new CountDownLatch(0), SCHEMA_V1);
+    BinaryMessageDecoder<Record> v2Decoder = new BinaryMessageDecoder<Record>(
+        GenericData.get(), SCHEMA_V2, store);
+
+    for (Record record : V1_RECORDS) {
+      Record copy = v2Decoder.decode(v1Encoder.encode(record));
+      Assert.assertEquals(record.get("id"), ((Long) copy.get("id")).intValue());
+    }
+    Assert.assertEquals(1, store.lookups.get());
+  }
+
+  @Test
+  public void testConcurrentLookupsCoalesce() throws Exception {
+    MessageEncoder<Record> v1Encoder = new BinaryMessageEncoder<Record>(
+        GenericData.get(), SCHEMA_V1);
+    final ByteBuffer v1Buffer = v1Encoder.encode(V1_RECORDS.get(0));
+    CountDownLatch released = new CountDownLatch(1);
+    CountingStore store = new CountingStore(released, SCHEMA_V1);
+    final BinaryMessageDecoder<Record> v2Decoder =
+        new BinaryMessageDecoder<Record>(GenericData.get(), SCHEMA_V2, store);
+
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    List<Future<Record>> results = Lists.newArrayList();
+    for (int i = 0; i < 8; i++) {
+      results.add(pool.submit(new Callable<Record>() {
+        @Override
+        public Record call() throws Exception {
+          return v2Decoder.decode(v1Buffer.duplicate());
+        }
+      }));
+    }
+    while (store.lookups.get() == 0) {
+      Thread.sleep(1);
+    }
+    Thread.sleep(50);
+    released.countDown();
+    for (Future<Record> result : results) {
+      Assert.assertEquals(1L, result.get().get("id"));
+    }
+    pool.shutdown();
+    Assert.assertEquals(1, store.lookups.get());
+  }
+
+  @Test
+  public void testMissingSchemaIsRemembered() throws Exception {
+    MessageEncoder<Record> v1Encoder = new BinaryMessageEncoder<Record>(
+        GenericData.get(), SCHEMA_V1);
+    ByteBuffer v1Buffer = v1Encoder.encode(V1_RECORDS.get(0));
+    CountingStore store = new CountingStore(new CountDownLatch(0));
+    BinaryMessageDecoder<Record> v2Decoder = new BinaryMessageDecoder<Record>(
+        GenericData.get(), SCHEMA_V2, store, 16, 60000);
+
+    for (int i = 0; i < 3; i++) {
+      try {
+        v2Decoder.decode(v1Buffer.duplicate());
+        Assert.fail("Should not find the schema");
+      } catch (MissingSchemaException e) {
+        // expected
+      }
+    }
+    Assert.assertEquals(1, store.lookups.get());
+
+    v2Decoder.addSchema(SCHEMA_V1);
+    Assert.assertEquals(1L, v2Decoder.decode(v1Buffer.duplicate()).get("id"));
+  }
+
+  @Test
+  public void testResolvedDecodersAreBounded() throws Exception {
+    Schema v3 = SchemaBuilder.record("TestRecord").fields()
+        .requiredInt("id")
+        .endRecord();
+    MessageEncoder<Record> v1Encoder = new BinaryMessageEncoder<Record>(
+        GenericData.get(), SCHEMA_V1);
+    MessageEncoder<Record> v3Encoder = new BinaryMessageEncoder<Record>(
+        GenericData.get(), v3);
+    CountingStore store =
+        new CountingStore(new CountDownLatch(0), SCHEMA_V1, v3);
+    BinaryMessageDecoder<Record> v2Decoder = new BinaryMessageDecoder<Record>(
+        GenericData.get(), SCHEMA_V2, store, 1, 0);
+
+    Record v3Record = new GenericRecordBuilder(v3).set("id", 9).build();
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(1L,
+          v2Decoder.decode(v1Encoder.encode(V1_RECORDS.get(0))).get("id"));
+      Assert.assertEquals(9L,
+          v2Decoder.decode(v3Encoder.encode(v3Record)).get("id"));
+    }
+    Assert.assertEquals(6, store.lookups.get());
+  }
+
+  @Test
+  public void testDirectorySchemaStore() throws Exception {
+    File dir = AvroTestUtil.tempDirectory(getClass(), "schemas");
+    for (File file : dir.listFiles()) {
+      file.delete();
+    }
+    SchemaStore.Directory store = new SchemaStore.Directory(dir);
+    long v1 = SchemaNormalization.parsingFingerprint64(SCHEMA_V1);
+    long v2 = SchemaNormalization.parsingFingerprint64(SCHEMA_V2);
+    Assert.assertNull(store.findByFingerprint(v1));
+
+    writeSchema(new File(dir, "v1.avsc"), SCHEMA_V1);
+    writeSchema(new File(dir, "v2.json"), SCHEMA_V2);
+    Assert.assertEquals(SCHEMA_V1, store.findByFingerprint(v1));
+    Assert.assertNull("Only .avsc files are read", store.findByFingerprint(v2));
+
+    MessageEncoder<Record> v1Encoder = new BinaryMessageEncoder<Record>(
+        GenericData.get(), SCHEMA_V1);
+    BinaryMessageDecoder<Record> v2Decoder = new BinaryMessageDecoder<Record>(
+        GenericData.get(), SCHEMA_V2, store);
+    Assert.assertEquals(4L,
+        v2Decoder.decode(v1Encoder.encode(V1_RECORDS.get(2))).get("id"));
+  }
+
+  @Test
+  public void testDirectorySchemaStoreSkipsBadFiles() throws Exception {
+    File dir = AvroTestUtil.tempDirectory(getClass(), "bad-schemas");
+    for (File file : dir.listFiles()) {
+      file.delete();
+    }
+    FileWriter writer = new FileWriter(new File(dir, "half.avsc"));
+    try {
+      writer.write("{\"type\": \"record\", \"na");
+    } finally {
+      writer.close();
+    }
+    writeSchema(new File(dir, "v1.avsc"), SCHEMA_V1);
+    SchemaStore.Directory store = new SchemaStore.Directory(dir);
+    long v1 = SchemaNormalization.parsingFingerprint64(SCHEMA_V1);
+    long v2 = SchemaNormalization.parsingFingerprint64(SCHEMA_V2);
+    Assert.assertEquals(SCHEMA_V1, store.findByFingerprint(v1));
+    Assert.assertNull(store.findByFingerprint(v2));
+  }
+
+  private static void writeSchema(File file, Schema schema)
+      throws IOException {
+    FileWriter writer = new FileWriter(file);
+    try {
+      writer.write(schema.toString(true));
+    } finally {
+      writer.close();
+    }
+  }
+
   @Test
   public void testBufferReuse() throws Exception {
     // This test depends on the serialized version of record 1 being smaller or
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestByteBufferPool {
+
+  @Test
+  public void testReuse() {
+    ByteBufferPool pool = new ByteBufferPool(32, false, 1);
+    ByteBuffer a = pool.acquire();
+    ByteBuffer b = pool.acquire();
+    assertNotSame(a, b);
+    a.put((byte)1).flip();
+    pool.release(a);
+    pool.release(b);                              // beyond the bound
+    ByteBuffer c = pool.acquire();
+    assertSame(a, c);
+    assertEquals(0, c.position());
+    assertEquals(32, c.limit());
+    assertNotSame(b, pool.acquire());
+  }
+
+  @Test
+  public void testForeignBuffers() {
+    ByteBufferPool pool = new ByteBufferPool(32, true);
+    pool.release(ByteBuffer.allocate(32));       // not direct
+    pool.release(ByteBuffer.allocateDirect(16)); // wrong size
+    ByteBuffer buffer = pool.acquire();
+    assertTrue(buffer.isDirect());
+    assertEquals(32, buffer.capacity());
+  }
+
+  @Test
+  public void testOutputStream() throws Exception {
+    ByteBufferPool pool = new ByteBufferPool(16, false);
+    ByteBufferOutputStream out = new ByteBufferOutputStream(pool);
+    byte[] bytes = new byte[40];
+    for (int i = 0; i < bytes.length; i++)
+      bytes[i] = (byte)i;
+    out.write(bytes, 0, 20);
+    ByteBuffer direct = ByteBuffer.allocateDirect(20);
+    direct.put(bytes, 20, 20).flip();
+    out.writeBuffer(direct);                      // copied
+    List<ByteBuffer> buffers = out.getBufferList();
+    assertEquals(3, buffers.size());
+    int i = 0;
+    for (ByteBuffer buffer : buffers) {
+      assertEquals(16, buffer.capacity());
+      while (buffer.hasRemaining())
+        assertEquals(bytes[i++], buffer.get());
+    }
+    assertEquals(40, i);
+    assertEquals(20, direct.remaining());
+    pool.release(buffers);
+    out.write(1);
+    assertSame(buffers.get(0), pool.acquire());   // recycled
+  }
+}
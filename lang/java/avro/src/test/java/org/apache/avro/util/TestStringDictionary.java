@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.CompiledDatumReader;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.Test;
+
+public class TestStringDictionary {
+
+  @Test
+  public void testIntern() {
+    StringDictionary dictionary = new StringDictionary(16);
+    Utf8 scratch = new Utf8("US");
+    Utf8 first = dictionary.intern(scratch);
+    assertNotSame(scratch, first);
+    scratch.set("DE");
+    assertEquals(new Utf8("US"), first);          // copied, not shared
+    assertSame(first, dictionary.intern(new Utf8("US")));
+    assertSame(dictionary.internString(new Utf8("US")),
+               dictionary.internString(new Utf8("US")));
+    assertEquals(3, dictionary.getHitCount());
+    assertEquals(1, dictionary.getMissCount());
+    assertEquals(0.75, dictionary.getHitRate(), 0);
+    assertEquals(16, dictionary.getSize());
+    dictionary.clear();
+    assertNotSame(first, dictionary.intern(new Utf8("US")));
+  }
+
+  @Test
+  public void testBounded() {
+    StringDictionary dictionary = new StringDictionary(5, 4);
+    assertEquals(8, dictionary.getSize());
+    Utf8 longer = new Utf8("12345");
+    assertNotSame(dictionary.intern(longer), dictionary.intern(longer));
+    for (int i = 0; i < 1000; i++)
+      dictionary.intern(new Utf8(Integer.toString(i)));
+    assertEquals(1002, dictionary.getMissCount());
+  }
+
+  private static final Schema SCHEMA = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"code\",\"type\":{\"type\":\"string\","
+      + "\"avro.java.dictionary\":\"64\"}},"
+      + "{\"name\":\"name\",\"type\":\"string\"},"
+      + "{\"name\":\"tags\",\"type\":{\"type\":\"map\",\"values\":\"long\","
+      + "\"avro.java.dictionary\":\"64\",\"avro.java.string\":\"String\"}}"
+      + "]}");
+
+  private static byte[] write(int count) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<GenericRecord> writer =
+      new GenericDatumWriter<GenericRecord>(SCHEMA);
+    for (int i = 0; i < count; i++) {
+      GenericRecord record = new GenericData.Record(SCHEMA);
+      record.put("code", i % 2 == 0 ? "US" : "DE");
+      record.put("name", "name" + i);
+      Map<String, Long> tags = new HashMap<String, Long>();
+      tags.put("clicks", (long) i);
+      record.put("tags", tags);
+      writer.write(record, encoder);
+    }
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static List<GenericRecord> read(DatumReader<GenericRecord> reader,
+                                          byte[] bytes, int count)
+    throws IOException {
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(bytes, null);
+    List<GenericRecord> records = new ArrayList<GenericRecord>();
+    GenericRecord reuse = null;
+    for (int i = 0; i < count; i++)
+      records.add(reuse = reader.read(reuse, decoder));
+    return records;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void check(List<GenericRecord> records) {
+    GenericRecord r0 = records.get(0);
+    GenericRecord r2 = records.get(2);
+    assertEquals(new Utf8("US"), r0.get("code"));
+    assertEquals(new Utf8("DE"), records.get(1).get("code"));
+    assertSame(r0.get("code"), r2.get("code"));
+    assertNotSame(r0.get("name"), r2.get("name"));
+    assertEquals(new Utf8("name2"), r2.get("name"));
+    String k0 = ((Map<String, Object>) r0.get("tags")).keySet().iterator().next();
+    String k2 = ((Map<String, Object>) r2.get("tags")).keySet().iterator().next();
+    assertEquals("clicks", k0);
+    assertSame(k0, k2);
+  }
+
+  @Test
+  public void testSchemaDictionaries() throws IOException {
+    GenericData data = new GenericData();
+    byte[] bytes = write(4);
+    // each record is read into a new instance, so earlier ones stay intact
+    List<GenericRecord> records = new ArrayList<GenericRecord>();
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(bytes, null);
+    GenericDatumReader<GenericRecord> reader =
+      new GenericDatumReader<GenericRecord>(SCHEMA, SCHEMA, data);
+    for (int i = 0; i < 4; i++)
+      records.add(reader.read(null, decoder));
+    check(records);
+    StringDictionary codes = data.getStringDictionary(
+        SCHEMA.getField("code").schema());
+    assertEquals(2, codes.getHitCount());
+    assertEquals(2, codes.getMissCount());
+
+    records = new ArrayList<GenericRecord>();
+    decoder = DecoderFactory.get().binaryDecoder(bytes, decoder);
+    CompiledDatumReader<GenericRecord> compiled =
+      new CompiledDatumReader<GenericRecord>(SCHEMA, SCHEMA, data);
+    for (int i = 0; i < 4; i++)
+      records.add(compiled.read(null, decoder));
+    check(records);
+    assertEquals(6, codes.getHitCount());
+  }
+
+  @Test
+  public void testReusedRecords() throws IOException {
+    // shared values must not be overwritten when a record is reused
+    GenericData data = new GenericData();
+    byte[] bytes = write(3);
+    List<GenericRecord> records = read(
+        new GenericDatumReader<GenericRecord>(SCHEMA, SCHEMA, data), bytes, 3);
+    assertEquals(new Utf8("US"), records.get(2).get("code"));
+    assertEquals(new Utf8("US"), data.getStringDictionary(
+        SCHEMA.getField("code").schema()).intern(new Utf8("US")));
+    assertEquals(new Utf8("DE"), data.getStringDictionary(
+        SCHEMA.getField("code").schema()).intern(new Utf8("DE")));
+  }
+
+  @Test
+  public void testSharedNotReused() throws IOException {
+    // a reader without a dictionary must not read into a shared value
+    Utf8 shared = new StringDictionary(16).intern(new Utf8("US"));
+    assertTrue(StringDictionary.isShared(shared));
+    try {
+      shared.set("DE");
+      fail("Shared strings cannot be set");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    Schema string = Schema.create(Schema.Type.STRING);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    encoder.writeString("DE");
+    encoder.writeString("FR");
+    encoder.flush();
+    BinaryDecoder decoder =
+      DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+    assertEquals(new Utf8("DE"),
+        new GenericDatumReader<Object>(string).read(shared, decoder));
+    assertEquals(new Utf8("FR"),
+        new CompiledDatumReader<Object>(string).read(shared, decoder));
+    assertEquals(new Utf8("US"), shared);
+    assertEquals(new Utf8("US").hashCode(), shared.hashCode());
+  }
+
+  @Test
+  public void testDataDictionary() throws IOException {
+    GenericData data = new GenericData();
+    StringDictionary dictionary = new StringDictionary(256);
+    data.setStringDictionary(dictionary);
+    Schema name = SCHEMA.getField("name").schema();
+    assertSame(dictionary, data.getStringDictionary(name));
+    assertNotSame(dictionary,
+                  data.getStringDictionary(SCHEMA.getField("code").schema()));
+    read(new GenericDatumReader<GenericRecord>(SCHEMA, SCHEMA, data),
+         write(3), 3);
+    assertEquals(3, dictionary.getMissCount());   // distinct names only
+  }
+}
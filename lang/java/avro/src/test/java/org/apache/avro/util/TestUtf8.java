@@ -18,6 +18,9 @@
 package org.apache.avro.util;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Random;
+
+import org.apache.avro.io.BinaryData;
 
 import junit.framework.Assert;
 
@@ -25,6 +28,8 @@ import org.junit.Test;
 
 import static junit.framework.Assert.assertSame;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class TestUtf8 {
   @Test public void testByteConstructor() throws Exception {
@@ -48,4 +53,67 @@ public class TestUtf8 {
     assertEquals(4, u.getByteLength());
     assertSame(content, u.getBytes());
   }
+
+  @Test public void testHashCodeInvalidated() throws Exception {
+    Utf8 u = new Utf8("abc");
+    assertEquals(new Utf8("abc").hashCode(), u.hashCode());
+    byte[] bs = u.getBytes();
+    bs[0] = 'x';
+    u.setByteLength(3);
+    assertEquals(new Utf8("xbc").hashCode(), u.hashCode());
+    assertEquals(new Utf8("xbc"), u);
+    u.set("abc");
+    assertEquals(new Utf8("abc").hashCode(), u.hashCode());
+    assertEquals(new Utf8("abc"), u);
+  }
+
+  @Test public void testCharSequence() throws Exception {
+    for (String s : new String[] { "", "ascii text", "caf\u00e9",
+                                   "\ud83d\ude00 emoji", "\u6f22\u5b57" }) {
+      Utf8 u = new Utf8(s.getBytes("UTF-8"));
+      assertEquals(s.length(), u.length());
+      for (int i = 0; i < s.length(); i++)
+        assertEquals(s.charAt(i), new Utf8(s.getBytes("UTF-8")).charAt(i));
+      assertEquals(s, u.toString());
+    }
+    try {
+      new Utf8("abc".getBytes("UTF-8")).charAt(3);
+      Assert.fail("Should have thrown");
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+  @Test public void testCompare() throws Exception {
+    Random random = new Random(1);
+    ByteArrayComparator bytewise = new ByteArrayComparator.Bytewise();
+    ByteArrayComparator chosen = ByteArrayComparator.get();
+    for (int n = 0; n < 10000; n++) {
+      byte[] b1 = new byte[random.nextInt(40)];
+      random.nextBytes(b1);
+      byte[] b2 = b1.clone();
+      int l2 = b2.length;
+      if (b2.length > 0 && random.nextBoolean())
+        b2[random.nextInt(b2.length)] = (byte)random.nextInt();
+      else if (random.nextBoolean())
+        l2 = random.nextInt(b2.length + 1);
+      int expected = BinaryData.compareBytes(b1, 0, b1.length, b2, 0, l2);
+      assertEquals(expected, bytewise.compare(b1, b1.length, b2, l2));
+      assertEquals(expected, chosen.compare(b1, b1.length, b2, l2));
+      Utf8 u1 = new Utf8(b1);
+      Utf8 u2 = new Utf8(b2).setByteLength(l2);
+      assertEquals(expected, u1.compareTo(u2));
+      assertEquals(expected == 0, u1.equals(u2));
+      assertEquals(expected == 0, u2.equals(u1));
+    }
+  }
+
+  @Test public void testEqualsUsesCachedHash() throws Exception {
+    Utf8 u1 = new Utf8("0123456789abcdef");
+    Utf8 u2 = new Utf8("0123456789abcdeg");
+    u1.hashCode();
+    u2.hashCode();
+    assertFalse(u1.equals(u2));
+    assertTrue(u1.equals(new Utf8(u1)));
+  }
 }
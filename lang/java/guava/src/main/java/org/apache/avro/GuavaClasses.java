@@ -20,9 +20,11 @@ package org.apache.avro;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.MapMaker;
 import com.google.common.primitives.Bytes;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 class GuavaClasses {
   /*
@@ -35,5 +37,7 @@ class GuavaClasses {
     LoadingCache.class.getName();
     CacheBuilder.class.getName();
     CacheLoader.class.getName();
+    CacheStats.class.getName();
+    UncheckedExecutionException.class.getName();
   }
 }
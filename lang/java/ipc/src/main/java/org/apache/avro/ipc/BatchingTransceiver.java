@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link Transceiver} that coalesces one-way messages into batches, each
+ * written to another transceiver as a single request.  A batch is written
+ * once it holds a given number of bytes, once a given interval has passed
+ * since its first message, before any two-way message, and on {@link
+ * #flush()} and {@link #close()}.
+ *
+ * <p>Only one-way messages sent after the handshake are batched.  The server
+ * must handle batches, as {@link Responder} does for connection-based
+ * servers such as {@link NettyServer} and {@link SocketServer}.  Errors
+ * writing a batch when its interval passes are logged, since the one-way
+ * messages in it have already returned.
+ */
+public class BatchingTransceiver extends Transceiver {
+  private static final Logger LOG =
+    LoggerFactory.getLogger(BatchingTransceiver.class);
+
+  private final Transceiver transceiver;
+  private final int maxBatchBytes;
+  private final long flushIntervalMillis;
+  private final ScheduledExecutorService timer;
+
+  private final Object flushLock = new Object();
+  private final Object batchLock = new Object();
+  private List<ByteBuffer> batch =                // Synchronized on batchLock
+    new ArrayList<ByteBuffer>();
+  private int batchBytes;                         // Synchronized on batchLock
+  private ScheduledFuture<?> scheduled;           // Synchronized on batchLock
+
+  /**
+   * Creates a batching transceiver.
+   * @param transceiver the transceiver to write batches to.
+   * @param maxBatchBytes the size at which a batch is written.
+   * @param flushIntervalMillis the longest time, in milliseconds, that a
+   * message waits in a batch, or zero to wait until the batch is full.
+   */
+  public BatchingTransceiver(Transceiver transceiver, int maxBatchBytes,
+                             long flushIntervalMillis) {
+    if (maxBatchBytes < 1)
+      throw new IllegalArgumentException("maxBatchBytes must be positive: "
+                                         + maxBatchBytes);
+    this.transceiver = transceiver;
+    this.maxBatchBytes = maxBatchBytes;
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.timer = flushIntervalMillis <= 0 ? null
+      : Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Avro BatchingTransceiver flush");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+  }
+
+  /** Returns the transceiver batches are written to. */
+  public Transceiver getTransceiver() { return transceiver; }
+
+  @Override
+  public String getRemoteName() throws IOException {
+    return transceiver.getRemoteName();
+  }
+
+  /** Adds a one-way message to the current batch, writing the batch if it
+   * is then full. */
+  @Override
+  public void writeBuffers(List<ByteBuffer> buffers) throws IOException {
+    boolean full;
+    synchronized (batchLock) {
+      batch.addAll(buffers);
+      for (ByteBuffer buffer : buffers)
+        batchBytes += buffer.remaining();
+      full = batchBytes >= maxBatchBytes;
+      if (!full && timer != null && scheduled == null)
+        scheduled = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+              try {
+                flush();
+              } catch (IOException e) {
+                LOG.warn("Error writing a batch of one-way messages", e);
+              }
+            }
+          }, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+    if (full)
+      flush();
+  }
+
+  /** Writes the current batch, if any. */
+  public void flush() throws IOException {
+    // hold other flushes from taking a batch until this one's written, so
+    // that batches are written in the order they're taken; the channel lock
+    // alone won't do, as some transceivers, like Netty's, don't implement it
+    synchronized (flushLock) {
+      flushBatch();
+    }
+  }
+
+  private void flushBatch() throws IOException {
+    transceiver.lockChannel();
+    try {
+      List<ByteBuffer> pending;
+      synchronized (batchLock) {
+        if (scheduled != null) {
+          scheduled.cancel(false);
+          scheduled = null;
+        }
+        if (batch.isEmpty())
+          return;
+        pending = batch;
+        batch = new ArrayList<ByteBuffer>();
+        batchBytes = 0;
+      }
+      transceiver.writeBuffers(pending);
+    } finally {
+      transceiver.unlockChannel();
+    }
+  }
+
+  @Override
+  public List<ByteBuffer> readBuffers() throws IOException {
+    return transceiver.readBuffers();
+  }
+
+  @Override
+  public List<ByteBuffer> transceive(List<ByteBuffer> request)
+    throws IOException {
+    flush();
+    return transceiver.transceive(request);
+  }
+
+  @Override
+  public void transceive(List<ByteBuffer> request,
+                         Callback<List<ByteBuffer>> callback)
+    throws IOException {
+    flush();
+    transceiver.transceive(request, callback);
+  }
+
+  @Override
+  public boolean isConnected() { return transceiver.isConnected(); }
+
+  @Override
+  public void setRemote(Protocol protocol) {
+    transceiver.setRemote(protocol);
+  }
+
+  @Override
+  public Protocol getRemote() { return transceiver.getRemote(); }
+
+  /** Writes the current batch, then closes the transceiver it was written
+   * to. */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (timer != null)
+        timer.shutdownNow();
+      flush();
+    } finally {
+      transceiver.close();
+    }
+  }
+}
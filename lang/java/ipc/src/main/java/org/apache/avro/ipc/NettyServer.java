@@ -25,6 +25,8 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Protocol.Message;
 import org.apache.avro.ipc.NettyTransportCodec.NettyDataPack;
 import org.apache.avro.ipc.NettyTransportCodec.NettyFrameDecoder;
 import org.apache.avro.ipc.NettyTransportCodec.NettyFrameEncoder;
@@ -63,6 +65,7 @@ public class NettyServer implements Server {
   private final ChannelFactory channelFactory;
   private final CountDownLatch closed = new CountDownLatch(1);
   private final ExecutionHandler executionHandler;
+  private final RequestExecutor requestExecutor;
 
   public NettyServer(Responder responder, InetSocketAddress addr) {
     this(responder, addr, new NioServerSocketChannelFactory
@@ -86,9 +89,30 @@ public class NettyServer implements Server {
                      ChannelFactory channelFactory,
                      final ChannelPipelineFactory pipelineFactory,
                      final ExecutionHandler executionHandler) {
+    this(responder, addr, channelFactory, pipelineFactory, executionHandler,
+         null);
+  }
+
+  /**
+   * @param executionHandler if not null, will be inserted into the Netty
+   *                         pipeline. Use this when your responder does
+   *                         long, non-cpu bound processing (see Netty's
+   *                         ExecutionHandler javadoc).
+   * @param pipelineFactory  Avro-related handlers will be added on top of
+   *                         what this factory creates
+   * @param requestExecutor  if not null, requests are run by this rather
+   *                         than on the thread that received them, and
+   *                         their responses written as they complete
+   */
+  public NettyServer(Responder responder, InetSocketAddress addr,
+                     ChannelFactory channelFactory,
+                     final ChannelPipelineFactory pipelineFactory,
+                     final ExecutionHandler executionHandler,
+                     RequestExecutor requestExecutor) {
     this.responder = responder;
     this.channelFactory = channelFactory;
     this.executionHandler = executionHandler;
+    this.requestExecutor = requestExecutor;
     ServerBootstrap bootstrap = new ServerBootstrap(channelFactory);
     bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
       @Override
@@ -182,20 +206,67 @@ public class NettyServer implements Server {
 
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) {
+      final NettyDataPack dataPack = (NettyDataPack) e.getMessage();
+      final Channel channel = e.getChannel();
+      if (requestExecutor == null) {
+        respond(dataPack, channel);
+        return;
+      }
+      String messageName =
+        requestExecutor.byMessage() && connectionMetadata.isConnected()
+        ? Responder.getMessageName(dataPack.getDatas())
+        : null;
+      boolean executed = requestExecutor.execute(messageName, new Runnable() {
+        @Override
+        public void run() {
+          respond(dataPack, channel);
+        }
+      });
+      if (!executed)
+        reject(dataPack, channel, messageName);
+    }
+
+    private void respond(NettyDataPack dataPack, Channel channel) {
       try {
-        NettyDataPack dataPack = (NettyDataPack) e.getMessage();
         List<ByteBuffer> req = dataPack.getDatas();
         List<ByteBuffer> res = responder.respond(req, connectionMetadata);
         // response will be null for oneway messages.
         if(res != null) {
           dataPack.setDatas(res);
-          e.getChannel().write(dataPack);
+          channel.write(dataPack);
         }
       } catch (IOException ex) {
         LOG.warn("unexpect error");
       }
     }
 
+    private void reject(NettyDataPack dataPack, Channel channel,
+                        String messageName) {
+      if (!connectionMetadata.isConnected()) {    // can't answer a handshake
+        LOG.warn("Request executor full, closing {}",
+                 channel.getRemoteAddress());
+        channel.close();
+        return;
+      }
+      if (messageName == null)
+        messageName = Responder.getMessageName(dataPack.getDatas());
+      Message message = messageName == null
+        ? null
+        : connectionMetadata.getRemote().getMessages().get(messageName);
+      if (message != null && message.isOneWay()) {
+        LOG.warn("Request executor full, dropping one-way message {}",
+                 messageName);
+        return;
+      }
+      try {
+        dataPack.setDatas(responder.respondError(new AvroRuntimeException(
+            "Server busy, rejected: " + messageName)));
+        channel.write(dataPack);
+      } catch (IOException ex) {
+        LOG.warn("unexpect error");
+      }
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) {
       LOG.warn("Unexpected exception from downstream.", e.getCause());
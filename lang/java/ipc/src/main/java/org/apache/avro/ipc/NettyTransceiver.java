@@ -28,6 +28,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -91,6 +92,10 @@ public class NettyTransceiver extends Transceiver {
   private Channel channel;       // Synchronized on stateLock
   private Protocol remote;       // Synchronized on stateLock
 
+  private final Object windowLock = new Object();
+  private int inFlight;                           // Synchronized on windowLock
+  private int maxInFlight = Integer.MAX_VALUE;    // Synchronized on windowLock
+
   NettyTransceiver() {
     channelFactory = null;
     connectTimeoutMillis = 0L;
@@ -465,20 +470,109 @@ public class NettyTransceiver extends Transceiver {
     }
   }
 
+  /**
+   * Sends a request without waiting for responses to those sent before it.
+   * If {@link #getMaxInFlight()} requests are already awaiting responses,
+   * blocks until one completes.
+   */
   @Override
   public void transceive(List<ByteBuffer> request,
       Callback<List<ByteBuffer>> callback) throws IOException {
+    final InFlightCallback inFlightCallback = new InFlightCallback(callback);
     stateLock.readLock().lock();
     try {
-      int serial = serialGenerator.incrementAndGet();
+      final int serial = serialGenerator.incrementAndGet();
       NettyDataPack dataPack = new NettyDataPack(serial, request);
-      requests.put(serial, callback);
-      writeDataPack(dataPack);
+      requests.put(serial, inFlightCallback);
+      try {
+        writeDataPack(dataPack).addListener(new ChannelFutureListener() {
+          @Override
+          public void operationComplete(ChannelFuture future) {
+            if (!future.isSuccess() && requests.remove(serial) != null)
+              inFlightCallback.handleError(
+                  new IOException("Error writing buffers", future.getCause()));
+          }
+        });
+      } catch (IOException e) {
+        requests.remove(serial);
+        inFlightCallback.release();
+        throw e;
+      }
     } finally {
       stateLock.readLock().unlock();
     }
   }
 
+  /**
+   * Sets the greatest number of requests that may await responses at once.
+   * There is no limit by default.
+   */
+  public void setMaxInFlight(int maxInFlight) {
+    if (maxInFlight < 1)
+      throw new IllegalArgumentException("maxInFlight must be positive: "
+                                         + maxInFlight);
+    synchronized (windowLock) {
+      this.maxInFlight = maxInFlight;
+      windowLock.notifyAll();
+    }
+  }
+
+  /** Returns the greatest number of requests that may await responses. */
+  public int getMaxInFlight() {
+    synchronized (windowLock) {
+      return maxInFlight;
+    }
+  }
+
+  /** Returns the number of requests awaiting responses. */
+  public int getInFlight() {
+    synchronized (windowLock) {
+      return inFlight;
+    }
+  }
+
+  /** Counts a request in flight until its callback is called. */
+  private class InFlightCallback implements Callback<List<ByteBuffer>> {
+    private final Callback<List<ByteBuffer>> callback;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    InFlightCallback(Callback<List<ByteBuffer>> callback) throws IOException {
+      this.callback = callback;
+      synchronized (windowLock) {
+        while (inFlight >= maxInFlight) {
+          try {
+            windowLock.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();   // Reset interrupt flag
+            throw new IOException("Interrupted while waiting to send", e);
+          }
+        }
+        inFlight++;
+      }
+    }
+
+    void release() {
+      if (released.compareAndSet(false, true)) {
+        synchronized (windowLock) {
+          inFlight--;
+          windowLock.notify();
+        }
+      }
+    }
+
+    @Override
+    public void handleResult(List<ByteBuffer> result) {
+      release();                    // first, so the callback may send more
+      callback.handleResult(result);
+    }
+
+    @Override
+    public void handleError(Throwable error) {
+      release();
+      callback.handleError(error);
+    }
+  }
+
   @Override
   public void writeBuffers(List<ByteBuffer> buffers) throws IOException {
     ChannelFuture writeFuture;
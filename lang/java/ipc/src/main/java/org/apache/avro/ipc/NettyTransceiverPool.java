@@ -0,0 +1,295 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.avro.Protocol;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.util.ByteBufferInputStream;
+import org.apache.avro.util.ByteBufferOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link Transceiver} over several {@link NettyTransceiver} connections to
+ * the same server.  Each request is sent on the connection with the fewest
+ * requests awaiting responses.
+ *
+ * <p>The first handshake, made by a {@link Requestor}, is sent on the first
+ * connection.  The pool then repeats it as a handshake-only request on each
+ * other connection, and on any connection that is re-established, before
+ * sending requests on it.  Like other transceivers, a pool is used with a
+ * single protocol.
+ */
+public class NettyTransceiverPool extends Transceiver {
+  private static final Logger LOG =
+    LoggerFactory.getLogger(NettyTransceiverPool.class);
+
+  private static final SpecificDatumReader<HandshakeRequest>
+    HANDSHAKE_REQUEST_READER =
+    new SpecificDatumReader<HandshakeRequest>(HandshakeRequest.class);
+  private static final SpecificDatumWriter<HandshakeRequest>
+    HANDSHAKE_REQUEST_WRITER =
+    new SpecificDatumWriter<HandshakeRequest>(HandshakeRequest.class);
+  private static final SpecificDatumReader<HandshakeResponse>
+    HANDSHAKE_RESPONSE_READER =
+    new SpecificDatumReader<HandshakeResponse>(HandshakeResponse.class);
+
+  private final NettyTransceiver[] members;
+  private final AtomicBoolean[] handshaking;
+
+  private volatile Protocol remote;
+  private volatile HandshakeRequest handshake;    // the latest sent
+
+  /**
+   * Creates a pool of connections to the given address.
+   * @param addr the address to connect to.
+   * @param size the number of connections.
+   * @throws IOException if an error occurs connecting to the given address.
+   */
+  public NettyTransceiverPool(InetSocketAddress addr, int size)
+    throws IOException {
+    this(connect(addr, size));
+  }
+
+  /**
+   * Creates a pool of the given connections, which must all be to the same
+   * server, and on which no handshake has been made.
+   */
+  public NettyTransceiverPool(NettyTransceiver... members) {
+    if (members.length == 0)
+      throw new IllegalArgumentException("No connections");
+    this.members = members.clone();
+    this.handshaking = new AtomicBoolean[members.length];
+    for (int i = 0; i < members.length; i++)
+      handshaking[i] = new AtomicBoolean();
+  }
+
+  private static NettyTransceiver[] connect(InetSocketAddress addr, int size)
+    throws IOException {
+    if (size < 1)
+      throw new IllegalArgumentException("size must be positive: " + size);
+    NettyTransceiver[] members = new NettyTransceiver[size];
+    try {
+      for (int i = 0; i < size; i++)
+        members[i] = new NettyTransceiver(addr);
+    } catch (IOException e) {
+      for (NettyTransceiver member : members)
+        if (member != null)
+          member.close();
+      throw e;
+    }
+    return members;
+  }
+
+  /** Returns the number of connections. */
+  public int size() { return members.length; }
+
+  /** Sets the greatest number of requests that may await responses on each
+   * connection.
+   * @see NettyTransceiver#setMaxInFlight(int) */
+  public void setMaxInFlight(int maxInFlight) {
+    for (NettyTransceiver member : members)
+      member.setMaxInFlight(maxInFlight);
+  }
+
+  /** Returns the number of requests awaiting responses on all
+   * connections. */
+  public int getInFlight() {
+    int inFlight = 0;
+    for (NettyTransceiver member : members)
+      inFlight += member.getInFlight();
+    return inFlight;
+  }
+
+  @Override
+  public String getRemoteName() throws IOException {
+    return members[0].getRemoteName();
+  }
+
+  @Override
+  public List<ByteBuffer> transceive(List<ByteBuffer> request)
+    throws IOException {
+    CallFuture<List<ByteBuffer>> future = new CallFuture<List<ByteBuffer>>();
+    transceive(request, future);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();         // Reset interrupt flag
+      throw new IOException("Interrupted while awaiting response", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException)cause;
+      throw new IOException(cause);
+    }
+  }
+
+  @Override
+  public void transceive(List<ByteBuffer> request,
+                         Callback<List<ByteBuffer>> callback)
+    throws IOException {
+    if (remote == null) {                         // carries a handshake
+      handshake = readHandshake(request);
+      members[0].transceive(request, callback);
+    } else {
+      select().transceive(request, callback);
+    }
+  }
+
+  @Override
+  public void writeBuffers(List<ByteBuffer> buffers) throws IOException {
+    (remote == null ? members[0] : select()).writeBuffers(buffers);
+  }
+
+  @Override
+  public List<ByteBuffer> readBuffers() throws IOException {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean isConnected() { return remote != null; }
+
+  @Override
+  public void setRemote(Protocol protocol) {
+    members[0].setRemote(protocol);
+    this.remote = protocol;
+    for (int i = 1; i < members.length; i++)
+      startHandshake(i);
+  }
+
+  @Override
+  public Protocol getRemote() {
+    Protocol remote = this.remote;
+    if (remote == null)
+      throw new IllegalStateException("Not connected.");
+    return remote;
+  }
+
+  /** Returns the least loaded connection whose handshake is complete,
+   * starting handshakes on those that need them.  If none is ready, makes a
+   * handshake on one before returning it. */
+  private NettyTransceiver select() throws IOException {
+    NettyTransceiver best = null;
+    int bestLoad = Integer.MAX_VALUE;
+    for (int i = 0; i < members.length; i++) {
+      NettyTransceiver member = members[i];
+      if (!member.isConnected()) {
+        startHandshake(i);
+        continue;
+      }
+      int load = member.getInFlight();
+      if (load < bestLoad) {
+        best = member;
+        bestLoad = load;
+      }
+    }
+    if (best != null)
+      return best;
+    CallFuture<List<ByteBuffer>> future = new CallFuture<List<ByteBuffer>>();
+    members[0].transceive(ping(), future);
+    try {
+      finishHandshake(members[0], future.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();         // Reset interrupt flag
+      throw new IOException("Interrupted during handshake", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Error during handshake", e.getCause());
+    }
+    return members[0];
+  }
+
+  private void startHandshake(int i) {
+    if (!handshaking[i].compareAndSet(false, true))
+      return;                                     // already started
+    final NettyTransceiver member = members[i];
+    final AtomicBoolean started = handshaking[i];
+    Callback<List<ByteBuffer>> callback = new Callback<List<ByteBuffer>>() {
+      @Override
+      public void handleResult(List<ByteBuffer> response) {
+        try {
+          finishHandshake(member, response);
+        } catch (IOException e) {
+          handleError(e);
+        } finally {
+          started.set(false);
+        }
+      }
+      @Override
+      public void handleError(Throwable error) {
+        started.set(false);
+        LOG.warn("Handshake failed on a pooled connection", error);
+      }
+    };
+    try {
+      member.transceive(ping(), callback);
+    } catch (IOException e) {
+      callback.handleError(e);
+    }
+  }
+
+  private void finishHandshake(NettyTransceiver member,
+                               List<ByteBuffer> response) throws IOException {
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(
+        new ByteBufferInputStream(response), null);
+    HandshakeResponse result = HANDSHAKE_RESPONSE_READER.read(null, in);
+    if (result.match == HandshakeMatch.NONE)
+      throw new IOException("Server does not know the client's protocol");
+    member.setRemote(remote);
+  }
+
+  /** Returns a handshake-only request repeating the latest handshake. */
+  private List<ByteBuffer> ping() throws IOException {
+    ByteBufferOutputStream bbo = new ByteBufferOutputStream();
+    Encoder out = EncoderFactory.get().directBinaryEncoder(bbo, null);
+    HANDSHAKE_REQUEST_WRITER.write(handshake, out);
+    out.writeMapStart();                          // empty metadata
+    out.setItemCount(0);
+    out.writeMapEnd();
+    out.writeString("");                          // no message
+    out.flush();
+    return bbo.getBufferList();
+  }
+
+  private static HandshakeRequest readHandshake(List<ByteBuffer> request)
+    throws IOException {
+    List<ByteBuffer> copies = new ArrayList<ByteBuffer>(request.size());
+    for (ByteBuffer buffer : request)
+      copies.add(buffer.duplicate());
+    return HANDSHAKE_REQUEST_READER.read(null, DecoderFactory.get()
+        .binaryDecoder(new ByteBufferInputStream(copies), null));
+  }
+
+  @Override
+  public void close() {
+    for (NettyTransceiver member : members)
+      member.close();
+  }
+}
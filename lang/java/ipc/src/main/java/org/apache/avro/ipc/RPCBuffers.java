@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.ByteBufferOutputStream;
+import org.apache.avro.util.ByteBufferPool;
+
+/** An encoder, a decoder and pooled buffers, reused by a thread to
+ * serialize and deserialize requests and responses.  Output is collected in
+ * buffers from a shared pool, then copied into a buffer of exactly its size,
+ * so that pooled buffers never escape to transports or to plugins. */
+class RPCBuffers {
+  private static final ByteBufferPool POOL =
+    new ByteBufferPool(ByteBufferOutputStream.BUFFER_SIZE, false);
+
+  private static final ThreadLocal<RPCBuffers> BUFFERS =
+    new ThreadLocal<RPCBuffers>() {
+      @Override protected RPCBuffers initialValue() {
+        return new RPCBuffers();
+      }
+    };
+
+  private final ByteBufferOutputStream bbo = new ByteBufferOutputStream(POOL);
+  private BinaryEncoder encoder;
+  private final BufferListInputStream bbi = new BufferListInputStream();
+  private BinaryDecoder decoder;
+  private boolean inUse;
+  private boolean written;                        // since take() or discard()
+
+  /** Returns this thread's buffers, or, if they're already in use, e.g. by a
+   * request made while responding to another, new ones.  Must be followed by
+   * {@link #release()}. */
+  static RPCBuffers acquire() {
+    RPCBuffers buffers = BUFFERS.get();
+    if (buffers.inUse)
+      return new RPCBuffers();
+    buffers.inUse = true;
+    return buffers;
+  }
+
+  /** Returns an encoder whose output is retrieved with {@link #take()}.  To
+   * write more after that, call this again. */
+  BinaryEncoder encoder() {
+    if (encoder == null)
+      encoder = EncoderFactory.get().binaryEncoder(bbo, null);
+    written = true;
+    return encoder;
+  }
+
+  /** Returns a decoder reading the given buffers. */
+  BinaryDecoder decoder(List<ByteBuffer> buffers) {
+    bbi.reset(buffers);
+    decoder = DecoderFactory.get().binaryDecoder(bbi, decoder);
+    return decoder;
+  }
+
+  /** Returns the data written to {@link #encoder()} since last called, in a
+   * new buffer of exactly its size. */
+  ByteBuffer take() throws IOException {
+    encoder().flush();
+    written = false;
+    List<ByteBuffer> buffers = bbo.getBufferList();
+    int size = 0;
+    for (ByteBuffer buffer : buffers)
+      size += buffer.remaining();
+    ByteBuffer result = ByteBuffer.allocate(size);
+    for (ByteBuffer buffer : buffers)
+      result.put(buffer);
+    result.flip();
+    POOL.release(buffers);
+    return result;
+  }
+
+  /** Discards the data written to {@link #encoder()} since {@link #take()}
+   * was last called. */
+  void discard() throws IOException {
+    encoder().flush();
+    written = false;
+    POOL.release(bbo.getBufferList());
+  }
+
+  /** Marks this thread's buffers as no longer in use, discarding any data
+   * written but not taken. */
+  void release() throws IOException {
+    try {
+      if (written)
+        discard();
+    } finally {
+      bbi.reset(Collections.<ByteBuffer>emptyList());
+      inUse = false;
+    }
+  }
+
+  /** Reads a list of buffers.  Unlike {@link
+   * org.apache.avro.util.ByteBufferInputStream}, returns
+   * -1 at the end rather than throwing, since a decoder reading ahead always
+   * reaches the end of a message, and throwing is costly. */
+  private static class BufferListInputStream extends InputStream {
+    private List<ByteBuffer> buffers;
+    private int current;
+
+    void reset(List<ByteBuffer> buffers) {
+      this.buffers = buffers;
+      this.current = 0;
+    }
+
+    private ByteBuffer getBuffer() {
+      while (current < buffers.size()) {
+        ByteBuffer buffer = buffers.get(current);
+        if (buffer.hasRemaining())
+          return buffer;
+        current++;
+      }
+      return null;
+    }
+
+    @Override
+    public int read() {
+      ByteBuffer buffer = getBuffer();
+      return buffer == null ? -1 : buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) return 0;
+      ByteBuffer buffer = getBuffer();
+      if (buffer == null) return -1;
+      len = Math.min(len, buffer.remaining());
+      buffer.get(b, off, len);
+      return len;
+    }
+  }
+}
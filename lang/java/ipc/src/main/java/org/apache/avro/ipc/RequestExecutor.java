@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the requests a {@link NettyServer} receives away from its I/O
+ * threads, so that a slow message does not hold up the other connections
+ * those threads serve.
+ *
+ * <p>Requests run on a default {@link Executor}, or on one set for their
+ * message, e.g., to give slow messages a pool of their own.  At most
+ * <i>maxPending</i> requests may wait or run at once.  Requests beyond that,
+ * or refused by their executor, are rejected: the caller receives a system
+ * error, except for one-way messages, which are dropped, and requests that
+ * carry a handshake, whose connection is closed.
+ *
+ * <p>Responses are written as requests complete, which may differ from the
+ * order they were received in; clients match them to calls by serial
+ * number.  Counts of requests and the time they wait to run are kept for
+ * monitoring.  Executors belong to the caller, which must shut them down:
+ * they are not shut down when the server is closed.
+ */
+public class RequestExecutor {
+  private final Executor executor;
+  private final int maxPending;
+  private final Map<String, Executor> executors =
+    new ConcurrentHashMap<String, Executor>();
+
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicLong started = new AtomicLong();
+  private final AtomicLong executed = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong waitNanos = new AtomicLong();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+
+  /** Construct given the executor to run requests on, with no limit to the
+   * number pending. */
+  public RequestExecutor(Executor executor) {
+    this(executor, Integer.MAX_VALUE);
+  }
+
+  /** Construct given the executor to run requests on and the greatest number
+   * that may wait or run at once. */
+  public RequestExecutor(Executor executor, int maxPending) {
+    if (executor == null)
+      throw new NullPointerException("Executor cannot be null!");
+    if (maxPending < 1)
+      throw new IllegalArgumentException("maxPending must be positive: "
+                                         + maxPending);
+    this.executor = executor;
+    this.maxPending = maxPending;
+  }
+
+  /** Run the requests for a message on a different executor.
+   * @return this */
+  public RequestExecutor setExecutor(String messageName, Executor executor) {
+    executors.put(messageName, executor);
+    return this;
+  }
+
+  /** True if executors are set for some messages. */
+  boolean byMessage() { return !executors.isEmpty(); }
+
+  /** Run a request for a message, whose name may be null if not known.
+   * @return false if the request was rejected */
+  boolean execute(String messageName, final Runnable request) {
+    if (pending.incrementAndGet() > maxPending) {
+      pending.decrementAndGet();
+      rejected.incrementAndGet();
+      return false;
+    }
+    Executor target = messageName == null ? null : executors.get(messageName);
+    final long queued = System.nanoTime();
+    try {
+      (target != null ? target : executor).execute(new Runnable() {
+        @Override
+        public void run() {
+          long wait = System.nanoTime() - queued;
+          waitNanos.addAndGet(wait);
+          started.incrementAndGet();
+          long max;
+          while (wait > (max = maxWaitNanos.get())
+                 && !maxWaitNanos.compareAndSet(max, wait)) {}
+          try {
+            request.run();
+          } finally {
+            executed.incrementAndGet();
+            pending.decrementAndGet();
+          }
+        }
+      });
+      return true;
+    } catch (RejectedExecutionException e) {
+      pending.decrementAndGet();
+      rejected.incrementAndGet();
+      return false;
+    }
+  }
+
+  /** Returns the number of requests waiting or running. */
+  public int getPending() { return pending.get(); }
+
+  /** Returns the number of requests that have run. */
+  public long getExecuted() { return executed.get(); }
+
+  /** Returns the number of requests rejected. */
+  public long getRejected() { return rejected.get(); }
+
+  /** Returns the total time requests that have started waited to, in
+   * nanoseconds. */
+  public long getTotalWaitNanos() { return waitNanos.get(); }
+
+  /** Returns the longest time a request waited to run, in nanoseconds. */
+  public long getMaxWaitNanos() { return maxWaitNanos.get(); }
+
+  /** Returns the mean time requests that have started waited to, in
+   * nanoseconds. */
+  public double getMeanWaitNanos() {
+    long count = started.get();
+    return count == 0 ? 0 : (double)waitNanos.get() / count;
+  }
+}
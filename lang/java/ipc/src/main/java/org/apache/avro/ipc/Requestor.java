@@ -25,6 +25,8 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -336,33 +338,42 @@ public abstract class Requestor {
     @Override
     @SuppressWarnings("unchecked")
     public void handleResult(List<ByteBuffer> responseBytes) {
-      ByteBufferInputStream bbi = new ByteBufferInputStream(responseBytes);
-      BinaryDecoder in = DecoderFactory.get().binaryDecoder(bbi, null);
+      RPCBuffers rpcBuffers = RPCBuffers.acquire();
+      Object responseObject;
       try {
-        if (!readHandshake(in)) {
-          // Resend the handshake and return
-          Request handshake = new Request(request);
-          getTransceiver().transceive
-            (handshake.getBytes(),
-             new TransceiverCallback<T>(handshake, callback));
-          return;
+        BinaryDecoder in = rpcBuffers.decoder(responseBytes);
+        try {
+          if (!readHandshake(in)) {
+            // Resend the handshake and return
+            Request handshake = new Request(request);
+            getTransceiver().transceive
+              (handshake.getBytes(),
+               new TransceiverCallback<T>(handshake, callback));
+            return;
+          }
+        } catch (Exception e) {
+          LOG.error("Error handling transceiver callback: " + e, e);
         }
-      } catch (Exception e) {
-        LOG.error("Error handling transceiver callback: " + e, e);
-      }
 
-      // Read response; invoke callback
-      Response response = new Response(request, in);
-      Object responseObject;
-      try {
+        // Read response
         try {
-          responseObject = response.getResponse();
+          responseObject = new Response(request, in).getResponse();
         } catch (Exception e) {
           if (callback != null) {
             callback.handleError(e);
           }
           return;
         }
+      } finally {
+        try {
+          rpcBuffers.release();
+        } catch (IOException e) {
+          LOG.error("Error releasing buffers: " + e, e);
+        }
+      }
+
+      // Invoke callback
+      try {
         if (callback != null) {
           callback.handleResult((T)responseObject);
         }
@@ -384,7 +395,6 @@ public abstract class Requestor {
     private final String messageName;
     private final Object request;
     private final RPCContext context;
-    private final BinaryEncoder encoder;
     private Message message;
     private List<ByteBuffer> requestBytes;
 
@@ -395,23 +405,9 @@ public abstract class Requestor {
      * @param context the RPC context to use.
      */
     public Request(String messageName, Object request, RPCContext context) {
-      this(messageName, request, context, null);
-    }
-
-    /**
-     * Creates a Request.
-     * @param messageName the name of the message to invoke.
-     * @param request the request data to send.
-     * @param context the RPC context to use.
-     * @param encoder the BinaryEncoder to use to serialize the request.
-     */
-    public Request(String messageName, Object request, RPCContext context,
-                   BinaryEncoder encoder) {
       this.messageName = messageName;
       this.request = request;
       this.context = context;
-      this.encoder =
-        ENCODER_FACTORY.binaryEncoder(new ByteBufferOutputStream(), encoder);
     }
 
     /**
@@ -422,7 +418,6 @@ public abstract class Requestor {
       this.messageName = other.messageName;
       this.request = other.request;
       this.context = other.context;
-      this.encoder = other.encoder;
     }
 
     /**
@@ -463,32 +458,33 @@ public abstract class Requestor {
     public List<ByteBuffer> getBytes()
       throws Exception {
       if (requestBytes == null) {
-        ByteBufferOutputStream bbo = new ByteBufferOutputStream();
-        BinaryEncoder out = ENCODER_FACTORY.binaryEncoder(bbo, encoder);
+        RPCBuffers rpcBuffers = RPCBuffers.acquire();
+        try {
+          // use local protocol to write request
+          Message m = getMessage();
+          context.setMessage(m);
 
-        // use local protocol to write request
-        Message m = getMessage();
-        context.setMessage(m);
+          BinaryEncoder out = rpcBuffers.encoder();
+          writeRequest(m.getRequest(), request, out); // write request payload
+          ByteBuffer payload = rpcBuffers.take();
 
-        writeRequest(m.getRequest(), request, out); // write request payload
+          out = rpcBuffers.encoder();
+          writeHandshake(out);                   // prepend handshake if needed
 
-        out.flush();
-        List<ByteBuffer> payload = bbo.getBufferList();
+          context.setRequestPayload(Collections.singletonList(payload));
+          for (RPCPlugin plugin : rpcMetaPlugins) {
+            plugin.clientSendRequest(context);    // get meta-data from plugins
+          }
+          META_WRITER.write(context.requestCallMeta(), out);
 
-        writeHandshake(out);                     // prepend handshake if needed
+          out.writeString(m.getName());           // write message name
 
-        context.setRequestPayload(payload);
-        for (RPCPlugin plugin : rpcMetaPlugins) {
-          plugin.clientSendRequest(context);      // get meta-data from plugins
+          requestBytes = new ArrayList<ByteBuffer>(2);
+          requestBytes.add(rpcBuffers.take());
+          requestBytes.add(payload);
+        } finally {
+          rpcBuffers.release();
         }
-        META_WRITER.write(context.requestCallMeta(), out);
-
-        out.writeString(m.getName());             // write message name
-
-        out.flush();
-        bbo.append(payload);
-
-        requestBytes = bbo.getBufferList();
       }
       return requestBytes;
     }
@@ -23,6 +23,10 @@ import java.nio.ByteBuffer;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -40,6 +44,7 @@ import org.apache.avro.util.Utf8;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.Encoder;
@@ -64,14 +69,21 @@ public abstract class Responder {
   private final Map<MD5,Protocol> protocols
     = new ConcurrentHashMap<MD5,Protocol>();
 
+  /** Messages resolved per remote protocol, by protocol identity.  Replaced
+   * whenever a protocol is added, since there are few. */
+  private volatile Map<Protocol,Map<String,Dispatch>> dispatches =
+    new IdentityHashMap<Protocol,Map<String,Dispatch>>();
+
   private final Protocol local;
   private final MD5 localHash;
+  private final String localText;
   protected final List<RPCPlugin> rpcMetaPlugins;
 
   protected Responder(Protocol local) {
     this.local = local;
     this.localHash = new MD5();
     localHash.bytes(local.getMD5());
+    this.localText = local.toString();
     protocols.put(localHash, local);
     this.rpcMetaPlugins =
       new CopyOnWriteArrayList<RPCPlugin>();
@@ -101,39 +113,63 @@ public abstract class Responder {
 
   /** Called by a server to deserialize a request, compute and serialize a
    * response or error.  Transciever is used by connection-based servers to
-   * track handshake status of connection. */
+   * track handshake status of connection.
+   *
+   * <p>On a connection whose handshake is complete, a request may be a batch
+   * of one-way messages, as sent by a {@link BatchingTransceiver}.  Each is
+   * handled in turn, and the response to the last, if any, returned.  A
+   * one-way message that fails is logged and skipped.  If it cannot be
+   * skipped, e.g., because its name is not known, the rest of the batch is
+   * discarded. */
   public List<ByteBuffer> respond(List<ByteBuffer> buffers,
                                   Transceiver connection) throws IOException {
-    Decoder in = DecoderFactory.get().binaryDecoder(
-        new ByteBufferInputStream(buffers), null);
-    ByteBufferOutputStream bbo = new ByteBufferOutputStream();
-    BinaryEncoder out = EncoderFactory.get().binaryEncoder(bbo, null);
+    RPCBuffers rpcBuffers = RPCBuffers.acquire();
+    try {
+      BinaryDecoder in = rpcBuffers.decoder(buffers);
+      List<ByteBuffer> response;
+      int count = 0;
+      do {
+        response = respond(in, connection, rpcBuffers);
+        count++;
+      } while (response == null && !in.isEnd());  // more one-way messages
+      if (response != null && !in.isEnd())
+        LOG.warn("Discarding the rest of a batch after message " + count
+                 + " failed");
+      return response;
+    } finally {
+      rpcBuffers.release();
+    }
+  }
+
+  private List<ByteBuffer> respond(Decoder in, Transceiver connection,
+                                   RPCBuffers rpcBuffers) throws IOException {
+    BinaryEncoder out = rpcBuffers.encoder();
     Exception error = null;
     RPCContext context = new RPCContext();
-    List<ByteBuffer> payload = null;
-    List<ByteBuffer> handshake = null;
+    ByteBuffer payload = null;
+    ByteBuffer handshake = null;
     boolean wasConnected = connection != null && connection.isConnected();
+    Protocol remote = null;
+    String messageName = null;
+    int requestState = UNREAD;
     try {
-      Protocol remote = handshake(in, out, connection);
-      out.flush();
+      remote = handshake(in, out, connection);
+      handshake = rpcBuffers.take();
       if (remote == null)                        // handshake failed
-        return bbo.getBufferList();
-      handshake = bbo.getBufferList();
+        return Collections.singletonList(handshake);
 
       // read request using remote protocol specification
       context.setRequestCallMeta(META_READER.read(null, in));
-      String messageName = in.readString(null).toString();
+      messageName = in.readString(null).toString();
       if (messageName.equals(""))                 // a handshake ping
-        return handshake;
-      Message rm = remote.getMessages().get(messageName);
-      if (rm == null)
-        throw new AvroRuntimeException("No such remote message: "+messageName);
-      Message m = getLocal().getMessages().get(messageName);
-      if (m == null)
-        throw new AvroRuntimeException("No message named "+messageName
-                                       +" in "+getLocal());
+        return Collections.singletonList(handshake);
+      Dispatch dispatch = getDispatch(remote, messageName);
+      Message rm = dispatch.remote;
+      Message m = dispatch.local;
 
+      requestState = READING;
       Object request = readRequest(rm.getRequest(), m.getRequest(), in);
+      requestState = READ;
 
       context.setMessage(rm);
       for (RPCPlugin plugin : rpcMetaPlugins) {
@@ -161,6 +197,7 @@ public abstract class Responder {
       if (m.isOneWay() && wasConnected)           // no response data
         return null;
 
+      out = rpcBuffers.encoder();
       out.writeBoolean(error != null);
       if (error == null)
         writeResponse(m.getResponse(), response, out);
@@ -170,31 +207,134 @@ public abstract class Responder {
         } catch (UnresolvedUnionException e) {    // unexpected error
           throw error;
         }
+      payload = rpcBuffers.take();
     } catch (Exception e) {                       // system error
       LOG.warn("system error", e);
       context.setError(e);
-      bbo = new ByteBufferOutputStream();
-      out = EncoderFactory.get().binaryEncoder(bbo, null);
+      if (wasConnected && skipOneWay(remote, messageName, requestState, in))
+        return null;                              // no response data
+      rpcBuffers.discard();
+      out = rpcBuffers.encoder();
       out.writeBoolean(true);
       writeError(Protocol.SYSTEM_ERRORS, new Utf8(e.toString()), out);
-      if (null == handshake) {
-        handshake = new ByteBufferOutputStream().getBufferList();
-      }
+      payload = rpcBuffers.take();
     }
-    out.flush();
-    payload = bbo.getBufferList();
 
     // Grab meta-data from plugins
-    context.setResponsePayload(payload);
+    context.setResponsePayload(Collections.singletonList(payload));
     for (RPCPlugin plugin : rpcMetaPlugins) {
       plugin.serverSendResponse(context);
     }
+    out = rpcBuffers.encoder();
     META_WRITER.write(context.responseCallMeta(), out);
-    out.flush();
-    // Prepend handshake and append payload
-    bbo.prepend(handshake);
-    bbo.append(payload);
+    ByteBuffer meta = rpcBuffers.take();
+
+    // Prepend handshake and metadata to payload
+    List<ByteBuffer> result = new ArrayList<ByteBuffer>(3);
+    if (handshake != null && handshake.hasRemaining())
+      result.add(handshake);
+    result.add(meta);
+    result.add(payload);
+    return result;
+  }
+
+  private static final int UNREAD = 0;
+  private static final int READING = 1;
+  private static final int READ = 2;
+
+  /** Returns true if a failed message is one-way in the remote protocol, so
+   * that no response is read, and its request has been read or can be
+   * skipped, so that any that follow it in a batch can be read. */
+  private static boolean skipOneWay(Protocol remote, String messageName,
+                                    int requestState, Decoder in) {
+    if (remote == null || messageName == null || requestState == READING)
+      return false;
+    Message rm = remote.getMessages().get(messageName);
+    if (rm == null || !rm.isOneWay())
+      return false;
+    if (requestState == UNREAD) {
+      try {
+        GenericDatumReader.skip(rm.getRequest(), in);
+      } catch (IOException e) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** A message of a remote protocol and the local message it calls. */
+  private static class Dispatch {
+    final Message remote;
+    final Message local;
 
+    Dispatch(Message remote, Message local) {
+      this.remote = remote;
+      this.local = local;
+    }
+  }
+
+  /** Returns the remote and local messages for a message name, resolved once
+   * per remote protocol. */
+  private Dispatch getDispatch(Protocol remote, String messageName) {
+    Map<String,Dispatch> byName = dispatches.get(remote);
+    if (byName == null) {
+      synchronized (this) {
+        byName = dispatches.get(remote);
+        if (byName == null) {
+          Map<Protocol,Map<String,Dispatch>> copy =
+            new IdentityHashMap<Protocol,Map<String,Dispatch>>(dispatches);
+          byName = new ConcurrentHashMap<String,Dispatch>();
+          copy.put(remote, byName);
+          dispatches = copy;
+        }
+      }
+    }
+    Dispatch dispatch = byName.get(messageName);
+    if (dispatch == null) {
+      Message rm = remote.getMessages().get(messageName);
+      if (rm == null)
+        throw new AvroRuntimeException("No such remote message: "+messageName);
+      Message m = getLocal().getMessages().get(messageName);
+      if (m == null)
+        throw new AvroRuntimeException("No message named "+messageName
+                                       +" in "+getLocal());
+      dispatch = new Dispatch(rm, m);
+      byName.put(messageName, dispatch);
+    }
+    return dispatch;
+  }
+
+  /** Returns the name of the message a request calls without consuming the
+   * request, or null if it is malformed.  The request must be from a
+   * connection whose handshake is complete, so that none precedes it. */
+  static String getMessageName(List<ByteBuffer> buffers) {
+    List<ByteBuffer> copies = new ArrayList<ByteBuffer>(buffers.size());
+    for (ByteBuffer buffer : buffers)
+      copies.add(buffer.duplicate());
+    try {
+      Decoder in = DecoderFactory.get().binaryDecoder(
+          new ByteBufferInputStream(copies), null);
+      for (long n = in.readMapStart(); n != 0; n = in.mapNext())
+        for (long i = 0; i < n; i++) {
+          in.skipString();
+          in.skipBytes();
+        }
+      return in.readString();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /** Serializes a system error in response to a request that a server will
+   * not run, e.g., because it is overloaded.  The request must be from a
+   * connection whose handshake is complete. */
+  List<ByteBuffer> respondError(Exception error) throws IOException {
+    ByteBufferOutputStream bbo = new ByteBufferOutputStream();
+    BinaryEncoder out = EncoderFactory.get().binaryEncoder(bbo, null);
+    META_WRITER.write(new HashMap<String,ByteBuffer>(), out);
+    out.writeBoolean(true);
+    writeError(Protocol.SYSTEM_ERRORS, new Utf8(error.toString()), out);
+    out.flush();
     return bbo.getBufferList();
   }
 
@@ -222,7 +362,7 @@ public abstract class Responder {
         remote == null ? HandshakeMatch.NONE : HandshakeMatch.CLIENT;
     }
     if (response.match != HandshakeMatch.BOTH) {
-      response.serverProtocol = local.toString();
+      response.serverProtocol = localText;
       response.serverHash = localHash;
     }
 
@@ -19,6 +19,8 @@
 package org.apache.avro.ipc.generic;
 
 import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import org.apache.avro.AvroRemoteException;
 import org.apache.avro.Protocol;
@@ -36,6 +38,16 @@ import org.apache.avro.ipc.Responder;
 public abstract class GenericResponder extends Responder {
   private GenericData data;
 
+  /** Request readers by remote request schema and writers by schema, both
+   * by identity: every message of a parsed protocol has schemas of its own,
+   * even where they equal another's, so that these hold one reader per remote
+   * protocol and message and one writer per local message.  Replaced whenever
+   * one is added, since there are few. */
+  private volatile Map<Schema,CachedReader> readers =
+    new IdentityHashMap<Schema,CachedReader>();
+  private volatile Map<Schema,DatumWriter<Object>> writers =
+    new IdentityHashMap<Schema,DatumWriter<Object>>();
+
   public GenericResponder(Protocol local) {
     this(local, GenericData.get());
 
@@ -48,24 +60,81 @@ public abstract class GenericResponder extends Responder {
 
   public GenericData getGenericData() { return data; }
 
+  /** Returns a writer for a schema.  Called once per message, so the writer
+   * is shared by all threads that respond to the message and must be
+   * thread-safe. */
   protected DatumWriter<Object> getDatumWriter(Schema schema) {
     return new GenericDatumWriter<Object>(schema, data);
   }
 
+  /** Returns a reader for requests written with a remote schema.  Called once
+   * per remote protocol and message, so the reader is shared by all threads
+   * that respond to the message and must be thread-safe. */
   protected DatumReader<Object> getDatumReader(Schema actual, Schema expected) {
     return new GenericDatumReader<Object>(actual, expected, data);
   }
 
+  /** Returns a reader from {@link #getDatumReader(Schema,Schema)}, created
+   * once per remote request schema. */
+  protected DatumReader<Object> getCachedDatumReader(Schema actual,
+                                                     Schema expected) {
+    CachedReader cached = readers.get(actual);
+    if (cached == null) {
+      synchronized (this) {
+        cached = readers.get(actual);
+        if (cached == null) {
+          cached = new CachedReader(expected, getDatumReader(actual, expected));
+          Map<Schema,CachedReader> copy =
+            new IdentityHashMap<Schema,CachedReader>(readers);
+          copy.put(actual, cached);
+          readers = copy;
+        }
+      }
+    }
+    if (cached.expected != expected)              // not a request schema
+      return getDatumReader(actual, expected);
+    return cached.reader;
+  }
+
+  /** Returns a writer from {@link #getDatumWriter(Schema)}, created once per
+   * schema. */
+  protected DatumWriter<Object> getCachedDatumWriter(Schema schema) {
+    DatumWriter<Object> writer = writers.get(schema);
+    if (writer == null) {
+      synchronized (this) {
+        writer = writers.get(schema);
+        if (writer == null) {
+          writer = getDatumWriter(schema);
+          Map<Schema,DatumWriter<Object>> copy =
+            new IdentityHashMap<Schema,DatumWriter<Object>>(writers);
+          copy.put(schema, writer);
+          writers = copy;
+        }
+      }
+    }
+    return writer;
+  }
+
+  private static class CachedReader {
+    final Schema expected;
+    final DatumReader<Object> reader;
+
+    CachedReader(Schema expected, DatumReader<Object> reader) {
+      this.expected = expected;
+      this.reader = reader;
+    }
+  }
+
   @Override
   public Object readRequest(Schema actual, Schema expected, Decoder in)
     throws IOException {
-    return getDatumReader(actual, expected).read(null, in);
+    return getCachedDatumReader(actual, expected).read(null, in);
   }
 
   @Override
   public void writeResponse(Schema schema, Object response, Encoder out)
     throws IOException {
-    getDatumWriter(schema).write(response, out);
+    getCachedDatumWriter(schema).write(response, out);
   }
 
   @Override
@@ -73,8 +142,7 @@ public abstract class GenericResponder extends Responder {
                          Encoder out) throws IOException {
     if (error instanceof AvroRemoteException)
       error = ((AvroRemoteException)error).getValue();
-    getDatumWriter(schema).write(error, out);
+    getCachedDatumWriter(schema).write(error, out);
   }
 
 }
-
@@ -71,7 +71,7 @@ public class SpecificResponder extends GenericResponder {
   @Override
   public void writeError(Schema schema, Object error,
                          Encoder out) throws IOException {
-    getDatumWriter(schema).write(error, out);
+    getCachedDatumWriter(schema).write(error, out);
   }
 
   @Override
@@ -21,6 +21,8 @@ import org.apache.avro.Protocol.Message;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.ipc.LocalTransceiver;
 import org.apache.avro.ipc.SocketServer;
 import org.apache.avro.ipc.SocketTransceiver;
 import org.apache.avro.ipc.Transceiver;
@@ -43,6 +45,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TestProtocolGeneric {
   private static final Logger LOG
@@ -255,6 +258,87 @@ public class TestProtocolGeneric {
     }
   }
 
+  @Test
+  /** Alternate calls from two versions of the protocol to one responder,
+      which creates a request reader once for each. */
+  public void testDispatchPerRemote() throws IOException {
+    Protocol protocol = new Protocol("Simple", "org.apache.avro.test");
+    List<Field> fields = new ArrayList<Field>();
+    fields.add(new Schema.Field("extra", Schema.create(Schema.Type.BOOLEAN),
+                   null, null));
+    fields.add(new Schema.Field("greeting", Schema.create(Schema.Type.STRING),
+                   null, null));
+    Protocol.Message message =
+      protocol.createMessage("hello", null, Schema.createRecord(fields),
+                             Schema.create(Schema.Type.STRING),
+                             Schema.createUnion(new ArrayList<Schema>()));
+    protocol.getMessages().put("hello", message);
+
+    final AtomicInteger readers = new AtomicInteger();
+    TestResponder responder = new TestResponder() {
+      @Override
+      protected DatumReader<Object> getDatumReader(Schema actual,
+                                                   Schema expected) {
+        readers.incrementAndGet();
+        return super.getDatumReader(actual, expected);
+      }
+    };
+    GenericRequestor original =
+      new GenericRequestor(PROTOCOL, new LocalTransceiver(responder));
+    GenericRequestor extended =
+      new GenericRequestor(protocol, new LocalTransceiver(responder));
+    for (int i = 0; i < 3; i++) {
+      GenericRecord params = new GenericData.Record
+        (PROTOCOL.getMessages().get("hello").getRequest());
+      params.put("greeting", new Utf8("bob"));
+      assertEquals(new Utf8("goodbye"), original.request("hello", params));
+      params = new GenericData.Record(message.getRequest());
+      params.put("extra", Boolean.TRUE);
+      params.put("greeting", new Utf8("bob"));
+      assertEquals(new Utf8("goodbye"), extended.request("hello", params));
+    }
+    assertEquals(2, readers.get());
+  }
+
+  @Test
+  /** Alternate calls to two messages whose parameters are the same, which
+      creates a request reader once for each. */
+  public void testDispatchPerMessage() throws IOException {
+    Protocol protocol = Protocol.parse
+      ("{\"protocol\": \"Twins\", \"messages\": {"
+       +"\"first\": {\"request\": [{\"name\": \"x\", \"type\": \"int\"}],"
+       +" \"response\": \"string\"},"
+       +"\"second\": {\"request\": [{\"name\": \"x\", \"type\": \"int\"}],"
+       +" \"response\": \"string\"}}}");
+    assertEquals(protocol.getMessages().get("first").getRequest(),
+                 protocol.getMessages().get("second").getRequest());
+
+    final AtomicInteger readers = new AtomicInteger();
+    GenericResponder responder = new GenericResponder(protocol) {
+      @Override
+      public Object respond(Message message, Object request) {
+        return message.getName() + ((GenericRecord)request).get("x");
+      }
+      @Override
+      protected DatumReader<Object> getDatumReader(Schema actual,
+                                                   Schema expected) {
+        readers.incrementAndGet();
+        return super.getDatumReader(actual, expected);
+      }
+    };
+    GenericRequestor requestor =
+      new GenericRequestor(protocol, new LocalTransceiver(responder));
+    for (int i = 0; i < 3; i++) {
+      for (String name : new String[] {"second", "first"}) {
+        GenericRecord params = new GenericData.Record
+          (protocol.getMessages().get(name).getRequest());
+        params.put("x", i);
+        assertEquals(new Utf8(name + i), requestor.request(name, params));
+      }
+    }
+    assertEquals(2, readers.get());
+  }
+
   @AfterClass
   public static void testStopServer() throws IOException {
     client.close();
@@ -17,12 +17,15 @@
  */
 package org.apache.avro.io;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,17 +34,35 @@ import java.util.Random;
 import org.apache.avro.FooBarSpecificRecord;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
+import org.apache.avro.SchemaNormalization;
 import org.apache.avro.TypeEnum;
+import org.apache.avro.generic.CompiledDatumReader;
+import org.apache.avro.generic.CompiledDatumWriter;
+import org.apache.avro.generic.GenericArray;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.JsonDatumReader;
+import org.apache.avro.generic.PrimitivesArrays;
+import org.apache.avro.ipc.BatchingTransceiver;
+import org.apache.avro.ipc.LocalTransceiver;
+import org.apache.avro.ipc.NettyServer;
+import org.apache.avro.ipc.NettyTransceiver;
+import org.apache.avro.ipc.Server;
+import org.apache.avro.ipc.Transceiver;
+import org.apache.avro.ipc.specific.SpecificRequestor;
+import org.apache.avro.ipc.specific.SpecificResponder;
 import org.apache.avro.reflect.ReflectData;
 import org.apache.avro.reflect.ReflectDatumReader;
 import org.apache.avro.reflect.ReflectDatumWriter;
+import org.apache.avro.specific.SpecificData;
 import org.apache.avro.specific.SpecificDatumReader;
 import org.apache.avro.specific.SpecificDatumWriter;
 import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.avro.test.Simple;
+import org.apache.avro.test.TestError;
+import org.apache.avro.test.TestRecord;
 import org.apache.avro.util.Utf8;
 
 
@@ -82,6 +103,9 @@ public class Perf {
   private static final List<TestDescriptor> GENERIC_ONETIME = new ArrayList<TestDescriptor>();
   private static final List<TestDescriptor> SPECIFIC = new ArrayList<TestDescriptor>();
   private static final List<TestDescriptor> REFLECT = new ArrayList<TestDescriptor>();
+  private static final List<TestDescriptor> SCHEMA = new ArrayList<TestDescriptor>();
+  private static final List<TestDescriptor> UTF8 = new ArrayList<TestDescriptor>();
+  private static final List<TestDescriptor> RPC = new ArrayList<TestDescriptor>();
   private static final LinkedHashMap<String, TestDescriptor> ALL_TESTS;
   private static final LinkedHashMap<String, List<TestDescriptor>> BATCHES;
   static {
@@ -113,11 +137,24 @@ public class Perf {
     new TestDescriptor(GenericWithDefault.class, "-Gd").add(GENERIC);
     new TestDescriptor(GenericWithOutOfOrder.class, "-Go").add(GENERIC);
     new TestDescriptor(GenericWithPromotion.class, "-Gp").add(GENERIC);
+    new TestDescriptor(GenericCompiled.class, "-Gc").add(GENERIC);
+    new TestDescriptor(GenericNestedCompiled.class, "-Gnc").add(GENERIC);
+    new TestDescriptor(GenericWithDefaultCompiled.class, "-Gdc").add(GENERIC);
+    new TestDescriptor(GenericWithOutOfOrderCompiled.class, "-Goc").add(GENERIC);
+    new TestDescriptor(GenericWithPromotionCompiled.class, "-Gpc").add(GENERIC);
+    new TestDescriptor(GenericLongArrayTest.class, "-Gla").add(GENERIC);
+    new TestDescriptor(GenericLongArrayBoxedTest.class, "-Glab").add(GENERIC);
+    new TestDescriptor(GenericDoubleArrayTest.class, "-Gda").add(GENERIC);
+    new TestDescriptor(GenericDoubleArrayBoxedTest.class, "-Gdab").add(GENERIC);
+    new TestDescriptor(GenericJson.class, "-Gj").add(GENERIC);
+    new TestDescriptor(GenericJsonOutOfOrder.class, "-Gjo").add(GENERIC);
+    new TestDescriptor(GenericJsonDatum.class, "-Gjd").add(GENERIC);
     BATCHES.put("-generic-onetime", GENERIC_ONETIME);
     new TestDescriptor(GenericOneTimeDecoderUse.class, "-Gotd").add(GENERIC_ONETIME);
     new TestDescriptor(GenericOneTimeReaderUse.class, "-Gotr").add(GENERIC_ONETIME);
     new TestDescriptor(GenericOneTimeUse.class, "-Got").add(GENERIC_ONETIME);
     new TestDescriptor(FooBarSpecificRecordTest.class, "-Sf").add(SPECIFIC);
+    new TestDescriptor(FooBarSpecificRecordCompiledTest.class, "-Sfc").add(SPECIFIC);
     BATCHES.put("-reflect", REFLECT);
     new TestDescriptor(ReflectRecordTest.class, "-REFr").add(REFLECT);
     new TestDescriptor(ReflectBigRecordTest.class, "-REFbr").add(REFLECT);
@@ -131,6 +168,21 @@ public class Perf {
     new TestDescriptor(ReflectNestedObjectArrayTest.class, "-REFno").add(REFLECT);
     new TestDescriptor(ReflectNestedLargeFloatArrayTest.class, "-REFnlf").add(REFLECT);
     new TestDescriptor(ReflectNestedLargeFloatArrayBlockedTest.class, "-REFnlfb").add(REFLECT);
+    BATCHES.put("-schema", SCHEMA);
+    new TestDescriptor(SchemaFingerprintTest.class, "-SCf").add(SCHEMA);
+    new TestDescriptor(SchemaFingerprintStringTest.class, "-SCs").add(SCHEMA);
+    new TestDescriptor(SchemaFingerprintCachedTest.class, "-SCc").add(SCHEMA);
+    new TestDescriptor(SchemaParseTest.class, "-SCp").add(SCHEMA);
+    new TestDescriptor(SchemaParseTreeTest.class, "-SCt").add(SCHEMA);
+    BATCHES.put("-utf8", UTF8);
+    new TestDescriptor(Utf8Test.class, "-U8").add(UTF8);
+    new TestDescriptor(Utf8PlainTest.class, "-U8p").add(UTF8);
+    BATCHES.put("-rpc", RPC);
+    new TestDescriptor(RpcTest.class, "-RPC").add(RPC);
+    new TestDescriptor(RpcBytesTest.class, "-RPCb").add(RPC);
+    new TestDescriptor(RpcOneWayTest.class, "-RPCo").add(RPC);
+    new TestDescriptor(RpcOneWayBatch1kTest.class, "-RPCo1k").add(RPC);
+    new TestDescriptor(RpcOneWayBatch16kTest.class, "-RPCo16k").add(RPC);
   }
 
   private static void usage() {
@@ -1104,7 +1156,7 @@ public class Perf {
 
   static class GenericTest extends BasicTest {
     GenericRecord[] sourceData = null;
-    protected final GenericDatumReader<Object> reader;
+    protected final DatumReader<Object> reader;
     public GenericTest() throws IOException {
       this("Generic");
     }
@@ -1115,12 +1167,15 @@ public class Perf {
       super(name, writerSchema, 12);
       reader = newReader();
     }
-    protected GenericDatumReader<Object> getReader() {
+    protected DatumReader<Object> getReader() {
       return reader;
     }
-    protected GenericDatumReader<Object> newReader() {
+    protected DatumReader<Object> newReader() {
       return new GenericDatumReader<Object>(schema);
     }
+    protected DatumWriter<Object> newWriter() {
+      return new GenericDatumWriter<Object>(schema);
+    }
     @Override
     void genSourceData() {
       Random r = newRandom();
@@ -1144,7 +1199,7 @@ public class Perf {
     }
     @Override
     void writeInternal(Encoder e) throws IOException {
-      GenericDatumWriter<Object> writer = new GenericDatumWriter<Object>(schema);
+      DatumWriter<Object> writer = newWriter();
       for (int i = 0; i < sourceData.length; i++) {
         GenericRecord rec = sourceData[i];
         writer.write(rec, e);
@@ -1184,7 +1239,10 @@ public class Perf {
 
   static class GenericNested extends GenericTest {
     public GenericNested() throws IOException {
-      super("GenericNested_", NESTED_RECORD_SCHEMA);
+      this("GenericNested_");
+    }
+    protected GenericNested(String name) throws IOException {
+      super(name, NESTED_RECORD_SCHEMA);
     }
     @Override
     void genSourceData() {
@@ -1277,7 +1335,7 @@ public class Perf {
       isWriteTest = false;
     }
     @Override
-    protected GenericDatumReader<Object> newReader() {
+    protected DatumReader<Object> newReader() {
       return new GenericDatumReader<Object>(schema, getReaderSchema());
     }
     protected abstract Schema getReaderSchema();
@@ -1285,7 +1343,10 @@ public class Perf {
 
   static class GenericWithDefault extends GenericResolving {
     GenericWithDefault() throws IOException {
-      super("GenericWithDefault_");
+      this("GenericWithDefault_");
+    }
+    GenericWithDefault(String name) throws IOException {
+      super(name);
     }
     @Override
     protected Schema getReaderSchema() {
@@ -1295,7 +1356,52 @@ public class Perf {
 
   static class GenericWithOutOfOrder extends GenericResolving {
     GenericWithOutOfOrder() throws IOException {
-      super("GenericWithOutOfOrder_");
+      this("GenericWithOutOfOrder_");
+    }
+    GenericWithOutOfOrder(String name) throws IOException {
+      super(name);
+    }
+    @Override
+    protected Schema getReaderSchema() {
+      return new Schema.Parser().parse(RECORD_SCHEMA_WITH_OUT_OF_ORDER);
+    }
+  }
+
+  /** Records read from JSON through a {@link JsonDecoder}. */
+  static class GenericJson extends GenericTest {
+    GenericJson() throws IOException {
+      this("GenericJson");
+    }
+    GenericJson(String name) throws IOException {
+      super(name);
+      isWriteTest = false;
+    }
+    @Override
+    protected DatumReader<Object> newReader() {
+      return new GenericDatumReader<Object>(getReaderSchema());
+    }
+    protected Schema getReaderSchema() {
+      return schema;
+    }
+    @Override
+    protected Decoder getDecoder() throws IOException {
+      return decoder_factory.jsonDecoder(getReaderSchema(),
+                                         new ByteArrayInputStream(data));
+    }
+    @Override
+    protected Encoder newEncoder(ByteArrayOutputStream out)
+      throws IOException {
+      return encoder_factory.jsonEncoder(schema, out);
+    }
+  }
+
+  /** JSON records whose fields are not in the order of the schema read. */
+  static class GenericJsonOutOfOrder extends GenericJson {
+    GenericJsonOutOfOrder() throws IOException {
+      this("GenericJsonOutOfOrder");
+    }
+    GenericJsonOutOfOrder(String name) throws IOException {
+      super(name);
     }
     @Override
     protected Schema getReaderSchema() {
@@ -1303,9 +1409,22 @@ public class Perf {
     }
   }
 
+  static class GenericJsonDatum extends GenericJsonOutOfOrder {
+    GenericJsonDatum() throws IOException {
+      super("GenericJsonDatum");
+    }
+    @Override
+    protected DatumReader<Object> newReader() {
+      return new JsonDatumReader<Object>(getReaderSchema());
+    }
+  }
+
   static class GenericWithPromotion extends GenericResolving {
     GenericWithPromotion() throws IOException {
-      super("GenericWithPromotion_");
+      this("GenericWithPromotion_");
+    }
+    GenericWithPromotion(String name) throws IOException {
+      super(name);
     }
     @Override
     protected Schema getReaderSchema() {
@@ -1313,6 +1432,64 @@ public class Perf {
     }
   }
 
+  static class GenericCompiled extends GenericTest {
+    public GenericCompiled() throws IOException {
+      super("GenericCompiled");
+    }
+    @Override
+    protected DatumReader<Object> newReader() {
+      return new CompiledDatumReader<Object>(schema);
+    }
+    @Override
+    protected DatumWriter<Object> newWriter() {
+      return new CompiledDatumWriter<Object>(schema);
+    }
+  }
+
+  static class GenericNestedCompiled extends GenericNested {
+    public GenericNestedCompiled() throws IOException {
+      super("GenericNestedCompiled_");
+    }
+    @Override
+    protected DatumReader<Object> newReader() {
+      return new CompiledDatumReader<Object>(schema);
+    }
+    @Override
+    protected DatumWriter<Object> newWriter() {
+      return new CompiledDatumWriter<Object>(schema);
+    }
+  }
+
+  static class GenericWithDefaultCompiled extends GenericWithDefault {
+    GenericWithDefaultCompiled() throws IOException {
+      super("GenericWithDefaultCompiled_");
+    }
+    @Override
+    protected DatumReader<Object> newReader() {
+      return new CompiledDatumReader<Object>(schema, getReaderSchema());
+    }
+  }
+
+  static class GenericWithOutOfOrderCompiled extends GenericWithOutOfOrder {
+    GenericWithOutOfOrderCompiled() throws IOException {
+      super("GenericWithOutOfOrderCompiled_");
+    }
+    @Override
+    protected DatumReader<Object> newReader() {
+      return new CompiledDatumReader<Object>(schema, getReaderSchema());
+    }
+  }
+
+  static class GenericWithPromotionCompiled extends GenericWithPromotion {
+    GenericWithPromotionCompiled() throws IOException {
+      super("GenericWithPromotionCompiled_");
+    }
+    @Override
+    protected DatumReader<Object> newReader() {
+      return new CompiledDatumReader<Object>(schema, getReaderSchema());
+    }
+  }
+
   static class GenericOneTimeDecoderUse extends GenericTest {
     public GenericOneTimeDecoderUse() throws IOException {
       super("GenericOneTimeDecoderUse_");
@@ -1330,7 +1507,7 @@ public class Perf {
       isWriteTest = false;
     }
     @Override
-    protected GenericDatumReader<Object> getReader() {
+    protected DatumReader<Object> getReader() {
       return newReader();
     }
   }
@@ -1341,7 +1518,7 @@ public class Perf {
       isWriteTest = false;
     }
     @Override
-    protected GenericDatumReader<Object> getReader() {
+    protected DatumReader<Object> getReader() {
       return newReader();
     }
     @Override
@@ -1351,8 +1528,8 @@ public class Perf {
   }
 
   static abstract class SpecificTest<T extends SpecificRecordBase> extends BasicTest {
-    protected final SpecificDatumReader<T> reader;
-    protected final SpecificDatumWriter<T> writer;
+    protected final DatumReader<T> reader;
+    protected final DatumWriter<T> writer;
     private Object[] sourceData;
 
     protected SpecificTest(String name, String writerSchema) throws IOException {
@@ -1360,16 +1537,16 @@ public class Perf {
       reader = newReader();
       writer = newWriter();
     }
-    protected SpecificDatumReader<T> getReader() {
+    protected DatumReader<T> getReader() {
       return reader;
     }
-    protected SpecificDatumWriter<T> getWriter() {
+    protected DatumWriter<T> getWriter() {
       return writer;
     }
-    protected SpecificDatumReader<T> newReader() {
+    protected DatumReader<T> newReader() {
       return new SpecificDatumReader<T>(schema);
     }
-    protected SpecificDatumWriter<T> newWriter() {
+    protected DatumWriter<T> newWriter() {
       return new SpecificDatumWriter<T>(schema);
     }
     @Override
@@ -1407,7 +1584,10 @@ public class Perf {
   static class FooBarSpecificRecordTest extends
       SpecificTest<FooBarSpecificRecord> {
     public FooBarSpecificRecordTest() throws IOException {
-      super("FooBarSpecificRecordTest", FooBarSpecificRecord.SCHEMA$.toString());
+      this("FooBarSpecificRecordTest");
+    }
+    protected FooBarSpecificRecordTest(String name) throws IOException {
+      super(name, FooBarSpecificRecord.SCHEMA$.toString());
     }
 
     @Override
@@ -1430,6 +1610,23 @@ public class Perf {
     }
   }
 
+  static class FooBarSpecificRecordCompiledTest
+      extends FooBarSpecificRecordTest {
+    public FooBarSpecificRecordCompiledTest() throws IOException {
+      super("FooBarSpecificRecordCompiledTest");
+    }
+    @Override
+    protected DatumReader<FooBarSpecificRecord> newReader() {
+      return new CompiledDatumReader<FooBarSpecificRecord>(schema, schema,
+          SpecificData.get());
+    }
+    @Override
+    protected DatumWriter<FooBarSpecificRecord> newWriter() {
+      return new CompiledDatumWriter<FooBarSpecificRecord>(schema,
+          SpecificData.get());
+    }
+  }
+
   static abstract class ReflectTest<T> extends BasicTest {
     T[] sourceData = null;
     ReflectDatumReader<T> reader;
@@ -1749,4 +1946,621 @@ public class Perf {
       return new Rec1(r);
     }
   }
+
+  /** Computes the 64-bit parsing fingerprints of large nested schemas, each
+   * parsed anew so that nothing is remembered between cycles. */
+  static class SchemaFingerprintTest extends Test {
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 8;
+    private final String json;
+    protected Schema[] schemas;
+
+    public SchemaFingerprintTest() {
+      this("SchemaFingerprint");
+    }
+
+    SchemaFingerprintTest(String name) {
+      super(name, 100, 20);
+      this.json = nested(DEPTH, "r");
+      isWriteTest = false;
+    }
+
+    static String nested(int depth, String name) {
+      StringBuilder b = new StringBuilder();
+      b.append("{\"type\":\"record\",\"name\":\"").append(name)
+        .append("\",\"namespace\":\"org.apache.avro.perf\",\"fields\":[");
+      for (int i = 0; i < WIDTH; i++) {
+        String field = name + "_" + i;
+        if (i > 0)
+          b.append(',');
+        b.append("{\"name\":\"").append(field).append("\",\"type\":");
+        switch (i % 4) {
+        case 0:
+          b.append("\"long\"");
+          break;
+        case 1:
+          b.append("{\"type\":\"map\",\"values\":[\"null\",\"string\"]}");
+          break;
+        case 2:
+          b.append("{\"type\":\"enum\",\"name\":\"").append(field)
+            .append("_e\",\"symbols\":[\"A\",\"B\",\"C\"]}");
+          break;
+        default:
+          if (depth == 0)
+            b.append("{\"type\":\"fixed\",\"name\":\"").append(field)
+              .append("_f\",\"size\":16}");
+          else
+            b.append("{\"type\":\"array\",\"items\":")
+              .append(nested(depth - 1, field)).append('}');
+        }
+        b.append(",\"doc\":\"ignored by the canonical form\"}");
+      }
+      return b.append("]}").toString();
+    }
+
+    @Override
+    void init() {
+      schemas = new Schema[count];
+      parse();
+      encodedSize = count
+        * (long) SchemaNormalization.toParsingForm(schemas[0]).length();
+      parse();
+    }
+
+    private void parse() {
+      for (int i = 0; i < schemas.length; i++)
+        schemas[i] = new Schema.Parser().parse(json);
+    }
+
+    @Override
+    long readTest() throws IOException {
+      parse();
+      long t = System.nanoTime();
+      for (Schema schema : schemas)
+        fingerprint(schema);
+      return System.nanoTime() - t;
+    }
+
+    long fingerprint(Schema schema) throws IOException {
+      return SchemaNormalization.parsingFingerprint64(schema);
+    }
+
+    @Override
+    long writeTest() {
+      return 0;
+    }
+
+    @Override
+    void reset() {
+      schemas = null;
+    }
+  }
+
+  /** Computes fingerprints from the canonical form string, as was done
+   * before fingerprints were computed while generating the form. */
+  static class SchemaFingerprintStringTest extends SchemaFingerprintTest {
+    public SchemaFingerprintStringTest() {
+      super("SchemaFingerprintString");
+    }
+
+    @Override
+    long fingerprint(Schema schema) throws IOException {
+      return SchemaNormalization.fingerprint64(
+          SchemaNormalization.toParsingForm(schema).getBytes("UTF-8"));
+    }
+  }
+
+  /** Looks up fingerprints already computed for each schema. */
+  static class SchemaFingerprintCachedTest extends SchemaFingerprintTest {
+    public SchemaFingerprintCachedTest() {
+      super("SchemaFingerprintCached");
+    }
+
+    @Override
+    long readTest() throws IOException {
+      long t = System.nanoTime();
+      for (Schema schema : schemas)
+        fingerprint(schema);
+      return System.nanoTime() - t;
+    }
+  }
+
+  /** Parses the large nested schemas used by {@link SchemaFingerprintTest}
+   * from strings, which streams over the text. */
+  static class SchemaParseTest extends Test {
+    protected final String json;
+    protected final byte[] bytes;
+
+    public SchemaParseTest() {
+      this("SchemaParse");
+    }
+
+    SchemaParseTest(String name) {
+      super(name, 100, 20);
+      this.json = SchemaFingerprintTest.nested(4, "r");
+      try {
+        this.bytes = json.getBytes("UTF-8");
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      isWriteTest = false;
+    }
+
+    @Override
+    void init() {
+      encodedSize = count * (long) bytes.length;
+    }
+
+    @Override
+    long readTest() throws IOException {
+      long t = System.nanoTime();
+      for (int i = 0; i < count; i++)
+        parse();
+      return System.nanoTime() - t;
+    }
+
+    Schema parse() throws IOException {
+      return new Schema.Parser().parse(json);
+    }
+
+    @Override
+    long writeTest() {
+      return 0;
+    }
+
+    @Override
+    void reset() {
+    }
+  }
+
+  /** Parses schemas from streams, which builds a tree of the text first. */
+  static class SchemaParseTreeTest extends SchemaParseTest {
+    public SchemaParseTreeTest() {
+      super("SchemaParseTree");
+    }
+
+    @Override
+    Schema parse() throws IOException {
+      return new Schema.Parser().parse(new ByteArrayInputStream(bytes));
+    }
+  }
+
+  /** Looks up freshly decoded string keys in a map several times each, as
+   * code using generic data with string-keyed maps does, and reads their
+   * lengths, characters and order. */
+  static class Utf8Test extends Test {
+    private static final int DISTINCT = 1000;
+    private Utf8[] keys;
+    private Map<Utf8, Integer> map;
+
+    public Utf8Test() {
+      this("Utf8");
+    }
+
+    Utf8Test(String name) {
+      super(name, 100, 100000);
+      isWriteTest = false;
+    }
+
+    Utf8 utf8(byte[] bytes) {
+      return new Utf8(bytes);
+    }
+
+    @Override
+    void init() {
+      Random r = newRandom();
+      keys = new Utf8[count];
+      map = new HashMap<Utf8, Integer>();
+      for (int i = 0; i < count; i++) {
+        byte[] bytes = new byte[16 + r.nextInt(32)];
+        for (int j = 0; j < bytes.length; j++)
+          bytes[j] = (byte)('a' + r.nextInt(26));
+        keys[i] = utf8(bytes);
+        if (i < DISTINCT)
+          map.put(utf8(bytes.clone()), i);
+        encodedSize += bytes.length;
+      }
+    }
+
+    @Override
+    long readTest() {
+      long t = System.nanoTime();
+      long sum = 0;
+      Utf8 previous = keys[count - 1];
+      for (Utf8 key : keys) {
+        key.setByteLength(key.getByteLength());   // as when decoded anew
+        for (int i = 0; i < 4; i++) {
+          Integer value = map.get(key);
+          sum += value == null ? 0 : value;
+        }
+        sum += key.length() + key.charAt(key.length() / 2);
+        sum += key.compareTo(previous);
+        previous = key;
+      }
+      if (sum == 42) System.out.print("");          // keep the result live
+      return System.nanoTime() - t;
+    }
+
+    @Override
+    long writeTest() {
+      return 0;
+    }
+
+    @Override
+    void reset() {
+      keys = null;
+      map = null;
+    }
+  }
+
+  /** Uses strings that compute everything anew, as Utf8 once did. */
+  static class Utf8PlainTest extends Utf8Test {
+    public Utf8PlainTest() {
+      super("Utf8Plain");
+    }
+
+    @Override
+    Utf8 utf8(byte[] bytes) {
+      return new PlainUtf8(bytes);
+    }
+
+    private static class PlainUtf8 extends Utf8 {
+      PlainUtf8(byte[] bytes) { super(bytes); }
+
+      @Override public boolean equals(Object o) {
+        if (!(o instanceof Utf8)) return false;
+        Utf8 that = (Utf8)o;
+        if (getByteLength() != that.getByteLength()) return false;
+        for (int i = 0; i < getByteLength(); i++)
+          if (getBytes()[i] != that.getBytes()[i])
+            return false;
+        return true;
+      }
+
+      @Override public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < getByteLength(); i++)
+          hash = hash*31 + getBytes()[i];
+        return hash;
+      }
+
+      @Override public int compareTo(Utf8 that) {
+        return BinaryData.compareBytes(getBytes(), 0, getByteLength(),
+                                       that.getBytes(), 0, that.getByteLength());
+      }
+
+      @Override public char charAt(int i) { return toString().charAt(i); }
+      @Override public int length() { return toString().length(); }
+    }
+  }
+
+  /** Reads and writes arrays of longs held in arrays of primitives. */
+  static class GenericLongArrayTest extends BasicTest {
+    private GenericArray<Long>[] sourceData;
+    private final DatumReader<Object> reader;
+    private final DatumWriter<Object> writer;
+
+    public GenericLongArrayTest() throws IOException {
+      this("GenericLongArray");
+    }
+
+    GenericLongArrayTest(String name) throws IOException {
+      super(name, "{\"type\":\"array\",\"items\":\"long\"}", 24);
+      reader = newReader();
+      writer = new GenericDatumWriter<Object>(schema);
+    }
+
+    DatumReader<Object> newReader() {
+      return new GenericDatumReader<Object>(schema, schema, PRIMITIVE_ARRAYS);
+    }
+
+    GenericArray<Long> newArray(int size) {
+      return new PrimitivesArrays.LongArray(size, schema);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void genSourceData() {
+      Random r = newRandom();
+      sourceData = new GenericArray[count];
+      for (int i = 0; i < sourceData.length; i++) {
+        long[] values = populateLongArray(r);
+        sourceData[i] = newArray(values.length);
+        for (long value : values)
+          sourceData[i].add(value);
+      }
+    }
+
+    @Override
+    void readInternal(Decoder d) throws IOException {
+      for (int i = 0; i < count; i++)
+        reader.read(null, d);
+    }
+
+    @Override
+    void writeInternal(Encoder e) throws IOException {
+      for (int i = 0; i < sourceData.length; i++)
+        writer.write(sourceData[i], e);
+    }
+
+    @Override
+    void reset() {
+      sourceData = null;
+      data = null;
+    }
+  }
+
+  /** Reads and writes arrays of longs held as boxed objects. */
+  static class GenericLongArrayBoxedTest extends GenericLongArrayTest {
+    public GenericLongArrayBoxedTest() throws IOException {
+      super("GenericLongArrayBoxed");
+    }
+
+    @Override
+    DatumReader<Object> newReader() {
+      return new BoxingReader(schema);
+    }
+
+    @Override
+    GenericArray<Long> newArray(int size) {
+      return new GenericData.Array<Long>(size, schema);
+    }
+  }
+
+  /** Reads and writes arrays of doubles held in arrays of primitives. */
+  static class GenericDoubleArrayTest extends BasicTest {
+    private GenericArray<Double>[] sourceData;
+    private final DatumReader<Object> reader;
+    private final DatumWriter<Object> writer;
+
+    public GenericDoubleArrayTest() throws IOException {
+      this("GenericDoubleArray");
+    }
+
+    GenericDoubleArrayTest(String name) throws IOException {
+      super(name, "{\"type\":\"array\",\"items\":\"double\"}", 24);
+      reader = newReader();
+      writer = new GenericDatumWriter<Object>(schema);
+    }
+
+    DatumReader<Object> newReader() {
+      return new GenericDatumReader<Object>(schema, schema, PRIMITIVE_ARRAYS);
+    }
+
+    GenericArray<Double> newArray(int size) {
+      return new PrimitivesArrays.DoubleArray(size, schema);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void genSourceData() {
+      Random r = newRandom();
+      sourceData = new GenericArray[count];
+      for (int i = 0; i < sourceData.length; i++) {
+        double[] values = populateDoubleArray(r);
+        sourceData[i] = newArray(values.length);
+        for (double value : values)
+          sourceData[i].add(value);
+      }
+    }
+
+    @Override
+    void readInternal(Decoder d) throws IOException {
+      for (int i = 0; i < count; i++)
+        reader.read(null, d);
+    }
+
+    @Override
+    void writeInternal(Encoder e) throws IOException {
+      for (int i = 0; i < sourceData.length; i++)
+        writer.write(sourceData[i], e);
+    }
+
+    @Override
+    void reset() {
+      sourceData = null;
+      data = null;
+    }
+  }
+
+  /** Reads and writes arrays of doubles held as boxed objects. */
+  static class GenericDoubleArrayBoxedTest extends GenericDoubleArrayTest {
+    public GenericDoubleArrayBoxedTest() throws IOException {
+      super("GenericDoubleArrayBoxed");
+    }
+
+    @Override
+    DatumReader<Object> newReader() {
+      return new BoxingReader(schema);
+    }
+
+    @Override
+    GenericArray<Double> newArray(int size) {
+      return new GenericData.Array<Double>(size, schema);
+    }
+  }
+
+  /** Reads arrays of primitives into {@link PrimitivesArrays}. */
+  private static final GenericData PRIMITIVE_ARRAYS = new GenericData();
+  static {
+    PRIMITIVE_ARRAYS.setPrimitiveArrays(true);
+  }
+
+  /** Reads every array into a {@link GenericData.Array}. */
+  private static class BoxingReader extends GenericDatumReader<Object> {
+    BoxingReader(Schema schema) {
+      super(schema);
+    }
+
+    @Override
+    protected Object newArray(Object old, int size, Schema schema) {
+      return new GenericData.Array<Object>(size, schema);
+    }
+  }
+
+  /** Makes request round trips through a {@link LocalTransceiver}, which
+   * serializes and deserializes both requests and responses. */
+  static class RpcTest extends Test {
+    protected Simple client;
+
+    public RpcTest() {
+      this("Rpc");
+    }
+
+    RpcTest(String name) {
+      super(name, 100, 2000);
+      isWriteTest = false;
+    }
+
+    @Override
+    void init() throws IOException {
+      SpecificResponder responder =
+        new SpecificResponder(Simple.class, new SimpleImpl());
+      client = SpecificRequestor.getClient(Simple.class,
+                                           new LocalTransceiver(responder));
+      client.add(0, 0);                           // handshake
+      encodedSize = count * 4L;
+    }
+
+    @Override
+    long readTest() throws IOException {
+      long t = System.nanoTime();
+      long sum = 0;
+      for (int i = 0; i < count; i++)
+        sum += client.add(i, 1);
+      if (sum == 42) System.out.print("");          // keep the result live
+      return System.nanoTime() - t;
+    }
+
+    @Override
+    long writeTest() {
+      return 0;
+    }
+
+    @Override
+    void reset() {
+      client = null;
+    }
+  }
+
+  /** Echoes 1KB of bytes in each round trip. */
+  static class RpcBytesTest extends RpcTest {
+    private final ByteBuffer data = ByteBuffer.wrap(new byte[1024]);
+
+    public RpcBytesTest() {
+      super("RpcBytes");
+    }
+
+    @Override
+    void init() throws IOException {
+      super.init();
+      encodedSize = count * 2L * data.remaining();
+    }
+
+    @Override
+    long readTest() throws IOException {
+      long t = System.nanoTime();
+      long sum = 0;
+      for (int i = 0; i < count; i++)
+        sum += client.echoBytes(data).remaining();
+      if (sum == 42) System.out.print("");          // keep the result live
+      return System.nanoTime() - t;
+    }
+  }
+
+  /** Sends one-way messages to a {@link NettyServer}, each in its own
+   * request, then a two-way message that's answered once all are handled. */
+  static class RpcOneWayTest extends Test {
+    private Server server;
+    private Transceiver transceiver;
+    private Simple client;
+
+    public RpcOneWayTest() {
+      this("RpcOneWay");
+    }
+
+    RpcOneWayTest(String name) {
+      super(name, 100, 2000);
+      isWriteTest = false;
+    }
+
+    Transceiver wrap(Transceiver transceiver) {
+      return transceiver;
+    }
+
+    @Override
+    void init() throws IOException {
+      server = new NettyServer(
+          new SpecificResponder(Simple.class, new SimpleImpl()),
+          new InetSocketAddress(0));
+      server.start();
+      transceiver = wrap(new NettyTransceiver(
+          new InetSocketAddress(server.getPort())));
+      client = SpecificRequestor.getClient(Simple.class, transceiver);
+      client.add(0, 0);                           // handshake
+      encodedSize = count * 4L;
+    }
+
+    @Override
+    long readTest() throws IOException {
+      long t = System.nanoTime();
+      for (int i = 0; i < count; i++)
+        client.ack();
+      client.add(0, 0);                           // wait for all
+      return System.nanoTime() - t;
+    }
+
+    @Override
+    long writeTest() {
+      return 0;
+    }
+
+    @Override
+    void reset() {
+      try {
+        transceiver.close();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      server.close();
+      client = null;
+    }
+  }
+
+  /** Sends one-way messages in batches of about 1KB. */
+  static class RpcOneWayBatch1kTest extends RpcOneWayTest {
+    private final int batchBytes;
+
+    public RpcOneWayBatch1kTest() {
+      this("RpcOneWayBatch1k", 1024);
+    }
+
+    RpcOneWayBatch1kTest(String name, int batchBytes) {
+      super(name);
+      this.batchBytes = batchBytes;
+    }
+
+    @Override
+    Transceiver wrap(Transceiver transceiver) {
+      return new BatchingTransceiver(transceiver, batchBytes, 0);
+    }
+  }
+
+  /** Sends one-way messages in batches of about 16KB. */
+  static class RpcOneWayBatch16kTest extends RpcOneWayBatch1kTest {
+    public RpcOneWayBatch16kTest() {
+      super("RpcOneWayBatch16k", 16 * 1024);
+    }
+  }
+
+  private static class SimpleImpl implements Simple {
+    @Override public String hello(String greeting) { return greeting; }
+    @Override public TestRecord echo(TestRecord record) { return record; }
+    @Override public int add(int arg1, int arg2) { return arg1 + arg2; }
+    @Override public ByteBuffer echoBytes(ByteBuffer data) { return data; }
+    @Override public Void error() throws TestError {
+      throw new TestError("TestError");
+    }
+    @Override public void ack() {}
+  }
 }
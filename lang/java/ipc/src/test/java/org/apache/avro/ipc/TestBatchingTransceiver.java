@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.avro.AvroRemoteException;
+import org.apache.avro.Protocol;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.ipc.generic.GenericRequestor;
+import org.apache.avro.ipc.specific.SpecificRequestor;
+import org.apache.avro.ipc.specific.SpecificResponder;
+import org.apache.avro.test.Simple;
+import org.apache.avro.test.TestError;
+import org.apache.avro.test.TestRecord;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestBatchingTransceiver {
+  private final SimpleImpl impl = new SimpleImpl();
+  private Server server;
+  private Transceiver transceiver;
+
+  @After
+  public void cleanUp() throws Exception {
+    if (transceiver != null)
+      transceiver.close();
+    if (server != null)
+      server.close();
+  }
+
+  /** Counts the requests written to it. */
+  private static class CountingTransceiver extends NettyTransceiver {
+    final AtomicInteger writes = new AtomicInteger();
+
+    CountingTransceiver(int port) throws IOException {
+      super(new InetSocketAddress(port),
+            TestNettyServer.CONNECT_TIMEOUT_MILLIS);
+    }
+
+    @Override
+    public void writeBuffers(List<ByteBuffer> buffers) throws IOException {
+      writes.incrementAndGet();
+      super.writeBuffers(buffers);
+    }
+  }
+
+  private CountingTransceiver startNetty() throws Exception {
+    server = new NettyServer(new SpecificResponder(Simple.class, impl),
+                             new InetSocketAddress(0));
+    server.start();
+    return new CountingTransceiver(server.getPort());
+  }
+
+  @Test(timeout=30000)
+  public void testBatchBySize() throws Exception {
+    CountingTransceiver netty = startNetty();
+    transceiver = new BatchingTransceiver(netty, 64, 0);
+    Simple client = SpecificRequestor.getClient(Simple.class, transceiver);
+    Assert.assertEquals(3, client.add(1, 2));     // handshake
+    for (int i = 0; i < 100; i++)
+      client.ack();
+    Assert.assertEquals(5, client.add(2, 3));     // flushes first
+    Assert.assertEquals(100, impl.acks.get());
+    Assert.assertTrue(netty.writes.get() < 100);
+    Assert.assertTrue(netty.writes.get() > 1);
+  }
+
+  @Test(timeout=30000)
+  public void testBatchByInterval() throws Exception {
+    CountingTransceiver netty = startNetty();
+    transceiver = new BatchingTransceiver(netty, Integer.MAX_VALUE, 50);
+    Simple client = SpecificRequestor.getClient(Simple.class, transceiver);
+    Assert.assertEquals(3, client.add(1, 2));     // handshake
+    for (int i = 0; i < 10; i++)
+      client.ack();
+    while (impl.acks.get() < 10)                  // written by the timer
+      Thread.sleep(10);
+    Assert.assertEquals(1, netty.writes.get());
+  }
+
+  @Test(timeout=30000)
+  public void testBadMessageInBatch() throws Exception {
+    CountingTransceiver netty = startNetty();
+    transceiver = new BatchingTransceiver(netty, Integer.MAX_VALUE, 0);
+    // the client's protocol has a one-way message that the server's lacks
+    Protocol protocol = Protocol.parse(Simple.PROTOCOL.toString());
+    Protocol.Message unknown = protocol.createMessage("unknown", null,
+        Schema.createRecord(Collections.singletonList(new Schema.Field(
+            "x", Schema.create(Schema.Type.INT), null, null))));
+    protocol.getMessages().put("unknown", unknown);
+    GenericRequestor client = new GenericRequestor(protocol, transceiver);
+    GenericRecord add =
+      new GenericData.Record(protocol.getMessages().get("add").getRequest());
+    add.put("arg1", 1);
+    add.put("arg2", 2);
+    GenericRecord ack =
+      new GenericData.Record(protocol.getMessages().get("ack").getRequest());
+    GenericRecord bad = new GenericData.Record(unknown.getRequest());
+    bad.put("x", 7);
+    Assert.assertEquals(3, client.request("add", add));  // handshake
+    client.request("ack", ack);
+    client.request("unknown", bad);
+    client.request("ack", ack);
+    Assert.assertEquals(3, client.request("add", add));  // flushes first
+    Assert.assertEquals(2, impl.acks.get());
+    Assert.assertEquals(1, netty.writes.get());   // a single batch
+  }
+
+  @Test(timeout=30000)
+  public void testSocketServer() throws Exception {
+    server = new SocketServer(new SpecificResponder(Simple.class, impl),
+                              new InetSocketAddress(0));
+    server.start();
+    transceiver = new BatchingTransceiver(
+        new SocketTransceiver(new InetSocketAddress(server.getPort())),
+        1024, 0);
+    Simple client = SpecificRequestor.getClient(Simple.class, transceiver);
+    Assert.assertEquals(3, client.add(1, 2));     // handshake
+    for (int i = 0; i < 100; i++)
+      client.ack();
+    transceiver.close();                          // flushes
+    transceiver = null;
+    long deadline = System.currentTimeMillis() + 10000;
+    while (impl.acks.get() < 100 && System.currentTimeMillis() < deadline)
+      Thread.sleep(10);
+    Assert.assertEquals(100, impl.acks.get());
+  }
+
+  private static class SimpleImpl implements Simple {
+    final AtomicInteger acks = new AtomicInteger();
+
+    @Override
+    public int add(int arg1, int arg2) throws AvroRemoteException {
+      return arg1 + arg2;
+    }
+
+    @Override
+    public String hello(String greeting) throws AvroRemoteException {
+      return greeting;
+    }
+
+    @Override
+    public void ack() { acks.incrementAndGet(); }
+
+    @Override
+    public TestRecord echo(TestRecord record) throws AvroRemoteException {
+      return record;
+    }
+
+    @Override
+    public ByteBuffer echoBytes(ByteBuffer data) throws AvroRemoteException {
+      return data;
+    }
+
+    @Override
+    public Void error() throws AvroRemoteException, TestError {
+      throw new TestError("TestError");
+    }
+  }
+}
@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.avro.AvroRemoteException;
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.ipc.specific.SpecificRequestor;
+import org.apache.avro.ipc.specific.SpecificResponder;
+import org.apache.avro.test.Simple;
+import org.apache.avro.test.TestError;
+import org.apache.avro.test.TestRecord;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestNettyServerRequestExecutor {
+  private final SimpleImpl impl = new SimpleImpl();
+  private ExecutorService executor = Executors.newCachedThreadPool();
+  private Server server;
+  private Transceiver transceiver;
+  private Simple client;
+
+  @After
+  public void cleanUp() throws Exception {
+    impl.release.countDown();
+    if (transceiver != null)
+      transceiver.close();
+    if (server != null)
+      server.close();
+    executor.shutdownNow();
+  }
+
+  private void start(RequestExecutor requestExecutor) throws Exception {
+    server = new NettyServer(new SpecificResponder(Simple.class, impl),
+        new InetSocketAddress(0),
+        new NioServerSocketChannelFactory(Executors.newCachedThreadPool(),
+                                          Executors.newCachedThreadPool()),
+        new ChannelPipelineFactory() {
+          @Override
+          public ChannelPipeline getPipeline() throws Exception {
+            return Channels.pipeline();
+          }
+        },
+        null, requestExecutor);
+    server.start();
+    transceiver = new NettyTransceiver(new InetSocketAddress(
+        server.getPort()), TestNettyServer.CONNECT_TIMEOUT_MILLIS);
+    client = SpecificRequestor.getClient(Simple.class, transceiver);
+    Assert.assertEquals(3, client.add(1, 2));     // handshake
+  }
+
+  /** Call hello("wait") in another thread and return once it is running. */
+  private Thread startWaiting() throws InterruptedException {
+    Thread waiting = new Thread() {
+      @Override
+      public void run() {
+        try {
+          client.hello("wait");
+        } catch (AvroRemoteException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    waiting.start();
+    impl.waiting.await();
+    return waiting;
+  }
+
+  @Test(timeout=30000)
+  public void testSlowMessageDoesNotBlock() throws Exception {
+    RequestExecutor requestExecutor = new RequestExecutor(executor);
+    start(requestExecutor);
+    Thread waiting = startWaiting();
+    Assert.assertEquals(5, client.add(2, 3));     // while hello waits
+    impl.release.countDown();
+    waiting.join();
+    Assert.assertEquals(3, requestExecutor.getExecuted());
+    Assert.assertEquals(0, requestExecutor.getRejected());
+    Assert.assertEquals(0, requestExecutor.getPending());
+    Assert.assertTrue(requestExecutor.getMaxWaitNanos()
+                      <= requestExecutor.getTotalWaitNanos());
+  }
+
+  @Test(timeout=30000)
+  public void testRejected() throws Exception {
+    RequestExecutor requestExecutor = new RequestExecutor(executor, 1);
+    start(requestExecutor);
+    Thread waiting = startWaiting();
+    try {
+      client.add(2, 3);
+      Assert.fail("Expected a rejection");
+    } catch (AvroRuntimeException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("busy"));
+    }
+    client.ack();                                 // one-way: dropped
+    try {
+      client.add(2, 3);                           // received after ack()
+      Assert.fail("Expected a rejection");
+    } catch (AvroRuntimeException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("busy"));
+    }
+    Assert.assertEquals(3, requestExecutor.getRejected());
+    impl.release.countDown();
+    waiting.join();
+    Assert.assertEquals(5, client.add(2, 3));
+    Assert.assertEquals(3, requestExecutor.getExecuted());
+  }
+
+  @Test(timeout=30000)
+  public void testExecutorByMessage() throws Exception {
+    ExecutorService adds = Executors.newSingleThreadExecutor(
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            return new Thread(r, "add-executor");
+          }
+        });
+    try {
+      start(new RequestExecutor(executor).setExecutor("add", adds));
+      Assert.assertEquals(5, client.add(2, 3));
+      Assert.assertEquals("add-executor", impl.addThread);
+      Assert.assertEquals("hi", client.hello("hi"));
+      Assert.assertFalse("add-executor".equals(impl.helloThread));
+    } finally {
+      adds.shutdownNow();
+    }
+  }
+
+  private static class SimpleImpl implements Simple {
+    final CountDownLatch waiting = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    volatile String addThread;
+    volatile String helloThread;
+
+    @Override
+    public int add(int arg1, int arg2) throws AvroRemoteException {
+      addThread = Thread.currentThread().getName();
+      return arg1 + arg2;
+    }
+
+    @Override
+    public String hello(String greeting) throws AvroRemoteException {
+      helloThread = Thread.currentThread().getName();
+      if (greeting.equals("wait")) {
+        waiting.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return greeting;
+    }
+
+    @Override
+    public void ack() {}
+
+    @Override
+    public TestRecord echo(TestRecord record) throws AvroRemoteException {
+      return record;
+    }
+
+    @Override
+    public ByteBuffer echoBytes(ByteBuffer data) throws AvroRemoteException {
+      return data;
+    }
+
+    @Override
+    public Void error() throws AvroRemoteException, TestError {
+      throw new TestError("TestError");
+    }
+  }
+}
@@ -0,0 +1,226 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.avro.AvroRemoteException;
+import org.apache.avro.ipc.specific.SpecificRequestor;
+import org.apache.avro.ipc.specific.SpecificResponder;
+import org.apache.avro.test.Simple;
+import org.apache.avro.test.TestError;
+import org.apache.avro.test.TestRecord;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestNettyTransceiverPool {
+  private final SimpleImpl impl = new SimpleImpl();
+  private ExecutorService executor = Executors.newCachedThreadPool();
+  private Server server;
+  private Transceiver transceiver;
+
+  @Before
+  public void startServer() throws Exception {
+    server = new NettyServer(new SpecificResponder(Simple.class, impl),
+        new InetSocketAddress(0),
+        new NioServerSocketChannelFactory(Executors.newCachedThreadPool(),
+                                          Executors.newCachedThreadPool()),
+        new ChannelPipelineFactory() {
+          @Override
+          public ChannelPipeline getPipeline() throws Exception {
+            return Channels.pipeline();
+          }
+        },
+        null, new RequestExecutor(executor));
+    server.start();
+  }
+
+  @After
+  public void cleanUp() throws Exception {
+    impl.release.countDown();
+    if (transceiver != null)
+      transceiver.close();
+    if (server != null)
+      server.close();
+    executor.shutdownNow();
+  }
+
+  private NettyTransceiver connect() throws Exception {
+    return new NettyTransceiver(new InetSocketAddress(server.getPort()),
+                                TestNettyServer.CONNECT_TIMEOUT_MILLIS);
+  }
+
+  /** Call hello("wait") in another thread and return once it is running. */
+  private Thread startWaiting(final Simple client) throws Exception {
+    Thread waiting = new Thread() {
+      @Override
+      public void run() {
+        try {
+          client.hello("wait");
+        } catch (AvroRemoteException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    waiting.start();
+    impl.waiting.await();
+    return waiting;
+  }
+
+  @Test(timeout=30000)
+  public void testMaxInFlight() throws Exception {
+    NettyTransceiver nettyTransceiver = connect();
+    transceiver = nettyTransceiver;
+    final Simple client =
+      SpecificRequestor.getClient(Simple.class, transceiver);
+    Assert.assertEquals(3, client.add(1, 2));     // handshake
+    nettyTransceiver.setMaxInFlight(1);
+    Thread waiting = startWaiting(client);
+    final AtomicInteger sum = new AtomicInteger();
+    Thread adding = new Thread() {
+      @Override
+      public void run() {
+        try {
+          sum.set(client.add(2, 3));
+        } catch (AvroRemoteException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    adding.start();
+    adding.join(500);
+    Assert.assertTrue(adding.isAlive());          // blocked by the window
+    Assert.assertEquals(1, nettyTransceiver.getInFlight());
+    impl.release.countDown();
+    waiting.join();
+    adding.join();
+    Assert.assertEquals(5, sum.get());
+    Assert.assertEquals(0, nettyTransceiver.getInFlight());
+  }
+
+  @Test(timeout=30000)
+  public void testLeastLoaded() throws Exception {
+    NettyTransceiver first = connect();
+    NettyTransceiver second = connect();
+    transceiver = new NettyTransceiverPool(first, second);
+    Simple client = SpecificRequestor.getClient(Simple.class, transceiver);
+    Assert.assertEquals(3, client.add(1, 2));     // handshake
+    while (!second.isConnected())                 // handshake in background
+      Thread.sleep(10);
+    Thread waiting = startWaiting(client);
+    NettyTransceiver busy = first.getInFlight() == 1 ? first : second;
+    NettyTransceiver idle = busy == first ? second : first;
+    Assert.assertEquals(1, busy.getInFlight());
+    for (int i = 0; i < 10; i++)                  // all sent on idle
+      Assert.assertEquals(i + 1, client.add(i, 1));
+    Assert.assertEquals(1, busy.getInFlight());
+    Assert.assertEquals(0, idle.getInFlight());
+    impl.release.countDown();
+    waiting.join();
+  }
+
+  @Test(timeout=30000)
+  public void testConcurrentCalls() throws Exception {
+    NettyTransceiverPool pool = new NettyTransceiverPool(
+        new InetSocketAddress(server.getPort()), 3);
+    transceiver = pool;
+    Assert.assertEquals(3, pool.size());
+    final Simple client =
+      SpecificRequestor.getClient(Simple.class, transceiver);
+    final AtomicInteger failures = new AtomicInteger();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 8; t++) {
+      final int base = t * 1000;
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < 100; i++) {
+              if (client.add(base, i) != base + i)
+                failures.incrementAndGet();
+              client.ack();
+            }
+          } catch (Exception e) {
+            failures.incrementAndGet();
+          }
+        }
+      };
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads)
+      thread.join();
+    Assert.assertEquals(0, failures.get());
+    Assert.assertEquals(0, pool.getInFlight());
+    Assert.assertEquals(Simple.PROTOCOL, pool.getRemote());
+  }
+
+  private static class SimpleImpl implements Simple {
+    final CountDownLatch waiting = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public int add(int arg1, int arg2) throws AvroRemoteException {
+      return arg1 + arg2;
+    }
+
+    @Override
+    public String hello(String greeting) throws AvroRemoteException {
+      if (greeting.equals("wait")) {
+        waiting.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return greeting;
+    }
+
+    @Override
+    public void ack() {}
+
+    @Override
+    public TestRecord echo(TestRecord record) throws AvroRemoteException {
+      return record;
+    }
+
+    @Override
+    public ByteBuffer echoBytes(ByteBuffer data) throws AvroRemoteException {
+      return data;
+    }
+
+    @Override
+    public Void error() throws AvroRemoteException, TestError {
+      throw new TestError("TestError");
+    }
+  }
+}
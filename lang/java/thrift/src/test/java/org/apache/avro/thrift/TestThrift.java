@@ -20,8 +20,12 @@ package org.apache.avro.thrift;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
@@ -77,6 +81,30 @@ public class TestThrift {
     check(test);
   }
 
+  @org.junit.Test public void testByteAndShortLists() throws Exception {
+    Schema bytes = Schema.create(Schema.Type.INT);
+    bytes.addProp(ThriftData.THRIFT_PROP, "byte");
+    checkList(Schema.createArray(bytes), (byte)1, (byte)-2);
+    Schema shorts = Schema.create(Schema.Type.INT);
+    shorts.addProp(ThriftData.THRIFT_PROP, "short");
+    checkList(Schema.createArray(shorts), (short)1, (short)-2);
+  }
+
+  private void checkList(Schema schema, Object... items) throws Exception {
+    ByteArrayOutputStream bao = new ByteArrayOutputStream();
+    Encoder e = EncoderFactory.get().binaryEncoder(bao, null);
+    new GenericDatumWriter<Object>(schema)
+      .write(Arrays.asList(((Number)items[0]).intValue(),
+                           ((Number)items[1]).intValue()), e);
+    e.flush();
+
+    List<?> list = (List<?>)new ThriftDatumReader<Object>(schema).read
+      (null, DecoderFactory.get().binaryDecoder(bao.toByteArray(), null));
+
+    assertEquals(Arrays.asList(items), list);
+    assertEquals(items[0].getClass(), list.get(0).getClass());
+  }
+
   private void check(Test test) throws Exception {
 
     ByteArrayOutputStream bao = new ByteArrayOutputStream();
@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.tool;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.hadoop.fs.Path;
+
+/** Compares the size and speed of codecs on representative data files. */
+public class CodecBenchmarkTool implements Tool {
+  private static final List<String> DEFAULT_CODECS = Arrays.asList(
+      "null", "deflate:1", "deflate:6", "deflate:9", "snappy", "bzip2",
+      "xz:6", "zstandard:1", "zstandard:3", "zstandard:9", "zstandard:19",
+      "lz4:0", "lz4:9");
+
+  @Override
+  public String getName() {
+    return "codecbench";
+  }
+
+  @Override
+  public String getShortDescription() {
+    return "Compares the size and speed of codecs on data files.";
+  }
+
+  @Override
+  public int run(InputStream stdin, PrintStream out, PrintStream err,
+      List<String> args) throws Exception {
+    OptionParser p = new OptionParser();
+    OptionSpec<String> codecsOpt = p
+      .accepts("codecs", "Comma-separated codecs to compare, each as"
+               + " name[:level]")
+      .withRequiredArg()
+      .ofType(String.class)
+      .withValuesSeparatedBy(',');
+    OptionSpec<Integer> iterationsOpt = p
+      .accepts("iterations", "Times each codec is timed, after a warm-up")
+      .withRequiredArg()
+      .ofType(Integer.class)
+      .defaultsTo(3);
+    OptionSet opts = p.parse(args.toArray(new String[0]));
+
+    List<String> nargs = (List<String>)opts.nonOptionArguments();
+    if (nargs.isEmpty()) {
+      err.println("Expected one or more input files.");
+      p.printHelpOn(err);
+      return 1;
+    }
+    List<String> codecs = opts.has(codecsOpt)
+      ? codecsOpt.values(opts)
+      : DEFAULT_CODECS;
+    int iterations = iterationsOpt.value(opts);
+
+    // uncompress the inputs once, so that their codec does not matter
+    List<byte[]> inputs = new ArrayList<byte[]>();
+    long rawSize = 0;
+    for (Path file : Util.getFiles(nargs)) {
+      byte[] input = recodec(Util.readFromFS(file), CodecFactory.nullCodec());
+      inputs.add(input);
+      rawSize += input.length;
+    }
+
+    out.printf("%-14s %12s %7s %12s %12s%n",
+               "codec", "bytes", "ratio", "write MB/s", "read MB/s");
+    for (String spec : codecs) {
+      CodecFactory codec = parse(spec);
+      long size = 0;
+      for (byte[] input : inputs)
+        size += recodec(input, codec).length;
+      List<byte[]> compressed = new ArrayList<byte[]>();
+      for (byte[] input : inputs)
+        compressed.add(recodec(input, codec));
+      read(compressed);                           // warm up
+
+      long writeTime = 0, readTime = 0;
+      for (int i = 0; i < iterations; i++) {
+        long start = System.nanoTime();
+        for (byte[] input : inputs)
+          recodec(input, codec);
+        writeTime += System.nanoTime() - start;
+        start = System.nanoTime();
+        read(compressed);
+        readTime += System.nanoTime() - start;
+      }
+      out.printf("%-14s %12d %7.3f %12.1f %12.1f%n", spec, size,
+                 (double) rawSize / size,
+                 rate(rawSize * iterations, writeTime),
+                 rate(rawSize * iterations, readTime));
+    }
+    return 0;
+  }
+
+  private static CodecFactory parse(String spec) {
+    int colon = spec.indexOf(':');
+    if (colon < 0)
+      return CodecFactory.fromString(spec);
+    String name = spec.substring(0, colon);
+    int level = Integer.parseInt(spec.substring(colon + 1));
+    if ("deflate".equals(name))
+      return CodecFactory.deflateCodec(level);
+    if ("xz".equals(name))
+      return CodecFactory.xzCodec(level);
+    if ("zstandard".equals(name))
+      return CodecFactory.zstandardCodec(level);
+    if ("lz4".equals(name))
+      return CodecFactory.lz4Codec(level);
+    throw new IllegalArgumentException("No levels for codec: " + name);
+  }
+
+  /** Rewrites a data file's blocks with a codec. */
+  private static byte[] recodec(byte[] file, CodecFactory codec)
+    throws Exception {
+    DataFileStream<Object> reader = new DataFileStream<Object>(
+        new ByteArrayInputStream(file), new GenericDatumReader<Object>());
+    DataFileWriter<Object> writer =
+      new DataFileWriter<Object>(new GenericDatumWriter<Object>());
+    writer.setCodec(codec);
+    ByteArrayOutputStream out = new ByteArrayOutputStream(file.length);
+    writer.create(reader.getSchema(), out);
+    writer.appendAllFrom(reader, true);
+    writer.close();
+    reader.close();
+    return out.toByteArray();
+  }
+
+  /** Decompresses every block of data files. */
+  private static void read(List<byte[]> files) throws Exception {
+    for (byte[] file : files) {
+      DataFileStream<Object> reader = new DataFileStream<Object>(
+          new ByteArrayInputStream(file), new GenericDatumReader<Object>());
+      while (reader.hasNext())
+        reader.nextBlock();
+      reader.close();
+    }
+  }
+
+  private static double rate(long bytes, long nanos) {
+    return (bytes / (1024.0 * 1024.0)) / (nanos / 1e9);
+  }
+}
@@ -51,6 +51,7 @@ public class Main {
         new IdlTool(),
         new IdlToSchemataTool(),
         new RecodecTool(),
+        new CodecBenchmarkTool(),
         new ConcatTool(),
         new RpcReceiveTool(),
         new RpcSendTool(),
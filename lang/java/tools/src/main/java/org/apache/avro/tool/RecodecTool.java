@@ -44,6 +44,16 @@ public class RecodecTool implements Tool {
     OptionParser optParser = new OptionParser();
     OptionSpec<String> codecOpt = Util.compressionCodecOption(optParser);
     OptionSpec<Integer> levelOpt = Util.compressionLevelOption(optParser);
+    OptionSpec<String> dictionaryOpt = optParser
+      .accepts("dictionary", "File holding a dictionary to compress with"
+               + " (only applies to zstandard)")
+      .withRequiredArg()
+      .ofType(String.class);
+    OptionSpec<String> inputDictionaryOpt = optParser
+      .accepts("input-dictionary", "File holding the dictionary the input"
+               + " was compressed with (only applies to zstandard)")
+      .withRequiredArg()
+      .ofType(String.class);
     OptionSet opts = optParser.parse(args.toArray(new String[0]));
 
     List<String> nargs = (List<String>)opts.nonOptionArguments();
@@ -65,6 +75,30 @@ public class RecodecTool implements Tool {
       outputNeedsClosing = true;
     }
 
+    CodecFactory previous = null;
+    if (opts.has(inputDictionaryOpt))
+      previous = CodecFactory.addCodec(DataFileConstants.ZSTANDARD_CODEC,
+          CodecFactory.zstandardCodec(CodecFactory.DEFAULT_ZSTANDARD_LEVEL,
+              Util.readFromFS(inputDictionaryOpt.value(opts))));
+    try {
+      recodec(input, output, opts, codecOpt, levelOpt, dictionaryOpt);
+    } finally {
+      if (previous != null)
+        CodecFactory.addCodec(DataFileConstants.ZSTANDARD_CODEC, previous);
+    }
+
+    if (inputNeedsClosing) {
+      input.close();
+    }
+    if (outputNeedsClosing) {
+      output.close();
+    }
+    return 0;
+  }
+
+  private void recodec(InputStream input, OutputStream output, OptionSet opts,
+                       OptionSpec<String> codecOpt, OptionSpec<Integer> levelOpt,
+                       OptionSpec<String> dictionaryOpt) throws Exception {
     DataFileStream<GenericRecord> reader = new DataFileStream<GenericRecord>(
         input, new GenericDatumReader<GenericRecord>());
     Schema schema = reader.getSchema();
@@ -72,6 +106,14 @@ public class RecodecTool implements Tool {
         new GenericDatumWriter<GenericRecord>());
     // unlike the other Avro tools, we default to a null codec, not deflate
     CodecFactory codec = Util.codecFactory(opts, codecOpt, levelOpt, DataFileConstants.NULL_CODEC);
+    if (opts.has(dictionaryOpt)) {
+      if (!DataFileConstants.ZSTANDARD_CODEC.equals(codecOpt.value(opts)))
+        throw new IllegalArgumentException("A dictionary needs zstandard.");
+      codec = CodecFactory.zstandardCodec(opts.has(levelOpt)
+          ? levelOpt.value(opts)
+          : CodecFactory.DEFAULT_ZSTANDARD_LEVEL,
+          Util.readFromFS(dictionaryOpt.value(opts)));
+    }
     writer.setCodec(codec);
     for (String key : reader.getMetaKeys()) {
       if (!DataFileWriter.isReservedMeta(key)) {
@@ -82,14 +124,6 @@ public class RecodecTool implements Tool {
 
     writer.appendAllFrom(reader, true);
     writer.flush();
-
-    if (inputNeedsClosing) {
-      input.close();
-    }
-    if (outputNeedsClosing) {
-      output.close();
-    }
-    return 0;
   }
 
   @Override
@@ -21,6 +21,7 @@ import static org.apache.avro.file.DataFileConstants.DEFLATE_CODEC;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -263,7 +264,8 @@ class Util {
 
   static OptionSpec<Integer> compressionLevelOption(OptionParser optParser) {
     return optParser
-      .accepts("level", "Compression level (only applies to deflate and xz)")
+      .accepts("level", "Compression level (only applies to deflate, xz,"
+               + " zstandard and lz4)")
       .withRequiredArg()
       .ofType(Integer.class)
       .defaultsTo(Deflater.DEFAULT_COMPRESSION);
@@ -281,8 +283,34 @@ class Util {
         return CodecFactory.deflateCodec(level.value(opts));
       } else if(codecName.equals(DataFileConstants.XZ_CODEC)) {
         return CodecFactory.xzCodec(level.value(opts));
+      } else if(codecName.equals(DataFileConstants.ZSTANDARD_CODEC)) {
+        // the deflate default of -1 is a valid, fast zstandard level
+        return CodecFactory.zstandardCodec(opts.has(level)
+            ? level.value(opts)
+            : CodecFactory.DEFAULT_ZSTANDARD_LEVEL);
+      } else if(codecName.equals(DataFileConstants.LZ4_CODEC)) {
+        return CodecFactory.lz4Codec(opts.has(level) ? level.value(opts) : 0);
       } else {
-        return CodecFactory.fromString(codec.value(opts));
+        return CodecFactory.fromString(codecName);
       }
   }
+
+  /** Reads the whole of a file in the owning filesystem. */
+  static byte[] readFromFS(String filename) throws IOException {
+    return readFromFS(new Path(filename));
+  }
+
+  /** Reads the whole of a file in the owning filesystem. */
+  static byte[] readFromFS(Path filename) throws IOException {
+    InputStream in = openFromFS(filename);
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+        out.write(buffer, 0, n);
+      return out.toByteArray();
+    } finally {
+      in.close();
+    }
+  }
 }
@@ -21,6 +21,7 @@ import static java.util.Arrays.asList;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
 
@@ -101,6 +102,43 @@ public class TestRecodecTool {
     deflate9OutputFile.delete();
   }
   
+  @Test
+  public void testZstandardDictionary() throws Exception {
+    File inputFile = AvroTestUtil.tempFile(getClass(), "dict-input.avro");
+    File dictionaryFile = AvroTestUtil.tempFile(getClass(), "dictionary");
+    File outputFile = AvroTestUtil.tempFile(getClass(), "zstandard-dict.avro");
+    File nullFile = AvroTestUtil.tempFile(getClass(), "zstandard-null.avro");
+
+    Schema schema = Schema.create(Type.STRING);
+    DataFileWriter<String> writer = new DataFileWriter<String>(
+        new GenericDatumWriter<String>(schema)).create(schema, inputFile);
+    StringBuilder dictionary = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      writer.append("value-" + i % 100);
+      dictionary.append("value-").append(i % 100);
+    }
+    writer.close();
+    FileOutputStream dictionaryOut = new FileOutputStream(dictionaryFile);
+    dictionaryOut.write(dictionary.toString().getBytes("UTF-8"));
+    dictionaryOut.close();
+
+    new RecodecTool().run(new FileInputStream(inputFile),
+        new PrintStream(outputFile), null,
+        asList("--codec=zstandard", "--dictionary=" + dictionaryFile));
+    // the dictionary is needed to read the result
+    new RecodecTool().run(new FileInputStream(outputFile),
+        new PrintStream(nullFile), null,
+        asList("--input-dictionary=" + dictionaryFile));
+
+    DataFileReader<Object> reader =
+      new DataFileReader<Object>(nullFile, new GenericDatumReader<Object>());
+    int count = 0;
+    for (Object datum : reader)
+      Assert.assertEquals("value-" + count++ % 100, datum.toString());
+    reader.close();
+    Assert.assertEquals(1000, count);
+  }
+
   private static void assertLessThan(long less, long more) {
     if (less >= more) {
       Assert.fail("Expected " + less + " to be less than " + more);
@@ -33,6 +33,10 @@ abstract class Codec {
       return new SnappyCodec();
     else if ("bzip2".equals(name))
       return new BZip2Codec();
+    else if ("zstandard".equals(name))
+      return new ZstandardCodec();
+    else if ("lz4".equals(name))
+      return new LZ4Codec();
     else
       throw new TrevniRuntimeException("Unknown codec: "+name);
   }
@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+
+/** Implements <a href="http://lz4.github.io/lz4/">LZ4</a> codec.  Each
+ * block is preceded by its uncompressed length. */
+final class LZ4Codec extends Codec {
+  private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+
+  @Override ByteBuffer compress(ByteBuffer in) throws IOException {
+    LZ4Compressor compressor = FACTORY.fastCompressor();
+    ByteBuffer out =
+      ByteBuffer.allocate(compressor.maxCompressedLength(in.remaining()) + 4);
+    out.putInt(0, in.remaining());
+    int size = compressor.compress(in.array(), in.arrayOffset()+in.position(),
+                                   in.remaining(),
+                                   out.array(), 4, out.capacity() - 4);
+    out.limit(size + 4);
+    return out;
+  }
+
+  @Override ByteBuffer decompress(ByteBuffer in) throws IOException {
+    int length = in.getInt(in.position());
+    if (length < 0)
+      throw new IOException("Invalid uncompressed length: " + length);
+    ByteBuffer out = ByteBuffer.allocate(length);
+    try {
+      int size = FACTORY.safeDecompressor()
+        .decompress(in.array(), in.arrayOffset() + in.position() + 4,
+                    in.remaining() - 4, out.array(), 0, length);
+      if (size != length)
+        throw new IOException("Uncompressed length mismatch: " + size);
+    } catch (LZ4Exception e) {
+      throw new IOException(e);
+    }
+    return out;
+  }
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdException;
+
+/** Implements <a href="http://facebook.github.io/zstd/">Zstandard</a>
+ * codec. */
+final class ZstandardCodec extends Codec {
+  static final int DEFAULT_LEVEL = 3;
+
+  @Override ByteBuffer compress(ByteBuffer in) throws IOException {
+    byte[] out = new byte[(int) Zstd.compressBound(in.remaining())];
+    try {
+      long size = Zstd.compressByteArray(out, 0, out.length, in.array(),
+                                         in.arrayOffset() + in.position(),
+                                         in.remaining(), DEFAULT_LEVEL);
+      return ByteBuffer.wrap(out, 0, (int) size);
+    } catch (ZstdException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override ByteBuffer decompress(ByteBuffer in) throws IOException {
+    int offset = in.arrayOffset() + in.position();
+    long length = Zstd.decompressedSize(in.array(), offset, in.remaining());
+    if (length < 0 || length > Integer.MAX_VALUE)
+      throw new IOException("Invalid uncompressed size: " + length);
+    byte[] out = new byte[(int) length];
+    try {
+      Zstd.decompressByteArray(out, 0, out.length,
+                               in.array(), offset, in.remaining());
+    } catch (ZstdException e) {
+      throw new IOException(e);
+    }
+    return ByteBuffer.wrap(out);
+  }
+
+}
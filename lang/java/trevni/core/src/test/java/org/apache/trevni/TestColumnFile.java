@@ -51,7 +51,9 @@ public class TestColumnFile {
   @Parameters public static Collection<Object[]> codecs() {
     Object[][] data = new Object[][] {{"null", "null"},
                                       {"snappy", "crc32"},
-                                      {"deflate", "crc32"}};
+                                      {"deflate", "crc32"},
+                                      {"zstandard", "crc32"},
+                                      {"lz4", "crc32"}};
     return Arrays.asList(data);
   }
 